@@ -0,0 +1,134 @@
+package com.salon.benchmarks;
+
+import com.salon.tools.SyntheticDataGenerator;
+import com.salon.util.DBConnection;
+import org.h2.tools.DeleteDbFiles;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Stream;
+
+// An H2 database (MySQL mode) with the salon schema and a SyntheticDataGenerator data set, for the
+// JMH benchmarks. One file database per scale and seed under -Dsalon.bench.dir (default
+// target/bench-db); it is created and seeded by the first fork that needs it and reused afterwards,
+// so a 1M run pays for the seeding once. The schema is schema/base.sql (the tables as they were before
+// the first migration) followed by every sql/*.sql migration in name order. A database whose seeding
+// did not finish (no bench_dataset row) is deleted and built again.
+public final class EmbeddedSalonDatabase {
+
+    private static final String USER = "sa";
+    private static final String PASSWORD = "";
+
+    private EmbeddedSalonDatabase() {
+    }
+
+    // Points DBConnection at the database for this scale/seed, creating it first if needed
+    public static synchronized void open(int scale, long seed) throws Exception {
+        Path dir = Paths.get(System.getProperty("salon.bench.dir", "target/bench-db")).toAbsolutePath();
+        Files.createDirectories(dir);
+        String name = "salon-" + scale + "-" + seed;
+        String url = "jdbc:h2:file:" + dir.resolve(name) + ";MODE=MySQL";
+
+        System.setProperty("salon.db.url", url);
+        System.setProperty("salon.db.driver", "org.h2.Driver");
+        System.setProperty("salon.db.user", USER);
+        System.setProperty("salon.db.password", PASSWORD);
+        if (System.getProperty("salon.docs.dir") == null) {
+            System.setProperty("salon.docs.dir", dir.resolve("documents").toString());
+        }
+        DBConnection.shutdown(); // the next getConnection() opens a pool on this database
+
+        if (isSeeded(url, scale, seed)) {
+            return;
+        }
+        DeleteDbFiles.execute(dir.toString(), name, true);
+        try (Connection conn = DriverManager.getConnection(url, USER, PASSWORD);
+             Statement st = conn.createStatement()) {
+            for (String script : schemaScripts()) {
+                for (String sql : statements(script)) {
+                    st.execute(sql);
+                }
+            }
+        }
+        long start = System.currentTimeMillis();
+        new SyntheticDataGenerator(scale, seed).generate();
+        try (Connection conn = DriverManager.getConnection(url, USER, PASSWORD);
+             Statement st = conn.createStatement()) {
+            st.execute("CREATE TABLE bench_dataset (scale INT, seed BIGINT, seeded_ms BIGINT)");
+            st.execute("INSERT INTO bench_dataset VALUES (" + scale + ", " + seed + ", "
+                    + (System.currentTimeMillis() - start) + ")");
+        }
+    }
+
+    private static boolean isSeeded(String url, int scale, long seed) {
+        try (Connection conn = DriverManager.getConnection(url + ";IFEXISTS=TRUE", USER, PASSWORD);
+             PreparedStatement ps = conn.prepareStatement("SELECT COUNT(*) FROM bench_dataset WHERE scale = ? AND seed = ?")) {
+            ps.setInt(1, scale);
+            ps.setLong(2, seed);
+            ResultSet rs = ps.executeQuery();
+            return rs.next() && rs.getInt(1) > 0;
+        } catch (SQLException e) {
+            return false; // no database yet, or seeding never finished
+        }
+    }
+
+    // schema/base.sql, then the migrations copied in from sql/ by the build
+    private static List<String> schemaScripts() throws Exception {
+        List<String> scripts = new ArrayList<>();
+        scripts.add(resource("schema/base.sql"));
+        URI migrations = EmbeddedSalonDatabase.class.getClassLoader().getResource("schema/migrations").toURI();
+        if ("jar".equals(migrations.getScheme())) {
+            try (FileSystem jar = FileSystems.newFileSystem(migrations, Collections.emptyMap())) {
+                scripts.addAll(readSorted(jar.getPath("/schema/migrations")));
+            }
+        } else {
+            scripts.addAll(readSorted(Paths.get(migrations)));
+        }
+        return scripts;
+    }
+
+    private static List<String> readSorted(Path dir) throws IOException {
+        List<String> scripts = new ArrayList<>();
+        try (Stream<Path> files = Files.list(dir)) {
+            for (Path f : (Iterable<Path>) files.filter(p -> p.getFileName().toString().endsWith(".sql")).sorted()::iterator) {
+                scripts.add(new String(Files.readAllBytes(f), StandardCharsets.UTF_8));
+            }
+        }
+        return scripts;
+    }
+
+    private static String resource(String name) throws IOException {
+        try (java.io.InputStream in = EmbeddedSalonDatabase.class.getClassLoader().getResourceAsStream(name)) {
+            if (in == null) {
+                throw new IOException("Missing resource " + name);
+            }
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    // The scripts hold plain statements separated by ';' with whole-line '--' comments
+    private static List<String> statements(String script) {
+        List<String> out = new ArrayList<>();
+        for (String sql : script.replaceAll("(?m)^\\s*--.*$", "").split(";")) {
+            if (!sql.trim().isEmpty()) {
+                out.add(sql.trim());
+            }
+        }
+        return out;
+    }
+}
@@ -0,0 +1,166 @@
+package com.salon.benchmarks;
+
+import com.salon.dao.AnalyticsDAO;
+import com.salon.dao.CustomerDAO;
+import com.salon.dao.InvoiceDAO;
+import com.salon.dao.MembershipDAO;
+import com.salon.dao.ProductDAO;
+import com.salon.dao.ServiceDAO;
+import com.salon.dao.StockDAO;
+import com.salon.dao.StockMovementDAO;
+import com.salon.model.Customer;
+import com.salon.model.InvoiceItem;
+import com.salon.model.InvoiceService;
+import com.salon.model.ProductPriceIndex;
+import com.salon.model.SellableProduct;
+import com.salon.service.InvoiceRenderQueue;
+import com.salon.tools.SyntheticDataGenerator;
+import com.salon.util.DBConnection;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// The DAO and report hot paths against the embedded database (EmbeddedSalonDatabase), seeded by
+// SyntheticDataGenerator at -p scale=1k|100k|1M (default 1k) and -p seed (default 42).
+// Every benchmark is one call as the UI makes it; priceIndexLookup is one pass over every product,
+// as the usage and sale panels do when they fill their tables.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 2, jvmArgsAppend = {"-Xmx2g"})
+public class HotPathBenchmarks {
+
+    @Param({"1k"})
+    public String scale;
+
+    @Param({"42"})
+    public long seed;
+
+    private final AnalyticsDAO analytics = new AnalyticsDAO();
+    private final InvoiceDAO invoices = new InvoiceDAO();
+    private final StockMovementDAO movements = new StockMovementDAO();
+    private final CustomerDAO customers = new CustomerDAO();
+    private final StockDAO stock = new StockDAO();
+    private final ProductDAO products = new ProductDAO();
+    private final ServiceDAO services = new ServiceDAO();
+    private final MembershipDAO plans = new MembershipDAO();
+
+    private Date reportStart;
+    private Date reportEnd;
+    private Customer customer;
+    private List<InvoiceService> invoiceServices;
+    private List<InvoiceItem> invoiceItems;
+    private ProductPriceIndex priceIndex;
+    private int[] productIds;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        EmbeddedSalonDatabase.open(SyntheticDataGenerator.parseScale(scale), seed);
+
+        // The last 90 days, as the analytics panel's default period
+        reportEnd = new Date();
+        reportStart = new Date(reportEnd.getTime() - 90L * 24 * 60 * 60 * 1000);
+
+        customer = new Customer();
+        customer.setCustomerId("SYN-0000001");
+        customer.setName("Synthetic Customer 1");
+        customer.setPhone("8000000001");
+        customer.setAddress("Street 1");
+        invoiceServices = new ArrayList<>();
+        invoiceServices.add(new InvoiceService(null, "Haircut", 300));
+        invoiceServices.add(new InvoiceService(null, "Hair Spa", 1200));
+        invoiceServices.add(new InvoiceService(null, "Facial", 800));
+        invoiceItems = new ArrayList<>();
+        invoiceItems.add(new InvoiceItem(1, "Shampoo", "Loreal", 2, 450, 320));
+        invoiceItems.add(new InvoiceItem(2, "Serum", "Matrix", 1, 900, 610));
+
+        priceIndex = stock.getProductPriceIndex();
+        List<Integer> ids = new ArrayList<>();
+        try (Connection conn = DBConnection.getConnection();
+             Statement st = conn.createStatement();
+             ResultSet rs = st.executeQuery("SELECT product_id FROM products ORDER BY product_id")) {
+            while (rs.next()) {
+                ids.add(rs.getInt(1));
+            }
+        }
+        productIds = ids.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        InvoiceRenderQueue.shutdown();
+        DBConnection.shutdown();
+    }
+
+    @Benchmark
+    public byte[] analyticsPdf() throws Exception {
+        return analytics.generateBusinessAnalyticsPDF(true, true, true, true, reportStart, reportEnd);
+    }
+
+    @Benchmark
+    public byte[] invoicePdf() throws Exception {
+        return invoices.generateInvoicePDF(customer.getCustomerId(), customer, invoiceServices, invoiceItems,
+                2300, 230, 2070, 1800, 3870, reportEnd);
+    }
+
+    @Benchmark
+    public List<Map<String, Object>> stockSummary() {
+        return movements.getStockSummary();
+    }
+
+    @Benchmark
+    public List<Customer> allCustomers() {
+        return customers.getAllCustomers();
+    }
+
+    @Benchmark
+    public ProductPriceIndex priceIndexBuild() {
+        return stock.getProductPriceIndex();
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public void priceIndexLookup(Blackhole bh) {
+        for (int id : productIds) {
+            bh.consume(priceIndex.getActualPrice(id));
+            bh.consume(priceIndex.getSellingPrice(id));
+        }
+    }
+
+    @Benchmark
+    public List<SellableProduct> sellableProducts() {
+        return products.getSellableProducts();
+    }
+
+    // Reference data as the invoice dialog reads it (served from CatalogCache after the first call)
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public void catalogReads(Blackhole bh) {
+        bh.consume(services.getActiveServices());
+        bh.consume(services.getCategories());
+        bh.consume(plans.getActivePlans());
+        bh.consume(products.getProductList());
+    }
+}
@@ -0,0 +1,217 @@
+package com.salon.benchmarks;
+
+import com.salon.util.ConnectionPool;
+import com.salon.util.PoolStats;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Checks ConnectionPool behaviour under contention without a MySQL server. Lives with the benchmarks
+// because benchmarks.jar carries the H2 driver (the app itself only ships the MySQL one):
+//
+//   java -cp benchmarks/target/benchmarks.jar com.salon.benchmarks.PoolContentionCheck [threads] [borrowsPerThread] [maxSize]
+//
+// Defaults: 16 threads x 200 borrows against a pool of 4, on an in-memory H2 database
+// (jdbc:h2:mem:pool_check); any other database works with -Dsalon.db.url/user/password and the
+// driver jar added to -cp. Each borrow runs SELECT 1 and holds the connection 0-2 ms.
+// Checks, exit code 1 if any fails:
+//   - contention: never more than maxSize connections out at once, no borrow times out, and
+//     afterwards nothing is active, nobody waits and the pool holds at most maxSize connections
+//   - timeout:    a borrow from an exhausted pool fails after maxWaitMs and is counted
+//   - close:      a closed handle refuses work, closing twice is harmless, the connection is reused
+//   - reset:      autoCommit, read-only and isolation changed by a borrower are back to the defaults
+//                 for the next one
+//   - leak:       a connection held past leakThresholdMs is reported by the housekeeper (takes ~6 s)
+public class PoolContentionCheck {
+
+    private static final String URL = System.getProperty("salon.db.url", "jdbc:h2:mem:pool_check;DB_CLOSE_DELAY=-1");
+    private static final String USER = System.getProperty("salon.db.user", "sa");
+    private static final String PASSWORD = System.getProperty("salon.db.password", "");
+
+    private static final List<String> failures = new ArrayList<>();
+
+    public static void main(String[] args) throws Exception {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : 16;
+        int borrows = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+        int maxSize = args.length > 2 ? Integer.parseInt(args[2]) : 4;
+
+        checkContention(threads, borrows, maxSize);
+        checkTimeout();
+        checkClose();
+        checkReset();
+        checkLeak();
+
+        if (failures.isEmpty()) {
+            System.out.println("All pool checks passed.");
+            System.exit(0);
+        }
+        System.out.println(failures.size() + " pool check(s) failed:");
+        for (String f : failures) {
+            System.out.println("  " + f);
+        }
+        System.exit(1);
+    }
+
+    private static void checkContention(int threads, int borrows, int maxSize) throws Exception {
+        ConnectionPool pool = new ConnectionPool(URL, USER, PASSWORD, 1, maxSize, 5000, 300000, 0);
+        AtomicInteger out = new AtomicInteger();
+        AtomicInteger maxOut = new AtomicInteger();
+        AtomicLong errors = new AtomicLong();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> workers = new ArrayList<>();
+        try {
+            for (int t = 0; t < threads; t++) {
+                Thread thread = new Thread(() -> {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    for (int i = 0; i < borrows; i++) {
+                        try (Connection conn = pool.getConnection()) {
+                            maxOut.accumulateAndGet(out.incrementAndGet(), Math::max);
+                            try (Statement st = conn.createStatement();
+                                 ResultSet rs = st.executeQuery("SELECT 1")) {
+                                rs.next();
+                            }
+                            Thread.sleep(ThreadLocalRandom.current().nextInt(3));
+                            out.decrementAndGet();
+                        } catch (Exception e) {
+                            errors.incrementAndGet();
+                        }
+                    }
+                }, "pool-check-" + t);
+                workers.add(thread);
+                thread.start();
+            }
+            long begin = System.nanoTime();
+            start.countDown();
+            for (Thread thread : workers) {
+                thread.join();
+            }
+            double seconds = (System.nanoTime() - begin) / 1e9;
+
+            PoolStats stats = pool.getStats();
+            System.out.printf("contention: %d borrows by %d threads in %.2f s, at most %d out at once%n",
+                    (long) threads * borrows, threads, seconds, maxOut.get());
+            System.out.println("  " + stats);
+            expect(maxOut.get() <= maxSize, "contention: " + maxOut.get() + " connections out at once, max is " + maxSize);
+            expect(errors.get() == 0, "contention: " + errors.get() + " borrows failed");
+            expect(stats.getBorrowCount() == (long) threads * borrows,
+                    "contention: pool counted " + stats.getBorrowCount() + " borrows");
+            expect(stats.getActive() == 0 && stats.getWaiters() == 0,
+                    "contention: " + stats.getActive() + " active, " + stats.getWaiters() + " waiting after the run");
+            expect(stats.getTotal() <= maxSize, "contention: pool holds " + stats.getTotal() + " connections");
+            expect(stats.getConnectionsCreated() - stats.getConnectionsDestroyed() == stats.getTotal(),
+                    "contention: created - destroyed does not match the connections held");
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private static void checkTimeout() throws Exception {
+        ConnectionPool pool = new ConnectionPool(URL, USER, PASSWORD, 0, 1, 100, 300000, 0);
+        try {
+            Connection held = pool.getConnection();
+            long begin = System.nanoTime();
+            boolean timedOut = false;
+            try (Connection extra = pool.getConnection()) {
+                extra.isValid(1);
+            } catch (SQLException e) {
+                timedOut = true;
+            }
+            long waitedMs = (System.nanoTime() - begin) / 1_000_000;
+            held.close();
+            System.out.printf("timeout: exhausted pool gave up after %d ms%n", waitedMs);
+            expect(timedOut, "timeout: borrow from an exhausted pool did not fail");
+            expect(waitedMs >= 90 && waitedMs < 2000, "timeout: waited " + waitedMs + " ms for a 100 ms limit");
+            expect(pool.getStats().getWaitTimeouts() == 1, "timeout: " + pool.getStats().getWaitTimeouts() + " timeouts counted");
+            try (Connection again = pool.getConnection()) {
+                expect(again.isValid(1), "timeout: connection returned after the timeout is not usable");
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private static void checkClose() throws Exception {
+        ConnectionPool pool = new ConnectionPool(URL, USER, PASSWORD, 0, 2, 1000, 300000, 0);
+        try {
+            Connection conn = pool.getConnection();
+            conn.close();
+            conn.close();
+            boolean refused = false;
+            try {
+                conn.createStatement();
+            } catch (SQLException e) {
+                refused = true;
+            }
+            try (Connection next = pool.getConnection()) {
+                next.isValid(1);
+            }
+            PoolStats stats = pool.getStats();
+            System.out.println("close: " + stats);
+            expect(refused, "close: a closed handle still hands out statements");
+            expect(stats.getConnectionsCreated() == 1, "close: " + stats.getConnectionsCreated() + " connections opened for two sequential borrows");
+            expect(stats.getActive() == 0, "close: " + stats.getActive() + " active after closing everything");
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private static void checkReset() throws Exception {
+        ConnectionPool pool = new ConnectionPool(URL, USER, PASSWORD, 0, 1, 1000, 300000, 0);
+        try {
+            int isolation;
+            boolean readOnly;
+            try (Connection conn = pool.getConnection()) {
+                isolation = conn.getTransactionIsolation();
+                readOnly = conn.isReadOnly();
+                conn.setAutoCommit(false);
+                conn.setReadOnly(!readOnly);
+                conn.setTransactionIsolation(isolation == Connection.TRANSACTION_SERIALIZABLE
+                        ? Connection.TRANSACTION_READ_COMMITTED : Connection.TRANSACTION_SERIALIZABLE);
+            }
+            try (Connection next = pool.getConnection()) {
+                System.out.println("reset: autoCommit=" + next.getAutoCommit() + ", readOnly=" + next.isReadOnly()
+                        + ", isolation=" + next.getTransactionIsolation());
+                expect(next.getAutoCommit(), "reset: autoCommit left off for the next borrower");
+                expect(next.isReadOnly() == readOnly, "reset: read-only flag left changed for the next borrower");
+                expect(next.getTransactionIsolation() == isolation, "reset: isolation left changed for the next borrower");
+            }
+            expect(pool.getStats().getConnectionsCreated() == 1, "reset: the connection was not reused");
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private static void checkLeak() throws Exception {
+        ConnectionPool pool = new ConnectionPool(URL, USER, PASSWORD, 0, 2, 1000, 300000, 200, true);
+        try {
+            Connection leaked = pool.getConnection();
+            long deadline = System.currentTimeMillis() + 12000;
+            while (pool.getStats().getLeaksDetected() == 0 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(100);
+            }
+            System.out.println("leak: " + pool.getStats().getLeaksDetected() + " leak(s) reported");
+            expect(pool.getStats().getLeaksDetected() == 1, "leak: a connection held past the threshold was not reported");
+            leaked.close();
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private static void expect(boolean condition, String failure) {
+        if (!condition) {
+            failures.add(failure);
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,16 @@
+-- The tables the DAOs use, as they were before sql/001 (the production database predates the
+-- migrations, so this is written down from the DAOs). Only used to build the embedded benchmark
+-- database: EmbeddedSalonDatabase runs this file and then every sql/*.sql migration in order.
+
+CREATE TABLE products (product_id INT AUTO_INCREMENT PRIMARY KEY, sku VARCHAR(50), name VARCHAR(100), brand VARCHAR(100), product_type VARCHAR(30), description VARCHAR(255), is_discontinued TINYINT DEFAULT 0);
+CREATE TABLE users (user_id INT AUTO_INCREMENT PRIMARY KEY, full_name VARCHAR(100), username VARCHAR(50), password VARCHAR(100), role VARCHAR(20));
+CREATE TABLE membership_plans (plan_id INT AUTO_INCREMENT PRIMARY KEY, plan_name VARCHAR(50), discount_percentage DOUBLE, description VARCHAR(255), is_active TINYINT DEFAULT 1);
+CREATE TABLE customers (customer_id VARCHAR(20) PRIMARY KEY, name VARCHAR(100), phone VARCHAR(20), address VARCHAR(255), created_at TIMESTAMP, membership_plan_id INT);
+CREATE TABLE stock_entries (stock_id INT AUTO_INCREMENT PRIMARY KEY, product_id INT, add_date DATE, quantity DOUBLE, actual_price_per_unit DOUBLE, selling_price_per_unit DOUBLE, notes VARCHAR(255), stock_status VARCHAR(20) DEFAULT 'RUNNING', quantity_consumed DOUBLE DEFAULT 0);
+CREATE TABLE stock_movements (movement_id INT AUTO_INCREMENT PRIMARY KEY, product_id INT, movement_date TIMESTAMP, quantity_changed DOUBLE, movement_type VARCHAR(20), reference_id INT, user_id INT, remarks VARCHAR(255));
+CREATE TABLE invoices (invoice_id INT AUTO_INCREMENT PRIMARY KEY, customer_id VARCHAR(20), invoice_date TIMESTAMP, total_services DOUBLE, total_products DOUBLE, total_amount DOUBLE, invoice_pdf BLOB, invoice_filename VARCHAR(100));
+CREATE TABLE invoice_services (service_id INT AUTO_INCREMENT PRIMARY KEY, invoice_id INT, service_name VARCHAR(100), price DOUBLE, discount_amount DOUBLE, final_price DOUBLE);
+CREATE TABLE invoice_items (item_id INT AUTO_INCREMENT PRIMARY KEY, invoice_id INT, product_id INT, quantity DOUBLE, selling_price_per_unit DOUBLE, actual_price_per_unit DOUBLE, subtotal DOUBLE);
+CREATE TABLE reports (report_id INT AUTO_INCREMENT PRIMARY KEY, report_type VARCHAR(50), params_json VARCHAR(1000), exported_by INT, exported_at TIMESTAMP, report_pdf_path VARCHAR(255));
+CREATE TABLE services (service_id INT AUTO_INCREMENT PRIMARY KEY, service_name VARCHAR(100), service_category VARCHAR(50), base_price DOUBLE, description VARCHAR(255), duration_minutes INT, is_active TINYINT DEFAULT 1, created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP, updated_at TIMESTAMP NULL);
+ALTER TABLE membership_plans ADD COLUMN created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP;
@@ -0,0 +1,19 @@
+-- Materialized per-product stock balance, maintained by StockDAO.addStockEntry,
+-- InvoiceDAO.createInvoice and StockMovementDAO in the same transaction as the ledger row.
+-- After creating the table, backfill it with:
+--   java -cp <classpath> com.salon.tools.StockLedgerTool rebuild
+
+CREATE TABLE IF NOT EXISTS stock_balances (
+    product_id        INT          NOT NULL PRIMARY KEY,
+    total_added       DOUBLE       NOT NULL DEFAULT 0,
+    total_used        DOUBLE       NOT NULL DEFAULT 0,
+    total_sold        DOUBLE       NOT NULL DEFAULT 0,
+    on_hand           DOUBLE       NOT NULL DEFAULT 0,
+    entry_count       INT          NOT NULL DEFAULT 0,
+    sum_actual_price  DOUBLE       NOT NULL DEFAULT 0,
+    sum_selling_price DOUBLE       NOT NULL DEFAULT 0,
+    cost_value        DOUBLE       NOT NULL DEFAULT 0,
+    selling_value     DOUBLE       NOT NULL DEFAULT 0,
+    updated_at        TIMESTAMP    NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    CONSTRAINT fk_stock_balances_product FOREIGN KEY (product_id) REFERENCES products (product_id)
+);
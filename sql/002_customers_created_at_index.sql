@@ -0,0 +1,4 @@
+-- Backs CustomerDAO.getCustomersCreatedSince / getCustomersCreatedSincePage:
+-- range filter on created_at plus keyset pagination on (created_at, customer_id).
+
+CREATE INDEX idx_customers_created_at ON customers (created_at, customer_id);
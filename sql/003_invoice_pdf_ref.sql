@@ -0,0 +1,6 @@
+-- Invoice PDFs move out of the invoices row into the document store (com.salon.storage).
+-- New invoices only set invoice_pdf_ref; move existing BLOBs out with:
+--   java -cp <classpath> com.salon.tools.InvoiceBlobMigrator [batchSize]
+
+ALTER TABLE invoices ADD COLUMN invoice_pdf_ref VARCHAR(80) NULL;
+ALTER TABLE invoices MODIFY invoice_pdf LONGBLOB NULL;
@@ -0,0 +1,10 @@
+-- Invoice PDFs are rendered after the invoice commits (com.salon.service.InvoiceRenderQueue).
+-- pdf_status: PENDING (waiting for the queue), READY (invoice_pdf_ref / legacy BLOB set),
+-- FAILED (gave up after retries; rendered on demand when the invoice is opened).
+-- Existing invoices already carry their PDF, so they start out READY.
+
+ALTER TABLE invoices ADD COLUMN pdf_status VARCHAR(10) NOT NULL DEFAULT 'READY';
+ALTER TABLE invoices ADD COLUMN pdf_attempts INT NOT NULL DEFAULT 0;
+ALTER TABLE invoices ADD COLUMN pdf_error VARCHAR(255) NULL;
+
+CREATE INDEX idx_invoices_pdf_status ON invoices (pdf_status, invoice_id);
@@ -0,0 +1,21 @@
+-- Which stock entry (lot) supplied which invoice item, written by FifoAllocationEngine
+-- in the invoice transaction. SUM(quantity * unit_cost) per item is its exact cost of goods.
+
+CREATE TABLE IF NOT EXISTS invoice_item_lots (
+    allocation_id INT          NOT NULL AUTO_INCREMENT PRIMARY KEY,
+    invoice_id    INT          NOT NULL,
+    item_id       INT          NOT NULL,
+    product_id    INT          NOT NULL,
+    stock_id      INT          NOT NULL,
+    quantity      DOUBLE       NOT NULL,
+    unit_cost     DOUBLE       NOT NULL,
+    CONSTRAINT fk_item_lots_invoice FOREIGN KEY (invoice_id) REFERENCES invoices (invoice_id),
+    CONSTRAINT fk_item_lots_item FOREIGN KEY (item_id) REFERENCES invoice_items (item_id),
+    CONSTRAINT fk_item_lots_stock FOREIGN KEY (stock_id) REFERENCES stock_entries (stock_id)
+);
+
+CREATE INDEX idx_item_lots_item ON invoice_item_lots (item_id);
+CREATE INDEX idx_item_lots_stock ON invoice_item_lots (stock_id);
+
+-- RUNNING lots of a product in FIFO order straight from the index
+CREATE INDEX idx_stock_entries_fifo ON stock_entries (product_id, stock_status, add_date, stock_id);
@@ -0,0 +1,7 @@
+-- Generated analytics reports are kept: the PDF goes into the document store (com.salon.storage)
+-- and the reports row points at it, so View/Export serve the stored copy instead of regenerating.
+-- Rows older than -Dsalon.reports.retentionDays (default 180) are pruned together with their files.
+
+ALTER TABLE reports ADD COLUMN report_pdf_ref VARCHAR(80) NULL;
+
+CREATE INDEX idx_reports_exported_at ON reports (exported_at);
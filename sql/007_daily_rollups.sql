@@ -0,0 +1,45 @@
+-- Per-day aggregates behind the analytics report (com.salon.dao.AnalyticsRollupDAO).
+-- invoices and stock_movements are append-only, so the rollups grow from a high-water mark per
+-- source (rollup_watermarks.last_id = highest invoice_id / movement_id already added).
+-- The report reads whole days from these tables and only the partial first/last day, plus rows
+-- above the watermark, from the raw tables. After creating the tables, backfill them with:
+--   java -cp <classpath> com.salon.tools.AnalyticsRollupTool rebuild
+
+CREATE TABLE IF NOT EXISTS rollup_watermarks (
+    source       VARCHAR(30)  NOT NULL PRIMARY KEY,
+    last_id      BIGINT       NOT NULL DEFAULT 0,
+    refreshed_at TIMESTAMP    NULL
+);
+
+INSERT INTO rollup_watermarks (source, last_id) VALUES ('invoices', 0);
+INSERT INTO rollup_watermarks (source, last_id) VALUES ('stock_movements', 0);
+
+-- One row per customer per day they were invoiced
+CREATE TABLE IF NOT EXISTS rollup_customer_daily (
+    rollup_date   DATE         NOT NULL,
+    customer_id   VARCHAR(20)  NOT NULL,
+    invoice_count INT          NOT NULL DEFAULT 0,
+    service_total DOUBLE       NOT NULL DEFAULT 0,
+    product_total DOUBLE       NOT NULL DEFAULT 0,
+    PRIMARY KEY (rollup_date, customer_id)
+);
+
+-- Invoice lines per product per day; cost = quantity × actual price at the time of sale
+CREATE TABLE IF NOT EXISTS rollup_product_sales_daily (
+    rollup_date   DATE         NOT NULL,
+    product_id    INT          NOT NULL,
+    quantity      DOUBLE       NOT NULL DEFAULT 0,
+    revenue       DOUBLE       NOT NULL DEFAULT 0,
+    cost          DOUBLE       NOT NULL DEFAULT 0,
+    line_count    INT          NOT NULL DEFAULT 0,
+    PRIMARY KEY (rollup_date, product_id)
+);
+
+-- USAGE movements per product per day (valued at report time, like the report always did)
+CREATE TABLE IF NOT EXISTS rollup_product_usage_daily (
+    rollup_date    DATE         NOT NULL,
+    product_id     INT          NOT NULL,
+    quantity       DOUBLE       NOT NULL DEFAULT 0,
+    movement_count INT          NOT NULL DEFAULT 0,
+    PRIMARY KEY (rollup_date, product_id)
+);
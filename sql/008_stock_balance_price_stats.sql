@@ -0,0 +1,13 @@
+-- Per-product price statistics on the stock ledger, maintained by StockDAO.addStockEntry in the
+-- same transaction as the stock_entries row (see StockLedgerDAO / model ProductPriceStats).
+-- entry_count, total_added and sum_*_price already exist; this adds the range and the
+-- quantity-weighted sums, so weighted average = weighted_*_sum / total_added.
+-- min/max stay NULL until the product's first stock entry. Backfill with:
+--   java -cp <classpath> com.salon.tools.StockLedgerTool rebuild
+
+ALTER TABLE stock_balances ADD COLUMN min_actual_price DOUBLE NULL;
+ALTER TABLE stock_balances ADD COLUMN max_actual_price DOUBLE NULL;
+ALTER TABLE stock_balances ADD COLUMN min_selling_price DOUBLE NULL;
+ALTER TABLE stock_balances ADD COLUMN max_selling_price DOUBLE NULL;
+ALTER TABLE stock_balances ADD COLUMN weighted_actual_sum DOUBLE NOT NULL DEFAULT 0;
+ALTER TABLE stock_balances ADD COLUMN weighted_selling_sum DOUBLE NOT NULL DEFAULT 0;
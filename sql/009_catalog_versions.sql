@@ -0,0 +1,13 @@
+-- One version counter per reference-data catalog, bumped by the DAOs on every write to it
+-- (com.salon.dao.CatalogCache). Terminals cache services, membership plans and the product
+-- list in memory and compare these few rows every few seconds to notice each other's writes.
+
+CREATE TABLE IF NOT EXISTS catalog_versions (
+    catalog    VARCHAR(30)  NOT NULL PRIMARY KEY,
+    version    BIGINT       NOT NULL DEFAULT 0,
+    updated_at TIMESTAMP    NULL
+);
+
+INSERT INTO catalog_versions (catalog, version) VALUES ('services', 0);
+INSERT INTO catalog_versions (catalog, version) VALUES ('membership_plans', 0);
+INSERT INTO catalog_versions (catalog, version) VALUES ('products', 0);
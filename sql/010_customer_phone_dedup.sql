@@ -0,0 +1,16 @@
+-- One customer row per phone number (com.salon.dao.CustomerDAO.addCustomer upserts by number).
+-- phone_normalized = com.salon.util.PhoneNumbers.normalize(phone), NULL when there are no digits;
+-- visit_count / last_visit are bumped each time a returning customer is invoiced.
+-- Existing rows are normalized and their duplicates merged by the tool, which needs Java for the
+-- normalization; run it before 011_customers_phone_unique.sql:
+--   java -cp <classpath> com.salon.tools.CustomerMergeTool merge
+
+ALTER TABLE customers ADD COLUMN phone_normalized VARCHAR(20) NULL;
+ALTER TABLE customers ADD COLUMN visit_count INT NOT NULL DEFAULT 1;
+ALTER TABLE customers ADD COLUMN last_visit TIMESTAMP NULL;
+
+-- Until now every invoice created its own customer row: one visit each, on the day it was created
+UPDATE customers SET last_visit = created_at WHERE last_visit IS NULL;
+
+-- Lets the merge tool find the rows still to normalize, and serves lookups until 011 is applied
+CREATE INDEX idx_customers_phone_normalized ON customers (phone_normalized);
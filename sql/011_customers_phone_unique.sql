@@ -0,0 +1,6 @@
+-- Apply after CustomerMergeTool merge has collapsed the duplicates (see 010_customer_phone_dedup.sql).
+-- From here on two terminals adding the same number at once end up on one row: the second
+-- INSERT hits this index and turns into a visit of the first one's customer.
+
+CREATE UNIQUE INDEX uq_customers_phone_normalized ON customers (phone_normalized);
+DROP INDEX idx_customers_phone_normalized ON customers;
@@ -0,0 +1,20 @@
+-- Compact sequential customer keys (com.salon.dao.KeySequence).
+-- customers.customer_key is a BIGINT handed out in blocks from key_sequences; invoices reference it
+-- through invoices.customer_key, which joins on 8 bytes instead of a VARCHAR. customer_id stays the
+-- code printed on invoices: existing customers keep their CUST-xxxxxxxx code, new ones get a code
+-- derived from their key (C + base 36, e.g. C0000YA), so new rows no longer land at random places
+-- in the primary key. Give the existing rows their keys, then apply 013_customer_keys_required.sql:
+--   java -cp <classpath> com.salon.tools.CustomerKeyMigrator
+
+CREATE TABLE IF NOT EXISTS key_sequences (
+    name       VARCHAR(30)  NOT NULL PRIMARY KEY,
+    next_value BIGINT       NOT NULL
+);
+
+INSERT INTO key_sequences (name, next_value) VALUES ('customers', 1);
+
+ALTER TABLE customers ADD COLUMN customer_key BIGINT NULL;
+CREATE UNIQUE INDEX uq_customers_customer_key ON customers (customer_key);
+
+ALTER TABLE invoices ADD COLUMN customer_key BIGINT NULL;
+CREATE INDEX idx_invoices_customer_key ON invoices (customer_key);
@@ -0,0 +1,24 @@
+-- Apply after CustomerKeyMigrator has given every customer and invoice its customer_key
+-- (see 012_customer_keys.sql), with the terminals closed: they read once at startup whether
+-- invoices still carry customer_id (com.salon.dao.CustomerKeySchema) and join on it until then.
+-- Invoices without a customer keep a NULL key.
+
+-- customer_key becomes the primary key; customer_id stays the printed code, unique
+ALTER TABLE customers MODIFY customer_key BIGINT NOT NULL;
+CREATE UNIQUE INDEX uq_customers_customer_id ON customers (customer_id);
+ALTER TABLE customers DROP PRIMARY KEY;
+ALTER TABLE customers ADD PRIMARY KEY (customer_key);
+DROP INDEX uq_customers_customer_key ON customers;
+
+-- Invoices reference customers by key only
+ALTER TABLE invoices ADD CONSTRAINT fk_invoices_customer_key FOREIGN KEY (customer_key) REFERENCES customers (customer_key);
+ALTER TABLE invoices DROP COLUMN customer_id;
+
+-- Daily customer rollups are keyed the same way; rows of customers that no longer exist are dropped
+ALTER TABLE rollup_customer_daily ADD COLUMN customer_key BIGINT NULL;
+UPDATE rollup_customer_daily SET customer_key = (SELECT c.customer_key FROM customers c WHERE c.customer_id = rollup_customer_daily.customer_id);
+DELETE FROM rollup_customer_daily WHERE customer_key IS NULL;
+ALTER TABLE rollup_customer_daily DROP PRIMARY KEY;
+ALTER TABLE rollup_customer_daily DROP COLUMN customer_id;
+ALTER TABLE rollup_customer_daily MODIFY customer_key BIGINT NOT NULL;
+ALTER TABLE rollup_customer_daily ADD PRIMARY KEY (rollup_date, customer_key);
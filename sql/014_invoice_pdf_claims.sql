@@ -0,0 +1,5 @@
+-- Several terminals sweep PENDING invoices (com.salon.service.InvoiceRenderQueue). A terminal takes
+-- an invoice by moving it PENDING -> RENDERING and stamping pdf_claimed_at; only the update that
+-- changes the row renders it. Claims older than -Dsalon.render.claimTimeoutSeconds go back to PENDING.
+
+ALTER TABLE invoices ADD COLUMN pdf_claimed_at TIMESTAMP NULL;
@@ -0,0 +1,6 @@
+-- Backs CustomerDAO.getCustomersVisitedSince / getCustomersVisitedSincePage (the CustomerPanel
+-- time filter): a returning customer invoiced today has an old created_at but last_visit = today.
+-- Range filter on last_visit plus keyset pagination on (last_visit, customer_id).
+-- last_visit is set on every insert and visit, and was backfilled from created_at in 010.
+
+CREATE INDEX idx_customers_last_visit ON customers (last_visit, customer_id);
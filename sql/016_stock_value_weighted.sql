@@ -0,0 +1,10 @@
+-- stock_balances.cost_value / selling_value are now on_hand × the quantity-weighted average entry
+-- price (weighted_*_sum / total_added, see StockLedgerDAO.REVALUE_SQL) instead of the plain
+-- average over entries. Revalue the stored rows once; every later stock movement keeps them current.
+-- weighted_*_sum were added in 008; if that backfill was never run, run
+--   java -cp <classpath> com.salon.tools.StockLedgerTool rebuild
+-- instead, which recomputes the sums and the values together.
+
+UPDATE stock_balances SET
+    cost_value = CASE WHEN total_added > 0 THEN on_hand * weighted_actual_sum / total_added ELSE 0 END,
+    selling_value = CASE WHEN total_added > 0 THEN on_hand * weighted_selling_sum / total_added ELSE 0 END;
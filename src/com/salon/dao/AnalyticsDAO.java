@@ -2,12 +2,14 @@ package com.salon.dao;
 
 import com.salon.model.AnalyticsReport;
 import com.salon.model.StockMovement;
+import com.salon.storage.DocumentStores;
 import com.salon.util.DBConnection;
 import com.itextpdf.text.*;
 import com.itextpdf.text.pdf.*;
 import com.itextpdf.text.pdf.draw.LineSeparator;
 
 import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
 import java.sql.*;
 import java.text.SimpleDateFormat;
 import java.util.*;
@@ -15,6 +17,15 @@ import java.util.List;
 import java.util.Map;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import java.util.Date;
 
@@ -23,18 +34,23 @@ public class AnalyticsDAO {
     private SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd");
     private SimpleDateFormat dateTimeFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
 
-    // Save report to database
+    // Save report to database; the PDF itself (if set) goes into the document store once
     public boolean saveReport(AnalyticsReport report, Integer userId) {
-        String sql = "INSERT INTO reports (report_type, params_json, exported_by, exported_at, report_pdf_path) " +
-                     "VALUES (?, ?, ?, NOW(), ?)";
+        String sql = "INSERT INTO reports (report_type, params_json, exported_by, exported_at, report_pdf_path, report_pdf_ref) " +
+                     "VALUES (?, ?, ?, NOW(), ?, ?)";
         
         try (Connection conn = DBConnection.getConnection();
              PreparedStatement ps = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
             
+            if (report.getReportPdfData() != null) {
+                report.setReportPdfRef(DocumentStores.get().put(report.getReportPdfData()));
+            }
+            
             ps.setString(1, report.getReportType());
             ps.setString(2, report.getParamsJson());
             ps.setObject(3, userId);
             ps.setString(4, report.getReportPdfPath());
+            ps.setString(5, report.getReportPdfRef());
             
             int rows = ps.executeUpdate();
             
@@ -56,7 +72,7 @@ public class AnalyticsDAO {
     public List<AnalyticsReport> getAllReports() {
         List<AnalyticsReport> reports = new ArrayList<>();
         String sql = "SELECT r.report_id, r.report_type, r.params_json, r.exported_at, " +
-                     "r.report_pdf_path, u.full_name " +
+                     "r.report_pdf_path, r.report_pdf_ref, u.full_name " +
                      "FROM reports r " +
                      "LEFT JOIN users u ON r.exported_by = u.user_id " +
                      "ORDER BY r.exported_at DESC";
@@ -72,6 +88,7 @@ public class AnalyticsDAO {
                 report.setParamsJson(rs.getString("params_json"));
                 report.setExportedAt(rs.getTimestamp("exported_at"));
                 report.setReportPdfPath(rs.getString("report_pdf_path"));
+                report.setReportPdfRef(rs.getString("report_pdf_ref"));
                 reports.add(report);
             }
             
@@ -81,16 +98,141 @@ public class AnalyticsDAO {
         return reports;
     }
 
+    // 📄 The PDF stored when the report was generated, or null if it has none (older rows) or the file is gone
+    public byte[] getReportPdf(int reportId) {
+        String sql = "SELECT report_pdf_ref FROM reports WHERE report_id = ?";
+        
+        try (Connection conn = DBConnection.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            
+            ps.setInt(1, reportId);
+            ResultSet rs = ps.executeQuery();
+            if (rs.next() && rs.getString("report_pdf_ref") != null) {
+                return DocumentStores.get().get(rs.getString("report_pdf_ref"));
+            }
+            
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+        return null;
+    }
+
+    // -Dsalon.reports.retentionDays, default 180
+    public static int getReportRetentionDays() {
+        return Integer.getInteger("salon.reports.retentionDays", 180);
+    }
+
+    // 🧹 Delete reports exported more than keepDays ago, and their stored PDFs once no remaining
+    // report points at them (identical PDFs share one stored file). Returns the rows deleted, -1 on failure.
+    public int pruneReports(int keepDays) {
+        Timestamp cutoff = new Timestamp(System.currentTimeMillis() - keepDays * 24L * 60 * 60 * 1000);
+        Set<String> refs = new HashSet<>();
+        int deleted;
+        
+        try (Connection conn = DBConnection.getConnection()) {
+            try (PreparedStatement ps = conn.prepareStatement(
+                    "SELECT DISTINCT report_pdf_ref FROM reports WHERE exported_at < ? AND report_pdf_ref IS NOT NULL")) {
+                ps.setTimestamp(1, cutoff);
+                ResultSet rs = ps.executeQuery();
+                while (rs.next()) {
+                    refs.add(rs.getString(1));
+                }
+            }
+            
+            try (PreparedStatement ps = conn.prepareStatement("DELETE FROM reports WHERE exported_at < ?")) {
+                ps.setTimestamp(1, cutoff);
+                deleted = ps.executeUpdate();
+            }
+            
+            // Files go after the rows: a failure here only leaves an unreferenced file behind.
+            // A ref kept by a newer report, or by an invoice with the same bytes, stays.
+            for (String ref : refs) {
+                DocumentRefs.deleteIfUnreferenced(conn, ref);
+            }
+            
+        } catch (Exception e) {
+            e.printStackTrace();
+            return -1;
+        }
+        return deleted;
+    }
+
+    // 🧵 The sections' data is fetched in parallel on this bounded pool (-Dsalon.report.threads,
+    // default 4), each fetch on its own pooled connection; rendering stays on the caller's thread
+    private static final ThreadPoolExecutor SECTION_FETCHERS = newSectionFetchers();
+
+    private final AnalyticsRollupDAO rollups = new AnalyticsRollupDAO();
+
+    // Rows a long table collects before they are laid out and written
+    private static final int TABLE_FLUSH_ROWS = 200;
+
+    private static ThreadPoolExecutor newSectionFetchers() {
+        int threads = Integer.getInteger("salon.report.threads", 4);
+        AtomicInteger n = new AtomicInteger();
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, 30, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), r -> {
+                    Thread t = new Thread(r, "salon-report-fetch-" + n.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                });
+        pool.allowCoreThreadTimeOut(true);
+        return pool;
+    }
+
     // Generate comprehensive business analytics PDF
     public byte[] generateBusinessAnalyticsPDF(boolean includeCustomers, boolean includeProductSales, 
                                                boolean includeProductUsage, boolean includeStock,
                                                Date startDate, Date endDate) throws Exception {
-        
-        Document document = new Document(PageSize.A4, 36, 36, 54, 36);
+        return generateBusinessAnalyticsPDF(includeCustomers, includeProductSales, includeProductUsage,
+                includeStock, startDate, endDate, null);
+    }
+
+    // Same, and when timings is given it is filled in section order with how long each section's
+    // data took to fetch (ms), plus "rollup" (refreshing the daily rollups), "render" (building the PDF) and "total"
+    public byte[] generateBusinessAnalyticsPDF(boolean includeCustomers, boolean includeProductSales, 
+                                               boolean includeProductUsage, boolean includeStock,
+                                               Date startDate, Date endDate,
+                                               Map<String, Long> timings) throws Exception {
         ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        writeBusinessAnalyticsPDF(includeCustomers, includeProductSales, includeProductUsage, includeStock,
+                startDate, endDate, baos, timings);
+        return baos.toByteArray();
+    }
+
+    // 💾 Streams the report into out as pages complete (e.g. straight into the export file), so the
+    // whole document never sits in memory. out is flushed but not closed; timings as above (may be null).
+    public void writeBusinessAnalyticsPDF(boolean includeCustomers, boolean includeProductSales,
+                                          boolean includeProductUsage, boolean includeStock,
+                                          Date startDate, Date endDate,
+                                          OutputStream out, Map<String, Long> timings) throws Exception {
+        long begin = System.nanoTime();
+        Map<String, Long> fetchMs = new ConcurrentHashMap<>();
+
+        // Bring the daily rollups up to date first (only the rows since the last report); the
+        // sections read any row it leaves behind from the raw tables, so a failure only costs speed
+        if (includeCustomers || includeProductSales || includeProductUsage) {
+            rollups.refresh();
+            fetchMs.put("rollup", (System.nanoTime() - begin) / 1_000_000);
+        }
+
+        // Start every selected section's queries at once; the report then takes about as long as the slowest
+        List<Future<?>> fetches = new ArrayList<>();
+        Future<Map<String, Object>> summaryData = fetchSection("summary", () -> getExecutiveSummaryData(startDate, endDate), fetchMs, fetches);
+        Future<Map<String, Object>> customerData = includeCustomers
+                ? fetchSection("customers", () -> getCustomerData(startDate, endDate), fetchMs, fetches) : null;
+        Future<Map<String, Object>> salesData = includeProductSales
+                ? fetchSection("sales", () -> getProductSalesData(startDate, endDate), fetchMs, fetches) : null;
+        Future<Map<String, Object>> usageData = includeProductUsage
+                ? fetchSection("usage", () -> getProductUsageData(startDate, endDate), fetchMs, fetches) : null;
+        Future<Map<String, Object>> stockData = includeStock
+                ? fetchSection("stock", this::getStockData, fetchMs, fetches) : null;
+
+        Document document = new Document(PageSize.A4, 36, 36, 54, 36);
+        long waitNanos = 0;
         
         try {
-            PdfWriter writer = PdfWriter.getInstance(document, baos);
+            PdfWriter writer = PdfWriter.getInstance(document, out);
+            writer.setCloseStream(false);
             
             // Add header/footer
             writer.setPageEvent(new PDFHeaderFooter());
@@ -100,38 +242,88 @@ public class AnalyticsDAO {
             // Title
             addReportTitle(document, startDate, endDate);
             
-            // Executive Summary
-            addExecutiveSummary(document, startDate, endDate);
+            // Sections render in a fixed order, each as soon as its own data is in
+            long t = System.nanoTime();
+            Map<String, Object> data = await(summaryData);
+            waitNanos += System.nanoTime() - t;
+            addExecutiveSummary(document, data);
             
             // Customer Analytics
             if (includeCustomers) {
+                t = System.nanoTime();
+                data = await(customerData);
+                waitNanos += System.nanoTime() - t;
                 document.newPage();
-                addCustomerAnalytics(document, startDate, endDate);
+                addCustomerAnalytics(document, data);
             }
             
             // Product Sales Analytics
             if (includeProductSales) {
+                t = System.nanoTime();
+                data = await(salesData);
+                waitNanos += System.nanoTime() - t;
                 document.newPage();
-                addProductSalesAnalytics(document, startDate, endDate);
+                addProductSalesAnalytics(document, data);
             }
             
             // Product Usage Analytics
             if (includeProductUsage) {
+                t = System.nanoTime();
+                data = await(usageData);
+                waitNanos += System.nanoTime() - t;
                 document.newPage();
-                addProductUsageAnalytics(document, startDate, endDate);
+                addProductUsageAnalytics(document, data);
             }
             
             // Stock Analytics
             if (includeStock) {
+                t = System.nanoTime();
+                data = await(stockData);
+                waitNanos += System.nanoTime() - t;
                 document.newPage();
-                addStockAnalytics(document);
+                addStockAnalytics(document, data);
             }
             
         } finally {
+            for (Future<?> f : fetches) {
+                f.cancel(false); // only does something when rendering failed half way
+            }
             document.close();
         }
-        
-        return baos.toByteArray();
+        out.flush();
+
+        if (timings != null) {
+            for (String section : new String[]{"rollup", "summary", "customers", "sales", "usage", "stock"}) {
+                if (fetchMs.containsKey(section)) {
+                    timings.put(section, fetchMs.get(section));
+                }
+            }
+            long total = System.nanoTime() - begin;
+            timings.put("render", (total - waitNanos) / 1_000_000);
+            timings.put("total", total / 1_000_000);
+        }
+    }
+
+    private Future<Map<String, Object>> fetchSection(String name, Callable<Map<String, Object>> query,
+                                                     Map<String, Long> fetchMs, List<Future<?>> fetches) {
+        Future<Map<String, Object>> future = SECTION_FETCHERS.submit(() -> {
+            long start = System.nanoTime();
+            try {
+                return query.call();
+            } finally {
+                fetchMs.put(name, (System.nanoTime() - start) / 1_000_000);
+            }
+        });
+        fetches.add(future);
+        return future;
+    }
+
+    private static Map<String, Object> await(Future<Map<String, Object>> future) throws Exception {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+        }
     }
 
     private void addReportTitle(Document document, Date startDate, Date endDate) throws DocumentException {
@@ -161,16 +353,13 @@ public class AnalyticsDAO {
         addHorizontalLine(document);
     }
 
-    private void addExecutiveSummary(Document document, Date startDate, Date endDate) throws Exception {
+    private void addExecutiveSummary(Document document, Map<String, Object> summary) throws Exception {
         Font headerFont = FontFactory.getFont(FontFactory.HELVETICA_BOLD, 16, new BaseColor(0, 51, 102));
         Paragraph header = new Paragraph("📊 Executive Summary", headerFont);
         header.setSpacingBefore(10);
         header.setSpacingAfter(15);
         document.add(header);
         
-        // Fetch summary data
-        Map<String, Object> summary = getExecutiveSummaryData(startDate, endDate);
-        
         PdfPTable table = new PdfPTable(2);
         table.setWidthPercentage(100);
         table.setWidths(new float[]{2, 1});
@@ -231,115 +420,95 @@ public class AnalyticsDAO {
         table.addCell(valueCell);
     }
 
+    // Executive summary figures, all in one round trip: each aggregate is a one-row derived table
+    // and the rows are cross joined. %s is the optional period filter of that aggregate.
+    private static final String SUMMARY_SQL =
+        "SELECT c.total_customers, v.service_revenue, s.revenue, s.cost, s.qty, u.used, " +
+        "       b.actual_value, b.selling_value " +
+        "FROM (SELECT COUNT(*) AS total_customers FROM customers%s) c " +
+        "CROSS JOIN (SELECT COALESCE(SUM(total_services), 0) AS service_revenue FROM invoices%s) v " +
+        "CROSS JOIN (SELECT COALESCE(SUM(ii.subtotal), 0) AS revenue, " +
+        "                   COALESCE(SUM(ii.quantity * ii.actual_price_per_unit), 0) AS cost, " +
+        "                   COALESCE(SUM(ii.quantity), 0) AS qty " +
+        "            FROM invoice_items ii JOIN invoices inv ON ii.invoice_id = inv.invoice_id%s) s " +
+        "CROSS JOIN (SELECT COALESCE(SUM(ABS(quantity_changed)), 0) AS used " +
+        "            FROM stock_movements WHERE movement_type = 'USAGE'%s) u " +
+        "CROSS JOIN (SELECT COALESCE(SUM(cost_value), 0) AS actual_value, " +
+        "                   COALESCE(SUM(selling_value), 0) AS selling_value FROM stock_balances) b";
+
+    // 🗃️ Summaries per (startDate, endDate) are reused until a writer calls invalidateSummaryCache()
+    // after its commit. The TTL bounds how long changes made from another terminal stay unseen.
+    private static final long SUMMARY_TTL_MS = 60_000;
+    private static final int SUMMARY_CACHE_MAX = 32;
+    private static final AtomicLong summaryVersion = new AtomicLong();
+    private static final Map<String, CachedSummary> summaryCache = new ConcurrentHashMap<>();
+
+    private static class CachedSummary {
+        final long version;
+        final long loadedAt;
+        final Map<String, Object> data;
+
+        CachedSummary(long version, Map<String, Object> data) {
+            this.version = version;
+            this.loadedAt = System.currentTimeMillis();
+            this.data = data;
+        }
+    }
+
+    // Call after committing invoices, stock movements, stock entries or customers
+    public static void invalidateSummaryCache() {
+        summaryVersion.incrementAndGet();
+        summaryCache.clear();
+    }
+
     private Map<String, Object> getExecutiveSummaryData(Date startDate, Date endDate) {
+        boolean ranged = startDate != null && endDate != null;
+        String key = ranged ? startDate.getTime() + ":" + endDate.getTime() : "all";
+        CachedSummary cached = summaryCache.get(key);
+        if (cached != null && cached.version == summaryVersion.get()
+                && System.currentTimeMillis() - cached.loadedAt < SUMMARY_TTL_MS) {
+            return new HashMap<>(cached.data);
+        }
+
+        // Taken before the query: a write committed meanwhile makes this result stale on arrival
+        long version = summaryVersion.get();
         Map<String, Object> summary = new HashMap<>();
-        
-        try (Connection conn = DBConnection.getConnection()) {
-            // Total customers
-            String customerSql = "SELECT COUNT(*) as total FROM customers";
-            if (startDate != null && endDate != null) {
-                customerSql += " WHERE created_at BETWEEN ? AND ?";
-            }
-            
-            try (PreparedStatement ps = conn.prepareStatement(customerSql)) {
-                if (startDate != null && endDate != null) {
-                    ps.setTimestamp(1, new Timestamp(startDate.getTime()));
-                    ps.setTimestamp(2, new Timestamp(endDate.getTime()));
+        String sql = String.format(SUMMARY_SQL,
+                ranged ? " WHERE created_at BETWEEN ? AND ?" : "",
+                ranged ? " WHERE invoice_date BETWEEN ? AND ?" : "",
+                ranged ? " WHERE inv.invoice_date BETWEEN ? AND ?" : "",
+                ranged ? " AND movement_date BETWEEN ? AND ?" : "");
+
+        try (Connection conn = DBConnection.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            if (ranged) {
+                Timestamp from = new Timestamp(startDate.getTime());
+                Timestamp to = new Timestamp(endDate.getTime());
+                for (int i = 1; i <= 8; i += 2) {
+                    ps.setTimestamp(i, from);
+                    ps.setTimestamp(i + 1, to);
                 }
-                ResultSet rs = ps.executeQuery();
-                summary.put("totalCustomers", rs.next() ? rs.getInt("total") : 0);
-            }
-            
-            // Service revenue
-            String serviceSql = "SELECT COALESCE(SUM(total_services), 0) as total FROM invoices";
-            if (startDate != null && endDate != null) {
-                serviceSql += " WHERE invoice_date BETWEEN ? AND ?";
             }
-            
-            try (PreparedStatement ps = conn.prepareStatement(serviceSql)) {
-                if (startDate != null && endDate != null) {
-                    ps.setTimestamp(1, new Timestamp(startDate.getTime()));
-                    ps.setTimestamp(2, new Timestamp(endDate.getTime()));
-                }
-                ResultSet rs = ps.executeQuery();
-                double serviceRevenue = rs.next() ? rs.getDouble("total") : 0.0;
+            try (ResultSet rs = ps.executeQuery()) {
+                rs.next();
+                double serviceRevenue = rs.getDouble("service_revenue");
+                double productRevenue = rs.getDouble("revenue");
+                summary.put("totalCustomers", rs.getInt("total_customers"));
                 summary.put("serviceRevenue", serviceRevenue);
+                summary.put("productSalesRevenue", productRevenue);
+                summary.put("totalProductsSold", rs.getDouble("qty"));
+                summary.put("grossProfit", productRevenue - rs.getDouble("cost"));
+                summary.put("totalRevenue", serviceRevenue + productRevenue);
+                summary.put("totalProductsUsed", rs.getDouble("used"));
+                summary.put("stockValueActual", rs.getDouble("actual_value"));
+                summary.put("stockValueSelling", rs.getDouble("selling_value"));
             }
-            
-            // Product sales revenue and profit
-            String salesSql = "SELECT " +
-                             "COALESCE(SUM(ii.subtotal), 0) as revenue, " +
-                             "COALESCE(SUM(ii.quantity * ii.actual_price_per_unit), 0) as cost, " +
-                             "COALESCE(SUM(ii.quantity), 0) as qty " +
-                             "FROM invoice_items ii " +
-                             "JOIN invoices inv ON ii.invoice_id = inv.invoice_id";
-            if (startDate != null && endDate != null) {
-                salesSql += " WHERE inv.invoice_date BETWEEN ? AND ?";
-            }
-            
-            try (PreparedStatement ps = conn.prepareStatement(salesSql)) {
-                if (startDate != null && endDate != null) {
-                    ps.setTimestamp(1, new Timestamp(startDate.getTime()));
-                    ps.setTimestamp(2, new Timestamp(endDate.getTime()));
-                }
-                ResultSet rs = ps.executeQuery();
-                if (rs.next()) {
-                    double productRevenue = rs.getDouble("revenue");
-                    double productCost = rs.getDouble("cost");
-                    summary.put("productSalesRevenue", productRevenue);
-                    summary.put("totalProductsSold", rs.getDouble("qty"));
-                    summary.put("grossProfit", productRevenue - productCost);
-                } else {
-                    summary.put("productSalesRevenue", 0.0);
-                    summary.put("totalProductsSold", 0.0);
-                    summary.put("grossProfit", 0.0);
-                }
-            }
-            
-            // Total revenue
-            double totalRevenue = (double) summary.get("serviceRevenue") + 
-                                 (double) summary.get("productSalesRevenue");
-            summary.put("totalRevenue", totalRevenue);
-            
-            // Product usage
-            String usageSql = "SELECT COALESCE(SUM(ABS(quantity_changed)), 0) as total " +
-                             "FROM stock_movements WHERE movement_type = 'USAGE'";
-            if (startDate != null && endDate != null) {
-                usageSql += " AND movement_date BETWEEN ? AND ?";
-            }
-            
-            try (PreparedStatement ps = conn.prepareStatement(usageSql)) {
-                if (startDate != null && endDate != null) {
-                    ps.setTimestamp(1, new Timestamp(startDate.getTime()));
-                    ps.setTimestamp(2, new Timestamp(endDate.getTime()));
-                }
-                ResultSet rs = ps.executeQuery();
-                summary.put("totalProductsUsed", rs.next() ? rs.getDouble("total") : 0.0);
-            }
-            
-            // Current stock value
-            String stockSql = "SELECT " +
-                             "COALESCE(SUM(se.quantity * se.actual_price_per_unit), 0) as actual_value, " +
-                             "COALESCE(SUM(se.quantity * se.selling_price_per_unit), 0) as selling_value " +
-                             "FROM stock_entries se " +
-                             "LEFT JOIN (" +
-                             "    SELECT product_id, SUM(ABS(quantity_changed)) as used " +
-                             "    FROM stock_movements " +
-                             "    WHERE movement_type IN ('USAGE', 'SALE') " +
-                             "    GROUP BY product_id" +
-                             ") sm ON se.product_id = sm.product_id";
-            
-            try (Statement st = conn.createStatement();
-                 ResultSet rs = st.executeQuery(stockSql)) {
-                if (rs.next()) {
-                    summary.put("stockValueActual", rs.getDouble("actual_value"));
-                    summary.put("stockValueSelling", rs.getDouble("selling_value"));
-                } else {
-                    summary.put("stockValueActual", 0.0);
-                    summary.put("stockValueSelling", 0.0);
-                }
+
+            if (summaryCache.size() >= SUMMARY_CACHE_MAX) {
+                summaryCache.clear();
             }
-            
+            summaryCache.put(key, new CachedSummary(version, Collections.unmodifiableMap(new HashMap<>(summary))));
+
         } catch (Exception e) {
             e.printStackTrace();
             // Set default values on error
@@ -357,7 +526,7 @@ public class AnalyticsDAO {
         return summary;
     }
 
-    private void addCustomerAnalytics(Document document, Date startDate, Date endDate) throws Exception {
+    private void addCustomerAnalytics(Document document, Map<String, Object> custData) throws Exception {
         Font headerFont = FontFactory.getFont(FontFactory.HELVETICA_BOLD, 16, new BaseColor(0, 51, 102));
         Paragraph header = new Paragraph("👥 Customer Analytics", headerFont);
         header.setSpacingBefore(10);
@@ -365,8 +534,6 @@ public class AnalyticsDAO {
         document.add(header);
         
         // Customer summary
-        Map<String, Object> custData = getCustomerData(startDate, endDate);
-        
         Font normalFont = FontFactory.getFont(FontFactory.HELVETICA, 10);
         Font boldFont = FontFactory.getFont(FontFactory.HELVETICA_BOLD, 10);
         
@@ -402,55 +569,51 @@ public class AnalyticsDAO {
         document.add(table);
     }
 
+    // Whole days come from rollup_customer_daily, the partial edges from invoices (see AnalyticsRollupDAO)
     private Map<String, Object> getCustomerData(Date startDate, Date endDate) {
         Map<String, Object> data = new HashMap<>();
+        AnalyticsRollupDAO.Period period = new AnalyticsRollupDAO.Period(startDate, endDate);
         
         try (Connection conn = DBConnection.getConnection()) {
-            // Total customers and revenue
-            String summarySql = "SELECT COUNT(DISTINCT c.customer_id) as total_customers, " +
-                               "COALESCE(SUM(i.total_services), 0) as service_revenue " +
-                               "FROM customers c " +
-                               "LEFT JOIN invoices i ON c.customer_id = i.customer_id";
-            
-            if (startDate != null && endDate != null) {
-                summarySql += " WHERE i.invoice_date BETWEEN ? AND ?";
-            }
+            // Total customers and revenue (all time counts every customer, invoiced or not)
+            List<Object> params = new ArrayList<>();
+            String column = CustomerKeySchema.invoiceCustomerColumn();
+            String summarySql = "SELECT COUNT(DISTINCT r.customer_ref) as total_customers, " +
+                               "COALESCE(SUM(r.service_total), 0) as service_revenue " +
+                               "FROM (" + customerRows(period, params) + ") r " +
+                               "JOIN customers c ON r.customer_ref = c." + column;
             
             try (PreparedStatement ps = conn.prepareStatement(summarySql)) {
-                if (startDate != null && endDate != null) {
-                    ps.setTimestamp(1, new Timestamp(startDate.getTime()));
-                    ps.setTimestamp(2, new Timestamp(endDate.getTime()));
-                }
+                AnalyticsRollupDAO.bind(ps, params);
                 ResultSet rs = ps.executeQuery();
                 if (rs.next()) {
                     data.put("totalCustomers", rs.getInt("total_customers"));
                     data.put("totalServiceRevenue", rs.getDouble("service_revenue"));
                 }
             }
-            
-            // Top customers
-            String topSql = "SELECT c.name, c.phone, " +
-                           "COUNT(i.invoice_id) as invoice_count, " +
-                           "COALESCE(SUM(i.total_services), 0) as service_total, " +
-                           "COALESCE(SUM(i.total_products), 0) as product_total " +
-                           "FROM customers c " +
-                           "LEFT JOIN invoices i ON c.customer_id = i.customer_id ";
-            
-            if (startDate != null && endDate != null) {
-                topSql += "WHERE i.invoice_date BETWEEN ? AND ? ";
+            if (period.isAllTime()) {
+                try (Statement st = conn.createStatement();
+                     ResultSet rs = st.executeQuery("SELECT COUNT(*) FROM customers")) {
+                    if (rs.next()) {
+                        data.put("totalCustomers", rs.getInt(1));
+                    }
+                }
             }
             
-            topSql += "GROUP BY c.customer_id, c.name, c.phone " +
-                     "ORDER BY (COALESCE(SUM(i.total_services), 0) + COALESCE(SUM(i.total_products), 0)) DESC " +
-                     "LIMIT 10";
+            // Top customers
+            params.clear();
+            String topSql = "SELECT c.name, c.phone, t.invoice_count, t.service_total, t.product_total " +
+                           "FROM (SELECT r.customer_ref, SUM(r.invoice_count) as invoice_count, " +
+                           "      SUM(r.service_total) as service_total, SUM(r.product_total) as product_total " +
+                           "      FROM (" + customerRows(period, params) + ") r GROUP BY r.customer_ref) t " +
+                           "JOIN customers c ON t.customer_ref = c." + column + " " +
+                           "ORDER BY (t.service_total + t.product_total) DESC " +
+                           "LIMIT 10";
             
             List<Map<String, Object>> topCustomers = new ArrayList<>();
             
             try (PreparedStatement ps = conn.prepareStatement(topSql)) {
-                if (startDate != null && endDate != null) {
-                    ps.setTimestamp(1, new Timestamp(startDate.getTime()));
-                    ps.setTimestamp(2, new Timestamp(endDate.getTime()));
-                }
+                AnalyticsRollupDAO.bind(ps, params);
                 ResultSet rs = ps.executeQuery();
                 
                 while (rs.next()) {
@@ -473,15 +636,25 @@ public class AnalyticsDAO {
         return data;
     }
 
-    private void addProductSalesAnalytics(Document document, Date startDate, Date endDate) throws Exception {
+    // customer_ref, invoice_count, service_total, product_total per customer-day (or raw invoice);
+    // customer_ref is the customer_id or customer_key, whichever CustomerKeySchema says links them
+    private static String customerRows(AnalyticsRollupDAO.Period period, List<Object> params) {
+        String column = CustomerKeySchema.invoiceCustomerColumn();
+        return period.union(
+                "SELECT " + column + " AS customer_ref, invoice_count, service_total, product_total FROM rollup_customer_daily",
+                "SELECT i." + column + " AS customer_ref, 1 AS invoice_count, COALESCE(i.total_services, 0) AS service_total, " +
+                "COALESCE(i.total_products, 0) AS product_total FROM invoices i",
+                "i." + column + " IS NOT NULL", "i.invoice_date", "i.invoice_id",
+                AnalyticsRollupDAO.SOURCE_INVOICES, params);
+    }
+
+    private void addProductSalesAnalytics(Document document, Map<String, Object> salesData) throws Exception {
         Font headerFont = FontFactory.getFont(FontFactory.HELVETICA_BOLD, 16, new BaseColor(0, 51, 102));
         Paragraph header = new Paragraph("💰 Product Sales Analytics", headerFont);
         header.setSpacingBefore(10);
         header.setSpacingAfter(15);
         document.add(header);
         
-        Map<String, Object> salesData = getProductSalesData(startDate, endDate);
-        
         Font boldFont = FontFactory.getFont(FontFactory.HELVETICA_BOLD, 10);
         Font normalFont = FontFactory.getFont(FontFactory.HELVETICA, 10);
         
@@ -520,77 +693,59 @@ public class AnalyticsDAO {
         document.add(table);
     }
 
+    // One row per product sold in the period (rollup_product_sales_daily + raw edges); the totals
+    // are summed over all of them and the first 15 by revenue are the top sellers
     private Map<String, Object> getProductSalesData(Date startDate, Date endDate) {
         Map<String, Object> data = new HashMap<>();
+        AnalyticsRollupDAO.Period period = new AnalyticsRollupDAO.Period(startDate, endDate);
         
         try (Connection conn = DBConnection.getConnection()) {
-            // Total sales summary
-            String summarySql = "SELECT " +
-                               "COALESCE(SUM(ii.quantity), 0) as total_qty, " +
-                               "COALESCE(SUM(ii.subtotal), 0) as total_revenue, " +
-                               "COALESCE(SUM(ii.quantity * ii.actual_price_per_unit), 0) as total_cost " +
-                               "FROM invoice_items ii " +
-                               "JOIN invoices inv ON ii.invoice_id = inv.invoice_id";
-            
-            if (startDate != null && endDate != null) {
-                summarySql += " WHERE inv.invoice_date BETWEEN ? AND ?";
-            }
-            
-            try (PreparedStatement ps = conn.prepareStatement(summarySql)) {
-                if (startDate != null && endDate != null) {
-                    ps.setTimestamp(1, new Timestamp(startDate.getTime()));
-                    ps.setTimestamp(2, new Timestamp(endDate.getTime()));
-                }
-                ResultSet rs = ps.executeQuery();
-                if (rs.next()) {
-                    double totalRevenue = rs.getDouble("total_revenue");
-                    double totalCost = rs.getDouble("total_cost");
-                    data.put("totalQty", rs.getDouble("total_qty"));
-                    data.put("totalRevenue", totalRevenue);
-                    data.put("totalProfit", totalRevenue - totalCost);
-                }
-            }
-            
-            // Top selling products
-            String topSql = "SELECT p.name, p.brand, " +
-                           "SUM(ii.quantity) as total_qty, " +
-                           "SUM(ii.subtotal) as revenue, " +
-                           "SUM(ii.quantity * ii.actual_price_per_unit) as cost " +
-                           "FROM invoice_items ii " +
-                           "JOIN products p ON ii.product_id = p.product_id " +
-                           "JOIN invoices inv ON ii.invoice_id = inv.invoice_id ";
-            
-            if (startDate != null && endDate != null) {
-                topSql += "WHERE inv.invoice_date BETWEEN ? AND ? ";
-            }
-            
-            topSql += "GROUP BY p.product_id, p.name, p.brand " +
-                     "ORDER BY revenue DESC " +
-                     "LIMIT 15";
+            List<Object> params = new ArrayList<>();
+            String rows = period.union(
+                    "SELECT product_id, quantity, revenue, cost FROM rollup_product_sales_daily",
+                    "SELECT ii.product_id, ii.quantity, ii.subtotal AS revenue, ii.quantity * ii.actual_price_per_unit AS cost " +
+                    "FROM invoice_items ii JOIN invoices inv ON ii.invoice_id = inv.invoice_id",
+                    null, "inv.invoice_date", "inv.invoice_id", AnalyticsRollupDAO.SOURCE_INVOICES, params);
+            String sql = "SELECT p.product_id, p.name, p.brand, t.total_qty, t.revenue, t.cost " +
+                        "FROM (SELECT r.product_id, SUM(r.quantity) as total_qty, " +
+                        "      SUM(r.revenue) as revenue, SUM(r.cost) as cost " +
+                        "      FROM (" + rows + ") r GROUP BY r.product_id) t " +
+                        "LEFT JOIN products p ON t.product_id = p.product_id " +
+                        "ORDER BY t.revenue DESC";
             
+            double totalQty = 0;
+            double totalRevenue = 0;
+            double totalCost = 0;
             List<Map<String, Object>> topProducts = new ArrayList<>();
             
-            try (PreparedStatement ps = conn.prepareStatement(topSql)) {
-                if (startDate != null && endDate != null) {
-                    ps.setTimestamp(1, new Timestamp(startDate.getTime()));
-                    ps.setTimestamp(2, new Timestamp(endDate.getTime()));
-                }
+            try (PreparedStatement ps = conn.prepareStatement(sql)) {
+                AnalyticsRollupDAO.bind(ps, params);
                 ResultSet rs = ps.executeQuery();
                 
                 while (rs.next()) {
-                    Map<String, Object> product = new HashMap<>();
-                    product.put("name", rs.getString("name"));
-                    product.put("brand", rs.getString("brand"));
-                    product.put("totalQty", rs.getDouble("total_qty"));
                     double revenue = rs.getDouble("revenue");
                     double cost = rs.getDouble("cost");
-                    product.put("revenue", revenue);
-                    product.put("cost", cost);
-                    product.put("profit", revenue - cost);
-                    topProducts.add(product);
+                    totalQty += rs.getDouble("total_qty");
+                    totalRevenue += revenue;
+                    totalCost += cost;
+                    
+                    // Lines of a deleted product still count towards the totals
+                    if (topProducts.size() < 15 && rs.getObject("product_id") != null) {
+                        Map<String, Object> product = new HashMap<>();
+                        product.put("name", rs.getString("name"));
+                        product.put("brand", rs.getString("brand"));
+                        product.put("totalQty", rs.getDouble("total_qty"));
+                        product.put("revenue", revenue);
+                        product.put("cost", cost);
+                        product.put("profit", revenue - cost);
+                        topProducts.add(product);
+                    }
                 }
             }
             
+            data.put("totalQty", totalQty);
+            data.put("totalRevenue", totalRevenue);
+            data.put("totalProfit", totalRevenue - totalCost);
             data.put("topProducts", topProducts);
             
         } catch (Exception e) {
@@ -600,15 +755,13 @@ public class AnalyticsDAO {
         return data;
     }
 
-    private void addProductUsageAnalytics(Document document, Date startDate, Date endDate) throws Exception {
+    private void addProductUsageAnalytics(Document document, Map<String, Object> usageData) throws Exception {
         Font headerFont = FontFactory.getFont(FontFactory.HELVETICA_BOLD, 16, new BaseColor(0, 51, 102));
         Paragraph header = new Paragraph("🔧 Product Usage Analytics", headerFont);
         header.setSpacingBefore(10);
         header.setSpacingAfter(15);
 document.add(header);
         
-        Map<String, Object> usageData = getProductUsageData(startDate, endDate);
-        
         Font boldFont = FontFactory.getFont(FontFactory.HELVETICA_BOLD, 10);
         Font normalFont = FontFactory.getFont(FontFactory.HELVETICA, 10);
         
@@ -646,84 +799,57 @@ document.add(header);
         document.add(table);
     }
 
+    // One row per product used in the period (rollup_product_usage_daily + raw edges), valued at the
+    // product's quantity-weighted average entry prices from stock_balances; totals over all, top 15 by quantity
     private Map<String, Object> getProductUsageData(Date startDate, Date endDate) {
         Map<String, Object> data = new HashMap<>();
+        AnalyticsRollupDAO.Period period = new AnalyticsRollupDAO.Period(startDate, endDate);
         
         try (Connection conn = DBConnection.getConnection()) {
-            // Total usage summary
-            String summarySql = "SELECT " +
-                               "COALESCE(SUM(ABS(sm.quantity_changed)), 0) as total_qty, " +
-                               "COALESCE(SUM(ABS(sm.quantity_changed) * " +
-                               "    (SELECT AVG(se.actual_price_per_unit) " +
-                               "     FROM stock_entries se " +
-                               "     WHERE se.product_id = sm.product_id)), 0) as actual_cost, " +
-                               "COALESCE(SUM(ABS(sm.quantity_changed) * " +
-                               "    (SELECT AVG(se.selling_price_per_unit) " +
-                               "     FROM stock_entries se " +
-                               "     WHERE se.product_id = sm.product_id)), 0) as selling_value " +
-                               "FROM stock_movements sm " +
-                               "WHERE sm.movement_type = 'USAGE'";
-            
-            if (startDate != null && endDate != null) {
-                summarySql += " AND sm.movement_date BETWEEN ? AND ?";
-            }
-            
-            try (PreparedStatement ps = conn.prepareStatement(summarySql)) {
-                if (startDate != null && endDate != null) {
-                    ps.setTimestamp(1, new Timestamp(startDate.getTime()));
-                    ps.setTimestamp(2, new Timestamp(endDate.getTime()));
-                }
-                ResultSet rs = ps.executeQuery();
-                if (rs.next()) {
-                    data.put("totalQty", rs.getDouble("total_qty"));
-                    data.put("totalActualCost", rs.getDouble("actual_cost"));
-                    data.put("totalSellingValue", rs.getDouble("selling_value"));
-                }
-            }
-            
-            // Top used products
-            String topSql = "SELECT p.name, p.brand, " +
-                           "SUM(ABS(sm.quantity_changed)) as total_qty, " +
-                           "SUM(ABS(sm.quantity_changed) * " +
-                           "    (SELECT AVG(se.actual_price_per_unit) " +
-                           "     FROM stock_entries se " +
-                           "     WHERE se.product_id = p.product_id)) as actual_cost, " +
-                           "SUM(ABS(sm.quantity_changed) * " +
-                           "    (SELECT AVG(se.selling_price_per_unit) " +
-                           "     FROM stock_entries se " +
-                           "     WHERE se.product_id = p.product_id)) as selling_value " +
-                           "FROM stock_movements sm " +
-                           "JOIN products p ON sm.product_id = p.product_id " +
-                           "WHERE sm.movement_type = 'USAGE'";
-            
-            if (startDate != null && endDate != null) {
-                topSql += " AND sm.movement_date BETWEEN ? AND ?";
-            }
-            
-            topSql += " GROUP BY p.product_id, p.name, p.brand " +
-                     "ORDER BY total_qty DESC " +
-                     "LIMIT 15";
+            List<Object> params = new ArrayList<>();
+            String rows = period.union(
+                    "SELECT product_id, quantity FROM rollup_product_usage_daily",
+                    "SELECT sm.product_id, ABS(sm.quantity_changed) AS quantity FROM stock_movements sm",
+                    "sm.movement_type = 'USAGE'", "sm.movement_date", "sm.movement_id",
+                    AnalyticsRollupDAO.SOURCE_MOVEMENTS, params);
+            String sql = "SELECT p.product_id, p.name, p.brand, t.total_qty, " +
+                        "t.total_qty * CASE WHEN b.total_added > 0 THEN b.weighted_actual_sum / b.total_added ELSE 0 END as actual_cost, " +
+                        "t.total_qty * CASE WHEN b.total_added > 0 THEN b.weighted_selling_sum / b.total_added ELSE 0 END as selling_value " +
+                        "FROM (SELECT r.product_id, SUM(r.quantity) as total_qty " +
+                        "      FROM (" + rows + ") r GROUP BY r.product_id) t " +
+                        "LEFT JOIN products p ON t.product_id = p.product_id " +
+                        "LEFT JOIN stock_balances b ON t.product_id = b.product_id " +
+                        "ORDER BY t.total_qty DESC";
             
+            double totalQty = 0;
+            double totalActualCost = 0;
+            double totalSellingValue = 0;
             List<Map<String, Object>> topUsed = new ArrayList<>();
             
-            try (PreparedStatement ps = conn.prepareStatement(topSql)) {
-                if (startDate != null && endDate != null) {
-                    ps.setTimestamp(1, new Timestamp(startDate.getTime()));
-                    ps.setTimestamp(2, new Timestamp(endDate.getTime()));
-                }
+            try (PreparedStatement ps = conn.prepareStatement(sql)) {
+                AnalyticsRollupDAO.bind(ps, params);
                 ResultSet rs = ps.executeQuery();
                 
                 while (rs.next()) {
-                    Map<String, Object> product = new HashMap<>();
-                    product.put("name", rs.getString("name"));
-                    product.put("brand", rs.getString("brand"));
-                    product.put("totalQty", rs.getDouble("total_qty"));
-                    product.put("actualCost", rs.getDouble("actual_cost"));
-                    product.put("sellingValue", rs.getDouble("selling_value"));
-                    topUsed.add(product);
+                    totalQty += rs.getDouble("total_qty");
+                    totalActualCost += rs.getDouble("actual_cost");
+                    totalSellingValue += rs.getDouble("selling_value");
+                    
+                    if (topUsed.size() < 15 && rs.getObject("product_id") != null) {
+                        Map<String, Object> product = new HashMap<>();
+                        product.put("name", rs.getString("name"));
+                        product.put("brand", rs.getString("brand"));
+                        product.put("totalQty", rs.getDouble("total_qty"));
+                        product.put("actualCost", rs.getDouble("actual_cost"));
+                        product.put("sellingValue", rs.getDouble("selling_value"));
+                        topUsed.add(product);
+                    }
                 }
             }
             
+            data.put("totalQty", totalQty);
+            data.put("totalActualCost", totalActualCost);
+            data.put("totalSellingValue", totalSellingValue);
             data.put("topUsed", topUsed);
             
         } catch (Exception e) {
@@ -733,15 +859,13 @@ document.add(header);
         return data;
     }
 
-    private void addStockAnalytics(Document document) throws Exception {
+    private void addStockAnalytics(Document document, Map<String, Object> stockData) throws Exception {
         Font headerFont = FontFactory.getFont(FontFactory.HELVETICA_BOLD, 16, new BaseColor(0, 51, 102));
         Paragraph header = new Paragraph("📦 Stock Analytics", headerFont);
         header.setSpacingBefore(10);
         header.setSpacingAfter(15);
         document.add(header);
         
-        Map<String, Object> stockData = getStockData();
-        
         Font boldFont = FontFactory.getFont(FontFactory.HELVETICA_BOLD, 10);
         Font normalFont = FontFactory.getFont(FontFactory.HELVETICA, 10);
         
@@ -763,11 +887,16 @@ document.add(header);
         table.setWidthPercentage(100);
         table.setWidths(new float[]{2, 1, 1, 1, 1, 1});
         
+        // One row per product, so this table can run to thousands of rows: hand it to the document
+        // every TABLE_FLUSH_ROWS rows and let iText write out the finished pages as it goes
+        table.setComplete(false);
+        table.setHeaderRows(1);
         addTableHeader(table, new String[]{"Product", "Brand", "Available", "Actual Value", "Selling Value", "Status"});
         
         @SuppressWarnings("unchecked")
         List<Map<String, Object>> stockLevels = (List<Map<String, Object>>) stockData.get("stockLevels");
         
+        int rows = 0;
         for (Map<String, Object> stock : stockLevels) {
             addTableCell(table, stock.get("name").toString(), normalFont);
             addTableCell(table, stock.get("brand").toString(), normalFont);
@@ -786,8 +915,13 @@ document.add(header);
             statusCell.setHorizontalAlignment(Element.ALIGN_CENTER);
             statusCell.setPadding(5);
             table.addCell(statusCell);
+            
+            if (++rows % TABLE_FLUSH_ROWS == 0) {
+                document.add(table);
+            }
         }
         
+        table.setComplete(true);
         document.add(table);
         
         // Low stock warning
@@ -818,26 +952,13 @@ document.add(header);
                         "    p.product_id, " +
                         "    p.name, " +
                         "    p.brand, " +
-                        "    COALESCE(se_sum.total_added, 0) AS total_added, " +
-                        "    COALESCE(ABS(sm_sum.total_used), 0) AS total_used, " +
-                        "    (COALESCE(se_sum.total_added, 0) - COALESCE(ABS(sm_sum.total_used), 0)) AS available, " +
-                        "    COALESCE(se_sum.avg_actual, 0) AS avg_actual, " +
-                        "    COALESCE(se_sum.avg_selling, 0) AS avg_selling " +
+                        "    COALESCE(sb.total_added, 0) AS total_added, " +
+                        "    COALESCE(sb.total_used + sb.total_sold, 0) AS total_used, " +
+                        "    COALESCE(sb.on_hand, 0) AS available, " +
+                        "    COALESCE(sb.cost_value, 0) AS actual_value, " +
+                        "    COALESCE(sb.selling_value, 0) AS selling_value " +
                         "FROM products p " +
-                        "LEFT JOIN ( " +
-                        "    SELECT product_id, " +
-                        "           SUM(quantity) AS total_added, " +
-                        "           AVG(actual_price_per_unit) AS avg_actual, " +
-                        "           AVG(selling_price_per_unit) AS avg_selling " +
-                        "    FROM stock_entries " +
-                        "    GROUP BY product_id " +
-                        ") se_sum ON p.product_id = se_sum.product_id " +
-                        "LEFT JOIN ( " +
-                        "    SELECT product_id, SUM(quantity_changed) AS total_used " +
-                        "    FROM stock_movements " +
-                        "    WHERE movement_type IN ('USAGE', 'SALE') " +
-                        "    GROUP BY product_id " +
-                        ") sm_sum ON p.product_id = sm_sum.product_id " +
+                        "LEFT JOIN stock_balances sb ON p.product_id = sb.product_id " +
                         "WHERE p.is_discontinued = 0 " +
                         "ORDER BY available ASC";
             
@@ -854,17 +975,17 @@ document.add(header);
                     stock.put("name", rs.getString("name"));
                     stock.put("brand", rs.getString("brand"));
                     double available = rs.getDouble("available");
-                    double avgActual = rs.getDouble("avg_actual");
-                    double avgSelling = rs.getDouble("avg_selling");
+                    double actualValue = rs.getDouble("actual_value");
+                    double sellingValue = rs.getDouble("selling_value");
                     
                     stock.put("available", available);
-                    stock.put("actualValue", available * avgActual);
-                    stock.put("sellingValue", available * avgSelling);
+                    stock.put("actualValue", actualValue);
+                    stock.put("sellingValue", sellingValue);
                     
                     stockLevels.add(stock);
                     
-                    totalActualValue += available * avgActual;
-                    totalSellingValue += available * avgSelling;
+                    totalActualValue += actualValue;
+                    totalSellingValue += sellingValue;
                     
                     if (available > 0 && available < 10) {
                         lowStock.add(stock);
@@ -0,0 +1,280 @@
+package com.salon.dao;
+
+import com.salon.util.DBConnection;
+
+import java.sql.*;
+import java.util.*;
+import java.util.Date;
+
+// 📊 Daily rollups behind the analytics report (tables from sql/007_daily_rollups.sql)
+// invoices and stock_movements only ever get new rows, so refresh() adds the rows above each
+// source's high-water mark (rollup_watermarks.last_id) to the per-day tables and moves the mark,
+// one chunk per transaction. Readers build their queries with Period: whole days come from the
+// rollups, the partial first/last day and anything above the watermark come from the raw tables,
+// so the answer is exact whether or not a refresh has run.
+public class AnalyticsRollupDAO {
+
+    public static final String SOURCE_INVOICES = "invoices";
+    public static final String SOURCE_MOVEMENTS = "stock_movements";
+
+    // Ids rolled up per transaction
+    private static final int CHUNK_IDS = 20000;
+
+    // Rows younger than this are left to the raw tail: a row whose transaction is still open when
+    // a later id commits would otherwise end up below the watermark without ever being rolled up
+    private static final long SETTLE_MS = Long.getLong("salon.rollup.settleSeconds", 300) * 1000;
+
+    // Keyed by customer_id until sql/013, by customer_key afterwards (CustomerKeySchema)
+    private static String customerSql() {
+        String column = CustomerKeySchema.invoiceCustomerColumn();
+        return "INSERT INTO rollup_customer_daily (rollup_date, " + column + ", invoice_count, service_total, product_total) " +
+               "SELECT DATE(invoice_date), " + column + ", COUNT(*), " +
+               "       COALESCE(SUM(total_services), 0), COALESCE(SUM(total_products), 0) " +
+               "FROM invoices WHERE invoice_id > ? AND invoice_id <= ? AND " + column + " IS NOT NULL " +
+               "GROUP BY DATE(invoice_date), " + column + " " +
+               "ON DUPLICATE KEY UPDATE " +
+               "invoice_count = invoice_count + VALUES(invoice_count), " +
+               "service_total = service_total + VALUES(service_total), " +
+               "product_total = product_total + VALUES(product_total)";
+    }
+
+    private static final String SALES_SQL =
+        "INSERT INTO rollup_product_sales_daily (rollup_date, product_id, quantity, revenue, cost, line_count) " +
+        "SELECT DATE(inv.invoice_date), ii.product_id, COALESCE(SUM(ii.quantity), 0), " +
+        "       COALESCE(SUM(ii.subtotal), 0), COALESCE(SUM(ii.quantity * ii.actual_price_per_unit), 0), COUNT(*) " +
+        "FROM invoice_items ii JOIN invoices inv ON ii.invoice_id = inv.invoice_id " +
+        "WHERE ii.invoice_id > ? AND ii.invoice_id <= ? " +
+        "GROUP BY DATE(inv.invoice_date), ii.product_id " +
+        "ON DUPLICATE KEY UPDATE " +
+        "quantity = quantity + VALUES(quantity), " +
+        "revenue = revenue + VALUES(revenue), " +
+        "cost = cost + VALUES(cost), " +
+        "line_count = line_count + VALUES(line_count)";
+
+    private static final String USAGE_SQL =
+        "INSERT INTO rollup_product_usage_daily (rollup_date, product_id, quantity, movement_count) " +
+        "SELECT DATE(movement_date), product_id, COALESCE(SUM(ABS(quantity_changed)), 0), COUNT(*) " +
+        "FROM stock_movements WHERE movement_id > ? AND movement_id <= ? AND movement_type = 'USAGE' " +
+        "GROUP BY DATE(movement_date), product_id " +
+        "ON DUPLICATE KEY UPDATE " +
+        "quantity = quantity + VALUES(quantity), " +
+        "movement_count = movement_count + VALUES(movement_count)";
+
+    // 🔄 Roll up everything that settled since the last refresh.
+    // Returns {invoice ids rolled up, movement ids rolled up}, or null on failure.
+    public long[] refresh() {
+        Timestamp settled = new Timestamp(System.currentTimeMillis() - SETTLE_MS);
+        try (Connection conn = DBConnection.getConnection()) {
+            long invoices = refreshSource(conn, SOURCE_INVOICES,
+                    "SELECT MAX(invoice_id) FROM invoices WHERE invoice_id > ? AND invoice_date < ?",
+                    settled, customerSql(), SALES_SQL);
+            long movements = refreshSource(conn, SOURCE_MOVEMENTS,
+                    "SELECT MAX(movement_id) FROM stock_movements WHERE movement_id > ? AND movement_date < ?",
+                    settled, USAGE_SQL);
+            return new long[]{invoices, movements};
+        } catch (Exception e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    private long refreshSource(Connection conn, String source, String targetSql, Timestamp settled,
+                               String... rollupSqls) throws SQLException {
+        long target;
+        try (PreparedStatement ps = conn.prepareStatement(targetSql)) {
+            ps.setLong(1, getWatermark(conn, source, false));
+            ps.setTimestamp(2, settled);
+            ResultSet rs = ps.executeQuery();
+            target = rs.next() ? rs.getLong(1) : 0;
+        }
+
+        long rolled = 0;
+        conn.setAutoCommit(false);
+        try {
+            while (true) {
+                // Locking the watermark row makes concurrent refreshes take turns per chunk
+                long from = getWatermark(conn, source, true);
+                if (from >= target) {
+                    conn.commit();
+                    break;
+                }
+                long to = Math.min(target, from + CHUNK_IDS);
+                for (String sql : rollupSqls) {
+                    try (PreparedStatement ps = conn.prepareStatement(sql)) {
+                        ps.setLong(1, from);
+                        ps.setLong(2, to);
+                        ps.executeUpdate();
+                    }
+                }
+                try (PreparedStatement ps = conn.prepareStatement(
+                        "UPDATE rollup_watermarks SET last_id = ?, refreshed_at = NOW() WHERE source = ?")) {
+                    ps.setLong(1, to);
+                    ps.setString(2, source);
+                    ps.executeUpdate();
+                }
+                conn.commit();
+                rolled += to - from;
+            }
+        } catch (SQLException e) {
+            conn.rollback();
+            throw e;
+        } finally {
+            conn.setAutoCommit(true);
+        }
+        return rolled;
+    }
+
+    private static long getWatermark(Connection conn, String source, boolean forUpdate) throws SQLException {
+        String sql = "SELECT last_id FROM rollup_watermarks WHERE source = ?" + (forUpdate ? " FOR UPDATE" : "");
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setString(1, source);
+            ResultSet rs = ps.executeQuery();
+            if (!rs.next()) {
+                throw new SQLException("No rollup watermark for " + source + " (run sql/007_daily_rollups.sql)");
+            }
+            return rs.getLong(1);
+        }
+    }
+
+    // 🔁 Empty the rollups and roll everything up again from the raw tables
+    public boolean rebuild() {
+        try (Connection conn = DBConnection.getConnection()) {
+            conn.setAutoCommit(false);
+            try (Statement st = conn.createStatement()) {
+                // Lock the watermarks first so a concurrent refresh cannot add to half-emptied tables
+                st.executeQuery("SELECT last_id FROM rollup_watermarks FOR UPDATE").close();
+                st.executeUpdate("DELETE FROM rollup_customer_daily");
+                st.executeUpdate("DELETE FROM rollup_product_sales_daily");
+                st.executeUpdate("DELETE FROM rollup_product_usage_daily");
+                st.executeUpdate("UPDATE rollup_watermarks SET last_id = 0, refreshed_at = NOW()");
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+            return false;
+        }
+        return refresh() != null;
+    }
+
+    // 📋 Per source: last_id, refreshed_at and pending (raw rows above the watermark)
+    public Map<String, Map<String, Object>> getStatus() {
+        Map<String, Map<String, Object>> status = new LinkedHashMap<>();
+        String sql = "SELECT w.source, w.last_id, w.refreshed_at, " +
+                     "(SELECT COUNT(*) FROM invoices WHERE invoice_id > w.last_id) AS pending_invoices, " +
+                     "(SELECT COUNT(*) FROM stock_movements WHERE movement_id > w.last_id) AS pending_movements " +
+                     "FROM rollup_watermarks w ORDER BY w.source";
+        try (Connection conn = DBConnection.getConnection();
+             Statement st = conn.createStatement();
+             ResultSet rs = st.executeQuery(sql)) {
+            while (rs.next()) {
+                String source = rs.getString("source");
+                Map<String, Object> row = new LinkedHashMap<>();
+                row.put("last_id", rs.getLong("last_id"));
+                row.put("refreshed_at", rs.getTimestamp("refreshed_at"));
+                row.put("pending", rs.getLong(SOURCE_INVOICES.equals(source) ? "pending_invoices" : "pending_movements"));
+                status.put(source, row);
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+        return status;
+    }
+
+    // 📅 A report period split into whole days (answered by the rollups) and raw edges.
+    // startDate/endDate are inclusive like the report's BETWEEN; both null means all time.
+    // Days are local calendar days, the same ones DATE() gives on the server.
+    static final class Period {
+        private final Timestamp start;
+        private final Timestamp end;
+        private final java.sql.Date fullFrom; // first whole day, null when there is none
+        private final java.sql.Date fullTo;   // day after the last whole day
+
+        Period(Date startDate, Date endDate) {
+            if (startDate == null || endDate == null) {
+                start = end = null;
+                fullFrom = fullTo = null;
+                return;
+            }
+            start = new Timestamp(startDate.getTime());
+            end = new Timestamp(endDate.getTime());
+
+            Calendar first = midnight(startDate);
+            if (first.getTimeInMillis() < startDate.getTime()) {
+                first.add(Calendar.DAY_OF_MONTH, 1);
+            }
+            // A day is whole only if its last millisecond is still inside the period
+            Calendar after = midnight(new Date(endDate.getTime() + 1));
+            if (first.before(after)) {
+                fullFrom = new java.sql.Date(first.getTimeInMillis());
+                fullTo = new java.sql.Date(after.getTimeInMillis());
+            } else {
+                fullFrom = fullTo = null;
+            }
+        }
+
+        private static Calendar midnight(Date date) {
+            Calendar cal = Calendar.getInstance();
+            cal.setTime(date);
+            cal.set(Calendar.HOUR_OF_DAY, 0);
+            cal.set(Calendar.MINUTE, 0);
+            cal.set(Calendar.SECOND, 0);
+            cal.set(Calendar.MILLISECOND, 0);
+            return cal;
+        }
+
+        boolean isAllTime() {
+            return start == null;
+        }
+
+        // UNION ALL of the rollup rows and the raw rows for this period; both selects must return
+        // the same columns. rawFilter (may be null) is ANDed to every raw branch; dateColumn and
+        // idColumn are the raw table's timestamp and the id the source's watermark counts.
+        // Parameters are appended to params in placeholder order.
+        String union(String rollupSelect, String rawSelect, String rawFilter,
+                     String dateColumn, String idColumn, String source, List<Object> params) {
+            String watermark = "(SELECT last_id FROM rollup_watermarks WHERE source = '" + source + "')";
+            List<String> parts = new ArrayList<>();
+            if (isAllTime()) {
+                parts.add(rollupSelect);
+                parts.add(raw(rawSelect, rawFilter, idColumn + " > " + watermark));
+            } else if (fullFrom != null) {
+                parts.add(rollupSelect + " WHERE rollup_date >= ? AND rollup_date < ?");
+                params.add(fullFrom);
+                params.add(fullTo);
+                if (start.before(fullFrom)) {
+                    parts.add(raw(rawSelect, rawFilter, dateColumn + " >= ? AND " + dateColumn + " < ?"));
+                    params.add(start);
+                    params.add(new Timestamp(fullFrom.getTime()));
+                }
+                parts.add(raw(rawSelect, rawFilter, dateColumn + " >= ? AND " + dateColumn + " <= ?"));
+                params.add(new Timestamp(fullTo.getTime()));
+                params.add(end);
+                // Not rolled up yet, but inside the whole days
+                parts.add(raw(rawSelect, rawFilter, idColumn + " > " + watermark +
+                        " AND " + dateColumn + " >= ? AND " + dateColumn + " < ?"));
+                params.add(new Timestamp(fullFrom.getTime()));
+                params.add(new Timestamp(fullTo.getTime()));
+            } else {
+                parts.add(raw(rawSelect, rawFilter, dateColumn + " BETWEEN ? AND ?"));
+                params.add(start);
+                params.add(end);
+            }
+            return String.join(" UNION ALL ", parts);
+        }
+
+        private static String raw(String rawSelect, String rawFilter, String condition) {
+            return rawSelect + " WHERE " + (rawFilter != null ? rawFilter + " AND " : "") + condition;
+        }
+    }
+
+    static void bind(PreparedStatement ps, List<Object> params) throws SQLException {
+        for (int i = 0; i < params.size(); i++) {
+            ps.setObject(i + 1, params.get(i));
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,218 @@
+package com.salon.dao;
+
+import com.salon.service.ChangeFeed;
+import com.salon.util.DBConnection;
+
+import java.sql.*;
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+// 🗂️ In-process read-through cache for reference data that changes a few times a week
+// (active services, service categories, membership plans, continued products).
+// Each Entry holds one immutable snapshot that readers share without touching the database.
+// A snapshot is dropped when:
+//  - a DAO write on this terminal calls changed() (the next read loads and swaps in a new one),
+//  - another terminal wrote: changed() also bumps the catalog's row in catalog_versions
+//    (sql/009_catalog_versions.sql), and one small query over that table, at most every
+//    -Dsalon.catalog.probeSeconds (default 5), tells every reader whether its version moved
+//    (while com.salon.service.ChangeFeed is polling, its polls double as these probes),
+//  - it is older than -Dsalon.catalog.ttlSeconds (default 600), for writes that bypass the DAOs.
+// The snapshot lists are unmodifiable; their elements are shared and must be treated as read-only.
+public final class CatalogCache {
+
+    // Rows of catalog_versions
+    public static final String SERVICES = "services";
+    public static final String PLANS = "membership_plans";
+    public static final String PRODUCTS = "products";
+
+    private static final long TTL_MS = Long.getLong("salon.catalog.ttlSeconds", 600) * 1000;
+    private static final long PROBE_MS = Long.getLong("salon.catalog.probeSeconds", 5) * 1000;
+
+    // Version of a catalog when catalog_versions cannot be read; only the TTL applies then
+    private static final long UNKNOWN_VERSION = -1;
+
+    private static final List<Entry<?>> ENTRIES = new CopyOnWriteArrayList<>();
+
+    private static final Object PROBE_LOCK = new Object();
+    private static volatile Map<String, Long> probedVersions = Collections.emptyMap();
+    private static volatile long probedAt;
+    private static boolean probeFailing; // guarded by PROBE_LOCK; report a missing table once, not every probe
+    private static final LongAdder probes = new LongAdder();
+
+    private CatalogCache() {
+    }
+
+    public interface Loader<T> {
+        T load() throws Exception;
+    }
+
+    private static final class Snapshot<T> {
+        final T value;
+        final long generation; // Entry.generation when the load started
+        final long version;    // catalog_versions.version when the load started
+        final long loadedAt;
+
+        Snapshot(T value, long generation, long version, long loadedAt) {
+            this.value = value;
+            this.generation = generation;
+            this.version = version;
+            this.loadedAt = loadedAt;
+        }
+    }
+
+    public static final class Entry<T> {
+        private final String name;
+        private final String catalog;
+        private final T empty;
+        private final Loader<T> loader;
+        private final AtomicLong generation = new AtomicLong();
+        private volatile Snapshot<T> snapshot;
+        private final LongAdder hits = new LongAdder();
+        private final LongAdder misses = new LongAdder();
+        private final LongAdder failures = new LongAdder();
+
+        private Entry(String name, String catalog, T empty, Loader<T> loader) {
+            this.name = name;
+            this.catalog = catalog;
+            this.empty = empty;
+            this.loader = loader;
+        }
+
+        // The current snapshot, loading it first if there is none or it went stale.
+        // If loading fails the previous snapshot (or the empty value) is returned and nothing is cached.
+        public T get() {
+            Snapshot<T> s = snapshot;
+            if (isFresh(s)) {
+                hits.increment();
+                return s.value;
+            }
+            synchronized (this) {
+                s = snapshot;
+                if (isFresh(s)) {
+                    hits.increment();
+                    return s.value;
+                }
+                misses.increment();
+                long gen = generation.get();
+                long version = currentVersion(catalog);
+                long start = System.currentTimeMillis();
+                T value;
+                try {
+                    value = loader.load();
+                } catch (Exception e) {
+                    e.printStackTrace();
+                    failures.increment();
+                    return s != null ? s.value : empty;
+                }
+                // A write that landed while we were loading makes this result stale already
+                if (generation.get() == gen) {
+                    snapshot = new Snapshot<>(value, gen, version, start);
+                }
+                return value;
+            }
+        }
+
+        private boolean isFresh(Snapshot<T> s) {
+            return s != null
+                    && s.generation == generation.get()
+                    && System.currentTimeMillis() - s.loadedAt < TTL_MS
+                    && s.version == currentVersion(catalog);
+        }
+
+        private void invalidate() {
+            generation.incrementAndGet();
+            snapshot = null;
+        }
+    }
+
+    // Registers a cached catalog read; empty is what readers get if the very first load fails
+    public static <T> Entry<T> entry(String name, String catalog, T empty, Loader<T> loader) {
+        Entry<T> e = new Entry<>(name, catalog, empty, loader);
+        ENTRIES.add(e);
+        return e;
+    }
+
+    // ✏️ Call after a successful write to a catalog table, on the connection that wrote it.
+    // Drops this terminal's snapshots and bumps catalog_versions so other terminals notice.
+    static void changed(Connection conn, String catalog) {
+        try (PreparedStatement ps = conn.prepareStatement(
+                "UPDATE catalog_versions SET version = version + 1, updated_at = NOW() WHERE catalog = ?")) {
+            ps.setString(1, catalog);
+            ps.executeUpdate();
+        } catch (Exception e) {
+            // The write itself went through; other terminals fall back to the TTL
+            e.printStackTrace();
+        }
+        invalidate(catalog);
+        probedAt = 0; // re-read the versions on the next access instead of trusting the old probe
+        ChangeFeed.publish(catalog); // this terminal's panels hear about it without waiting for a poll
+    }
+
+    // Drops this terminal's snapshots of a catalog (null = all of them)
+    public static void invalidate(String catalog) {
+        for (Entry<?> e : ENTRIES) {
+            if (catalog == null || catalog.equals(e.catalog)) {
+                e.invalidate();
+            }
+        }
+    }
+
+    private static long currentVersion(String catalog) {
+        if (System.currentTimeMillis() - probedAt >= PROBE_MS) {
+            probe(false);
+        }
+        return probedVersions.getOrDefault(catalog, UNKNOWN_VERSION);
+    }
+
+    // 📡 Read catalog_versions now (the change feed's poll); null when it cannot be read
+    public static Map<String, Long> pollVersions() {
+        return probe(true);
+    }
+
+    // One query for all catalogs; concurrent readers wait for the thread that is already probing
+    private static Map<String, Long> probe(boolean force) {
+        synchronized (PROBE_LOCK) {
+            if (!force && System.currentTimeMillis() - probedAt < PROBE_MS) {
+                return probedVersions;
+            }
+            Map<String, Long> versions = new HashMap<>();
+            boolean ok = false;
+            try (Connection conn = DBConnection.getConnection();
+                 Statement st = conn.createStatement();
+                 ResultSet rs = st.executeQuery("SELECT catalog, version FROM catalog_versions")) {
+                while (rs.next()) {
+                    versions.put(rs.getString("catalog"), rs.getLong("version"));
+                }
+                probeFailing = false;
+                ok = true;
+            } catch (Exception e) {
+                if (!probeFailing) {
+                    e.printStackTrace(); // versions stay unknown until a probe succeeds
+                    probeFailing = true;
+                }
+            }
+            probes.increment();
+            probedVersions = versions;
+            probedAt = System.currentTimeMillis();
+            return ok ? versions : null;
+        }
+    }
+
+    // 📈 Per entry: hits, misses (loads), failures and the age of the current snapshot in ms
+    // (-1 when none), plus "probes" for the catalog_versions reads
+    public static Map<String, Long> getMetrics() {
+        Map<String, Long> metrics = new LinkedHashMap<>();
+        long now = System.currentTimeMillis();
+        for (Entry<?> e : ENTRIES) {
+            Snapshot<?> s = e.snapshot;
+            metrics.put(e.name + ".hits", e.hits.sum());
+            metrics.put(e.name + ".misses", e.misses.sum());
+            metrics.put(e.name + ".failures", e.failures.sum());
+            metrics.put(e.name + ".ageMs", s != null ? now - s.loadedAt : -1);
+        }
+        metrics.put("probes", probes.sum());
+        return metrics;
+    }
+}
\ No newline at end of file
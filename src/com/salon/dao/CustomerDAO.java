@@ -1,63 +1,197 @@
 package com.salon.dao;
 
 import com.salon.model.Customer;
+import com.salon.model.InvoiceSummary;
+import com.salon.service.CustomerLookup;
+import com.salon.service.InvoiceRenderQueue;
+import com.salon.storage.DocumentStores;
 import com.salon.util.DBConnection;
+import com.salon.util.PhoneNumbers;
 
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
-import java.util.UUID;
 
 public class CustomerDAO {
 
-    // Add a new customer
-    public boolean addCustomer(Customer customer) {
-        String sql = "INSERT INTO customers (customer_id, name, phone, address, created_at) VALUES (?, ?, ?, ?, NOW())";
-        try (Connection conn = DBConnection.getConnection();
-             PreparedStatement ps = conn.prepareStatement(sql)) {
+    // Receives the rows of scanPhones()
+    public interface PhoneSink {
+        void accept(String customerId, String phone, Timestamp createdAt);
+    }
 
-            String customerId = "CUST-" + UUID.randomUUID().toString().substring(0, 8).toUpperCase();
-            ps.setString(1, customerId);
-            ps.setString(2, customer.getName());
-            ps.setString(3, customer.getPhone());
-            ps.setString(4, customer.getAddress());
+    // Add a customer, or record another visit of the customer who already has this phone number.
+    // Numbers are compared normalized (PhoneNumbers.normalize, column phone_normalized), so
+    // "+91 98765 43210" and "9876543210" are the same customer. A returning customer keeps their id,
+    // takes the name/address typed this time (a blank address keeps the old one) and gets
+    // visit_count + 1 and last_visit = now. Afterwards customer.getCustomerId() / getVisitCount()
+    // describe the row that was used.
+    public boolean addCustomer(Customer customer) {
+        Connection conn = null;
+        long newKey = 0; // released again if it is known to be unused
+        boolean committing = false;
+        boolean releaseKey = false;
+        try {
+            newKey = KeySequence.next(KeySequence.CUSTOMERS); // before borrowing the transaction's connection
+            conn = DBConnection.getConnection();
+            conn.setAutoCommit(false);
+            recordVisit(conn, customer, newKey);
+            committing = true;
+            conn.commit();
+            releaseKey = customer.getCustomerKey() != newKey; // returning customer
+            visitRecorded(customer);
+            return true;
 
-            int rows = ps.executeUpdate();
-            if (rows > 0) {
-                customer.setCustomerId(customerId);
-                return true;
-            }
         } catch (Exception e) {
             e.printStackTrace();
+            releaseKey = !committing; // a failed commit may still have stored it
+            if (conn != null) {
+                try {
+                    conn.rollback();
+                } catch (SQLException ex) {
+                    ex.printStackTrace();
+                }
+            }
+        } finally {
+            if (newKey > 0 && releaseKey) {
+                KeySequence.release(KeySequence.CUSTOMERS, newKey);
+            }
+            if (conn != null) {
+                try {
+                    conn.setAutoCommit(true);
+                    conn.close();
+                } catch (SQLException e) {
+                    e.printStackTrace();
+                }
+            }
         }
         return false;
     }
 
-    // Get invoice PDF data by customer ID
-    public byte[] getInvoicePdfByCustomerId(String customerId) {
-        String sql = "SELECT invoice_pdf FROM invoices WHERE customer_id = ? ORDER BY invoice_id DESC LIMIT 1";
+    // addCustomer's writes in the caller's transaction (InvoiceDAO.createInvoiceForVisit); call
+    // visitRecorded() after the commit. newKey (KeySequence.next, drawn before the transaction
+    // took its connection) becomes the key of a new customer; when the number is already a
+    // customer's it stays unused (customer.getCustomerKey() != newKey) and the caller releases it,
+    // as it does when the transaction rolls back.
+    void recordVisit(Connection conn, Customer customer, long newKey) throws SQLException {
+        String digits = PhoneNumbers.normalize(customer.getPhone());
+        String normalized = digits.isEmpty() ? null : digits;
+        // One statement, no locking read first: a SELECT ... FOR UPDATE of a number that is not in
+        // the table yet gap-locks it, and two terminals adding the same new number then deadlock on
+        // their inserts. Here the unique index on phone_normalized (sql/011) decides instead: the
+        // second insert waits for the first and turns into a visit of that row.
+        String upsert = "INSERT INTO customers (customer_key, customer_id, name, phone, phone_normalized, address, created_at, visit_count, last_visit) " +
+                        "VALUES (?, ?, ?, ?, ?, ?, NOW(), 1, NOW()) " +
+                        "ON DUPLICATE KEY UPDATE name = ?, address = COALESCE(NULLIF(?, ''), address), " +
+                        "visit_count = visit_count + 1, last_visit = NOW()";
+
+        // Sequential key; the printed code is derived from it
+        long customerKey = newKey;
+        String customerId = KeySequence.customerCode(customerKey);
+        try (PreparedStatement ps = conn.prepareStatement(upsert)) {
+            ps.setLong(1, customerKey);
+            ps.setString(2, customerId);
+            ps.setString(3, customer.getName());
+            ps.setString(4, customer.getPhone());
+            ps.setString(5, normalized);
+            ps.setString(6, customer.getAddress());
+            ps.setString(7, customer.getName());
+            ps.setString(8, customer.getAddress());
+            ps.executeUpdate();
+        }
+
+        // The row is ours now (inserted or updated in this transaction), so a plain read sees it.
+        // Without digits there is nothing to match on and the insert always made a new row.
+        Customer existing = normalized != null ? findVisit(conn, normalized) : null;
+        if (existing == null) {
+            existing = new Customer();
+            existing.setCustomerId(customerId);
+            existing.setCustomerKey(customerKey);
+            existing.setVisitCount(1);
+        }
+
+        customer.setCustomerId(existing.getCustomerId());
+        customer.setCustomerKey(existing.getCustomerKey());
+        customer.setVisitCount(existing.getVisitCount());
+    }
+
+    // Caches to update once a recordVisit() has committed
+    static void visitRecorded(Customer customer) {
+        AnalyticsDAO.invalidateSummaryCache();
+        CustomerLookup.customerAdded(customer.getCustomerId(), customer.getPhone());
+    }
+
+    // customer_id, customer_key and visit_count of the customer with this normalized number
+    private Customer findVisit(Connection conn, String normalized) throws SQLException {
+        String sql = "SELECT customer_id, customer_key, visit_count FROM customers WHERE phone_normalized = ?";
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setString(1, normalized);
+            ResultSet rs = ps.executeQuery();
+            if (rs.next()) {
+                Customer c = new Customer();
+                c.setCustomerId(rs.getString("customer_id"));
+                c.setCustomerKey(rs.getLong("customer_key"));
+                c.setVisitCount(rs.getInt("visit_count"));
+                return c;
+            }
+        }
+        return null;
+    }
+
+    // A customer's invoices, newest first (invoice_id order), for picking which one to view/export
+    public List<InvoiceSummary> getInvoicesForCustomer(String customerId) {
+        List<InvoiceSummary> list = new ArrayList<>();
+        String sql = "SELECT i.invoice_id, i.invoice_date, i.total_amount, i.invoice_filename, i.pdf_status " +
+                     "FROM invoices i JOIN customers c ON " + CustomerKeySchema.customerJoin("i", "c") + " " +
+                     "WHERE c.customer_id = ? ORDER BY i.invoice_id DESC";
         try (Connection conn = DBConnection.getConnection();
              PreparedStatement ps = conn.prepareStatement(sql)) {
             ps.setString(1, customerId);
             ResultSet rs = ps.executeQuery();
-            if (rs.next()) {
-                return rs.getBytes("invoice_pdf");
+            while (rs.next()) {
+                InvoiceSummary inv = new InvoiceSummary();
+                inv.setInvoiceId(rs.getInt("invoice_id"));
+                inv.setInvoiceDate(rs.getTimestamp("invoice_date"));
+                inv.setTotalAmount(rs.getDouble("total_amount"));
+                inv.setInvoiceFilename(rs.getString("invoice_filename"));
+                inv.setPdfStatus(rs.getString("pdf_status"));
+                list.add(inv);
             }
         } catch (Exception e) {
             e.printStackTrace();
         }
-        return null;
+        return list;
     }
 
-    // Get invoice filename by customer ID
-    public String getInvoiceFilenameByCustomerId(String customerId) {
-        String sql = "SELECT invoice_filename FROM invoices WHERE customer_id = ? ORDER BY invoice_id DESC LIMIT 1";
+    // Get invoice PDF data by invoice ID.
+    // Reads the document store by reference; only invoices not yet moved out by
+    // InvoiceBlobMigrator still fetch the legacy invoice_pdf BLOB. An invoice whose PDF has not been
+    // rendered yet is rendered right here instead of waiting for the queue.
+    public byte[] getInvoicePdf(int invoiceId) {
+        String sql = "SELECT invoice_pdf_ref, pdf_status FROM invoices WHERE invoice_id = ?";
         try (Connection conn = DBConnection.getConnection();
              PreparedStatement ps = conn.prepareStatement(sql)) {
-            ps.setString(1, customerId);
+            ps.setInt(1, invoiceId);
             ResultSet rs = ps.executeQuery();
-            if (rs.next()) {
-                return rs.getString("invoice_filename");
+            if (!rs.next()) {
+                return null;
+            }
+            String ref = rs.getString("invoice_pdf_ref");
+            if (ref != null) {
+                try {
+                    return DocumentStores.get().get(ref);
+                } catch (Exception e) {
+                    e.printStackTrace(); // missing/corrupt file: fall back to the BLOB if one is left
+                }
+            } else if (!"READY".equals(rs.getString("pdf_status"))) {
+                return InvoiceRenderQueue.get().renderNow(invoiceId);
+            }
+            try (PreparedStatement psBlob = conn.prepareStatement("SELECT invoice_pdf FROM invoices WHERE invoice_id = ?")) {
+                psBlob.setInt(1, invoiceId);
+                ResultSet rsBlob = psBlob.executeQuery();
+                if (rsBlob.next()) {
+                    return rsBlob.getBytes("invoice_pdf");
+                }
             }
         } catch (Exception e) {
             e.printStackTrace();
@@ -68,7 +202,7 @@ public class CustomerDAO {
     // Get all customers
     public List<Customer> getAllCustomers() {
         List<Customer> list = new ArrayList<>();
-        String sql = "SELECT customer_id, name, phone, address, created_at FROM customers ORDER BY created_at DESC";
+        String sql = "SELECT customer_id, name, phone, address, created_at, visit_count, last_visit FROM customers ORDER BY created_at DESC";
         try (Connection conn = DBConnection.getConnection();
              PreparedStatement ps = conn.prepareStatement(sql);
              ResultSet rs = ps.executeQuery()) {
@@ -79,6 +213,8 @@ public class CustomerDAO {
                 c.setPhone(rs.getString("phone"));
                 c.setAddress(rs.getString("address"));
                 c.setCreatedAt(rs.getTimestamp("created_at")); // ✅ Added this line
+                c.setVisitCount(rs.getInt("visit_count"));
+                c.setLastVisit(rs.getTimestamp("last_visit"));
                 list.add(c);
             }
         } catch (Exception e) {
@@ -87,6 +223,108 @@ public class CustomerDAO {
         return list;
     }
 
+    // Customers who visited on/after 'since' (null = all time), most recent visit first, so a
+    // returning customer invoiced today shows under "Today" however long ago they were added.
+    // Served by idx_customers_last_visit (sql/015_customers_last_visit_index.sql); limit <= 0 means no limit
+    public List<Customer> getCustomersVisitedSince(java.util.Date since, int limit, int offset) {
+        StringBuilder sql = new StringBuilder("SELECT customer_id, customer_key, name, phone, address, created_at, visit_count, last_visit FROM customers");
+        if (since != null) {
+            sql.append(" WHERE last_visit >= ?");
+        }
+        sql.append(" ORDER BY last_visit DESC, customer_id DESC");
+        if (limit > 0) {
+            sql.append(" LIMIT ? OFFSET ?");
+        }
+
+        List<Customer> list = new ArrayList<>();
+        try (Connection conn = DBConnection.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql.toString())) {
+            int i = 1;
+            if (since != null) {
+                ps.setTimestamp(i++, new Timestamp(since.getTime()));
+            }
+            if (limit > 0) {
+                ps.setInt(i++, limit);
+                ps.setInt(i, Math.max(offset, 0));
+            }
+            readCustomers(ps, list);
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+        return list;
+    }
+
+    // Number of customers who visited on/after 'since' (null = all time)
+    public int countCustomersVisitedSince(java.util.Date since) {
+        String sql = "SELECT COUNT(*) FROM customers" + (since != null ? " WHERE last_visit >= ?" : "");
+        try (Connection conn = DBConnection.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            if (since != null) {
+                ps.setTimestamp(1, new Timestamp(since.getTime()));
+            }
+            ResultSet rs = ps.executeQuery();
+            if (rs.next()) {
+                return rs.getInt(1);
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+        return 0;
+    }
+
+    // Keyset page: the next 'limit' customers after (afterLastVisit, afterCustomerId) in
+    // (last_visit DESC, customer_id DESC) order. Pass nulls for the first page.
+    public List<Customer> getCustomersVisitedSincePage(java.util.Date since, java.util.Date afterLastVisit,
+                                                       String afterCustomerId, int limit) {
+        StringBuilder sql = new StringBuilder("SELECT customer_id, customer_key, name, phone, address, created_at, visit_count, last_visit FROM customers WHERE 1 = 1");
+        if (since != null) {
+            sql.append(" AND last_visit >= ?");
+        }
+        if (afterLastVisit != null) {
+            sql.append(" AND (last_visit < ? OR (last_visit = ? AND customer_id < ?))");
+        }
+        sql.append(" ORDER BY last_visit DESC, customer_id DESC LIMIT ?");
+
+        List<Customer> list = new ArrayList<>();
+        try (Connection conn = DBConnection.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql.toString())) {
+            int i = 1;
+            if (since != null) {
+                ps.setTimestamp(i++, new Timestamp(since.getTime()));
+            }
+            if (afterLastVisit != null) {
+                // Keep the fraction as read: a re-built Timestamp would drop the microseconds and skip rows
+                Timestamp after = afterLastVisit instanceof Timestamp
+                        ? (Timestamp) afterLastVisit : new Timestamp(afterLastVisit.getTime());
+                ps.setTimestamp(i++, after);
+                ps.setTimestamp(i++, after);
+                ps.setString(i++, afterCustomerId);
+            }
+            ps.setInt(i, limit);
+            readCustomers(ps, list);
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+        return list;
+    }
+
+    private void readCustomers(PreparedStatement ps, List<Customer> list) throws SQLException {
+        try (ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                Customer c = new Customer();
+                c.setCustomerId(rs.getString("customer_id"));
+                c.setName(rs.getString("name"));
+                c.setPhone(rs.getString("phone"));
+                c.setAddress(rs.getString("address"));
+                c.setCreatedAt(rs.getTimestamp("created_at"));
+                c.setCustomerKey(rs.getLong("customer_key"));
+                c.setVisitCount(rs.getInt("visit_count"));
+                c.setLastVisit(rs.getTimestamp("last_visit"));
+                list.add(c);
+            }
+        }
+    }
+
     // Get customer by ID
     public Customer getCustomerById(String customerId) {
         String sql = "SELECT customer_id, name, phone, address FROM customers WHERE customer_id = ?";
@@ -111,18 +349,21 @@ public class CustomerDAO {
 
     // Update customer membership
     public boolean updateCustomerMembership(String customerId, Integer membershipPlanId) {
+        try (Connection conn = DBConnection.getConnection()) {
+            return updateCustomerMembership(conn, customerId, membershipPlanId);
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+        return false;
+    }
+
+    boolean updateCustomerMembership(Connection conn, String customerId, Integer membershipPlanId) throws SQLException {
         String sql = "UPDATE customers SET membership_plan_id = ? WHERE customer_id = ?";
-        try (Connection conn = DBConnection.getConnection();
-             PreparedStatement ps = conn.prepareStatement(sql)) {
-            
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
             ps.setObject(1, membershipPlanId);
             ps.setString(2, customerId);
-            
             return ps.executeUpdate() > 0;
-        } catch (Exception e) {
-            e.printStackTrace();
         }
-        return false;
     }
 
     // Get customer's membership plan ID
@@ -143,12 +384,16 @@ public class CustomerDAO {
         }
         return null;
     }
- // Get customer by phone number (for auto-suggestion)
+ // Get customer by phone number (for auto-suggestion); any spelling of the number matches
     public Customer getCustomerByPhone(String phone) {
-        String sql = "SELECT customer_id, name, phone, address, membership_plan_id FROM customers WHERE phone = ? ORDER BY created_at DESC LIMIT 1";
+        String normalized = PhoneNumbers.normalize(phone);
+        if (normalized.isEmpty()) {
+            return null;
+        }
+        String sql = "SELECT customer_id, customer_key, name, phone, address, membership_plan_id, visit_count, last_visit FROM customers WHERE phone_normalized = ?";
         try (Connection conn = DBConnection.getConnection();
              PreparedStatement ps = conn.prepareStatement(sql)) {
-            ps.setString(1, phone);
+            ps.setString(1, normalized);
             ResultSet rs = ps.executeQuery();
             if (rs.next()) {
                 Customer c = new Customer();
@@ -156,6 +401,9 @@ public class CustomerDAO {
                 c.setName(rs.getString("name"));
                 c.setPhone(rs.getString("phone"));
                 c.setAddress(rs.getString("address"));
+                c.setCustomerKey(rs.getLong("customer_key"));
+                c.setVisitCount(rs.getInt("visit_count"));
+                c.setLastVisit(rs.getTimestamp("last_visit"));
                 
                 // Get membership plan ID
                 Object planId = rs.getObject("membership_plan_id");
@@ -170,4 +418,63 @@ public class CustomerDAO {
         }
         return null;
     }
+
+    // Customers by id, in no particular order (ids that do not exist are skipped)
+    public List<Customer> getCustomersByIds(List<String> customerIds) {
+        List<Customer> list = new ArrayList<>();
+        if (customerIds.isEmpty()) {
+            return list;
+        }
+        String sql = "SELECT customer_id, customer_key, name, phone, address, membership_plan_id, visit_count, last_visit FROM customers WHERE customer_id IN ("
+                + String.join(", ", Collections.nCopies(customerIds.size(), "?")) + ")";
+        try (Connection conn = DBConnection.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            for (int i = 0; i < customerIds.size(); i++) {
+                ps.setString(i + 1, customerIds.get(i));
+            }
+            ResultSet rs = ps.executeQuery();
+            while (rs.next()) {
+                Customer c = new Customer();
+                c.setCustomerId(rs.getString("customer_id"));
+                c.setName(rs.getString("name"));
+                c.setPhone(rs.getString("phone"));
+                c.setAddress(rs.getString("address"));
+                c.setCustomerKey(rs.getLong("customer_key"));
+                c.setVisitCount(rs.getInt("visit_count"));
+                c.setLastVisit(rs.getTimestamp("last_visit"));
+                Object planId = rs.getObject("membership_plan_id");
+                if (planId != null) {
+                    c.setMembershipPlanId(((Number) planId).intValue());
+                }
+                list.add(c);
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+        return list;
+    }
+
+    // Streams (customer_id, phone, created_at) of customers created on/after 'since' (null = all),
+    // oldest first, for the phone index (CustomerLookup). Rows go straight to the sink instead of a
+    // list of Customer objects. Returns false if the read failed.
+    public boolean scanPhones(java.util.Date since, PhoneSink sink) {
+        String sql = "SELECT customer_id, phone, created_at FROM customers"
+                + (since != null ? " WHERE created_at >= ?" : "") + " ORDER BY created_at, customer_id";
+        try (Connection conn = DBConnection.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            if (since != null) {
+                ps.setTimestamp(1, new Timestamp(since.getTime()));
+            }
+            ps.setFetchSize(5000); // batches through a cursor on MySQL (useCursorFetch=true in DBConnection's URL)
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    sink.accept(rs.getString(1), rs.getString(2), rs.getTimestamp(3));
+                }
+            }
+            return true;
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+        return false;
+    }
 }
\ No newline at end of file
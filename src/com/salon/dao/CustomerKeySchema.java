@@ -0,0 +1,86 @@
+package com.salon.dao;
+
+import com.salon.util.DBConnection;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+// 🔑 Which column links invoices (and rollup_customer_daily) to their customer.
+// Between sql/012 and sql/013 old invoices may still lack a customer_key (CustomerKeyMigrator fills
+// them in), but every invoice has its customer_id, so reads and writes keep going through
+// customer_id. sql/013 makes customer_key the customers primary key and drops invoices.customer_id;
+// from then on everything goes through customer_key. Detected once per process from the table
+// metadata, so apply 013 with the terminals closed. Tools that run before sql/012 (the customer
+// merge between 010 and 011) check hasCustomerKeys() before touching customer_key at all.
+public final class CustomerKeySchema {
+
+    private static volatile Boolean keyed; // null until read successfully
+    private static volatile Boolean hasKeys;
+
+    private CustomerKeySchema() {
+    }
+
+    // true once sql/013 has been applied (invoices.customer_id is gone)
+    public static boolean isKeyed() {
+        Boolean k = keyed;
+        if (k == null) {
+            Boolean present = columnExists("invoices", "customer_id");
+            if (present == null) {
+                return false; // not cached: read again next time
+            }
+            k = !present;
+            keyed = k;
+        }
+        return k;
+    }
+
+    // true once sql/012 has been applied (customers and invoices have a customer_key column)
+    public static boolean hasCustomerKeys() {
+        Boolean k = hasKeys;
+        if (k == null) {
+            k = columnExists("customers", "customer_key");
+            if (k == null) {
+                return false;
+            }
+            hasKeys = k;
+        }
+        return k;
+    }
+
+    // null if the metadata could not be read
+    private static Boolean columnExists(String table, String column) {
+        try (Connection conn = DBConnection.getConnection()) {
+            return hasColumn(conn.getMetaData(), conn.getCatalog(), table, column);
+        } catch (Exception e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    // Column of invoices / rollup_customer_daily that references customers: customer_key or customer_id
+    public static String invoiceCustomerColumn() {
+        return isKeyed() ? "customer_key" : "customer_id";
+    }
+
+    // Join condition from an invoices (or rollup_customer_daily) alias to a customers alias
+    public static String customerJoin(String invoiceAlias, String customerAlias) {
+        String column = invoiceCustomerColumn();
+        return customerAlias + "." + column + " = " + invoiceAlias + "." + column;
+    }
+
+    // In the connection's own database; unquoted names are stored lower case by MySQL and upper case by H2
+    private static boolean hasColumn(DatabaseMetaData meta, String catalog, String table, String column) throws SQLException {
+        for (String t : new String[]{table, table.toUpperCase()}) {
+            for (String c : new String[]{column, column.toUpperCase()}) {
+                try (ResultSet rs = meta.getColumns(catalog, null, t, c)) {
+                    if (rs.next()) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+}
\ No newline at end of file
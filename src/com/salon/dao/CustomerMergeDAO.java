@@ -0,0 +1,266 @@
+package com.salon.dao;
+
+import com.salon.util.DBConnection;
+import com.salon.util.PhoneNumbers;
+
+import java.sql.*;
+import java.util.*;
+
+// 👥 Collapses the customer rows that share a phone number (one per visit until addCustomer became
+// an upsert, see sql/010_customer_phone_dedup.sql) into one row per number.
+// normalizePhones() fills phone_normalized for rows that do not have it yet; mergeDuplicates()
+// then keeps the oldest row of every number (its id is the one on the earliest invoices), gives it
+// the newest name/address/membership, the summed visit_count and the latest last_visit, moves the
+// invoices and rollup_customer_daily rows of the others onto it and deletes them.
+// One transaction per MERGE_BATCH numbers, so it can be stopped and run again at any point.
+public class CustomerMergeDAO {
+
+    private static final int NORMALIZE_BATCH = 1000;
+    private static final int MERGE_BATCH = 200;
+
+    // %1$s = the customer reference column (CustomerKeySchema), %2$s = the placeholders of the rows that go
+    private static final String ROLLUP_MOVE_SQL =
+        "INSERT INTO rollup_customer_daily (rollup_date, %1$s, invoice_count, service_total, product_total) " +
+        "SELECT rollup_date, ?, SUM(invoice_count), SUM(service_total), SUM(product_total) " +
+        "FROM rollup_customer_daily WHERE %1$s IN (%2$s) GROUP BY rollup_date " +
+        "ON DUPLICATE KEY UPDATE invoice_count = invoice_count + VALUES(invoice_count), " +
+        "service_total = service_total + VALUES(service_total), product_total = product_total + VALUES(product_total)";
+
+    // Rows without phone_normalized, numbers held by more than one row, and the rows that would go
+    public Map<String, Long> getStatus() {
+        Map<String, Long> status = new LinkedHashMap<>();
+        String sql = "SELECT (SELECT COUNT(*) FROM customers) AS customers, " +
+                     "(SELECT COUNT(*) FROM customers WHERE phone_normalized IS NULL) AS unnormalized, " +
+                     "COUNT(*) AS duplicate_numbers, COALESCE(SUM(n - 1), 0) AS duplicate_rows " +
+                     "FROM (SELECT COUNT(*) AS n FROM customers WHERE phone_normalized IS NOT NULL " +
+                     "      GROUP BY phone_normalized HAVING COUNT(*) > 1) d";
+        try (Connection conn = DBConnection.getConnection();
+             Statement st = conn.createStatement();
+             ResultSet rs = st.executeQuery(sql)) {
+            if (rs.next()) {
+                status.put("customers", rs.getLong("customers"));
+                status.put("unnormalized", rs.getLong("unnormalized"));
+                status.put("duplicate_numbers", rs.getLong("duplicate_numbers"));
+                status.put("duplicate_rows", rs.getLong("duplicate_rows"));
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+        return status;
+    }
+
+    // ☎️ phone_normalized for rows that have none yet; rows whose phone has no digits stay NULL.
+    // Returns the rows updated, or -1 if it failed (batches committed so far stay).
+    public long normalizePhones() {
+        long updated = 0;
+        try (Connection read = DBConnection.getConnection();
+             Connection write = DBConnection.getConnection()) {
+            write.setAutoCommit(false);
+            try (PreparedStatement select = read.prepareStatement(
+                     "SELECT customer_id, phone FROM customers WHERE phone_normalized IS NULL");
+                 PreparedStatement update = write.prepareStatement(
+                     "UPDATE customers SET phone_normalized = ? WHERE customer_id = ?")) {
+                select.setFetchSize(5000);
+                int batched = 0;
+                try (ResultSet rs = select.executeQuery()) {
+                    while (rs.next()) {
+                        String digits = PhoneNumbers.normalize(rs.getString("phone"));
+                        if (digits.isEmpty()) {
+                            continue;
+                        }
+                        update.setString(1, digits);
+                        update.setString(2, rs.getString("customer_id"));
+                        update.addBatch();
+                        if (++batched == NORMALIZE_BATCH) {
+                            update.executeBatch();
+                            write.commit();
+                            updated += batched;
+                            batched = 0;
+                        }
+                    }
+                }
+                update.executeBatch();
+                write.commit();
+                updated += batched;
+            } catch (Exception e) {
+                write.rollback();
+                throw e;
+            } finally {
+                write.setAutoCommit(true);
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+            return -1;
+        }
+        return updated;
+    }
+
+    // 🔗 Merge every number held by more than one row. Returns {numbers merged, customer rows
+    // removed, invoices moved}, or null if it failed (batches committed so far stay).
+    public long[] mergeDuplicates() {
+        long[] totals = new long[3];
+        List<String> numbers = new ArrayList<>();
+        try (Connection conn = DBConnection.getConnection();
+             Statement st = conn.createStatement();
+             ResultSet rs = st.executeQuery("SELECT phone_normalized FROM customers WHERE phone_normalized IS NOT NULL " +
+                                            "GROUP BY phone_normalized HAVING COUNT(*) > 1")) {
+            while (rs.next()) {
+                numbers.add(rs.getString(1));
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+            return null;
+        }
+
+        for (int from = 0; from < numbers.size(); from += MERGE_BATCH) {
+            List<String> batch = numbers.subList(from, Math.min(numbers.size(), from + MERGE_BATCH));
+            Connection conn = null;
+            try {
+                conn = DBConnection.getConnection();
+                conn.setAutoCommit(false);
+                for (String number : batch) {
+                    long[] merged = mergeNumber(conn, number);
+                    totals[0]++;
+                    totals[1] += merged[0];
+                    totals[2] += merged[1];
+                }
+                conn.commit();
+            } catch (Exception e) {
+                e.printStackTrace();
+                if (conn != null) {
+                    try {
+                        conn.rollback();
+                    } catch (SQLException ex) {
+                        ex.printStackTrace();
+                    }
+                }
+                return null;
+            } finally {
+                if (conn != null) {
+                    try {
+                        conn.setAutoCommit(true);
+                        conn.close();
+                    } catch (SQLException e) {
+                        e.printStackTrace();
+                    }
+                }
+            }
+        }
+        if (totals[0] > 0) {
+            AnalyticsDAO.invalidateSummaryCache();
+        }
+        return totals;
+    }
+
+    // {rows removed, invoices moved} for one number
+    private long[] mergeNumber(Connection conn, String number) throws SQLException {
+        String keep = null;
+        Object keepKey = null;
+        String name = null;
+        String address = null;
+        Object planId = null;
+        int visits = 0;
+        Timestamp lastVisit = null;
+        List<String> drop = new ArrayList<>();
+        List<Object> dropKeys = new ArrayList<>();
+
+        // The merge runs between sql/010 and sql/011, before 012 adds customer_key
+        boolean hasKeys = CustomerKeySchema.hasCustomerKeys();
+        try (PreparedStatement ps = conn.prepareStatement(
+                "SELECT customer_id, " + (hasKeys ? "customer_key, " : "") + "name, address, membership_plan_id, created_at, visit_count, last_visit " +
+                "FROM customers WHERE phone_normalized = ? ORDER BY created_at, customer_id FOR UPDATE")) {
+            ps.setString(1, number);
+            ResultSet rs = ps.executeQuery();
+            while (rs.next()) {
+                // Oldest first: later rows overwrite the details, the first one keeps its id
+                if (keep == null) {
+                    keep = rs.getString("customer_id");
+                    keepKey = hasKeys ? rs.getObject("customer_key") : null;
+                } else {
+                    drop.add(rs.getString("customer_id"));
+                    dropKeys.add(hasKeys ? rs.getObject("customer_key") : null);
+                }
+                name = rs.getString("name");
+                String a = rs.getString("address");
+                if (a != null && !a.trim().isEmpty()) {
+                    address = a;
+                }
+                Object p = rs.getObject("membership_plan_id");
+                if (p != null) {
+                    planId = p;
+                }
+                visits += rs.getInt("visit_count");
+                Timestamp visit = rs.getTimestamp("last_visit");
+                if (visit == null) {
+                    visit = rs.getTimestamp("created_at");
+                }
+                if (visit != null && (lastVisit == null || visit.after(lastVisit))) {
+                    lastVisit = visit;
+                }
+            }
+        }
+        if (drop.isEmpty()) {
+            return new long[]{0, 0}; // merged by an earlier run or another terminal meanwhile
+        }
+
+        String in = String.join(", ", Collections.nCopies(drop.size(), "?"));
+        // Invoices and rollups reference customer_id until sql/013, customer_key afterwards
+        boolean keyed = CustomerKeySchema.isKeyed();
+        String column = CustomerKeySchema.invoiceCustomerColumn();
+        Object keepRef = keyed ? keepKey : keep;
+        List<Object> dropRefs = keyed ? dropKeys : new ArrayList<>(drop);
+        long moved;
+        try (PreparedStatement ps = conn.prepareStatement(keyed
+                ? "UPDATE invoices SET customer_key = ? WHERE customer_key IN (" + in + ")"
+                : "UPDATE invoices SET customer_id = ?" + (hasKeys ? ", customer_key = ?" : "") + " WHERE customer_id IN (" + in + ")")) {
+            int i = 1;
+            if (!keyed) {
+                ps.setString(i++, keep);
+            }
+            if (hasKeys) {
+                ps.setObject(i++, keepKey, Types.BIGINT);
+            }
+            bindRefs(ps, i, dropRefs);
+            moved = ps.executeUpdate();
+        }
+        try (PreparedStatement ps = conn.prepareStatement(String.format(ROLLUP_MOVE_SQL, column, in))) {
+            ps.setObject(1, keepRef);
+            bindRefs(ps, 2, dropRefs);
+            ps.executeUpdate();
+        }
+        try (PreparedStatement ps = conn.prepareStatement(
+                "DELETE FROM rollup_customer_daily WHERE " + column + " IN (" + in + ")")) {
+            bindRefs(ps, 1, dropRefs);
+            ps.executeUpdate();
+        }
+        try (PreparedStatement ps = conn.prepareStatement(
+                "DELETE FROM customers WHERE customer_id IN (" + in + ")")) {
+            bindIds(ps, 1, drop);
+            ps.executeUpdate();
+        }
+        try (PreparedStatement ps = conn.prepareStatement(
+                "UPDATE customers SET name = ?, address = ?, membership_plan_id = ?, visit_count = ?, last_visit = ? " +
+                "WHERE customer_id = ?")) {
+            ps.setString(1, name);
+            ps.setString(2, address);
+            ps.setObject(3, planId);
+            ps.setInt(4, visits);
+            ps.setTimestamp(5, lastVisit);
+            ps.setString(6, keep);
+            ps.executeUpdate();
+        }
+        return new long[]{drop.size(), moved};
+    }
+
+    private static void bindRefs(PreparedStatement ps, int first, List<Object> refs) throws SQLException {
+        for (int i = 0; i < refs.size(); i++) {
+            ps.setObject(first + i, refs.get(i));
+        }
+    }
+
+    private static void bindIds(PreparedStatement ps, int first, List<String> ids) throws SQLException {
+        for (int i = 0; i < ids.size(); i++) {
+            ps.setString(first + i, ids.get(i));
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,40 @@
+package com.salon.dao;
+
+import com.salon.storage.DocumentStores;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+// 🗂️ DocumentStore refs are content hashes, so two rows whose documents have the same bytes share one
+// file (an invoice re-rendered by another terminal, a report exported twice). A file may only go
+// once no row in any table that stores refs points at it; add new ref columns here.
+final class DocumentRefs {
+
+    private static final String[] REF_COLUMNS = {
+        "invoices.invoice_pdf_ref",
+        "reports.report_pdf_ref"
+    };
+
+    private DocumentRefs() {
+    }
+
+    // Deletes the document unless some row still references it; returns true if it was deleted
+    static boolean deleteIfUnreferenced(Connection conn, String ref) throws SQLException, IOException {
+        for (String column : REF_COLUMNS) {
+            String table = column.substring(0, column.indexOf('.'));
+            try (PreparedStatement ps = conn.prepareStatement(
+                    "SELECT 1 FROM " + table + " WHERE " + column + " = ? LIMIT 1")) {
+                ps.setString(1, ref);
+                try (ResultSet rs = ps.executeQuery()) {
+                    if (rs.next()) {
+                        return false;
+                    }
+                }
+            }
+        }
+        return DocumentStores.get().delete(ref);
+    }
+}
\ No newline at end of file
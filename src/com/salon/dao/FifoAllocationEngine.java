@@ -0,0 +1,194 @@
+package com.salon.dao;
+
+import com.salon.model.InvoiceItem;
+
+import java.sql.*;
+import java.util.*;
+
+// 📦 FIFO lot allocation, the mechanics behind LotConsumptionService.
+// All RUNNING lots of the requested products are read in one query, the quantities are taken from
+// the oldest lots in memory, and the touched lots plus the lot-level allocation rows
+// (invoice_item_lots, see sql/005_invoice_item_lots.sql) are written with one JDBC batch each.
+// A lot is COMPLETED once its whole quantity is consumed; what could not be covered is reported
+// in Plan.shortfall and the caller decides what to do with it.
+public class FifoAllocationEngine {
+
+    // Below this a lot counts as used up (quantities are DOUBLE)
+    private static final double EPSILON = 0.001;
+
+    private static final String SELECT_LOTS_SQL =
+        "SELECT stock_id, product_id, quantity, COALESCE(quantity_consumed, 0) AS consumed, actual_price_per_unit " +
+        "FROM stock_entries WHERE stock_status = 'RUNNING' AND product_id IN (%s) " +
+        "ORDER BY product_id, add_date ASC, stock_id ASC%s";
+
+    private static final String UPDATE_LOT_SQL =
+        "UPDATE stock_entries SET quantity_consumed = ?, stock_status = ? WHERE stock_id = ?";
+
+    private static final String INSERT_ALLOCATION_SQL =
+        "INSERT INTO invoice_item_lots (invoice_id, item_id, product_id, stock_id, quantity, unit_cost) " +
+        "VALUES (?, ?, ?, ?, ?, ?)";
+
+    // One RUNNING stock entry
+    public static class Lot {
+        final int stockId;
+        final int productId;
+        final double quantity;
+        final double unitCost;
+        double consumed;
+        boolean dirty;
+
+        public Lot(int stockId, int productId, double quantity, double consumed, double unitCost) {
+            this.stockId = stockId;
+            this.productId = productId;
+            this.quantity = quantity;
+            this.consumed = consumed;
+            this.unitCost = unitCost;
+        }
+
+        double available() {
+            return quantity - consumed;
+        }
+
+        boolean isCompleted() {
+            return available() <= EPSILON;
+        }
+    }
+
+    // itemIndex-th invoice line took 'quantity' from lot stockId at unitCost
+    public static class Allocation {
+        public final int itemIndex;
+        public final int productId;
+        public final int stockId;
+        public final double quantity;
+        public final double unitCost;
+
+        Allocation(int itemIndex, int productId, int stockId, double quantity, double unitCost) {
+            this.itemIndex = itemIndex;
+            this.productId = productId;
+            this.stockId = stockId;
+            this.quantity = quantity;
+            this.unitCost = unitCost;
+        }
+    }
+
+    // Result of one invoice's allocation, before or after it is written
+    public static class Plan {
+        public final List<Allocation> allocations = new ArrayList<>();
+        public final List<Lot> touchedLots = new ArrayList<>();
+        public final Map<Integer, Double> shortfall = new LinkedHashMap<>(); // productId -> qty not covered
+    }
+
+    // Pure in-memory FIFO for invoice lines: lots per product must be oldest first. Lots are updated in place.
+    public static Plan allocate(Map<Integer, List<Lot>> lotsByProduct, List<InvoiceItem> items) {
+        int[] productIds = new int[items.size()];
+        double[] quantities = new double[items.size()];
+        for (int i = 0; i < items.size(); i++) {
+            productIds[i] = items.get(i).getProductId();
+            quantities[i] = items.get(i).getQuantity();
+        }
+        return allocate(lotsByProduct, productIds, quantities);
+    }
+
+    // Line i asks for quantities[i] of productIds[i]
+    public static Plan allocate(Map<Integer, List<Lot>> lotsByProduct, int[] productIds, double[] quantities) {
+        Plan plan = new Plan();
+        Map<Integer, Integer> cursor = new HashMap<>(); // productId -> first lot that may still have stock
+
+        for (int i = 0; i < productIds.length; i++) {
+            int productId = productIds[i];
+            List<Lot> lots = lotsByProduct.getOrDefault(productId, Collections.emptyList());
+            int pos = cursor.getOrDefault(productId, 0);
+            double remaining = quantities[i];
+
+            while (remaining > EPSILON && pos < lots.size()) {
+                Lot lot = lots.get(pos);
+                double available = lot.available();
+                if (available <= EPSILON) {
+                    markDirty(plan, lot); // already used up; close it like the old depletion did
+                    lot.consumed = lot.quantity;
+                    pos++;
+                    continue;
+                }
+                double take = Math.min(remaining, available);
+                lot.consumed = remaining >= available ? lot.quantity : lot.consumed + take;
+                markDirty(plan, lot);
+                plan.allocations.add(new Allocation(i, productId, lot.stockId, take, lot.unitCost));
+                remaining -= take;
+                if (lot.isCompleted()) {
+                    pos++;
+                }
+            }
+            cursor.put(productId, pos);
+
+            if (remaining > EPSILON) {
+                plan.shortfall.merge(productId, remaining, Double::sum);
+            }
+        }
+        return plan;
+    }
+
+    // RUNNING lots for the given products, oldest first, in one query.
+    // forUpdate row-locks exactly those lots until the caller's transaction ends.
+    public static Map<Integer, List<Lot>> loadRunningLots(Connection conn, Collection<Integer> productIds,
+                                                          boolean forUpdate) throws SQLException {
+        Map<Integer, List<Lot>> lots = new HashMap<>();
+        if (productIds.isEmpty()) {
+            return lots;
+        }
+        String placeholders = String.join(", ", Collections.nCopies(productIds.size(), "?"));
+        try (PreparedStatement ps = conn.prepareStatement(String.format(SELECT_LOTS_SQL, placeholders, forUpdate ? " FOR UPDATE" : ""))) {
+            int idx = 1;
+            for (int productId : productIds) {
+                ps.setInt(idx++, productId);
+            }
+            ResultSet rs = ps.executeQuery();
+            while (rs.next()) {
+                int productId = rs.getInt("product_id");
+                lots.computeIfAbsent(productId, k -> new ArrayList<>()).add(new Lot(
+                        rs.getInt("stock_id"), productId, rs.getDouble("quantity"),
+                        rs.getDouble("consumed"), rs.getDouble("actual_price_per_unit")));
+            }
+        }
+        return lots;
+    }
+
+    // One batch for the touched lots
+    static void writeLots(Connection conn, Plan plan) throws SQLException {
+        if (!plan.touchedLots.isEmpty()) {
+            try (PreparedStatement ps = conn.prepareStatement(UPDATE_LOT_SQL)) {
+                for (Lot lot : plan.touchedLots) {
+                    ps.setDouble(1, lot.consumed);
+                    ps.setString(2, lot.isCompleted() ? "COMPLETED" : "RUNNING");
+                    ps.setInt(3, lot.stockId);
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+            }
+        }
+    }
+
+    // One batch for the allocation rows of an invoice; itemIds are in invoice line order
+    static void writeAllocations(Connection conn, int invoiceId, List<Integer> itemIds, Plan plan) throws SQLException {
+        if (!plan.allocations.isEmpty()) {
+            try (PreparedStatement ps = conn.prepareStatement(INSERT_ALLOCATION_SQL)) {
+                for (Allocation a : plan.allocations) {
+                    ps.setInt(1, invoiceId);
+                    ps.setInt(2, itemIds.get(a.itemIndex));
+                    ps.setInt(3, a.productId);
+                    ps.setInt(4, a.stockId);
+                    ps.setDouble(5, a.quantity);
+                    ps.setDouble(6, a.unitCost);
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+            }
+        }
+    }
+
+    private static void markDirty(Plan plan, Lot lot) {
+        if (!lot.dirty) {
+            lot.dirty = true;
+            plan.touchedLots.add(lot);
+        }
+    }
+}
\ No newline at end of file
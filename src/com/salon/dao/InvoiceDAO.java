@@ -4,12 +4,15 @@ import com.salon.model.InvoiceService;
 import com.salon.model.InvoiceItem;
 import com.salon.model.Customer;
 import com.salon.model.StockMovement;
+import com.salon.service.InvoiceRenderQueue;
+import com.salon.storage.DocumentStores;
 import com.salon.util.DBConnection;
 import com.itextpdf.text.*;
 import com.itextpdf.text.pdf.*;
 
 import java.io.ByteArrayOutputStream;
 import java.sql.*;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Date;
 
@@ -17,13 +20,100 @@ public class InvoiceDAO {
 
     // Create invoice with services and/or products
 	// REPLACE the createInvoice method in InvoiceDAO.java with this fixed version:
+	// Throws (after rolling back) when the running lots cannot cover the products; getShortfall()
+	// lists them. Any other failure returns false.
 
 	public boolean createInvoice(String customerId, Customer customer, 
 	                              List<InvoiceService> services, 
 	                              List<InvoiceItem> products,
-	                              double serviceDiscount) {
+	                              double serviceDiscount) throws LotConsumptionService.InsufficientStockException {
+	    return saveInvoice(null, customerId, customer, services, products, serviceDiscount);
+	}
+
+    // Checkout at the front desk: records the customer's visit (CustomerDAO.addCustomer rules, plus the
+    // membership plan when planId > 1) and the invoice in one transaction, so a sale that rolls back
+    // (e.g. not enough stock) neither adds the customer nor counts the visit. Same failures as createInvoice.
+    public boolean createInvoiceForVisit(Customer customer, int membershipPlanId,
+                                         List<InvoiceService> services, List<InvoiceItem> products,
+                                         double serviceDiscount) throws LotConsumptionService.InsufficientStockException {
+        return saveInvoice(membershipPlanId, null, customer, services, products, serviceDiscount);
+    }
+
+    // visitPlanId == null: invoice for an existing customerId; otherwise the visit is recorded first
+    private boolean saveInvoice(Integer visitPlanId, String customerId, Customer customer,
+                                List<InvoiceService> services, List<InvoiceItem> products,
+                                double serviceDiscount) throws LotConsumptionService.InsufficientStockException {
+        Connection conn = null;
+        long newKey = 0; // key for a new customer, released again if it is known to be unused
+        boolean committing = false;
+        boolean releaseKey = false;
+        try {
+            if (visitPlanId != null) {
+                newKey = KeySequence.next(KeySequence.CUSTOMERS); // before borrowing the transaction's connection
+            }
+            conn = DBConnection.getConnection();
+            conn.setAutoCommit(false);
+
+            if (visitPlanId != null) {
+                CustomerDAO customers = new CustomerDAO();
+                customers.recordVisit(conn, customer, newKey);
+                if (visitPlanId > 1) {
+                    customers.updateCustomerMembership(conn, customer.getCustomerId(), visitPlanId);
+                }
+                customerId = customer.getCustomerId();
+            }
+            int invoiceId = insertInvoice(conn, customerId, customer, services, products, serviceDiscount);
+
+            committing = true;
+            conn.commit();
+            if (visitPlanId != null) {
+                releaseKey = customer.getCustomerKey() != newKey; // returning customer
+                CustomerDAO.visitRecorded(customer);
+            }
+            AnalyticsDAO.invalidateSummaryCache();
+
+            // Render outside the transaction; if the app stops first the row stays PENDING
+            // and is picked up again (or rendered on demand when someone opens it)
+            InvoiceRenderQueue.get().submit(invoiceId);
+            return true;
+
+        } catch (Exception e) {
+            releaseKey = !committing; // a failed commit may still have stored it
+            try {
+                if (conn != null) conn.rollback();
+            } catch (SQLException ex) {
+                ex.printStackTrace();
+            }
+            if (e instanceof LotConsumptionService.InsufficientStockException) {
+                throw (LotConsumptionService.InsufficientStockException) e; // the caller reports what was short
+            }
+            e.printStackTrace();
+            return false;
+        } finally {
+            if (newKey > 0 && releaseKey) {
+                KeySequence.release(KeySequence.CUSTOMERS, newKey);
+            }
+            try {
+                if (conn != null) {
+                    conn.setAutoCommit(true);
+                    conn.close();
+                }
+            } catch (SQLException ignored) {}
+        }
+    }
 
-	    String insertInvoice = "INSERT INTO invoices (customer_id, invoice_date, total_services, total_products, total_amount, invoice_pdf, invoice_filename) VALUES (?, NOW(), ?, ?, ?, ?, ?)";
+    // Writes the invoice, its lines, movements and lot consumption in the caller's transaction; returns the invoice_id
+	private int insertInvoice(Connection conn, String customerId, Customer customer,
+	                          List<InvoiceService> services,
+	                          List<InvoiceItem> products,
+	                          double serviceDiscount) throws SQLException {
+
+	    // The PDF is rendered after commit by InvoiceRenderQueue; the row starts out PENDING.
+	    // customer_key comes from the Customer when it has one, else from the customer row;
+	    // customer_id is written as well until sql/013 drops it (see CustomerKeySchema)
+	    boolean keyed = CustomerKeySchema.isKeyed();
+	    String insertInvoice = "INSERT INTO invoices (" + (keyed ? "" : "customer_id, ") + "customer_key, invoice_date, total_services, total_products, total_amount, invoice_filename, pdf_status) " +
+	                           "VALUES (" + (keyed ? "" : "?, ") + "COALESCE(?, (SELECT customer_key FROM customers WHERE customer_id = ?)), NOW(), ?, ?, ?, ?, 'PENDING')";
 	    
 	    // ✅ FIXED: Removed service_id from INSERT (it's auto-increment PRIMARY KEY)
 	    String insertService = "INSERT INTO invoice_services (invoice_id, service_name, price, discount_amount, final_price) VALUES (?, ?, ?, ?, ?)";
@@ -31,52 +121,43 @@ public class InvoiceDAO {
 	    String insertItem = "INSERT INTO invoice_items (invoice_id, product_id, quantity, selling_price_per_unit, actual_price_per_unit, subtotal) VALUES (?, ?, ?, ?, ?, ?)";
 	    String insertMovement = "INSERT INTO stock_movements (product_id, movement_date, quantity_changed, movement_type, reference_id, remarks) VALUES (?, NOW(), ?, 'SALE', ?, ?)";
 
-	    Connection conn = null;
-	    PreparedStatement psInvoice = null;
-	    PreparedStatement psService = null;
-	    PreparedStatement psItem = null;
-	    PreparedStatement psMovement = null;
-	    ResultSet rs = null;
-
-	    try {
-	        conn = DBConnection.getConnection();
-	        conn.setAutoCommit(false);
-
-	        // Calculate totals with discount
-	        double serviceSubtotal = services != null ? services.stream().mapToDouble(InvoiceService::getPrice).sum() : 0.0;
-	        double serviceDiscountAmount = serviceSubtotal * (serviceDiscount / 100.0);
-	        double serviceTotal = serviceSubtotal - serviceDiscountAmount;
-
-	        double productTotal = products != null ? products.stream().mapToDouble(InvoiceItem::getSubtotal).sum() : 0.0;
-	        double grandTotal = serviceTotal + productTotal;
-
-	        // Generate PDF with discount info
-	        byte[] pdfBytes = generateInvoicePDF(customerId, customer, services, products, 
-	                                      serviceSubtotal, serviceDiscountAmount, 
-	                                      serviceTotal, productTotal, grandTotal);
-	        String filename = "invoice_" + customerId + ".pdf";
-
-	        // Insert invoice
-	        psInvoice = conn.prepareStatement(insertInvoice, Statement.RETURN_GENERATED_KEYS);
-	        psInvoice.setString(1, customerId);
-	        psInvoice.setDouble(2, serviceTotal); // After discount
-	        psInvoice.setDouble(3, productTotal);
-	        psInvoice.setDouble(4, grandTotal);
-	        psInvoice.setBytes(5, pdfBytes);
-	        psInvoice.setString(6, filename);
-	        psInvoice.executeUpdate();
+	    // Calculate totals with discount
+	    double serviceSubtotal = services != null ? services.stream().mapToDouble(InvoiceService::getPrice).sum() : 0.0;
+	    double serviceDiscountAmount = serviceSubtotal * (serviceDiscount / 100.0);
+	    double serviceTotal = serviceSubtotal - serviceDiscountAmount;
+
+	    double productTotal = products != null ? products.stream().mapToDouble(InvoiceItem::getSubtotal).sum() : 0.0;
+	    double grandTotal = serviceTotal + productTotal;
 
-	        rs = psInvoice.getGeneratedKeys();
-	        int invoiceId = -1;
-	        if (rs.next()) invoiceId = rs.getInt(1);
+	    String filename = "invoice_" + customerId + ".pdf";
 
-	        if (invoiceId == -1) {
-	            throw new SQLException("Failed to get invoice ID");
+	    // Insert invoice
+	    int invoiceId = -1;
+	    try (PreparedStatement psInvoice = conn.prepareStatement(insertInvoice, Statement.RETURN_GENERATED_KEYS)) {
+	        int p = 1;
+	        if (!keyed) {
+	            psInvoice.setString(p++, customerId);
 	        }
+	        psInvoice.setObject(p++, customer != null && customer.getCustomerKey() > 0 ? customer.getCustomerKey() : null, Types.BIGINT);
+	        psInvoice.setString(p++, customerId);
+	        psInvoice.setDouble(p++, serviceTotal); // After discount
+	        psInvoice.setDouble(p++, productTotal);
+	        psInvoice.setDouble(p++, grandTotal);
+	        psInvoice.setString(p, filename);
+	        psInvoice.executeUpdate();
 
-	        // ✅ FIXED: Save services WITHOUT service_id (let it auto-increment)
-	        if (services != null && !services.isEmpty()) {
-	            psService = conn.prepareStatement(insertService);
+	        try (ResultSet rs = psInvoice.getGeneratedKeys()) {
+	            if (rs.next()) invoiceId = rs.getInt(1);
+	        }
+	    }
+
+	    if (invoiceId == -1) {
+	        throw new SQLException("Failed to get invoice ID");
+	    }
+
+	    // ✅ FIXED: Save services WITHOUT service_id (let it auto-increment)
+	    if (services != null && !services.isEmpty()) {
+	        try (PreparedStatement psService = conn.prepareStatement(insertService)) {
 	            for (InvoiceService s : services) {
 	                double basePrice = s.getPrice();
 	                double discount = basePrice * (serviceDiscount / 100.0);
@@ -92,11 +173,12 @@ public class InvoiceDAO {
 	            }
 	            psService.executeBatch();
 	        }
+	    }
 
-	        // Save products and stock movements
-	        if (products != null && !products.isEmpty()) {
-	            psItem = conn.prepareStatement(insertItem);
-	            psMovement = conn.prepareStatement(insertMovement);
+	    // Save products and stock movements
+	    if (products != null && !products.isEmpty()) {
+	        try (PreparedStatement psItem = conn.prepareStatement(insertItem, Statement.RETURN_GENERATED_KEYS);
+	             PreparedStatement psMovement = conn.prepareStatement(insertMovement)) {
 	            
 	            for (InvoiceItem item : products) {
 	                // Insert invoice item
@@ -116,130 +198,217 @@ public class InvoiceDAO {
 	                psMovement.addBatch();
 	            }
 	            psItem.executeBatch();
+	            List<Integer> itemIds = new ArrayList<>();
+	            try (ResultSet keys = psItem.getGeneratedKeys()) {
+	                while (keys.next()) itemIds.add(keys.getInt(1));
+	            }
+	            if (itemIds.size() != products.size()) {
+	                throw new SQLException("Failed to get invoice item IDs");
+	            }
 	            psMovement.executeBatch();
 	            
-	            // Deplete stock in FIFO order for each product sold
-	            for (InvoiceItem item : products) {
-	                depleteStockForSale(item.getProductId(), item.getQuantity(), conn);
-	            }
+	            // Deplete stock in FIFO order for all products sold, recording which lot supplied each item.
+	            // Not enough running stock throws and rolls the whole invoice back.
+	            LotConsumptionService.consumeForSale(conn, invoiceId, products, itemIds);
 	        }
-
-	        conn.commit();
-	        return true;
-
-	    } catch (Exception e) {
-	        e.printStackTrace();
-	        try {
-	            if (conn != null) conn.rollback();
-	        } catch (SQLException ex) {
-	            ex.printStackTrace();
+	        for (InvoiceItem item : products) {
+	            StockLedgerDAO.applyStockOut(conn, item.getProductId(), item.getQuantity(), "SALE");
 	        }
-	        return false;
-	    } finally {
-	        try { 
-	            if (rs != null) rs.close();
-	            if (psMovement != null) psMovement.close();
-	            if (psItem != null) psItem.close();
-	            if (psService != null) psService.close();
-	            if (psInvoice != null) psInvoice.close();
-	            if (conn != null) {
-	                conn.setAutoCommit(true);
-	                conn.close();
-	            }
-	        } catch (SQLException ignored) {}
 	    }
+	    return invoiceId;
 	}
-    /**
-     * 🔥 NEW METHOD: Depletes stock in FIFO order when products are sold
-     * Marks oldest stocks as COMPLETED when fully used
-     * Handles 150+ stock entries per product efficiently
-     * 
-     * @param productId Product being sold
-     * @param quantitySold Quantity sold
-     * @param conn Active database connection (for transaction)
-     * @return true if successful
-     */
-    /**
-     * 🔥 FIXED: Depletes stock in FIFO order when products are sold
-     * Marks oldest stocks as COMPLETED when fully used
-     * DOES NOT change quantity - only updates status
-     * Stock summary relies on original quantities + stock_movements
-     */
-    /**
-     * 🔥 FIXED: Depletes stock in FIFO order when products are sold
-     * Marks oldest stocks as COMPLETED when fully used
-     * Handles 150+ stock entries per product efficiently
-     * 
-     * Key improvements:
-     * - Proper NULL handling for quantity_consumed
-     * - Correct FIFO ordering (oldest first)
-     * - Efficient batch processing
-     */
-    private boolean depleteStockForSale(int productId, double quantitySold, Connection conn) 
-            throws SQLException {
-        
-        double remaining = quantitySold;
-        
-        // FIFO: Get stocks from OLDEST to NEWEST with consumed tracking
-        String selectSql = "SELECT stock_id, quantity, COALESCE(quantity_consumed, 0) as consumed " +
-                          "FROM stock_entries " +
-                          "WHERE product_id = ? AND stock_status = 'RUNNING' " +
-                          "ORDER BY add_date ASC, stock_id ASC";
-        
-        try (PreparedStatement psSelect = conn.prepareStatement(selectSql);
-             PreparedStatement psUpdate = conn.prepareStatement(
-                 "UPDATE stock_entries SET quantity_consumed = ?, stock_status = ? WHERE stock_id = ?")) {
-            
-            psSelect.setInt(1, productId);
-            ResultSet rs = psSelect.executeQuery();
-            
-            while (rs.next() && remaining > 0) {
-                int stockId = rs.getInt("stock_id");
-                double stockQty = rs.getDouble("quantity");
-                double consumed = rs.getDouble("consumed");
-                
-                double availableInThisStock = stockQty - consumed;
-                
-                // Skip if already fully consumed (safety check)
-                if (availableInThisStock <= 0.001) {
-                    psUpdate.setDouble(1, stockQty);
-                    psUpdate.setString(2, "COMPLETED");
-                    psUpdate.setInt(3, stockId);
-                    psUpdate.executeUpdate();
-                    continue;
+    // Render an invoice's PDF from its committed rows, store it and mark the invoice READY.
+    // No connection is held while iText runs. Returns the stored PDF (also when it was already READY).
+    public byte[] renderInvoicePdf(int invoiceId) throws Exception {
+        String customerId;
+        Timestamp invoiceDate;
+        double serviceTotal;
+        double productTotal;
+        double grandTotal;
+        Customer customer = new Customer();
+        List<InvoiceService> services = new ArrayList<>();
+        List<InvoiceItem> products = new ArrayList<>();
+        double serviceSubtotal = 0;
+        double serviceDiscountAmount = 0;
+
+        try (Connection conn = DBConnection.getConnection()) {
+            try (PreparedStatement ps = conn.prepareStatement(
+                    "SELECT c.customer_id, i.invoice_date, i.total_services, i.total_products, i.total_amount, " +
+                    "i.pdf_status, i.invoice_pdf_ref, c.name, c.phone, c.address " +
+                    "FROM invoices i LEFT JOIN customers c ON " + CustomerKeySchema.customerJoin("i", "c") + " WHERE i.invoice_id = ?")) {
+                ps.setInt(1, invoiceId);
+                ResultSet rs = ps.executeQuery();
+                if (!rs.next()) {
+                    throw new SQLException("Invoice " + invoiceId + " not found");
                 }
-                
-                if (remaining >= availableInThisStock) {
-                    // Fully consume this stock
-                    psUpdate.setDouble(1, stockQty); // quantity_consumed = total quantity
-                    psUpdate.setString(2, "COMPLETED");
-                    psUpdate.setInt(3, stockId);
-                    psUpdate.executeUpdate();
-                    remaining -= availableInThisStock;
-                    
-                } else {
-                    // Partially consume this stock
-                    double newConsumed = consumed + remaining;
-                    psUpdate.setDouble(1, newConsumed);
-                    psUpdate.setString(2, "RUNNING"); // Keep RUNNING
-                    psUpdate.setInt(3, stockId);
-                    psUpdate.executeUpdate();
-                    remaining = 0;
+                String ref = rs.getString("invoice_pdf_ref");
+                if (ref != null && "READY".equals(rs.getString("pdf_status"))) {
+                    return DocumentStores.get().get(ref);
+                }
+                customerId = rs.getString("customer_id");
+                invoiceDate = rs.getTimestamp("invoice_date");
+                serviceTotal = rs.getDouble("total_services");
+                productTotal = rs.getDouble("total_products");
+                grandTotal = rs.getDouble("total_amount");
+                customer.setCustomerId(customerId);
+                customer.setName(rs.getString("name"));
+                customer.setPhone(rs.getString("phone"));
+                customer.setAddress(rs.getString("address"));
+            }
+
+            try (PreparedStatement ps = conn.prepareStatement(
+                    "SELECT service_name, price, discount_amount FROM invoice_services WHERE invoice_id = ? ORDER BY service_id")) {
+                ps.setInt(1, invoiceId);
+                ResultSet rs = ps.executeQuery();
+                while (rs.next()) {
+                    services.add(new InvoiceService(null, rs.getString("service_name"), rs.getDouble("price")));
+                    serviceSubtotal += rs.getDouble("price");
+                    serviceDiscountAmount += rs.getDouble("discount_amount");
+                }
+            }
+
+            try (PreparedStatement ps = conn.prepareStatement(
+                    "SELECT ii.product_id, p.name, p.brand, ii.quantity, ii.selling_price_per_unit, " +
+                    "ii.actual_price_per_unit, ii.subtotal " +
+                    "FROM invoice_items ii LEFT JOIN products p ON p.product_id = ii.product_id " +
+                    "WHERE ii.invoice_id = ? ORDER BY ii.item_id")) {
+                ps.setInt(1, invoiceId);
+                ResultSet rs = ps.executeQuery();
+                while (rs.next()) {
+                    InvoiceItem item = new InvoiceItem(rs.getInt("product_id"), rs.getString("name"), rs.getString("brand"),
+                            rs.getDouble("quantity"), rs.getDouble("selling_price_per_unit"), rs.getDouble("actual_price_per_unit"));
+                    item.setSubtotal(rs.getDouble("subtotal"));
+                    products.add(item);
                 }
             }
         }
-        
-        return remaining <= 0.001; // Success if all quantity was depleted
+
+        byte[] pdfBytes = generateInvoicePDF(customerId, customer, services, products,
+                serviceSubtotal, serviceDiscountAmount, serviceTotal, productTotal, grandTotal,
+                invoiceDate != null ? invoiceDate : new java.util.Date());
+        String ref = DocumentStores.get().put(pdfBytes);
+
+        try (Connection conn = DBConnection.getConnection()) {
+            try (PreparedStatement ps = conn.prepareStatement(
+                    "UPDATE invoices SET invoice_pdf_ref = ?, pdf_status = 'READY', pdf_error = NULL, pdf_claimed_at = NULL " +
+                    "WHERE invoice_id = ? AND pdf_status <> 'READY'")) {
+                ps.setString(1, ref);
+                ps.setInt(2, invoiceId);
+                if (ps.executeUpdate() == 1) {
+                    return pdfBytes;
+                }
+            }
+            // Already READY: another render got there first (our claim went stale meanwhile), or the
+            // row still has a legacy BLOB. Keep what the row points at and drop our copy, unless the
+            // same bytes are already stored for another row (refs are content hashes).
+            try (PreparedStatement ps = conn.prepareStatement("SELECT invoice_pdf_ref FROM invoices WHERE invoice_id = ?")) {
+                ps.setInt(1, invoiceId);
+                ResultSet rs = ps.executeQuery();
+                String stored = rs.next() ? rs.getString(1) : null;
+                if (ref.equals(stored)) {
+                    return pdfBytes;
+                }
+                DocumentRefs.deleteIfUnreferenced(conn, ref);
+                return stored != null ? DocumentStores.get().get(stored) : pdfBytes;
+            }
+        }
     }
-    // Generate PDF with services and products
-    private byte[] generateInvoicePDF(String customerId, Customer customer, 
+
+    // 🔒 Take an invoice for rendering (PENDING, or FAILED when opened on demand -> RENDERING).
+    // Only one terminal wins the update, so the sweepers of several terminals never render the same invoice.
+    public boolean claimPdfRender(int invoiceId) {
+        String sql = "UPDATE invoices SET pdf_status = 'RENDERING', pdf_claimed_at = NOW() " +
+                     "WHERE invoice_id = ? AND pdf_status IN ('PENDING', 'FAILED')";
+        try (Connection conn = DBConnection.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setInt(1, invoiceId);
+            return ps.executeUpdate() == 1;
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+        return false;
+    }
+
+    // Claims older than timeoutSeconds belong to a terminal that stopped mid-render: back to PENDING
+    public int releaseStalePdfClaims(int timeoutSeconds) {
+        String sql = "UPDATE invoices SET pdf_status = 'PENDING', pdf_claimed_at = NULL " +
+                     "WHERE pdf_status = 'RENDERING' AND pdf_claimed_at < TIMESTAMPADD(SECOND, ?, NOW())";
+        try (Connection conn = DBConnection.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setInt(1, -timeoutSeconds);
+            return ps.executeUpdate();
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+        return 0;
+    }
+
+    public String getPdfStatus(int invoiceId) {
+        try (Connection conn = DBConnection.getConnection();
+             PreparedStatement ps = conn.prepareStatement("SELECT pdf_status FROM invoices WHERE invoice_id = ?")) {
+            ps.setInt(1, invoiceId);
+            ResultSet rs = ps.executeQuery();
+            if (rs.next()) {
+                return rs.getString(1);
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+        return null;
+    }
+
+    // Record a failed render attempt. Returns true once maxAttempts is reached and the invoice
+    // is marked FAILED; FAILED rows are only rendered again on demand.
+    public boolean markPdfRenderFailed(int invoiceId, String error, int maxAttempts) {
+        // pdf_status is assigned first so the CASE sees the attempt count before this increment
+        String sql = "UPDATE invoices SET pdf_status = CASE WHEN pdf_attempts + 1 >= ? THEN 'FAILED' ELSE 'PENDING' END, " +
+                     "pdf_attempts = pdf_attempts + 1, pdf_error = ?, pdf_claimed_at = NULL " +
+                     "WHERE invoice_id = ? AND pdf_status <> 'READY'";
+        try (Connection conn = DBConnection.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setInt(1, maxAttempts);
+            ps.setString(2, error != null && error.length() > 255 ? error.substring(0, 255) : error);
+            ps.setInt(3, invoiceId);
+            ps.executeUpdate();
+
+            try (PreparedStatement psStatus = conn.prepareStatement("SELECT pdf_status FROM invoices WHERE invoice_id = ?")) {
+                psStatus.setInt(1, invoiceId);
+                ResultSet rs = psStatus.executeQuery();
+                return rs.next() && "FAILED".equals(rs.getString(1));
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+        return false;
+    }
+
+    // Invoices still waiting for their PDF (e.g. the app stopped before the queue got to them)
+    public List<Integer> getPendingPdfInvoiceIds(int limit) {
+        List<Integer> ids = new ArrayList<>();
+        String sql = "SELECT invoice_id FROM invoices WHERE pdf_status = 'PENDING' ORDER BY invoice_id LIMIT ?";
+        try (Connection conn = DBConnection.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setInt(1, limit);
+            ResultSet rs = ps.executeQuery();
+            while (rs.next()) {
+                ids.add(rs.getInt(1));
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+        return ids;
+    }
+
+    // Generate PDF with services and products (pure rendering, no database access)
+    public byte[] generateInvoicePDF(String customerId, Customer customer, 
             List<InvoiceService> services, 
             List<InvoiceItem> products,
             double serviceSubtotal,
             double serviceDiscount,
             double serviceTotal, 
             double productTotal, 
-            double grandTotal) throws Exception {
+            double grandTotal,
+            Date invoiceDate) throws Exception {
 
 Document doc = new Document();
 ByteArrayOutputStream baos = new ByteArrayOutputStream();
@@ -261,7 +430,7 @@ doc.add(new Paragraph("Customer ID: " + customerId, normalFont));
 doc.add(new Paragraph("Customer: " + customer.getName(), normalFont));
 doc.add(new Paragraph("Phone: " + customer.getPhone(), normalFont));
 doc.add(new Paragraph("Address: " + (customer.getAddress() != null ? customer.getAddress() : "N/A"), normalFont));
-doc.add(new Paragraph("Date: " + new java.util.Date(), normalFont));
+doc.add(new Paragraph("Date: " + invoiceDate, normalFont));
 doc.add(new Paragraph(" "));
 
 // Services Table (if any)
@@ -0,0 +1,124 @@
+package com.salon.dao;
+
+import com.salon.util.DBConnection;
+
+import java.sql.*;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+
+// 🔑 Monotonic BIGINT keys from the key_sequences table (sql/012_customer_keys.sql).
+// Each process takes a block of -Dsalon.keys.blockSize keys (default 50) in one short transaction
+// of its own and hands them out from memory, so a key costs a round trip only once per block and
+// terminals never wait on each other's inserts. Keys increase within a process, except that a key
+// handed back with release() (drawn for an insert that did not happen) is handed out again first;
+// across terminals they interleave by block, and keys left in a block at exit are never used (gaps
+// are harmless). Callers inside a transaction should draw their key before borrowing its
+// connection: a refill borrows one more from the pool.
+public final class KeySequence {
+
+    public static final String CUSTOMERS = "customers";
+
+    private static final int BLOCK_SIZE = Integer.getInteger("salon.keys.blockSize", 50);
+
+    // Display codes use base 36 padded to this width, so they sort like the keys up to 36^6 - 1
+    private static final int CODE_WIDTH = 6;
+
+    // name -> blocks {next, end}, released single keys first; guarded by BLOCKS
+    private static final Map<String, ArrayDeque<long[]>> BLOCKS = new HashMap<>();
+
+    private KeySequence() {
+    }
+
+    // Next key of a sequence
+    public static long next(String name) throws SQLException {
+        synchronized (BLOCKS) {
+            long[] block = take(name);
+            if (block != null) {
+                return block[0]++;
+            }
+        }
+        // Refill outside the lock, so other threads (each holding its own pooled connection) never
+        // wait on BLOCKS while this one waits for a connection. Two threads refilling at once both
+        // keep their blocks.
+        long first = reserve(name, BLOCK_SIZE);
+        synchronized (BLOCKS) {
+            BLOCKS.computeIfAbsent(name, n -> new ArrayDeque<>()).addLast(new long[]{first, first + BLOCK_SIZE});
+            return take(name)[0]++;
+        }
+    }
+
+    // Gives back a key from next() that ended up unused (its insert did not happen or rolled back),
+    // so the next caller gets it instead of a new one
+    public static void release(String name, long key) {
+        synchronized (BLOCKS) {
+            BLOCKS.computeIfAbsent(name, n -> new ArrayDeque<>()).addFirst(new long[]{key, key + 1});
+        }
+    }
+
+    // First block of the sequence with keys left, dropping used-up ones; null if none. Caller holds BLOCKS.
+    private static long[] take(String name) {
+        ArrayDeque<long[]> blocks = BLOCKS.get(name);
+        while (blocks != null && !blocks.isEmpty()) {
+            long[] block = blocks.peekFirst();
+            if (block[0] < block[1]) {
+                return block;
+            }
+            blocks.pollFirst();
+        }
+        return null;
+    }
+
+    // Takes count consecutive keys for the caller (bulk loads, migrations); returns the first one
+    public static long reserve(String name, int count) throws SQLException {
+        Connection conn = null;
+        try {
+            conn = DBConnection.getConnection();
+            conn.setAutoCommit(false);
+            long first;
+            try (PreparedStatement ps = conn.prepareStatement(
+                    "SELECT next_value FROM key_sequences WHERE name = ? FOR UPDATE")) {
+                ps.setString(1, name);
+                ResultSet rs = ps.executeQuery();
+                if (!rs.next()) {
+                    throw new SQLException("No key sequence '" + name + "' in key_sequences");
+                }
+                first = rs.getLong(1);
+            }
+            try (PreparedStatement ps = conn.prepareStatement(
+                    "UPDATE key_sequences SET next_value = next_value + ? WHERE name = ?")) {
+                ps.setLong(1, count);
+                ps.setString(2, name);
+                ps.executeUpdate();
+            }
+            conn.commit();
+            return first;
+        } catch (SQLException e) {
+            if (conn != null) {
+                conn.rollback();
+            }
+            throw e;
+        } finally {
+            if (conn != null) {
+                conn.setAutoCommit(true);
+                conn.close();
+            }
+        }
+    }
+
+    // Short code for people to read out and type: prefix + the key in base 36, e.g. key 1234 -> C0000YA
+    public static String displayCode(String prefix, long key) {
+        String digits = Long.toString(key, 36).toUpperCase();
+        StringBuilder sb = new StringBuilder(prefix.length() + Math.max(CODE_WIDTH, digits.length()));
+        sb.append(prefix);
+        for (int i = digits.length(); i < CODE_WIDTH; i++) {
+            sb.append('0');
+        }
+        return sb.append(digits).toString();
+    }
+
+    // Display code of a customer key (the customer_id of every customer added since sql/012)
+    public static String customerCode(long customerKey) {
+        return displayCode("C", customerKey);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,147 @@
+package com.salon.dao;
+
+import com.salon.model.InvoiceItem;
+import com.salon.util.DBConnection;
+
+import java.sql.*;
+import java.util.*;
+
+// 🧾 One lot-consumption model for every stock-out path (product usage and invoice sales).
+// quantity_consumed on stock_entries is the single source of truth for how much of a lot is gone,
+// and a lot turns COMPLETED exactly when it reaches its quantity.
+// Callers pass their open transaction: the candidate lots (RUNNING lots of the products involved)
+// are locked with SELECT ... FOR UPDATE, so two checkouts of the same product queue up on those rows
+// instead of both reading the same lot. Not enough running stock throws InsufficientStockException
+// and the caller rolls back. repair() brings historical lots in line with the movements.
+public class LotConsumptionService {
+
+    private static final double EPSILON = 0.001;
+
+    // Thrown when the running lots cannot cover a request; nothing has been written yet
+    public static class InsufficientStockException extends SQLException {
+        private static final long serialVersionUID = 1L;
+
+        private final Map<Integer, Double> shortfall;
+
+        InsufficientStockException(Map<Integer, Double> shortfall) {
+            super("Not enough running stock (product -> missing quantity): " + shortfall);
+            this.shortfall = shortfall;
+        }
+
+        public Map<Integer, Double> getShortfall() {
+            return shortfall;
+        }
+    }
+
+    // Take an invoice's products from the oldest lots and record which lot supplied each item
+    public static FifoAllocationEngine.Plan consumeForSale(Connection conn, int invoiceId, List<InvoiceItem> items,
+                                                    List<Integer> itemIds) throws SQLException {
+        Set<Integer> productIds = new LinkedHashSet<>();
+        for (InvoiceItem item : items) {
+            productIds.add(item.getProductId());
+        }
+        FifoAllocationEngine.Plan plan = FifoAllocationEngine.allocate(
+                FifoAllocationEngine.loadRunningLots(conn, productIds, true), items);
+        if (!plan.shortfall.isEmpty()) {
+            throw new InsufficientStockException(plan.shortfall);
+        }
+        FifoAllocationEngine.writeLots(conn, plan);
+        FifoAllocationEngine.writeAllocations(conn, invoiceId, itemIds, plan);
+        return plan;
+    }
+
+    // Take used product from the oldest lots
+    public static FifoAllocationEngine.Plan consumeForUsage(Connection conn, int productId, double quantity)
+            throws SQLException {
+        FifoAllocationEngine.Plan plan = FifoAllocationEngine.allocate(
+                FifoAllocationEngine.loadRunningLots(conn, Collections.singleton(productId), true),
+                new int[]{productId}, new double[]{quantity});
+        if (!plan.shortfall.isEmpty()) {
+            throw new InsufficientStockException(plan.shortfall);
+        }
+        FifoAllocationEngine.writeLots(conn, plan);
+        return plan;
+    }
+
+    // 🔧 Recompute quantity_consumed / stock_status of every lot from the USAGE and SALE movements:
+    // a product's total outflow is laid over its lots oldest first. Lots the old usage path left
+    // RUNNING after they were used up become COMPLETED. One transaction per product: its lots are
+    // locked before the outflow is summed, so a concurrent sale is either fully in or fully out.
+    // Only changed rows are written. Returns {products checked, lots changed, lots completed}, or null on failure.
+    public int[] repair(boolean dryRun) {
+        String outflowSql = "SELECT COALESCE(SUM(-quantity_changed), 0) FROM stock_movements " +
+                            "WHERE product_id = ? AND movement_type IN ('USAGE', 'SALE')";
+        String lotsSql = "SELECT stock_id, quantity, COALESCE(quantity_consumed, 0) AS consumed, stock_status " +
+                         "FROM stock_entries WHERE product_id = ? ORDER BY add_date ASC, stock_id ASC FOR UPDATE";
+        String updateSql = "UPDATE stock_entries SET quantity_consumed = ?, stock_status = ? WHERE stock_id = ?";
+
+        List<Integer> productIds = new ArrayList<>();
+        int products = 0;
+        int changed = 0;
+        int completed = 0;
+        try (Connection conn = DBConnection.getConnection()) {
+            try (Statement st = conn.createStatement();
+                 ResultSet rs = st.executeQuery("SELECT product_id FROM products ORDER BY product_id")) {
+                while (rs.next()) {
+                    productIds.add(rs.getInt(1));
+                }
+            }
+
+            conn.setAutoCommit(false);
+            try (PreparedStatement psLots = conn.prepareStatement(lotsSql);
+                 PreparedStatement psOutflow = conn.prepareStatement(outflowSql);
+                 PreparedStatement psUpdate = conn.prepareStatement(updateSql)) {
+                for (int productId : productIds) {
+                    int batched = 0;
+                    psLots.setInt(1, productId);
+                    try (ResultSet rs = psLots.executeQuery()) {
+                        double remaining;
+                        psOutflow.setInt(1, productId);
+                        try (ResultSet rsOut = psOutflow.executeQuery()) {
+                            rsOut.next();
+                            remaining = rsOut.getDouble(1);
+                        }
+                        while (rs.next()) {
+                            double quantity = rs.getDouble("quantity");
+                            double consumed = Math.max(0, Math.min(quantity, remaining));
+                            remaining -= consumed;
+                            String status = quantity - consumed <= EPSILON ? "COMPLETED" : "RUNNING";
+
+                            String oldStatus = rs.getString("stock_status");
+                            if (Math.abs(consumed - rs.getDouble("consumed")) > EPSILON || !status.equals(oldStatus)) {
+                                changed++;
+                                if ("COMPLETED".equals(status) && !status.equals(oldStatus)) {
+                                    completed++;
+                                }
+                                psUpdate.setDouble(1, consumed);
+                                psUpdate.setString(2, status);
+                                psUpdate.setInt(3, rs.getInt("stock_id"));
+                                psUpdate.addBatch();
+                                batched++;
+                            }
+                        }
+                    }
+                    if (batched > 0 && !dryRun) {
+                        psUpdate.executeBatch();
+                    }
+                    psUpdate.clearBatch();
+                    if (dryRun) {
+                        conn.rollback();
+                    } else {
+                        conn.commit();
+                    }
+                    products++;
+                }
+            } catch (Exception e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+            return null;
+        }
+        return new int[]{products, changed, completed};
+    }
+}
\ No newline at end of file
@@ -5,12 +5,22 @@ import com.salon.util.DBConnection;
 
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 public class MembershipDAO {
 
-    // Get all active membership plans
+    // Active plans are read through the catalog cache (see CatalogCache)
+    private static final CatalogCache.Entry<List<MembershipPlan>> ACTIVE_PLANS = CatalogCache.entry(
+            "plans.active", CatalogCache.PLANS, Collections.emptyList(),
+            () -> Collections.unmodifiableList(new MembershipDAO().queryActivePlans()));
+
+    // Get all active membership plans (shared cached list, do not modify)
     public List<MembershipPlan> getActivePlans() {
+        return ACTIVE_PLANS.get();
+    }
+
+    private List<MembershipPlan> queryActivePlans() throws SQLException {
         List<MembershipPlan> plans = new ArrayList<>();
         String sql = "SELECT * FROM membership_plans WHERE is_active = 1 ORDER BY discount_percentage ASC";
         
@@ -21,8 +31,6 @@ public class MembershipDAO {
             while (rs.next()) {
                 plans.add(mapResultSetToPlan(rs));
             }
-        } catch (Exception e) {
-            e.printStackTrace();
         }
         return plans;
     }
@@ -84,6 +92,7 @@ public class MembershipDAO {
                 if (rs.next()) {
                     plan.setPlanId(rs.getInt(1));
                 }
+                CatalogCache.changed(conn, CatalogCache.PLANS);
                 return true;
             }
         } catch (Exception e) {
@@ -106,7 +115,7 @@ public class MembershipDAO {
             ps.setBoolean(4, plan.isActive());
             ps.setInt(5, plan.getPlanId());
             
-            return ps.executeUpdate() > 0;
+            return updated(conn, ps.executeUpdate());
         } catch (Exception e) {
             e.printStackTrace();
         }
@@ -121,13 +130,21 @@ public class MembershipDAO {
              PreparedStatement ps = conn.prepareStatement(sql)) {
             
             ps.setInt(1, planId);
-            return ps.executeUpdate() > 0;
+            return updated(conn, ps.executeUpdate());
         } catch (Exception e) {
             e.printStackTrace();
         }
         return false;
     }
 
+    // Publishes a plans change to the catalog cache when the statement touched a row
+    private static boolean updated(Connection conn, int rows) {
+        if (rows > 0) {
+            CatalogCache.changed(conn, CatalogCache.PLANS);
+        }
+        return rows > 0;
+    }
+
     // Helper method to map ResultSet to MembershipPlan
     private MembershipPlan mapResultSetToPlan(ResultSet rs) throws SQLException {
         MembershipPlan plan = new MembershipPlan();
@@ -1,11 +1,17 @@
 package com.salon.dao;
 
 import com.salon.model.Product;
+import com.salon.model.SellableProduct;
 import com.salon.util.DBConnection;
 import java.sql.*;
 import java.util.*;
 
 public class ProductDAO {
+
+    // The continued-product list is read through the catalog cache (see CatalogCache)
+    private static final CatalogCache.Entry<List<String[]>> PRODUCT_LIST = CatalogCache.entry(
+            "products.continued", CatalogCache.PRODUCTS, Collections.emptyList(),
+            () -> Collections.unmodifiableList(new ProductDAO().queryProductList()));
     
     // 🔹 Add new product (default: CONTINUED)
     public boolean addProduct(Product p) {
@@ -18,7 +24,7 @@ public class ProductDAO {
             ps.setString(4, p.getProductType());
             ps.setString(5, p.getDescription());
             ps.setBoolean(6, p.isDiscontinued()); // Default false = CONTINUED
-            return ps.executeUpdate() > 0;
+            return updated(conn, ps.executeUpdate());
         } catch (Exception e) {
             e.printStackTrace();
         }
@@ -51,7 +57,12 @@ public class ProductDAO {
     
     // 🔹 Helper for StockPanel - Get ONLY CONTINUED products
  // 🔹 Helper for StockPanel - Get ONLY CONTINUED products WITH BRAND
+    // Shared cached list, do not modify the list or its rows
     public List<String[]> getProductList() {
+        return PRODUCT_LIST.get();
+    }
+
+    private List<String[]> queryProductList() throws SQLException {
         List<String[]> list = new ArrayList<>();
         // MODIFIED: Added brand to query
         String sql = "SELECT product_id, name, brand FROM products WHERE is_discontinued = 0 ORDER BY name ASC";
@@ -65,8 +76,6 @@ public class ProductDAO {
                     rs.getString("brand") // ADDED: Brand field
                 });
             }
-        } catch (Exception e) {
-            e.printStackTrace();
         }
         return list;
     }  
@@ -77,12 +86,20 @@ public class ProductDAO {
              PreparedStatement ps = conn.prepareStatement(sql)) {
             ps.setBoolean(1, discontinued);
             ps.setInt(2, productId);
-            return ps.executeUpdate() > 0;
+            return updated(conn, ps.executeUpdate());
         } catch (Exception e) {
             e.printStackTrace();
         }
         return false;
     }
+
+    // Publishes a products change to the catalog cache when the statement touched a row
+    private static boolean updated(Connection conn, int rows) {
+        if (rows > 0) {
+            CatalogCache.changed(conn, CatalogCache.PRODUCTS);
+        }
+        return rows > 0;
+    }
  // ✅ NEW: Get product type by ID for search by type at customer panel
     public String getProductType(int productId) {
         String sql = "SELECT product_type FROM products WHERE product_id = ?";
@@ -98,4 +115,47 @@ public class ProductDAO {
         }
         return "Other";
     }
+
+    // 🔹 Everything the invoice dialog needs in ONE round trip:
+    // continued products with stock left, their type and average RUNNING-lot prices
+    public List<SellableProduct> getSellableProducts() {
+        List<SellableProduct> list = new ArrayList<>();
+        String sql =
+            "SELECT p.product_id, p.name, p.brand, p.product_type, " +
+            "       sb.on_hand AS available_stock, " +
+            "       COALESCE(se.avg_selling, 0) AS avg_selling, " +
+            "       COALESCE(se.avg_actual, 0) AS avg_actual " +
+            "FROM products p " +
+            "LEFT JOIN ( " +
+            "    SELECT product_id, " +
+            "           AVG(selling_price_per_unit) AS avg_selling, " +
+            "           AVG(actual_price_per_unit) AS avg_actual " +
+            "    FROM stock_entries " +
+            "    WHERE stock_status = 'RUNNING' " +
+            "    GROUP BY product_id " +
+            ") se ON p.product_id = se.product_id " +
+            "JOIN stock_balances sb ON p.product_id = sb.product_id " +
+            "WHERE p.is_discontinued = 0 " +
+            "  AND sb.on_hand > 0 " +
+            "ORDER BY p.name ASC";
+
+        try (Connection conn = DBConnection.getConnection();
+             Statement st = conn.createStatement();
+             ResultSet rs = st.executeQuery(sql)) {
+            while (rs.next()) {
+                SellableProduct p = new SellableProduct();
+                p.setProductId(rs.getInt("product_id"));
+                p.setName(rs.getString("name"));
+                p.setBrand(rs.getString("brand"));
+                p.setProductType(rs.getString("product_type"));
+                p.setAvailableStock(rs.getDouble("available_stock"));
+                p.setSellingPrice(rs.getDouble("avg_selling"));
+                p.setActualPrice(rs.getDouble("avg_actual"));
+                list.add(p);
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+        return list;
+    }
 }
\ No newline at end of file
@@ -5,12 +5,25 @@ import com.salon.util.DBConnection;
 
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 public class ServiceDAO {
 
-    // Get all active services
+    // Active services and categories are read through the catalog cache (see CatalogCache)
+    private static final CatalogCache.Entry<List<Service>> ACTIVE_SERVICES = CatalogCache.entry(
+            "services.active", CatalogCache.SERVICES, Collections.emptyList(),
+            () -> Collections.unmodifiableList(new ServiceDAO().queryActiveServices()));
+    private static final CatalogCache.Entry<List<String>> CATEGORIES = CatalogCache.entry(
+            "services.categories", CatalogCache.SERVICES, Collections.emptyList(),
+            () -> Collections.unmodifiableList(new ServiceDAO().queryCategories()));
+
+    // Get all active services (shared cached list, do not modify)
     public List<Service> getActiveServices() {
+        return ACTIVE_SERVICES.get();
+    }
+
+    private List<Service> queryActiveServices() throws SQLException {
         List<Service> services = new ArrayList<>();
         String sql = "SELECT * FROM services WHERE is_active = 1 ORDER BY service_category, service_name";
         
@@ -21,8 +34,6 @@ public class ServiceDAO {
             while (rs.next()) {
                 services.add(mapResultSetToService(rs));
             }
-        } catch (Exception e) {
-            e.printStackTrace();
         }
         return services;
     }
@@ -67,6 +78,7 @@ public class ServiceDAO {
                 if (rs.next()) {
                     service.setServiceId(rs.getInt(1));
                 }
+                CatalogCache.changed(conn, CatalogCache.SERVICES);
                 return true;
             }
         } catch (Exception e) {
@@ -91,7 +103,7 @@ public class ServiceDAO {
             ps.setBoolean(6, service.isActive());
             ps.setInt(7, service.getServiceId());
             
-            return ps.executeUpdate() > 0;
+            return updated(conn, ps.executeUpdate());
         } catch (Exception e) {
             e.printStackTrace();
         }
@@ -106,7 +118,7 @@ public class ServiceDAO {
              PreparedStatement ps = conn.prepareStatement(sql)) {
             
             ps.setInt(1, serviceId);
-            return ps.executeUpdate() > 0;
+            return updated(conn, ps.executeUpdate());
         } catch (Exception e) {
             e.printStackTrace();
         }
@@ -121,7 +133,7 @@ public class ServiceDAO {
              PreparedStatement ps = conn.prepareStatement(sql)) {
             
             ps.setInt(1, serviceId);
-            return ps.executeUpdate() > 0;
+            return updated(conn, ps.executeUpdate());
         } catch (Exception e) {
             e.printStackTrace();
         }
@@ -147,8 +159,12 @@ public class ServiceDAO {
         return null;
     }
 
-    // Get distinct categories
+    // Get distinct categories (shared cached list, do not modify)
     public List<String> getCategories() {
+        return CATEGORIES.get();
+    }
+
+    private List<String> queryCategories() throws SQLException {
         List<String> categories = new ArrayList<>();
         String sql = "SELECT DISTINCT service_category FROM services WHERE service_category IS NOT NULL ORDER BY service_category";
         
@@ -159,12 +175,18 @@ public class ServiceDAO {
             while (rs.next()) {
                 categories.add(rs.getString("service_category"));
             }
-        } catch (Exception e) {
-            e.printStackTrace();
         }
         return categories;
     }
 
+    // Publishes a services change to the catalog cache when the statement touched a row
+    private static boolean updated(Connection conn, int rows) {
+        if (rows > 0) {
+            CatalogCache.changed(conn, CatalogCache.SERVICES);
+        }
+        return rows > 0;
+    }
+
     // Helper method to map ResultSet to Service object
     private Service mapResultSetToService(ResultSet rs) throws SQLException {
         Service service = new Service();
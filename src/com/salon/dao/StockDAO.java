@@ -1,5 +1,7 @@
 package com.salon.dao;
 
+import com.salon.model.ProductPriceIndex;
+import com.salon.model.ProductPriceStats;
 import com.salon.model.StockEntry;
 import com.salon.util.DBConnection;
 import java.sql.*;
@@ -40,6 +42,92 @@ public class StockDAO {
 	    return list;
 	}
 
+	// 🔢 Number of stock entries (row count for the paged stock table)
+	public int countStockEntries() {
+	    try (Connection conn = DBConnection.getConnection();
+	         Statement st = conn.createStatement();
+	         ResultSet rs = st.executeQuery("SELECT COUNT(*) FROM stock_entries")) {
+	        if (rs.next()) {
+	            return rs.getInt(1);
+	        }
+	    } catch (Exception e) {
+	        e.printStackTrace();
+	    }
+	    return 0;
+	}
+
+	// 📄 One page of stock entries, newest first (add_date DESC, stock_id DESC).
+	// Keyset paging: pass the last entry of the previous page as 'after'; with after == null the page starts at 'offset'.
+	public List<StockEntry> getStockEntriesPage(StockEntry after, int offset, int limit) {
+	    List<StockEntry> list = new ArrayList<>();
+	    String sql = "SELECT s.stock_id, s.product_id, p.name AS product_name, p.brand AS product_brand, s.add_date, " +
+	                 "s.quantity, s.actual_price_per_unit, s.selling_price_per_unit, s.notes, s.stock_status " +
+	                 "FROM stock_entries s " +
+	                 "JOIN products p ON s.product_id = p.product_id " +
+	                 (after != null ? "WHERE (s.add_date < ? OR (s.add_date = ? AND s.stock_id < ?)) " : "") +
+	                 "ORDER BY s.add_date DESC, s.stock_id DESC LIMIT ?" +
+	                 (after == null ? " OFFSET ?" : "");
+
+	    try (Connection conn = DBConnection.getConnection();
+	         PreparedStatement ps = conn.prepareStatement(sql)) {
+
+	        int i = 1;
+	        if (after != null) {
+	            java.sql.Date addDate = new java.sql.Date(after.getAddDate().getTime());
+	            ps.setDate(i++, addDate);
+	            ps.setDate(i++, addDate);
+	            ps.setInt(i++, after.getStockId());
+	        }
+	        ps.setInt(i++, limit);
+	        if (after == null) {
+	            ps.setInt(i, offset);
+	        }
+	        ResultSet rs = ps.executeQuery();
+
+	        while (rs.next()) {
+	            StockEntry entry = new StockEntry();
+	            entry.setStockId(rs.getInt("stock_id"));
+	            entry.setProductId(rs.getInt("product_id"));
+	            entry.setProductName(rs.getString("product_name"));
+	            entry.setProductBrand(rs.getString("product_brand"));
+	            entry.setAddDate(rs.getDate("add_date"));
+	            entry.setQuantity(rs.getDouble("quantity"));
+	            entry.setActualPricePerUnit(rs.getDouble("actual_price_per_unit"));
+	            entry.setSellingPricePerUnit(rs.getDouble("selling_price_per_unit"));
+	            entry.setNotes(rs.getString("notes"));
+	            entry.setStockStatus(rs.getString("stock_status"));
+	            list.add(entry);
+	        }
+	    } catch (Exception e) {
+	        e.printStackTrace();
+	    }
+	    return list;
+	}
+
+	// 💰 {total actual, total selling} over the newest 'limit' stock entries (limit <= 0 = all entries)
+	public double[] getStockEntryTotals(int limit) {
+	    String sql = "SELECT COALESCE(SUM(quantity * actual_price_per_unit), 0) AS total_actual, " +
+	                 "COALESCE(SUM(quantity * selling_price_per_unit), 0) AS total_selling " +
+	                 (limit > 0
+	                     ? "FROM (SELECT quantity, actual_price_per_unit, selling_price_per_unit FROM stock_entries " +
+	                       "ORDER BY add_date DESC, stock_id DESC LIMIT ?) recent"
+	                     : "FROM stock_entries");
+
+	    try (Connection conn = DBConnection.getConnection();
+	         PreparedStatement ps = conn.prepareStatement(sql)) {
+	        if (limit > 0) {
+	            ps.setInt(1, limit);
+	        }
+	        ResultSet rs = ps.executeQuery();
+	        if (rs.next()) {
+	            return new double[]{rs.getDouble("total_actual"), rs.getDouble("total_selling")};
+	        }
+	    } catch (Exception e) {
+	        e.printStackTrace();
+	    }
+	    return new double[]{0.0, 0.0};
+	}
+
 	// 🧾 Fetch recent stock entries (limited) - MODIFIED - Added brand
 	public List<StockEntry> getRecentStockEntries(int limit) {
 	    List<StockEntry> list = new ArrayList<>();
@@ -114,7 +202,12 @@ public class StockDAO {
                 psInsert.executeUpdate();
             }
             
+            // Keep the materialized balance in step with the new entry
+            StockLedgerDAO.applyStockAdded(conn, entry.getProductId(), entry.getQuantity(),
+                    entry.getActualPricePerUnit(), entry.getSellingPricePerUnit());
+            
             conn.commit();
+            AnalyticsDAO.invalidateSummaryCache();
             return true;
             
         } catch (Exception e) {
@@ -206,4 +299,42 @@ public class StockDAO {
  }
 
  // Keep the existing getLastRunningStock() method as-is for FIFO stock usage
+ // 📊 Quantity-weighted average actual/selling price of every product across all its stock entries,
+ // read from the price statistics on stock_balances (one row per product, no scan of stock_entries)
+ public ProductPriceIndex getProductPriceIndex() {
+     String sql = "SELECT product_id, weighted_actual_sum / total_added AS avg_actual, " +
+                  "weighted_selling_sum / total_added AS avg_selling " +
+                  "FROM stock_balances WHERE entry_count > 0 AND total_added > 0 ORDER BY product_id";
+
+     int[] ids = new int[64];
+     double[] actual = new double[64];
+     double[] selling = new double[64];
+     int n = 0;
+
+     try (Connection conn = DBConnection.getConnection();
+          Statement st = conn.createStatement();
+          ResultSet rs = st.executeQuery(sql)) {
+
+         while (rs.next()) {
+             if (n == ids.length) {
+                 ids = Arrays.copyOf(ids, n * 2);
+                 actual = Arrays.copyOf(actual, n * 2);
+                 selling = Arrays.copyOf(selling, n * 2);
+             }
+             ids[n] = rs.getInt("product_id");
+             actual[n] = rs.getDouble("avg_actual");
+             selling[n] = rs.getDouble("avg_selling");
+             n++;
+         }
+     } catch (Exception e) {
+         e.printStackTrace();
+         return ProductPriceIndex.empty();
+     }
+     return new ProductPriceIndex(Arrays.copyOf(ids, n), Arrays.copyOf(actual, n), Arrays.copyOf(selling, n));
+ }
+ // 💰 What a unit of the product cost on average, each stock entry weighted by its quantity
+ public double getWeightedAverageCost(int productId) {
+     ProductPriceStats stats = new StockLedgerDAO().getPriceStats(productId);
+     return stats != null ? stats.getWeightedAverageCost() : 0.0;
+ }
 }
\ No newline at end of file
@@ -0,0 +1,274 @@
+package com.salon.dao;
+
+import com.salon.model.ProductPriceStats;
+import com.salon.util.DBConnection;
+import java.sql.*;
+import java.util.*;
+
+// 📒 Materialized per-product stock balance (table stock_balances, see sql/001_stock_balances.sql)
+// Writers call the apply* methods on their own connection so the balance moves in the same
+// transaction as the stock_entries / stock_movements row. Readers get O(products) summaries.
+// The row also carries the product's entry price statistics (sql/008), read as ProductPriceStats.
+public class StockLedgerDAO {
+
+    // Tolerance used when comparing stored balances with a recompute
+    private static final double DRIFT_EPSILON = 0.0001;
+
+    // min/max start out NULL (a balance row can come from a movement before any entry), hence
+    // COALESCE(LEAST(...)) rather than LEAST alone, which is NULL with a NULL argument on MySQL
+    private static final String ADD_SQL =
+        "INSERT INTO stock_balances (product_id, total_added, total_used, total_sold, on_hand, " +
+        "entry_count, sum_actual_price, sum_selling_price, min_actual_price, max_actual_price, " +
+        "min_selling_price, max_selling_price, weighted_actual_sum, weighted_selling_sum, " +
+        "cost_value, selling_value, updated_at) " +
+        "VALUES (?, ?, 0, 0, ?, 1, ?, ?, ?, ?, ?, ?, ?, ?, 0, 0, NOW()) " +
+        "ON DUPLICATE KEY UPDATE " +
+        "min_actual_price = COALESCE(LEAST(min_actual_price, VALUES(min_actual_price)), VALUES(min_actual_price)), " +
+        "max_actual_price = COALESCE(GREATEST(max_actual_price, VALUES(max_actual_price)), VALUES(max_actual_price)), " +
+        "min_selling_price = COALESCE(LEAST(min_selling_price, VALUES(min_selling_price)), VALUES(min_selling_price)), " +
+        "max_selling_price = COALESCE(GREATEST(max_selling_price, VALUES(max_selling_price)), VALUES(max_selling_price)), " +
+        "weighted_actual_sum = weighted_actual_sum + VALUES(weighted_actual_sum), " +
+        "weighted_selling_sum = weighted_selling_sum + VALUES(weighted_selling_sum), " +
+        "total_added = total_added + VALUES(total_added), " +
+        "on_hand = on_hand + VALUES(on_hand), " +
+        "entry_count = entry_count + 1, " +
+        "sum_actual_price = sum_actual_price + VALUES(sum_actual_price), " +
+        "sum_selling_price = sum_selling_price + VALUES(sum_selling_price), " +
+        "updated_at = NOW()";
+
+    private static final String OUT_SQL =
+        "INSERT INTO stock_balances (product_id, total_added, total_used, total_sold, on_hand, " +
+        "entry_count, sum_actual_price, sum_selling_price, cost_value, selling_value, updated_at) " +
+        "VALUES (?, 0, ?, ?, ?, 0, 0, 0, 0, 0, NOW()) " +
+        "ON DUPLICATE KEY UPDATE " +
+        "total_used = total_used + VALUES(total_used), " +
+        "total_sold = total_sold + VALUES(total_sold), " +
+        "on_hand = on_hand + VALUES(on_hand), " +
+        "updated_at = NOW()";
+
+    // Stock value = on hand × quantity-weighted average entry price (weighted_*_sum / total_added),
+    // so a large lot counts for more than a small one; sql/016 revalues rows stored before this
+    private static final String REVALUE_SQL =
+        "UPDATE stock_balances SET " +
+        "cost_value = CASE WHEN total_added > 0 THEN on_hand * weighted_actual_sum / total_added ELSE 0 END, " +
+        "selling_value = CASE WHEN total_added > 0 THEN on_hand * weighted_selling_sum / total_added ELSE 0 END";
+
+    // Balances recomputed from the raw ledger (stock_entries + USAGE/SALE movements)
+    private static final String RECOMPUTE_SQL =
+        "SELECT p.product_id, " +
+        "    COALESCE(se.total_added, 0) AS total_added, " +
+        "    COALESCE(mv.total_used, 0) AS total_used, " +
+        "    COALESCE(mv.total_sold, 0) AS total_sold, " +
+        "    COALESCE(se.total_added, 0) - COALESCE(mv.total_used, 0) - COALESCE(mv.total_sold, 0) AS on_hand, " +
+        "    COALESCE(se.entry_count, 0) AS entry_count, " +
+        "    COALESCE(se.sum_actual_price, 0) AS sum_actual_price, " +
+        "    COALESCE(se.sum_selling_price, 0) AS sum_selling_price, " +
+        "    se.min_actual_price, se.max_actual_price, se.min_selling_price, se.max_selling_price, " +
+        "    COALESCE(se.weighted_actual_sum, 0) AS weighted_actual_sum, " +
+        "    COALESCE(se.weighted_selling_sum, 0) AS weighted_selling_sum " +
+        "FROM products p " +
+        "LEFT JOIN ( " +
+        "    SELECT product_id, SUM(quantity) AS total_added, COUNT(*) AS entry_count, " +
+        "           SUM(actual_price_per_unit) AS sum_actual_price, " +
+        "           SUM(selling_price_per_unit) AS sum_selling_price, " +
+        "           MIN(actual_price_per_unit) AS min_actual_price, MAX(actual_price_per_unit) AS max_actual_price, " +
+        "           MIN(selling_price_per_unit) AS min_selling_price, MAX(selling_price_per_unit) AS max_selling_price, " +
+        "           SUM(quantity * actual_price_per_unit) AS weighted_actual_sum, " +
+        "           SUM(quantity * selling_price_per_unit) AS weighted_selling_sum " +
+        "    FROM stock_entries GROUP BY product_id " +
+        ") se ON p.product_id = se.product_id " +
+        "LEFT JOIN ( " +
+        "    SELECT product_id, " +
+        "           SUM(CASE WHEN movement_type = 'USAGE' THEN -quantity_changed ELSE 0 END) AS total_used, " +
+        "           SUM(CASE WHEN movement_type = 'SALE' THEN -quantity_changed ELSE 0 END) AS total_sold " +
+        "    FROM stock_movements WHERE movement_type IN ('USAGE', 'SALE') GROUP BY product_id " +
+        ") mv ON p.product_id = mv.product_id";
+
+    // ➕ Stock entry added (call inside the caller's transaction)
+    static void applyStockAdded(Connection conn, int productId, double quantity,
+                                double actualPrice, double sellingPrice) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement(ADD_SQL)) {
+            ps.setInt(1, productId);
+            ps.setDouble(2, quantity);
+            ps.setDouble(3, quantity);
+            ps.setDouble(4, actualPrice);
+            ps.setDouble(5, sellingPrice);
+            ps.setDouble(6, actualPrice);
+            ps.setDouble(7, actualPrice);
+            ps.setDouble(8, sellingPrice);
+            ps.setDouble(9, sellingPrice);
+            ps.setDouble(10, quantity * actualPrice);
+            ps.setDouble(11, quantity * sellingPrice);
+            ps.executeUpdate();
+        }
+        revalue(conn, productId);
+    }
+
+    // ➖ USAGE or SALE movement (quantity is the positive amount taken out of stock)
+    static void applyStockOut(Connection conn, int productId, double quantity,
+                              String movementType) throws SQLException {
+        boolean sale = "SALE".equals(movementType);
+        try (PreparedStatement ps = conn.prepareStatement(OUT_SQL)) {
+            ps.setInt(1, productId);
+            ps.setDouble(2, sale ? 0 : quantity);
+            ps.setDouble(3, sale ? quantity : 0);
+            ps.setDouble(4, -quantity);
+            ps.executeUpdate();
+        }
+        revalue(conn, productId);
+    }
+
+    // True for the movement types that reduce stock (others never touch the balance)
+    static boolean isStockOut(String movementType) {
+        return "USAGE".equals(movementType) || "SALE".equals(movementType);
+    }
+
+    private static void revalue(Connection conn, int productId) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement(REVALUE_SQL + " WHERE product_id = ?")) {
+            ps.setInt(1, productId);
+            ps.executeUpdate();
+        }
+    }
+
+    // 📦 On-hand quantity for one product
+    public double getOnHand(int productId) {
+        String sql = "SELECT on_hand FROM stock_balances WHERE product_id = ?";
+        try (Connection conn = DBConnection.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setInt(1, productId);
+            ResultSet rs = ps.executeQuery();
+            if (rs.next()) {
+                return rs.getDouble("on_hand");
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+        return 0.0;
+    }
+
+    // 🏷️ Entry price statistics of one product; null when it has no stock entries yet
+    public ProductPriceStats getPriceStats(int productId) {
+        String sql = "SELECT product_id, entry_count, total_added, sum_actual_price, sum_selling_price, " +
+                     "min_actual_price, max_actual_price, min_selling_price, max_selling_price, " +
+                     "weighted_actual_sum, weighted_selling_sum " +
+                     "FROM stock_balances WHERE product_id = ? AND entry_count > 0";
+        try (Connection conn = DBConnection.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setInt(1, productId);
+            ResultSet rs = ps.executeQuery();
+            if (rs.next()) {
+                ProductPriceStats stats = new ProductPriceStats();
+                stats.setProductId(rs.getInt("product_id"));
+                stats.setEntryCount(rs.getInt("entry_count"));
+                stats.setTotalQuantity(rs.getDouble("total_added"));
+                stats.setSumActualPrice(rs.getDouble("sum_actual_price"));
+                stats.setSumSellingPrice(rs.getDouble("sum_selling_price"));
+                stats.setMinActualPrice(rs.getDouble("min_actual_price"));
+                stats.setMaxActualPrice(rs.getDouble("max_actual_price"));
+                stats.setMinSellingPrice(rs.getDouble("min_selling_price"));
+                stats.setMaxSellingPrice(rs.getDouble("max_selling_price"));
+                stats.setWeightedActualSum(rs.getDouble("weighted_actual_sum"));
+                stats.setWeightedSellingSum(rs.getDouble("weighted_selling_sum"));
+                return stats;
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+        return null;
+    }
+
+    // 🔁 Throw the stored balances away and recompute them from the raw ledger
+    public boolean rebuild() {
+        Connection conn = null;
+        try {
+            conn = DBConnection.getConnection();
+            conn.setAutoCommit(false);
+
+            try (Statement st = conn.createStatement()) {
+                st.executeUpdate("DELETE FROM stock_balances");
+                st.executeUpdate(
+                    "INSERT INTO stock_balances (product_id, total_added, total_used, total_sold, on_hand, " +
+                    "entry_count, sum_actual_price, sum_selling_price, min_actual_price, max_actual_price, " +
+                    "min_selling_price, max_selling_price, weighted_actual_sum, weighted_selling_sum, " +
+                    "cost_value, selling_value, updated_at) " +
+                    "SELECT r.product_id, r.total_added, r.total_used, r.total_sold, r.on_hand, " +
+                    "r.entry_count, r.sum_actual_price, r.sum_selling_price, r.min_actual_price, r.max_actual_price, " +
+                    "r.min_selling_price, r.max_selling_price, r.weighted_actual_sum, r.weighted_selling_sum, 0, 0, NOW() " +
+                    "FROM (" + RECOMPUTE_SQL + ") r");
+                st.executeUpdate(REVALUE_SQL);
+            }
+
+            conn.commit();
+            AnalyticsDAO.invalidateSummaryCache();
+            return true;
+
+        } catch (Exception e) {
+            e.printStackTrace();
+            if (conn != null) {
+                try {
+                    conn.rollback();
+                } catch (SQLException ex) {
+                    ex.printStackTrace();
+                }
+            }
+        } finally {
+            if (conn != null) {
+                try {
+                    conn.setAutoCommit(true);
+                    conn.close();
+                } catch (SQLException e) {
+                    e.printStackTrace();
+                }
+            }
+        }
+        return false;
+    }
+
+    // 🔍 Compare stored balances with a recompute; one row per product that drifted
+    // Keys: product_id, name, missing, and expected_* / stored_* for every ledger column
+    public List<Map<String, Object>> verify() {
+        List<Map<String, Object>> drift = new ArrayList<>();
+        String[] columns = {"total_added", "total_used", "total_sold", "on_hand",
+                            "entry_count", "sum_actual_price", "sum_selling_price",
+                            "min_actual_price", "max_actual_price", "min_selling_price", "max_selling_price",
+                            "weighted_actual_sum", "weighted_selling_sum"};
+
+        StringBuilder sql = new StringBuilder("SELECT r.*, p.name, b.product_id AS stored_product_id");
+        // A product with no stock activity yet has no balance row, which is not drift
+        StringBuilder where = new StringBuilder(
+            " WHERE (b.product_id IS NULL AND (r.entry_count > 0 OR r.total_used <> 0 OR r.total_sold <> 0))");
+        for (String c : columns) {
+            sql.append(", b.").append(c).append(" AS stored_").append(c);
+            // min/max are NULL for a product without entries; COALESCE so NULL vs a value counts as drift
+            where.append(" OR ABS(COALESCE(r.").append(c).append(", 0) - COALESCE(b.").append(c).append(", 0)) > ")
+                 .append(DRIFT_EPSILON);
+        }
+        sql.append(" FROM (").append(RECOMPUTE_SQL).append(") r ")
+           .append("JOIN products p ON r.product_id = p.product_id ")
+           .append("LEFT JOIN stock_balances b ON r.product_id = b.product_id")
+           .append(where)
+           .append(" ORDER BY r.product_id");
+
+        try (Connection conn = DBConnection.getConnection();
+             Statement st = conn.createStatement();
+             ResultSet rs = st.executeQuery(sql.toString())) {
+
+            while (rs.next()) {
+                Map<String, Object> row = new LinkedHashMap<>();
+                row.put("product_id", rs.getInt("product_id"));
+                row.put("name", rs.getString("name"));
+                boolean missing = rs.getObject("stored_product_id") == null;
+                row.put("missing", missing);
+                for (String c : columns) {
+                    row.put("expected_" + c, rs.getDouble(c));
+                    row.put("stored_" + c, missing ? 0.0 : rs.getDouble("stored_" + c));
+                }
+                drift.add(row);
+            }
+
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+        return drift;
+    }
+}
\ No newline at end of file
@@ -7,26 +7,55 @@ import java.util.*;
 
 public class StockMovementDAO {
 
-    // 📝 Add new stock movement
+    // 📝 Add new stock movement (USAGE/SALE also move the stock balance, in the same transaction)
     public boolean addStockMovement(StockMovement movement) {
         String sql = "INSERT INTO stock_movements (product_id, movement_date, quantity_changed, " +
                      "movement_type, reference_id, user_id, remarks) VALUES (?, ?, ?, ?, ?, ?, ?)";
         
-        try (Connection conn = DBConnection.getConnection();
-             PreparedStatement ps = conn.prepareStatement(sql)) {
+        Connection conn = null;
+        try {
+            conn = DBConnection.getConnection();
+            conn.setAutoCommit(false);
             
-            ps.setInt(1, movement.getProductId());
-            ps.setTimestamp(2, new Timestamp(movement.getMovementDate().getTime()));
-            ps.setDouble(3, movement.getQuantityChanged());
-            ps.setString(4, movement.getMovementType());
-            ps.setObject(5, movement.getReferenceId()); // Can be null
-            ps.setObject(6, movement.getUserId()); // Can be null
-            ps.setString(7, movement.getRemarks());
+            boolean inserted;
+            try (PreparedStatement ps = conn.prepareStatement(sql)) {
+                ps.setInt(1, movement.getProductId());
+                ps.setTimestamp(2, new Timestamp(movement.getMovementDate().getTime()));
+                ps.setDouble(3, movement.getQuantityChanged());
+                ps.setString(4, movement.getMovementType());
+                ps.setObject(5, movement.getReferenceId()); // Can be null
+                ps.setObject(6, movement.getUserId()); // Can be null
+                ps.setString(7, movement.getRemarks());
+                inserted = ps.executeUpdate() > 0;
+            }
             
-            return ps.executeUpdate() > 0;
+            if (inserted && StockLedgerDAO.isStockOut(movement.getMovementType())) {
+                StockLedgerDAO.applyStockOut(conn, movement.getProductId(),
+                        -movement.getQuantityChanged(), movement.getMovementType());
+            }
+            
+            conn.commit();
+            AnalyticsDAO.invalidateSummaryCache();
+            return inserted;
             
         } catch (Exception e) {
             e.printStackTrace();
+            if (conn != null) {
+                try {
+                    conn.rollback();
+                } catch (SQLException ex) {
+                    ex.printStackTrace();
+                }
+            }
+        } finally {
+            if (conn != null) {
+                try {
+                    conn.setAutoCommit(true);
+                    conn.close();
+                } catch (SQLException e) {
+                    e.printStackTrace();
+                }
+            }
         }
         return false;
     }
@@ -91,8 +120,8 @@ public class StockMovementDAO {
                   "FROM stock_movements sm " +
                   "JOIN products p ON sm.product_id = p.product_id " +
                   "LEFT JOIN invoices inv ON sm.reference_id = inv.invoice_id " +
-                  "LEFT JOIN customers c ON inv.customer_id = c.customer_id " +
-                  "LEFT JOIN invoice_items ii ON (sm.reference_id = ii.invoice_id AND sm.product_id = ii.product_id) " +
+                  "LEFT JOIN customers c ON " + CustomerKeySchema.customerJoin("inv", "c") + " " +
+                  SALE_LINE_PRICES +
                   "WHERE sm.movement_type = 'SALE' " +
                   "ORDER BY sm.movement_date DESC";
      
@@ -128,41 +157,136 @@ public class StockMovementDAO {
      }
      return list;
  }
-    // 📦 Calculate available stock for a product
-    public double getAvailableStock(int productId) {
-        double totalStock = 0.0;
-        
-        // Get total stock from stock_entries
-        String sqlEntries = "SELECT COALESCE(SUM(quantity), 0) AS total FROM stock_entries WHERE product_id = ?";
-        
-        // Get total used/sold from stock_movements
-        String sqlMovements = "SELECT COALESCE(SUM(quantity_changed), 0) AS total FROM stock_movements " +
-                              "WHERE product_id = ? AND movement_type IN ('USAGE', 'SALE')";
-        
-        try (Connection conn = DBConnection.getConnection()) {
-            // Get added stock
-            try (PreparedStatement ps = conn.prepareStatement(sqlEntries)) {
-                ps.setInt(1, productId);
-                ResultSet rs = ps.executeQuery();
-                if (rs.next()) {
-                    totalStock = rs.getDouble("total");
-                }
+    // Shared by the paged sales listing and its totals (same joins as getSaleMovements). The customer
+    // is joined on CustomerKeySchema's column: customer_id until sql/013 has run, then customer_key.
+    private static String saleFrom() {
+        return "FROM stock_movements sm " +
+               "JOIN products p ON sm.product_id = p.product_id " +
+               "LEFT JOIN invoices inv ON sm.reference_id = inv.invoice_id " +
+               "LEFT JOIN customers c ON " + CustomerKeySchema.customerJoin("inv", "c") + " ";
+    }
+    private static final String SALE_WHERE = "WHERE sm.movement_type = 'SALE' ";
+
+    // A product can be on several lines of one invoice (one SALE movement per line), so the prices
+    // come from one row per (invoice, product), quantity-weighted; joining the lines themselves
+    // would repeat every movement once per matching line
+    private static final String LINE_SELLING_PRICE =
+        "SUM(ii.quantity * ii.selling_price_per_unit) / NULLIF(SUM(ii.quantity), 0)";
+    private static final String LINE_ACTUAL_PRICE =
+        "SUM(ii.quantity * ii.actual_price_per_unit) / NULLIF(SUM(ii.quantity), 0)";
+    private static final String SALE_LINE_PRICES =
+        "LEFT JOIN (SELECT ii.invoice_id, ii.product_id, " +
+        "           " + LINE_SELLING_PRICE + " AS selling_price_per_unit, " +
+        "           " + LINE_ACTUAL_PRICE + " AS actual_price_per_unit " +
+        "           FROM invoice_items ii GROUP BY ii.invoice_id, ii.product_id) ii " +
+        "       ON (sm.reference_id = ii.invoice_id AND sm.product_id = ii.product_id) ";
+
+    // 🔢 Number of rows in the sales listing (the LEFT JOINs never add or drop a movement)
+    public int countSaleMovements() {
+        try (Connection conn = DBConnection.getConnection();
+             Statement st = conn.createStatement();
+             ResultSet rs = st.executeQuery("SELECT COUNT(*) FROM stock_movements sm " +
+                                            "JOIN products p ON sm.product_id = p.product_id " + SALE_WHERE)) {
+            if (rs.next()) {
+                return rs.getInt(1);
             }
-            
-            // Subtract used/sold stock
-            try (PreparedStatement ps = conn.prepareStatement(sqlMovements)) {
-                ps.setInt(1, productId);
-                ResultSet rs = ps.executeQuery();
-                if (rs.next()) {
-                    totalStock += rs.getDouble("total"); // quantity_changed is negative for USAGE/SALE
-                }
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+        return 0;
+    }
+
+    // 📄 One page of SALE movements, newest first (movement_date DESC, movement_id DESC).
+    // Keyset paging: pass the last movement of the previous page as 'after'; with after == null the page starts at 'offset'.
+    public List<StockMovement> getSaleMovementsPage(StockMovement after, int offset, int limit) {
+        List<StockMovement> list = new ArrayList<>();
+        String sql = "SELECT sm.movement_id, sm.product_id, p.name AS product_name, p.brand AS product_brand, " +
+                     "sm.movement_date, sm.quantity_changed, sm.movement_type, sm.reference_id, " +
+                     "c.name AS customer_name, sm.remarks, " +
+                     // Per page row only, instead of aggregating every invoice line for each page
+                     "(SELECT " + LINE_SELLING_PRICE + " FROM invoice_items ii " +
+                     " WHERE ii.invoice_id = sm.reference_id AND ii.product_id = sm.product_id) AS selling_price_per_unit, " +
+                     "(SELECT " + LINE_ACTUAL_PRICE + " FROM invoice_items ii " +
+                     " WHERE ii.invoice_id = sm.reference_id AND ii.product_id = sm.product_id) AS actual_price_per_unit " +
+                     saleFrom() + SALE_WHERE +
+                     (after != null ? "AND (sm.movement_date < ? OR (sm.movement_date = ? AND sm.movement_id < ?)) " : "") +
+                     "ORDER BY sm.movement_date DESC, sm.movement_id DESC LIMIT ?" +
+                     (after == null ? " OFFSET ?" : "");
+
+        try (Connection conn = DBConnection.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+
+            int i = 1;
+            if (after != null) {
+                Timestamp date = new Timestamp(after.getMovementDate().getTime());
+                ps.setTimestamp(i++, date);
+                ps.setTimestamp(i++, date);
+                ps.setInt(i++, after.getMovementId());
+            }
+            ps.setInt(i++, limit);
+            if (after == null) {
+                ps.setInt(i, offset);
+            }
+            ResultSet rs = ps.executeQuery();
+
+            while (rs.next()) {
+                StockMovement movement = new StockMovement();
+                movement.setMovementId(rs.getInt("movement_id"));
+                movement.setProductId(rs.getInt("product_id"));
+                movement.setProductName(rs.getString("product_name"));
+                movement.setProductBrand(rs.getString("product_brand"));
+                movement.setMovementDate(rs.getTimestamp("movement_date"));
+                movement.setQuantityChanged(rs.getDouble("quantity_changed"));
+                movement.setMovementType(rs.getString("movement_type"));
+                movement.setReferenceId(rs.getInt("reference_id"));
+                movement.setCustomerName(rs.getString("customer_name"));
+                movement.setRemarks(rs.getString("remarks"));
+                movement.setSellingPricePerUnit(rs.getDouble("selling_price_per_unit"));
+                movement.setActualPricePerUnit(rs.getDouble("actual_price_per_unit"));
+                list.add(movement);
             }
-            
         } catch (Exception e) {
             e.printStackTrace();
         }
-        
-        return totalStock;
+        return list;
+    }
+
+    // 💰 {qty sold, revenue, cost} over all sales. Rows without invoice prices fall back to the
+    // product's quantity-weighted average entry prices, the same rule ProductSalePanel applies per row.
+    public double[] getSaleTotals() {
+        String sql = "SELECT COALESCE(SUM(t.qty), 0) AS qty, " +
+                     "COALESCE(SUM(t.qty * t.selling), 0) AS revenue, " +
+                     "COALESCE(SUM(t.qty * t.actual), 0) AS cost " +
+                     "FROM ( " +
+                     "    SELECT ABS(sm.quantity_changed) AS qty, " +
+                     "        CASE WHEN COALESCE(ii.selling_price_per_unit, 0) = 0 OR COALESCE(ii.actual_price_per_unit, 0) = 0 " +
+                     "             THEN COALESCE(avgp.avg_selling, 0) ELSE ii.selling_price_per_unit END AS selling, " +
+                     "        CASE WHEN COALESCE(ii.selling_price_per_unit, 0) = 0 OR COALESCE(ii.actual_price_per_unit, 0) = 0 " +
+                     "             THEN COALESCE(avgp.avg_actual, 0) ELSE ii.actual_price_per_unit END AS actual " +
+                     "    " + saleFrom() + SALE_LINE_PRICES +
+                     "    LEFT JOIN ( " +
+                     "        SELECT product_id, weighted_selling_sum / total_added AS avg_selling, " +
+                     "               weighted_actual_sum / total_added AS avg_actual " +
+                     "        FROM stock_balances WHERE total_added > 0 " +
+                     "    ) avgp ON sm.product_id = avgp.product_id " +
+                     "    " + SALE_WHERE +
+                     ") t";
+
+        try (Connection conn = DBConnection.getConnection();
+             Statement st = conn.createStatement();
+             ResultSet rs = st.executeQuery(sql)) {
+            if (rs.next()) {
+                return new double[]{rs.getDouble("qty"), rs.getDouble("revenue"), rs.getDouble("cost")};
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+        return new double[]{0.0, 0.0, 0.0};
+    }
+
+    // 📦 Available stock for a product (read from the materialized stock balance)
+    public double getAvailableStock(int productId) {
+        return new StockLedgerDAO().getOnHand(productId);
     }
 
     // 📊 Get all movements (for reports/admin view)
@@ -210,21 +334,11 @@ public class StockMovementDAO {
             "    p.product_id, " +
             "    p.name, " +
             "    p.brand, " +
-            "    COALESCE(se_sum.total_added, 0) AS total_added, " +
-            "    COALESCE(ABS(sm_sum.total_used), 0) AS total_used, " +
-            "    (COALESCE(se_sum.total_added, 0) - COALESCE(ABS(sm_sum.total_used), 0)) AS available_stock " +
+            "    COALESCE(sb.total_added, 0) AS total_added, " +
+            "    COALESCE(sb.total_used + sb.total_sold, 0) AS total_used, " +
+            "    COALESCE(sb.on_hand, 0) AS available_stock " +
             "FROM products p " +
-            "LEFT JOIN ( " +
-            "    SELECT product_id, SUM(quantity) AS total_added " +
-            "    FROM stock_entries " +
-            "    GROUP BY product_id " +
-            ") se_sum ON p.product_id = se_sum.product_id " +
-            "LEFT JOIN ( " +
-            "    SELECT product_id, SUM(quantity_changed) AS total_used " +
-            "    FROM stock_movements " +
-            "    WHERE movement_type IN ('USAGE', 'SALE') " +
-            "    GROUP BY product_id " +
-            ") sm_sum ON p.product_id = sm_sum.product_id " +
+            "LEFT JOIN stock_balances sb ON p.product_id = sb.product_id " +
             "WHERE p.is_discontinued = 0 " +
             "ORDER BY p.name";
         
@@ -249,9 +363,10 @@ public class StockMovementDAO {
         return summary;
     }
     
- // 🔥 FIX 2: FIFO Stock Depletion with Proper Status Updates
- // Automatically marks oldest stock as COMPLETED when fully depleted
- // Handles: 150+ stock entries per product efficiently
+ // 🔥 FIFO Stock Depletion with Proper Status Updates
+ // Consumes the oldest lots through LotConsumptionService (same model as invoice sales):
+ // quantity_consumed is tracked and a lot is COMPLETED as soon as it is used up.
+ // Returns false (nothing recorded) when the running lots cannot cover the quantity.
     public boolean recordUsageWithStockDepletion(int productId, double quantityUsed, 
             Integer userId, String remarks) {
         Connection conn = null;
@@ -259,39 +374,8 @@ public class StockMovementDAO {
             conn = DBConnection.getConnection();
             conn.setAutoCommit(false);
 
-            double remaining = quantityUsed;
-
-            // === FIFO: Get stocks from OLDEST to NEWEST ===
-            String sql = "SELECT stock_id, quantity FROM stock_entries " +
-                         "WHERE product_id = ? AND stock_status = 'RUNNING' " +
-                         "ORDER BY add_date ASC";
-
-            try (PreparedStatement ps = conn.prepareStatement(sql)) {
-                ps.setInt(1, productId);
-                ResultSet rs = ps.executeQuery();
-
-                while (rs.next() && remaining > 0) {
-                    int stockId = rs.getInt("stock_id");
-                    double stockQty = rs.getDouble("quantity");
-
-                    // ✅ FIXED: Correct comparison logic
-                    if (remaining >= stockQty) {
-                        // === CASE 1: Stock fully consumed - Mark as COMPLETED ===
-                        String completeSql = "UPDATE stock_entries SET stock_status = 'COMPLETED' " +
-                                           "WHERE stock_id = ?";
-                        try (PreparedStatement psComplete = conn.prepareStatement(completeSql)) {
-                            psComplete.setInt(1, stockId);
-                            psComplete.executeUpdate();
-                        }
-                        remaining -= stockQty;
-                        
-                    } else {
-                        // === CASE 2: Partial consumption - Stock stays RUNNING ===
-                        // Do nothing - quantity unchanged
-                        remaining = 0;
-                    }
-                }
-            }
+            // === FIFO: lock and consume the oldest running lots ===
+            LotConsumptionService.consumeForUsage(conn, productId, quantityUsed);
 
             // === Record movement in stock_movements table ===
             StockMovement movement = new StockMovement();
@@ -314,7 +398,10 @@ public class StockMovementDAO {
                 ps.executeUpdate();
             }
 
+            StockLedgerDAO.applyStockOut(conn, productId, quantityUsed, "USAGE");
+
             conn.commit();
+            AnalyticsDAO.invalidateSummaryCache();
             return true;
 
         } catch (Exception e) {
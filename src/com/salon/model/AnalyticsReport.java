@@ -10,6 +10,7 @@ public class AnalyticsReport {
     private Date exportedAt;
     private String reportPdfPath;
     private byte[] reportPdfData;
+    private String reportPdfRef; // document store reference of the saved PDF
     
     // Report metadata
     private String reportTitle;
@@ -81,6 +82,14 @@ public class AnalyticsReport {
         this.reportPdfData = reportPdfData;
     }
 
+    public String getReportPdfRef() {
+        return reportPdfRef;
+    }
+
+    public void setReportPdfRef(String reportPdfRef) {
+        this.reportPdfRef = reportPdfRef;
+    }
+
     public String getReportTitle() {
         return reportTitle;
     }
@@ -2,11 +2,14 @@ package com.salon.model;
 
 public class Customer {
     private String customerId;
+    private long customerKey; // 0 until the row has one (see KeySequence)
     private String name;
     private String phone;
     private String address;
     private java.util.Date createdAt;
     private Integer membershipPlanId;
+    private int visitCount;
+    private java.util.Date lastVisit;
 
     // --- Getters & Setters ---
     public String getCustomerId() {
@@ -17,6 +20,14 @@ public class Customer {
         this.customerId = customerId;
     }
 
+    public long getCustomerKey() {
+        return customerKey;
+    }
+
+    public void setCustomerKey(long customerKey) {
+        this.customerKey = customerKey;
+    }
+
     public String getName() {
         return name;
     }
@@ -57,5 +68,20 @@ public Integer getMembershipPlanId() {
 public void setMembershipPlanId(Integer membershipPlanId) {
     this.membershipPlanId = membershipPlanId;
 }
+
+public int getVisitCount() {
+    return visitCount;
 }
 
+public void setVisitCount(int visitCount) {
+    this.visitCount = visitCount;
+}
+
+public java.util.Date getLastVisit() {
+    return lastVisit;
+}
+
+public void setLastVisit(java.util.Date lastVisit) {
+    this.lastVisit = lastVisit;
+}
+}
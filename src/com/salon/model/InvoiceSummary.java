@@ -0,0 +1,63 @@
+package com.salon.model;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+
+// One row of a customer's invoice history (CustomerDAO.getInvoicesForCustomer), shown in the
+// invoice picker of CustomerPanel
+public class InvoiceSummary {
+    private int invoiceId;
+    private Date invoiceDate;
+    private double totalAmount;
+    private String invoiceFilename;
+    private String pdfStatus;
+
+    public InvoiceSummary() {
+    }
+
+    public int getInvoiceId() {
+        return invoiceId;
+    }
+
+    public void setInvoiceId(int invoiceId) {
+        this.invoiceId = invoiceId;
+    }
+
+    public Date getInvoiceDate() {
+        return invoiceDate;
+    }
+
+    public void setInvoiceDate(Date invoiceDate) {
+        this.invoiceDate = invoiceDate;
+    }
+
+    public double getTotalAmount() {
+        return totalAmount;
+    }
+
+    public void setTotalAmount(double totalAmount) {
+        this.totalAmount = totalAmount;
+    }
+
+    public String getInvoiceFilename() {
+        return invoiceFilename;
+    }
+
+    public void setInvoiceFilename(String invoiceFilename) {
+        this.invoiceFilename = invoiceFilename;
+    }
+
+    public String getPdfStatus() {
+        return pdfStatus;
+    }
+
+    public void setPdfStatus(String pdfStatus) {
+        this.pdfStatus = pdfStatus;
+    }
+
+    @Override
+    public String toString() {
+        String date = invoiceDate != null ? new SimpleDateFormat("yyyy-MM-dd HH:mm").format(invoiceDate) : "-";
+        return "#" + invoiceId + "   " + date + "   " + String.format("₹%.2f", totalAmount);
+    }
+}
\ No newline at end of file
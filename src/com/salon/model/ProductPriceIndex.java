@@ -0,0 +1,38 @@
+package com.salon.model;
+
+import java.util.Arrays;
+
+// Read-only productId -> (quantity-weighted) average actual/selling price lookup.
+// Ids are kept sorted in a primitive array so a lookup is a binary search with no boxing.
+public class ProductPriceIndex {
+    private final int[] productIds;
+    private final double[] actualPrices;
+    private final double[] sellingPrices;
+
+    // productIds must be sorted ascending (the loader orders by product_id)
+    public ProductPriceIndex(int[] productIds, double[] actualPrices, double[] sellingPrices) {
+        this.productIds = productIds;
+        this.actualPrices = actualPrices;
+        this.sellingPrices = sellingPrices;
+    }
+
+    public static ProductPriceIndex empty() {
+        return new ProductPriceIndex(new int[0], new double[0], new double[0]);
+    }
+
+    public double getActualPrice(int productId) {
+        int i = Arrays.binarySearch(productIds, productId);
+        return i >= 0 ? actualPrices[i] : 0.0;
+    }
+
+    public double getSellingPrice(int productId) {
+        int i = Arrays.binarySearch(productIds, productId);
+        return i >= 0 ? sellingPrices[i] : 0.0;
+    }
+
+    public boolean contains(int productId) {
+        return Arrays.binarySearch(productIds, productId) >= 0;
+    }
+
+    public int size() { return productIds.length; }
+}
\ No newline at end of file
@@ -0,0 +1,67 @@
+package com.salon.model;
+
+// Price statistics of one product over all its stock entries (columns of stock_balances).
+// Plain averages treat every entry alike; the weighted ones weigh each entry by its quantity,
+// which is what a unit of the product actually cost on average.
+public class ProductPriceStats {
+    private int productId;
+    private int entryCount;
+    private double totalQuantity;      // sum of entry quantities
+    private double sumActualPrice;
+    private double sumSellingPrice;
+    private double minActualPrice;
+    private double maxActualPrice;
+    private double minSellingPrice;
+    private double maxSellingPrice;
+    private double weightedActualSum;  // sum of quantity × actual price
+    private double weightedSellingSum; // sum of quantity × selling price
+
+    public int getProductId() { return productId; }
+    public void setProductId(int productId) { this.productId = productId; }
+
+    public int getEntryCount() { return entryCount; }
+    public void setEntryCount(int entryCount) { this.entryCount = entryCount; }
+
+    public double getTotalQuantity() { return totalQuantity; }
+    public void setTotalQuantity(double totalQuantity) { this.totalQuantity = totalQuantity; }
+
+    public double getSumActualPrice() { return sumActualPrice; }
+    public void setSumActualPrice(double sumActualPrice) { this.sumActualPrice = sumActualPrice; }
+
+    public double getSumSellingPrice() { return sumSellingPrice; }
+    public void setSumSellingPrice(double sumSellingPrice) { this.sumSellingPrice = sumSellingPrice; }
+
+    public double getMinActualPrice() { return minActualPrice; }
+    public void setMinActualPrice(double minActualPrice) { this.minActualPrice = minActualPrice; }
+
+    public double getMaxActualPrice() { return maxActualPrice; }
+    public void setMaxActualPrice(double maxActualPrice) { this.maxActualPrice = maxActualPrice; }
+
+    public double getMinSellingPrice() { return minSellingPrice; }
+    public void setMinSellingPrice(double minSellingPrice) { this.minSellingPrice = minSellingPrice; }
+
+    public double getMaxSellingPrice() { return maxSellingPrice; }
+    public void setMaxSellingPrice(double maxSellingPrice) { this.maxSellingPrice = maxSellingPrice; }
+
+    public double getWeightedActualSum() { return weightedActualSum; }
+    public void setWeightedActualSum(double weightedActualSum) { this.weightedActualSum = weightedActualSum; }
+
+    public double getWeightedSellingSum() { return weightedSellingSum; }
+    public void setWeightedSellingSum(double weightedSellingSum) { this.weightedSellingSum = weightedSellingSum; }
+
+    public double getAverageActualPrice() {
+        return entryCount > 0 ? sumActualPrice / entryCount : 0.0;
+    }
+
+    public double getAverageSellingPrice() {
+        return entryCount > 0 ? sumSellingPrice / entryCount : 0.0;
+    }
+
+    public double getWeightedAverageCost() {
+        return totalQuantity > 0 ? weightedActualSum / totalQuantity : 0.0;
+    }
+
+    public double getWeightedAverageSellingPrice() {
+        return totalQuantity > 0 ? weightedSellingSum / totalQuantity : 0.0;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,33 @@
+package com.salon.model;
+
+// Snapshot of a product that can be billed right now (used by the invoice dialog)
+public class SellableProduct {
+    private int productId;
+    private String name;
+    private String brand;
+    private String productType;
+    private double availableStock;
+    private double sellingPrice; // average over RUNNING stock entries
+    private double actualPrice;  // average over RUNNING stock entries
+
+    public int getProductId() { return productId; }
+    public void setProductId(int productId) { this.productId = productId; }
+
+    public String getName() { return name; }
+    public void setName(String name) { this.name = name; }
+
+    public String getBrand() { return brand; }
+    public void setBrand(String brand) { this.brand = brand; }
+
+    public String getProductType() { return productType; }
+    public void setProductType(String productType) { this.productType = productType; }
+
+    public double getAvailableStock() { return availableStock; }
+    public void setAvailableStock(double availableStock) { this.availableStock = availableStock; }
+
+    public double getSellingPrice() { return sellingPrice; }
+    public void setSellingPrice(double sellingPrice) { this.sellingPrice = sellingPrice; }
+
+    public double getActualPrice() { return actualPrice; }
+    public void setActualPrice(double actualPrice) { this.actualPrice = actualPrice; }
+}
\ No newline at end of file
@@ -0,0 +1,120 @@
+package com.salon.service;
+
+import com.salon.dao.CatalogCache;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// 📡 Tells open panels when a catalog (CatalogCache.SERVICES / PLANS / PRODUCTS) changed, on this
+// terminal or on another one. Every catalog write bumps its row in catalog_versions
+// (sql/009_catalog_versions.sql); one background thread per application reads that small table
+// every -Dsalon.changes.pollMillis (default 2000) and calls the listeners of each catalog whose
+// version moved. A write on this terminal (CatalogCache.changed) triggers a poll right away.
+// The poller starts with the first subscription, so tools that never subscribe never poll.
+public final class ChangeFeed {
+
+    // Called on the poller thread: Swing listeners must hop to the EDT themselves (invokeLater)
+    public interface Listener {
+        void catalogChanged(String catalog);
+    }
+
+    private static final long POLL_MS = Long.getLong("salon.changes.pollMillis", 2000);
+
+    private static final Map<String, List<Listener>> listeners = new ConcurrentHashMap<>();
+    private static ScheduledExecutorService poller; // guarded by ChangeFeed.class
+    private static Map<String, Long> lastVersions;  // only touched on the poller thread
+
+    private ChangeFeed() {
+    }
+
+    public static void subscribe(String catalog, Listener listener) {
+        listeners.computeIfAbsent(catalog, c -> new CopyOnWriteArrayList<>()).add(listener);
+        start();
+    }
+
+    public static void unsubscribe(String catalog, Listener listener) {
+        List<Listener> list = listeners.get(catalog);
+        if (list != null) {
+            list.remove(listener);
+        }
+    }
+
+    // A catalog was written on this terminal: poll now instead of at the next tick
+    public static void publish(String catalog) {
+        ScheduledExecutorService p;
+        synchronized (ChangeFeed.class) {
+            p = poller;
+        }
+        if (p == null) {
+            return; // nobody is listening
+        }
+        try {
+            p.execute(() -> {
+                if (!poll()) {
+                    fire(catalog); // catalog_versions unreadable; still tell this terminal's panels
+                }
+            });
+        } catch (Exception e) {
+            // shut down meanwhile
+        }
+    }
+
+    // Stop polling (app exit, tools); subscriptions are kept and a new subscribe restarts it
+    public static synchronized void shutdown() {
+        if (poller != null) {
+            poller.shutdownNow();
+            poller = null;
+        }
+    }
+
+    private static synchronized void start() {
+        if (poller != null) {
+            return;
+        }
+        poller = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "salon-change-feed");
+            t.setDaemon(true);
+            return t;
+        });
+        poller.scheduleWithFixedDelay(ChangeFeed::poll, 0, POLL_MS, TimeUnit.MILLISECONDS);
+    }
+
+    // One catalog_versions read; listeners of the catalogs whose version moved are called.
+    // The first successful read only records the versions. Returns false if the table could not be read.
+    private static boolean poll() {
+        Map<String, Long> versions = CatalogCache.pollVersions();
+        if (versions == null) {
+            return false;
+        }
+        Map<String, Long> previous = lastVersions;
+        lastVersions = versions;
+        if (previous != null) {
+            for (Map.Entry<String, Long> e : versions.entrySet()) {
+                if (!Objects.equals(e.getValue(), previous.get(e.getKey()))) {
+                    fire(e.getKey());
+                }
+            }
+        }
+        return true;
+    }
+
+    private static void fire(String catalog) {
+        List<Listener> list = listeners.get(catalog);
+        if (list == null) {
+            return;
+        }
+        for (Listener l : list) {
+            try {
+                l.catalogChanged(catalog);
+            } catch (Exception e) {
+                e.printStackTrace(); // one broken listener must not stop the feed
+            }
+        }
+    }
+}
\ No newline at end of file
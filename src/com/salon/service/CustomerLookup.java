@@ -0,0 +1,393 @@
+package com.salon.service;
+
+import com.salon.dao.CustomerDAO;
+import com.salon.model.Customer;
+import com.salon.util.PhoneNumbers;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// 🔎 Finds customers by phone number while it is still being typed, without a query per keystroke.
+// Every customer's number (PhoneNumbers.normalize) is kept in memory as one sorted long[] of keys
+// (see key()) with the customer ids alongside, so an exact or prefix lookup is a binary search.
+//  - The index is loaded once, in the background, by the first get() (the customer screen asks at startup).
+//  - Customers added on this terminal go in straight away (CustomerDAO.addCustomer -> customerAdded).
+//  - Customers added on other terminals are read by created_at (idx_customers_created_at) every
+//    -Dsalon.customers.syncSeconds (default 30), and right before a complete number would be reported unknown.
+// New numbers collect in a small sorted map that is folded into the arrays every MERGE_THRESHOLD entries.
+// Numbers are unique per customer once CustomerMergeTool has run; before that the newest customer wins.
+public class CustomerLookup {
+
+    private static final int MERGE_THRESHOLD = 4096;
+    private static final long SYNC_SECONDS = Long.getLong("salon.customers.syncSeconds", 30);
+    private static final long MISS_SYNC_MS = 2000;   // at most one catch-up read per 2 s for unknown numbers
+    private static final long SYNC_OVERLAP_MS = 5000; // re-read a little before the last created_at seen
+
+    private static final long[] POW10 = new long[PhoneNumbers.MAX_DIGITS + 1];
+    static {
+        POW10[0] = 1;
+        for (int i = 1; i < POW10.length; i++) {
+            POW10[i] = POW10[i - 1] * 10;
+        }
+    }
+
+    private static volatile CustomerLookup instance;
+
+    // Immutable; replaced as a whole by load() and merge()
+    private static final class Index {
+        static final Index EMPTY = new Index(new long[0], new String[0]);
+
+        final long[] keys;  // sorted, distinct
+        final String[] ids; // customer id per key
+
+        Index(long[] keys, String[] ids) {
+            this.keys = keys;
+            this.ids = ids;
+        }
+    }
+
+    private final CustomerDAO customerDAO = new CustomerDAO();
+    private final ScheduledExecutorService worker;
+    private final ConcurrentSkipListMap<Long, String> recent = new ConcurrentSkipListMap<>();
+    private final Object syncLock = new Object();
+    private volatile Index index = Index.EMPTY;
+    private volatile boolean loaded;
+    private volatile long loadMillis;
+    private Timestamp syncedUpTo; // guarded by syncLock; newest created_at read so far
+    private long lastSyncAt;      // guarded by syncLock
+
+    public static CustomerLookup get() {
+        CustomerLookup l = instance;
+        if (l == null) {
+            synchronized (CustomerLookup.class) {
+                l = instance;
+                if (l == null) {
+                    l = new CustomerLookup();
+                    instance = l;
+                }
+            }
+        }
+        return l;
+    }
+
+    public static synchronized void shutdown() {
+        CustomerLookup l = instance;
+        if (l != null) {
+            instance = null;
+            l.worker.shutdownNow();
+        }
+    }
+
+    // Called after a customer row was inserted; nothing to do when no lookup service is running (tools)
+    public static void customerAdded(String customerId, String phone) {
+        CustomerLookup l = instance;
+        if (l != null) {
+            l.put(customerId, PhoneNumbers.normalize(phone));
+        }
+    }
+
+    private CustomerLookup() {
+        worker = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "salon-customer-lookup");
+            t.setDaemon(true);
+            return t;
+        });
+        // Loading a large customer table takes a while; lookups keep working (from the database) meanwhile
+        Thread loader = new Thread(this::load, "salon-customer-index-load");
+        loader.setDaemon(true);
+        loader.start();
+    }
+
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    // Numbers in the index and how long the initial load took
+    public Map<String, Long> getStats() {
+        Map<String, Long> stats = new HashMap<>();
+        stats.put("numbers", (long) index.keys.length + recent.size());
+        stats.put("recent", (long) recent.size());
+        stats.put("loadMs", loadMillis);
+        return stats;
+    }
+
+    // In memory. Customer id for this number, or null if unknown (or the index is still loading)
+    public String findCustomerId(String phone) {
+        String digits = PhoneNumbers.normalize(phone);
+        if (digits.isEmpty() || digits.length() > PhoneNumbers.MAX_DIGITS) {
+            return null;
+        }
+        long key = key(digits);
+        String id = recent.get(key);
+        if (id != null) {
+            return id;
+        }
+        Index idx = index;
+        int pos = Arrays.binarySearch(idx.keys, key);
+        return pos >= 0 ? idx.ids[pos] : null;
+    }
+
+    // In memory. Up to limit {normalized number, customer id} pairs whose number starts with the
+    // typed digits, in number order; an exact match always comes first.
+    public List<String[]> suggest(String typedPhone, int limit) {
+        String prefix = PhoneNumbers.normalize(typedPhone);
+        if (prefix.isEmpty() || prefix.length() > PhoneNumbers.MAX_DIGITS || limit <= 0) {
+            return Collections.emptyList();
+        }
+        long low = low(prefix);
+        long high = high(prefix);
+
+        // The smallest 'limit' keys of each source are enough to find the smallest 'limit' overall
+        TreeMap<Long, String> found = new TreeMap<>();
+        Index idx = index;
+        int from = insertionPoint(idx.keys, low);
+        for (int i = from; i < idx.keys.length && idx.keys[i] < high && i - from < limit; i++) {
+            found.put(idx.keys[i], idx.ids[i]);
+        }
+        int taken = 0;
+        for (Map.Entry<Long, String> e : recent.subMap(low, high).entrySet()) {
+            if (taken++ >= limit) {
+                break;
+            }
+            found.put(e.getKey(), e.getValue()); // newer than the arrays
+        }
+
+        List<String[]> result = new ArrayList<>(Math.min(limit, found.size()));
+        for (Map.Entry<Long, String> e : found.entrySet()) {
+            if (result.size() >= limit) {
+                break;
+            }
+            result.add(new String[]{digits(e.getKey()), e.getValue()});
+        }
+        return result;
+    }
+
+    // Off the caller's thread: the suggestions for the typed number with their customer rows (one
+    // query by primary key), in the same order. A complete number that is not in the index triggers a
+    // catch-up read first. Until the index has loaded, only a complete number is looked up, in the database.
+    public CompletableFuture<List<Customer>> lookup(String typedPhone, int limit) {
+        return CompletableFuture.supplyAsync(() -> {
+            String digits = PhoneNumbers.normalize(typedPhone);
+            if (digits.isEmpty()) {
+                return Collections.<Customer>emptyList();
+            }
+            if (!loaded) {
+                if (digits.length() < PhoneNumbers.LOCAL_DIGITS) {
+                    return Collections.<Customer>emptyList();
+                }
+                Customer c = customerDAO.getCustomerByPhone(typedPhone.trim());
+                return c != null ? Collections.singletonList(c) : Collections.<Customer>emptyList();
+            }
+
+            List<String[]> matches = suggest(digits, limit);
+            boolean exact = !matches.isEmpty() && matches.get(0)[0].equals(digits);
+            if (!exact && digits.length() >= PhoneNumbers.LOCAL_DIGITS && sync(MISS_SYNC_MS)) {
+                matches = suggest(digits, limit);
+            }
+            if (matches.isEmpty()) {
+                return Collections.<Customer>emptyList();
+            }
+
+            List<String> ids = new ArrayList<>(matches.size());
+            for (String[] m : matches) {
+                ids.add(m[1]);
+            }
+            Map<String, Customer> byId = new HashMap<>();
+            for (Customer c : customerDAO.getCustomersByIds(ids)) {
+                byId.put(c.getCustomerId(), c);
+            }
+            List<Customer> result = new ArrayList<>(ids.size());
+            for (String id : ids) {
+                Customer c = byId.get(id);
+                if (c != null) {
+                    result.add(c);
+                }
+            }
+            // The exact match's row is gone: CustomerMergeTool folded it into the number's older customer
+            if (matches.get(0)[0].equals(digits) && !byId.containsKey(ids.get(0))) {
+                Customer c = customerDAO.getCustomerByPhone(digits);
+                if (c != null) {
+                    put(c.getCustomerId(), digits);
+                    result.add(0, c);
+                }
+            }
+            return result;
+        }, worker);
+    }
+
+    private void load() {
+        long start = System.currentTimeMillis();
+        Rows rows = new Rows();
+        Timestamp[] newest = {null};
+        // Oldest first, so that for a shared number the newest customer is written last
+        boolean ok = customerDAO.scanPhones(null, (id, phone, createdAt) -> {
+            String digits = PhoneNumbers.normalize(phone);
+            if (!digits.isEmpty() && digits.length() <= PhoneNumbers.MAX_DIGITS) {
+                rows.add(key(digits), id);
+            }
+            if (createdAt != null && (newest[0] == null || createdAt.after(newest[0]))) {
+                newest[0] = createdAt;
+            }
+        });
+        if (!ok) {
+            return; // lookups stay on the database until the next start
+        }
+        index = build(rows);
+        synchronized (syncLock) {
+            syncedUpTo = newest[0];
+            lastSyncAt = System.currentTimeMillis();
+        }
+        loadMillis = System.currentTimeMillis() - start;
+        loaded = true;
+        merge();
+        worker.scheduleWithFixedDelay(() -> sync(0), SYNC_SECONDS, SYNC_SECONDS, TimeUnit.SECONDS);
+    }
+
+    // Read customers created since the last sync into 'recent'. Skipped (false) if the last sync
+    // was less than minIntervalMs ago.
+    private boolean sync(long minIntervalMs) {
+        synchronized (syncLock) {
+            long now = System.currentTimeMillis();
+            if (now - lastSyncAt < minIntervalMs) {
+                return false;
+            }
+            lastSyncAt = now;
+            // Rows committed late with an earlier created_at are caught by the overlap
+            Timestamp since = syncedUpTo != null ? new Timestamp(syncedUpTo.getTime() - SYNC_OVERLAP_MS) : null;
+            Timestamp[] newest = {syncedUpTo};
+            boolean ok = customerDAO.scanPhones(since, (id, phone, createdAt) -> {
+                put(id, PhoneNumbers.normalize(phone));
+                if (createdAt != null && (newest[0] == null || createdAt.after(newest[0]))) {
+                    newest[0] = createdAt;
+                }
+            });
+            syncedUpTo = newest[0];
+            if (ok) {
+                merge();
+            }
+            return ok;
+        }
+    }
+
+    private void put(String customerId, String digits) {
+        if (customerId == null || digits.isEmpty() || digits.length() > PhoneNumbers.MAX_DIGITS) {
+            return;
+        }
+        recent.put(key(digits), customerId);
+        if (loaded && recent.size() >= MERGE_THRESHOLD) {
+            try {
+                worker.execute(this::merge);
+            } catch (Exception e) {
+                // shut down meanwhile; the numbers stay in 'recent'
+            }
+        }
+    }
+
+    // Fold 'recent' into a new pair of arrays. Readers keep using the old index until the new one is
+    // published; entries are only dropped from 'recent' afterwards (and only if not replaced meanwhile).
+    private synchronized void merge() {
+        if (recent.size() < MERGE_THRESHOLD) {
+            return;
+        }
+        Map<Long, String> add = new TreeMap<>(recent);
+        Index old = index;
+        long[] keys = new long[old.keys.length + add.size()];
+        String[] ids = new String[keys.length];
+        int i = 0;
+        int n = 0;
+        for (Map.Entry<Long, String> e : add.entrySet()) {
+            long k = e.getKey();
+            while (i < old.keys.length && old.keys[i] < k) {
+                keys[n] = old.keys[i];
+                ids[n++] = old.ids[i++];
+            }
+            if (i < old.keys.length && old.keys[i] == k) {
+                i++; // replaced by the newer customer
+            }
+            keys[n] = k;
+            ids[n++] = e.getValue();
+        }
+        while (i < old.keys.length) {
+            keys[n] = old.keys[i];
+            ids[n++] = old.ids[i++];
+        }
+        index = new Index(Arrays.copyOf(keys, n), Arrays.copyOf(ids, n));
+        for (Map.Entry<Long, String> e : add.entrySet()) {
+            recent.remove(e.getKey(), e.getValue());
+        }
+    }
+
+    // Sort the keys, drop duplicates and give each number the id of its last (newest) row
+    private static Index build(Rows rows) {
+        long[] keys = Arrays.copyOf(rows.keys, rows.size);
+        Arrays.sort(keys);
+        int distinct = 0;
+        for (int i = 0; i < keys.length; i++) {
+            if (i == 0 || keys[i] != keys[i - 1]) {
+                keys[distinct++] = keys[i];
+            }
+        }
+        keys = Arrays.copyOf(keys, distinct);
+        String[] ids = new String[distinct];
+        for (int i = 0; i < rows.size; i++) {
+            ids[Arrays.binarySearch(keys, rows.keys[i])] = rows.ids[i];
+        }
+        return new Index(keys, ids);
+    }
+
+    // Rows as read, before sorting
+    private static final class Rows {
+        long[] keys = new long[1024];
+        String[] ids = new String[1024];
+        int size;
+
+        void add(long key, String id) {
+            if (size == keys.length) {
+                keys = Arrays.copyOf(keys, size * 2);
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            keys[size] = key;
+            ids[size++] = id;
+        }
+    }
+
+    // Digits -> a long that sorts like the digit string: the digits left-aligned to MAX_DIGITS places,
+    // times 16, plus the digit count. All numbers starting with p then lie in [low(p), high(p)).
+    static long key(String digits) {
+        return low(digits) + digits.length();
+    }
+
+    private static long low(String prefix) {
+        return Long.parseLong(prefix) * POW10[PhoneNumbers.MAX_DIGITS - prefix.length()] * 16;
+    }
+
+    private static long high(String prefix) {
+        return (Long.parseLong(prefix) + 1) * POW10[PhoneNumbers.MAX_DIGITS - prefix.length()] * 16;
+    }
+
+    static String digits(long key) {
+        int length = (int) (key & 15);
+        String padded = Long.toString(key >>> 4);
+        StringBuilder sb = new StringBuilder(PhoneNumbers.MAX_DIGITS);
+        for (int i = padded.length(); i < PhoneNumbers.MAX_DIGITS; i++) {
+            sb.append('0');
+        }
+        return sb.append(padded).substring(0, length);
+    }
+
+    private static int insertionPoint(long[] keys, long key) {
+        int pos = Arrays.binarySearch(keys, key);
+        return pos >= 0 ? pos : -pos - 1;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,188 @@
+package com.salon.service;
+
+import com.salon.dao.InvoiceDAO;
+
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Renders invoice PDFs after the invoice rows have committed.
+// A small bounded pool (-Dsalon.render.threads, default 2; queue -Dsalon.render.queue, default 200)
+// works through submitted invoice ids. The queue itself is not durable: the PENDING status in the
+// invoices table is. A sweep re-queues PENDING rows when the queue starts and every RETRY_INTERVAL_SECONDS,
+// which also retries failed renders; after MAX_ATTEMPTS failures the invoice is marked FAILED.
+// Opening an invoice that is not rendered yet calls renderNow(), which renders on the caller's thread
+// (or waits for a render of the same invoice that is already running).
+// Every terminal runs a sweep, so a render first claims the row (PENDING -> RENDERING, see
+// sql/014_invoice_pdf_claims.sql) and skips invoices another terminal has claimed. A claim older than
+// -Dsalon.render.claimTimeoutSeconds (default 120) is taken to be a terminal that died mid-render and
+// the sweep puts it back to PENDING.
+public class InvoiceRenderQueue {
+
+    private static final int MAX_ATTEMPTS = 3;
+    private static final long RETRY_INTERVAL_SECONDS = 30;
+    private static final int CLAIM_TIMEOUT_SECONDS = Integer.getInteger("salon.render.claimTimeoutSeconds", 120);
+    // How long renderNow() waits for another terminal's render before rendering itself
+    private static final long FOREIGN_RENDER_WAIT_MS = 10000;
+
+    private static volatile InvoiceRenderQueue instance;
+
+    private final InvoiceDAO invoiceDAO = new InvoiceDAO();
+    private final ThreadPoolExecutor workers;
+    private final ScheduledExecutorService sweeper;
+    private final ConcurrentHashMap<Integer, CompletableFuture<byte[]>> inFlight = new ConcurrentHashMap<>();
+    private final AtomicInteger rendered = new AtomicInteger();
+    private final AtomicInteger failed = new AtomicInteger();
+
+    public static InvoiceRenderQueue get() {
+        InvoiceRenderQueue q = instance;
+        if (q == null) {
+            synchronized (InvoiceRenderQueue.class) {
+                q = instance;
+                if (q == null) {
+                    q = new InvoiceRenderQueue(
+                            Integer.getInteger("salon.render.threads", 2),
+                            Integer.getInteger("salon.render.queue", 200));
+                    instance = q;
+                }
+            }
+        }
+        return q;
+    }
+
+    // Stop rendering (app exit, tools); invoices not rendered yet stay PENDING for the next start
+    public static synchronized void shutdown() {
+        InvoiceRenderQueue q = instance;
+        if (q == null) {
+            return;
+        }
+        instance = null;
+        q.sweeper.shutdownNow();
+        q.workers.getQueue().clear(); // queued ones stay PENDING; renders already running finish
+        q.workers.shutdown();
+        try {
+            q.workers.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private InvoiceRenderQueue(int threads, int capacity) {
+        AtomicInteger n = new AtomicInteger();
+        workers = new ThreadPoolExecutor(threads, threads, 30, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(capacity), r -> {
+                    Thread t = new Thread(r, "salon-invoice-render-" + n.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                });
+        workers.allowCoreThreadTimeOut(true);
+        sweeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "salon-invoice-render-sweep");
+            t.setDaemon(true);
+            return t;
+        });
+        sweeper.scheduleWithFixedDelay(this::requeuePending, 0, RETRY_INTERVAL_SECONDS, TimeUnit.SECONDS);
+    }
+
+    // Queue a committed invoice for rendering. Never blocks checkout: when the queue is full
+    // the invoice simply stays PENDING until the next requeue (or an on-demand render).
+    public void submit(int invoiceId) {
+        try {
+            workers.execute(() -> renderInBackground(invoiceId));
+        } catch (RejectedExecutionException e) {
+            System.err.println("Invoice render queue full; invoice " + invoiceId + " left PENDING");
+        }
+    }
+
+    // Render now on the calling thread (used when the invoice is opened before the queue got to it)
+    public byte[] renderNow(int invoiceId) {
+        try {
+            return render(invoiceId, true);
+        } catch (Exception e) {
+            e.printStackTrace();
+            invoiceDAO.markPdfRenderFailed(invoiceId, String.valueOf(e.getMessage()), MAX_ATTEMPTS); // drops the claim
+            return null;
+        }
+    }
+
+    public int getRenderedCount() {
+        return rendered.get();
+    }
+
+    public int getFailedCount() {
+        return failed.get();
+    }
+
+    public int getQueuedCount() {
+        return workers.getQueue().size();
+    }
+
+    // Re-queue invoices left PENDING (app restarted, queue was full, earlier attempt failed)
+    public void requeuePending() {
+        int released = invoiceDAO.releaseStalePdfClaims(CLAIM_TIMEOUT_SECONDS);
+        if (released > 0) {
+            System.err.println(released + " invoice render claim(s) timed out; back to PENDING");
+        }
+        if (!workers.getQueue().isEmpty()) {
+            return; // still busy; the next sweep will look again
+        }
+        List<Integer> pending = invoiceDAO.getPendingPdfInvoiceIds(workers.getQueue().remainingCapacity());
+        for (int invoiceId : pending) {
+            if (!inFlight.containsKey(invoiceId)) {
+                submit(invoiceId);
+            }
+        }
+    }
+
+    private void renderInBackground(int invoiceId) {
+        try {
+            render(invoiceId, false);
+        } catch (Exception e) {
+            e.printStackTrace();
+            if (invoiceDAO.markPdfRenderFailed(invoiceId, String.valueOf(e.getMessage()), MAX_ATTEMPTS)) {
+                failed.incrementAndGet();
+            }
+        }
+    }
+
+    // One render per invoice at a time; a second caller in this process waits for the first one's result.
+    // Background renders skip an invoice they cannot claim (another terminal has it, or it is READY);
+    // on demand, the caller waits for the other terminal and then reads its PDF.
+    private byte[] render(int invoiceId, boolean onDemand) throws Exception {
+        CompletableFuture<byte[]> mine = new CompletableFuture<>();
+        CompletableFuture<byte[]> running = inFlight.putIfAbsent(invoiceId, mine);
+        if (running != null) {
+            byte[] pdf = running.get();
+            return pdf != null || !onDemand ? pdf : render(invoiceId, true);
+        }
+        try {
+            if (!invoiceDAO.claimPdfRender(invoiceId)) {
+                if (!onDemand) {
+                    mine.complete(null);
+                    return null;
+                }
+                long deadline = System.currentTimeMillis() + FOREIGN_RENDER_WAIT_MS;
+                while ("RENDERING".equals(invoiceDAO.getPdfStatus(invoiceId)) && System.currentTimeMillis() < deadline) {
+                    Thread.sleep(250);
+                }
+                // READY now: returns the stored PDF. Still RENDERING: the user is waiting, render anyway
+            }
+            byte[] pdf = invoiceDAO.renderInvoicePdf(invoiceId);
+            rendered.incrementAndGet();
+            mine.complete(pdf);
+            return pdf;
+        } catch (Exception e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(invoiceId, mine);
+        }
+    }
+}
\ No newline at end of file
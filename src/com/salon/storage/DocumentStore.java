@@ -0,0 +1,19 @@
+package com.salon.storage;
+
+import java.io.IOException;
+
+// Where generated documents (invoice PDFs, reports) live outside the database.
+// The database keeps only the reference returned by put().
+public interface DocumentStore {
+
+    // Stores the bytes and returns a reference that get() accepts; storing the same bytes twice returns the same reference
+    String put(byte[] data) throws IOException;
+
+    // Reads a document back; throws if it is missing or fails its checksum
+    byte[] get(String ref) throws IOException;
+
+    boolean exists(String ref);
+
+    // Removes a document; returns false if it was not there
+    boolean delete(String ref) throws IOException;
+}
\ No newline at end of file
@@ -0,0 +1,36 @@
+package com.salon.storage;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Paths;
+
+// Shared document store instance. Files go under -Dsalon.docs.dir
+// (default: <user.home>/.salon/documents); tools and tests can swap the store with setStore().
+public class DocumentStores {
+
+    private static volatile DocumentStore store;
+
+    public static DocumentStore get() {
+        DocumentStore s = store;
+        if (s == null) {
+            synchronized (DocumentStores.class) {
+                s = store;
+                if (s == null) {
+                    String dir = System.getProperty("salon.docs.dir",
+                            Paths.get(System.getProperty("user.home"), ".salon", "documents").toString());
+                    try {
+                        s = new LocalFileDocumentStore(Paths.get(dir));
+                    } catch (IOException e) {
+                        throw new UncheckedIOException("Cannot open document store at " + dir, e);
+                    }
+                    store = s;
+                }
+            }
+        }
+        return s;
+    }
+
+    public static synchronized void setStore(DocumentStore newStore) {
+        store = newStore;
+    }
+}
\ No newline at end of file
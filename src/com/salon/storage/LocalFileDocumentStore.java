@@ -0,0 +1,130 @@
+package com.salon.storage;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+// Content-addressed documents on local disk.
+// A document is named by the SHA-256 of its bytes ("sha256:<hex>") and stored under
+// <root>/<hex[0..2]>/<hex[2..4]>/<hex>, so no directory grows past 256 entries per level.
+// Writes go to a temp file first and are moved into place, reads are memory-mapped and the
+// digest is re-checked before the bytes are returned.
+public class LocalFileDocumentStore implements DocumentStore {
+
+    private static final String PREFIX = "sha256:";
+
+    private final Path root;
+
+    public LocalFileDocumentStore(Path root) throws IOException {
+        this.root = root;
+        Files.createDirectories(root);
+    }
+
+    public Path getRoot() {
+        return root;
+    }
+
+    @Override
+    public String put(byte[] data) throws IOException {
+        String hex = sha256Hex(ByteBuffer.wrap(data));
+        Path target = pathFor(hex);
+        if (Files.exists(target)) {
+            return PREFIX + hex; // same content already stored
+        }
+
+        Files.createDirectories(target.getParent());
+        Path temp = Files.createTempFile(target.getParent(), hex, ".tmp");
+        try {
+            try (FileChannel ch = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                ByteBuffer buf = ByteBuffer.wrap(data);
+                while (buf.hasRemaining()) {
+                    ch.write(buf);
+                }
+                ch.force(true);
+            }
+            try {
+                Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, target);
+            }
+        } catch (FileAlreadyExistsException e) {
+            // another writer stored the same content first
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+        return PREFIX + hex;
+    }
+
+    @Override
+    public byte[] get(String ref) throws IOException {
+        String hex = hexOf(ref);
+        Path path = pathFor(hex);
+        try (FileChannel ch = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = ch.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Document too large: " + ref);
+            }
+            MappedByteBuffer mapped = ch.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            if (!hex.equals(sha256Hex(mapped.duplicate()))) {
+                throw new IOException("Checksum mismatch for document " + ref + " (" + path + ")");
+            }
+            byte[] data = new byte[(int) size];
+            mapped.get(data);
+            return data;
+        }
+    }
+
+    @Override
+    public boolean exists(String ref) {
+        try {
+            return Files.exists(pathFor(hexOf(ref)));
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    @Override
+    public boolean delete(String ref) throws IOException {
+        return Files.deleteIfExists(pathFor(hexOf(ref)));
+    }
+
+    private Path pathFor(String hex) {
+        return root.resolve(hex.substring(0, 2)).resolve(hex.substring(2, 4)).resolve(hex);
+    }
+
+    private static String hexOf(String ref) throws IOException {
+        if (ref == null || !ref.startsWith(PREFIX) || ref.length() != PREFIX.length() + 64) {
+            throw new IOException("Not a document reference: " + ref);
+        }
+        String hex = ref.substring(PREFIX.length());
+        for (int i = 0; i < hex.length(); i++) {
+            if (Character.digit(hex.charAt(i), 16) < 0) {
+                throw new IOException("Not a document reference: " + ref);
+            }
+        }
+        return hex;
+    }
+
+    private static String sha256Hex(ByteBuffer data) {
+        try {
+            MessageDigest md = MessageDigest.getInstance("SHA-256");
+            md.update(data);
+            StringBuilder sb = new StringBuilder(64);
+            for (byte b : md.digest()) {
+                sb.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return sb.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
\ No newline at end of file
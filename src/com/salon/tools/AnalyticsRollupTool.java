@@ -0,0 +1,62 @@
+package com.salon.tools;
+
+import com.salon.dao.AnalyticsRollupDAO;
+import com.salon.util.DBConnection;
+import java.util.Map;
+
+// Command line maintenance for the analytics daily rollups (see sql/007_daily_rollups.sql).
+//   status  - watermark, last refresh and raw rows not rolled up yet, per source
+//   refresh - roll up the rows added since the last refresh (the report also does this)
+//   rebuild - empty the rollups and roll up all invoices / stock movements again
+public class AnalyticsRollupTool {
+
+    public static void main(String[] args) {
+        String command = args.length > 0 ? args[0] : "status";
+        AnalyticsRollupDAO rollups = new AnalyticsRollupDAO();
+        int exitCode = 0;
+
+        try {
+            switch (command) {
+                case "status":
+                    printStatus(rollups.getStatus());
+                    break;
+                case "refresh":
+                    long start = System.currentTimeMillis();
+                    long[] rolled = rollups.refresh();
+                    if (rolled == null) {
+                        System.err.println("Refresh failed, rollups left at their last watermark.");
+                        exitCode = 2;
+                        break;
+                    }
+                    System.out.printf("Rolled up %d invoice ids and %d movement ids in %d ms.%n",
+                            rolled[0], rolled[1], System.currentTimeMillis() - start);
+                    printStatus(rollups.getStatus());
+                    break;
+                case "rebuild":
+                    start = System.currentTimeMillis();
+                    if (!rollups.rebuild()) {
+                        System.err.println("Rebuild failed; run it again (the report reads raw rows meanwhile).");
+                        exitCode = 2;
+                        break;
+                    }
+                    System.out.printf("Rollups rebuilt in %d ms.%n", System.currentTimeMillis() - start);
+                    printStatus(rollups.getStatus());
+                    break;
+                default:
+                    System.err.println("Usage: AnalyticsRollupTool [status|refresh|rebuild]");
+                    exitCode = 2;
+            }
+        } finally {
+            DBConnection.shutdown();
+        }
+        System.exit(exitCode);
+    }
+
+    private static void printStatus(Map<String, Map<String, Object>> status) {
+        for (Map.Entry<String, Map<String, Object>> e : status.entrySet()) {
+            Map<String, Object> row = e.getValue();
+            System.out.printf("  %-16s last_id=%d refreshed_at=%s pending=%d%n", e.getKey(),
+                    row.get("last_id"), row.get("refreshed_at"), row.get("pending"));
+        }
+    }
+}
\ No newline at end of file
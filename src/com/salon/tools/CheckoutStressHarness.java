@@ -0,0 +1,368 @@
+package com.salon.tools;
+
+import com.salon.dao.InvoiceDAO;
+import com.salon.dao.LotConsumptionService;
+import com.salon.dao.KeySequence;
+import com.salon.dao.StockLedgerDAO;
+import com.salon.dao.StockMovementDAO;
+import com.salon.model.Customer;
+import com.salon.model.InvoiceItem;
+import com.salon.model.InvoiceService;
+import com.salon.service.InvoiceRenderQueue;
+import com.salon.util.DBConnection;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Several front-desk terminals checking out and recording usage against the same products at once.
+//
+//   java com.salon.tools.CheckoutStressHarness [terminals] [opsPerTerminal] [products] [lotsPerProduct]
+//                                              [usageShare] [maxLines] [--verbose]
+//
+// Defaults: 4 terminals x 200 operations over 5 products with 50 lots of 10 units each; 30% of the
+// operations are product usage (recordUsageWithStockDepletion), the rest invoices (createInvoice) with
+// 1..maxLines (default 3) product lines. Total demand is meant to exceed the seeded stock, so the run
+// also exercises the "not enough stock" rollback. Every run seeds its own "STRESS <run>-n" products.
+//
+// Reports throughput, p50/p99 latency per operation type, and how many operations rolled back
+// (insufficient stock, deadlock / lock timeout, other). Afterwards the ledger invariants are checked
+// for the run's products and the exit code is 1 if any is violated:
+//   - stock_balances.on_hand is never negative
+//   - 0 <= quantity_consumed <= quantity on every lot
+//   - on_hand equals the unconsumed quantity of the lots
+//   - every invoice item is fully covered by its invoice_item_lots rows
+//   - stock_balances matches a recompute from the raw ledger (StockLedgerDAO.verify)
+//
+// Point it at a scratch database with -Dsalon.db.url (an embedded H2/MySQL-mode database works);
+// give the pool at least as many connections as terminals (-Dsalon.pool.maxSize). DAO stack traces are
+// swallowed and only classified unless --verbose is given.
+public class CheckoutStressHarness {
+
+    private static final double EPSILON = 0.001;
+
+    private static final String[] OUTCOMES = {"ok", "insufficient stock", "deadlock/lock timeout", "other failure"};
+
+    // Remembers, per thread, the first line of the last stack trace a DAO printed
+    private static class FailureTap extends PrintStream {
+        private final Map<Thread, String> lastError = new ConcurrentHashMap<>();
+        private final PrintStream passThrough;
+
+        FailureTap(PrintStream passThrough) {
+            super(new OutputStream() {
+                @Override
+                public void write(int b) {
+                }
+            });
+            this.passThrough = passThrough;
+        }
+
+        @Override
+        public void println(Object x) {
+            String line = String.valueOf(x);
+            if (x instanceof Throwable) {
+                lastError.putIfAbsent(Thread.currentThread(), line);
+            }
+            if (passThrough != null) {
+                passThrough.println(x);
+            }
+        }
+
+        @Override
+        public void println(String x) {
+            if (passThrough != null) {
+                passThrough.println(x);
+            }
+        }
+
+        String take() {
+            String line = lastError.remove(Thread.currentThread());
+            return line != null ? line : "";
+        }
+    }
+
+    private static class Stats {
+        final long[] nanos;
+        final int[] outcomes = new int[OUTCOMES.length];
+        int count;
+
+        Stats(int capacity) {
+            nanos = new long[capacity];
+        }
+
+        void add(long elapsed, int outcome) {
+            nanos[count++] = elapsed;
+            outcomes[outcome]++;
+        }
+
+        static Stats merge(List<Stats> parts) {
+            int total = 0;
+            for (Stats s : parts) total += s.count;
+            Stats merged = new Stats(total);
+            for (Stats s : parts) {
+                System.arraycopy(s.nanos, 0, merged.nanos, merged.count, s.count);
+                merged.count += s.count;
+                for (int i = 0; i < OUTCOMES.length; i++) merged.outcomes[i] += s.outcomes[i];
+            }
+            Arrays.sort(merged.nanos, 0, merged.count);
+            return merged;
+        }
+
+        double percentileMillis(double p) {
+            if (count == 0) return 0;
+            int idx = (int) Math.min(count - 1, Math.ceil(p * count) - 1);
+            return nanos[Math.max(0, idx)] / 1e6;
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        List<String> params = new ArrayList<>();
+        for (String a : args) {
+            if (!a.startsWith("--")) params.add(a);
+        }
+        int terminals = params.size() > 0 ? Integer.parseInt(params.get(0)) : 4;
+        int opsPerTerminal = params.size() > 1 ? Integer.parseInt(params.get(1)) : 200;
+        int products = params.size() > 2 ? Integer.parseInt(params.get(2)) : 5;
+        int lotsPerProduct = params.size() > 3 ? Integer.parseInt(params.get(3)) : 50;
+        double usageShare = params.size() > 4 ? Double.parseDouble(params.get(4)) : 0.3;
+        int maxLines = params.size() > 5 ? Integer.parseInt(params.get(5)) : 3;
+        boolean verbose = Arrays.asList(args).contains("--verbose");
+
+        int exitCode;
+        try {
+            String run = Long.toString(System.currentTimeMillis() % 1000000);
+            int[] productIds = seed(run, products, lotsPerProduct);
+            Customer customer = seedCustomer(run);
+            System.out.printf("Run %s: %d terminals x %d ops, %d products x %d lots of 10, usage share %.0f%%%n",
+                    run, terminals, opsPerTerminal, products, lotsPerProduct, usageShare * 100);
+
+            PrintStream originalErr = System.err;
+            FailureTap tap = new FailureTap(verbose ? originalErr : null);
+            List<Stats> invoiceStats = Collections.synchronizedList(new ArrayList<>());
+            List<Stats> usageStats = Collections.synchronizedList(new ArrayList<>());
+            AtomicLong soldUnits = new AtomicLong();
+            CountDownLatch start = new CountDownLatch(1);
+            List<Thread> threads = new ArrayList<>();
+
+            for (int t = 0; t < terminals; t++) {
+                final int terminal = t;
+                Thread thread = new Thread(() -> {
+                    Random random = new Random(1000 + terminal);
+                    InvoiceDAO invoices = new InvoiceDAO();
+                    StockMovementDAO movements = new StockMovementDAO();
+                    Stats inv = new Stats(opsPerTerminal);
+                    Stats use = new Stats(opsPerTerminal);
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    for (int op = 0; op < opsPerTerminal; op++) {
+                        boolean usage = random.nextDouble() < usageShare;
+                        long begin = System.nanoTime();
+                        boolean ok;
+                        boolean shortStock = false;
+                        if (usage) {
+                            int productId = productIds[random.nextInt(productIds.length)];
+                            ok = movements.recordUsageWithStockDepletion(productId, 1 + random.nextInt(3),
+                                    null, "stress terminal " + terminal);
+                        } else {
+                            List<InvoiceItem> items = new ArrayList<>();
+                            int lines = 1 + random.nextInt(maxLines);
+                            double units = 0;
+                            for (int l = 0; l < lines; l++) {
+                                int productId = productIds[random.nextInt(productIds.length)];
+                                double qty = 1 + random.nextInt(3);
+                                units += qty;
+                                items.add(new InvoiceItem(productId, "STRESS", "Stress", qty, 12, 8));
+                            }
+                            List<InvoiceService> services = random.nextBoolean()
+                                    ? Collections.singletonList(new InvoiceService(null, "Stress cut", 100))
+                                    : Collections.emptyList();
+                            try {
+                                ok = invoices.createInvoice(customer.getCustomerId(), customer, services, items, 0);
+                            } catch (LotConsumptionService.InsufficientStockException e) {
+                                ok = false;
+                                shortStock = true;
+                            }
+                            if (ok) soldUnits.addAndGet((long) units);
+                        }
+                        long elapsed = System.nanoTime() - begin;
+                        String error = tap.take(); // always taken, so a stale trace is never blamed on a later op
+                        (usage ? use : inv).add(elapsed, ok ? 0 : shortStock ? 1 : classify(error));
+                    }
+                    invoiceStats.add(inv);
+                    usageStats.add(use);
+                }, "stress-terminal-" + t);
+                threads.add(thread);
+                thread.start();
+            }
+
+            System.setErr(tap);
+            long begin = System.nanoTime();
+            start.countDown();
+            for (Thread thread : threads) {
+                thread.join();
+            }
+            double seconds = (System.nanoTime() - begin) / 1e9;
+            System.setErr(originalErr);
+
+            Stats inv = Stats.merge(invoiceStats);
+            Stats use = Stats.merge(usageStats);
+            System.out.printf("%d operations in %.2f s: %.1f ops/s (%d units sold)%n",
+                    inv.count + use.count, seconds, (inv.count + use.count) / seconds, soldUnits.get());
+            print("createInvoice", inv);
+            print("recordUsage", use);
+            System.out.println("Pool: " + DBConnection.getPoolStats());
+
+            exitCode = checkInvariants(productIds) ? 0 : 1;
+        } finally {
+            InvoiceRenderQueue.shutdown();
+            DBConnection.shutdown();
+        }
+        System.exit(exitCode);
+    }
+
+    private static int classify(String error) {
+        if (error.contains("InsufficientStockException")) return 1;
+        String lower = error.toLowerCase();
+        if (lower.contains("deadlock") || lower.contains("lock wait timeout") || lower.contains("timeout trying to lock")
+                || lower.contains("transactionrollback") || lower.contains("concurrent update")) return 2;
+        return 3;
+    }
+
+    private static void print(String name, Stats s) {
+        StringBuilder outcomes = new StringBuilder();
+        for (int i = 1; i < OUTCOMES.length; i++) {
+            outcomes.append(", ").append(OUTCOMES[i]).append('=').append(s.outcomes[i]);
+        }
+        System.out.printf("  %-14s n=%-6d p50=%7.2f ms  p99=%7.2f ms  max=%7.2f ms  ok=%d%s%n",
+                name, s.count, s.percentileMillis(0.50), s.percentileMillis(0.99), s.percentileMillis(1.0),
+                s.outcomes[0], outcomes);
+    }
+
+    private static boolean checkInvariants(int[] productIds) throws Exception {
+        String ids = Arrays.toString(productIds).replace("[", "(").replace("]", ")");
+        List<String> violations = new ArrayList<>();
+        try (Connection conn = DBConnection.getConnection();
+             Statement st = conn.createStatement()) {
+            try (ResultSet rs = st.executeQuery(
+                    "SELECT product_id, on_hand FROM stock_balances WHERE on_hand < -" + EPSILON + " AND product_id IN " + ids)) {
+                while (rs.next()) {
+                    violations.add("product " + rs.getInt(1) + " on hand is negative: " + rs.getDouble(2));
+                }
+            }
+            try (ResultSet rs = st.executeQuery(
+                    "SELECT stock_id, quantity, quantity_consumed FROM stock_entries WHERE product_id IN " + ids +
+                    " AND (quantity_consumed > quantity + " + EPSILON + " OR quantity_consumed < 0)")) {
+                while (rs.next()) {
+                    violations.add("lot " + rs.getInt(1) + " consumed " + rs.getDouble(3) + " of " + rs.getDouble(2));
+                }
+            }
+            try (ResultSet rs = st.executeQuery(
+                    "SELECT b.product_id, b.on_hand, SUM(se.quantity - COALESCE(se.quantity_consumed, 0)) AS unconsumed " +
+                    "FROM stock_balances b JOIN stock_entries se ON se.product_id = b.product_id " +
+                    "WHERE b.product_id IN " + ids + " GROUP BY b.product_id, b.on_hand")) {
+                while (rs.next()) {
+                    if (Math.abs(rs.getDouble(2) - rs.getDouble(3)) > EPSILON) {
+                        violations.add("product " + rs.getInt(1) + " on hand " + rs.getDouble(2)
+                                + " but lots hold " + rs.getDouble(3));
+                    }
+                }
+            }
+            try (ResultSet rs = st.executeQuery(
+                    "SELECT ii.item_id, ii.quantity, COALESCE(SUM(l.quantity), 0) AS allocated " +
+                    "FROM invoice_items ii LEFT JOIN invoice_item_lots l ON l.item_id = ii.item_id " +
+                    "WHERE ii.product_id IN " + ids + " GROUP BY ii.item_id, ii.quantity")) {
+                while (rs.next()) {
+                    if (Math.abs(rs.getDouble(2) - rs.getDouble(3)) > EPSILON) {
+                        violations.add("invoice item " + rs.getInt(1) + " sold " + rs.getDouble(2)
+                                + " but lots supplied " + rs.getDouble(3));
+                    }
+                }
+            }
+        }
+        List<Integer> runProducts = new ArrayList<>();
+        for (int id : productIds) runProducts.add(id);
+        for (Map<String, Object> drift : new StockLedgerDAO().verify()) {
+            if (runProducts.contains(drift.get("product_id"))) {
+                violations.add("stock_balances drifted for product " + drift.get("product_id"));
+            }
+        }
+
+        if (violations.isEmpty()) {
+            System.out.println("Invariants hold: no negative on-hand, no over-consumed lot, ledger and lots agree.");
+            return true;
+        }
+        System.out.println(violations.size() + " invariant violation(s):");
+        for (String v : violations) {
+            System.out.println("  " + v);
+        }
+        return false;
+    }
+
+    private static Customer seedCustomer(String run) throws Exception {
+        Customer customer = new Customer();
+        customer.setCustomerId("STRESS-" + run);
+        customer.setCustomerKey(KeySequence.next(KeySequence.CUSTOMERS));
+        customer.setName("Stress Terminal Customer");
+        customer.setPhone("9000000000");
+        customer.setAddress("Load Test Lane");
+        try (Connection conn = DBConnection.getConnection();
+             PreparedStatement ps = conn.prepareStatement(
+                     "INSERT INTO customers (customer_id, customer_key, name, phone, address, created_at, last_visit) VALUES (?, ?, ?, ?, ?, NOW(), NOW())")) {
+            ps.setString(1, customer.getCustomerId());
+            ps.setLong(2, customer.getCustomerKey());
+            ps.setString(3, customer.getName());
+            ps.setString(4, customer.getPhone());
+            ps.setString(5, customer.getAddress());
+            ps.executeUpdate();
+        }
+        return customer;
+    }
+
+    // Products and lots go in through plain SQL plus a ledger rebuild, not one addStockEntry per lot
+    private static int[] seed(String run, int products, int lotsPerProduct) throws Exception {
+        int[] ids = new int[products];
+        long today = System.currentTimeMillis();
+        try (Connection conn = DBConnection.getConnection()) {
+            for (int p = 0; p < products; p++) {
+                try (PreparedStatement ps = conn.prepareStatement(
+                        "INSERT INTO products (name, brand, product_type) VALUES (?, 'Stress', 'SALE')",
+                        Statement.RETURN_GENERATED_KEYS)) {
+                    ps.setString(1, "STRESS " + run + "-" + p);
+                    ps.executeUpdate();
+                    ResultSet rs = ps.getGeneratedKeys();
+                    rs.next();
+                    ids[p] = rs.getInt(1);
+                }
+                try (PreparedStatement ps = conn.prepareStatement(
+                        "INSERT INTO stock_entries (product_id, add_date, quantity, actual_price_per_unit, " +
+                        "selling_price_per_unit, stock_status, quantity_consumed) VALUES (?, ?, 10, 8, 12, 'RUNNING', 0)")) {
+                    for (int l = 0; l < lotsPerProduct; l++) {
+                        ps.setInt(1, ids[p]);
+                        ps.setDate(2, new java.sql.Date(today - (lotsPerProduct - l) * 86400000L));
+                        ps.addBatch();
+                    }
+                    ps.executeBatch();
+                }
+            }
+        }
+        if (!new StockLedgerDAO().rebuild()) {
+            throw new IllegalStateException("Could not rebuild stock_balances for the seeded products");
+        }
+        return ids;
+    }
+}
\ No newline at end of file
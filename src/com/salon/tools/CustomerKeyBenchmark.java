@@ -0,0 +1,195 @@
+package com.salon.tools;
+
+import com.salon.dao.KeySequence;
+import com.salon.util.DBConnection;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+// Compares the old random "CUST-" + 8 hex customer ids with KeySequence keys, on scratch copies of
+// the customers/invoices layout:
+//   uuid  - customer_id VARCHAR primary key from UUID.randomUUID(), invoices reference customer_id
+//   keyed - customer_id from KeySequence.customerCode (monotonic), customer_key BIGINT unique,
+//           invoices reference customer_key (the layout after sql/012)
+//
+//   java com.salon.tools.CustomerKeyBenchmark [customers] [invoicesPerCustomer] [iterations]
+//
+// Customers go in one row per transaction, like CustomerDAO.addCustomer; invoices in batches.
+// The join is the per-customer revenue query behind the analytics top-customers list.
+// The bench_* tables and the bench_customers sequence are dropped afterwards.
+public class CustomerKeyBenchmark {
+
+    private static final String SEQUENCE = "bench_customers";
+
+    public static void main(String[] args) throws Exception {
+        int customers = args.length > 0 ? Integer.parseInt(args[0]) : 20000;
+        int perCustomer = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        int iterations = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+
+        try (Connection conn = DBConnection.getConnection();
+             Statement st = conn.createStatement()) {
+            drop(st);
+            st.execute("CREATE TABLE bench_uuid_customers (customer_id VARCHAR(20) NOT NULL, name VARCHAR(100), " +
+                       "phone VARCHAR(20), created_at TIMESTAMP NULL, PRIMARY KEY (customer_id))");
+            st.execute("CREATE TABLE bench_uuid_invoices (invoice_id BIGINT NOT NULL, customer_id VARCHAR(20), " +
+                       "total_amount DOUBLE, PRIMARY KEY (invoice_id))");
+            st.execute("CREATE INDEX idx_bench_uuid_invoices_customer ON bench_uuid_invoices (customer_id)");
+            st.execute("CREATE TABLE bench_keyed_customers (customer_id VARCHAR(20) NOT NULL, customer_key BIGINT NOT NULL, " +
+                       "name VARCHAR(100), phone VARCHAR(20), created_at TIMESTAMP NULL, PRIMARY KEY (customer_id))");
+            st.execute("CREATE UNIQUE INDEX uq_bench_keyed_customers_key ON bench_keyed_customers (customer_key)");
+            st.execute("CREATE TABLE bench_keyed_invoices (invoice_id BIGINT NOT NULL, customer_key BIGINT, " +
+                       "total_amount DOUBLE, PRIMARY KEY (invoice_id))");
+            st.execute("CREATE INDEX idx_bench_keyed_invoices_customer ON bench_keyed_invoices (customer_key)");
+            st.executeUpdate("INSERT INTO key_sequences (name, next_value) VALUES ('" + SEQUENCE + "', 1)");
+
+            try {
+                System.out.printf("%-28s %14s %14s%n", "", "uuid", "keyed");
+
+                // 1. Customers, one insert + commit each
+                int[] collisions = {0};
+                List<String> uuidIds = new ArrayList<>(customers);
+                long start = System.nanoTime();
+                try (PreparedStatement ps = conn.prepareStatement(
+                        "INSERT INTO bench_uuid_customers (customer_id, name, phone, created_at) VALUES (?, ?, ?, NOW())")) {
+                    for (int i = 0; i < customers; i++) {
+                        String id = "CUST-" + UUID.randomUUID().toString().substring(0, 8).toUpperCase();
+                        ps.setString(1, id);
+                        ps.setString(2, "Bench Customer " + i);
+                        ps.setString(3, String.format("9%09d", i));
+                        try {
+                            ps.executeUpdate();
+                            uuidIds.add(id);
+                        } catch (SQLException e) {
+                            collisions[0]++; // the same 8 hex digits drawn twice
+                        }
+                    }
+                }
+                double uuidInsert = customers / ((System.nanoTime() - start) / 1e9);
+
+                List<Long> keys = new ArrayList<>(customers);
+                start = System.nanoTime();
+                try (PreparedStatement ps = conn.prepareStatement(
+                        "INSERT INTO bench_keyed_customers (customer_id, customer_key, name, phone, created_at) VALUES (?, ?, ?, ?, NOW())")) {
+                    for (int i = 0; i < customers; i++) {
+                        long key = KeySequence.next(SEQUENCE);
+                        ps.setString(1, KeySequence.customerCode(key));
+                        ps.setLong(2, key);
+                        ps.setString(3, "Bench Customer " + i);
+                        ps.setString(4, String.format("9%09d", i));
+                        ps.executeUpdate();
+                        keys.add(key);
+                    }
+                }
+                double keyedInsert = customers / ((System.nanoTime() - start) / 1e9);
+                System.out.printf("%-28s %14.0f %14.0f%n", "customer inserts/s", uuidInsert, keyedInsert);
+                System.out.printf("%-28s %14d %14d%n", "id collisions", collisions[0], 0);
+
+                // 2. Invoices for random customers, same customers picked for both layouts
+                int invoices = uuidIds.size() * perCustomer;
+                Random random = new Random(42);
+                int[] picks = new int[invoices];
+                for (int i = 0; i < invoices; i++) {
+                    picks[i] = random.nextInt(uuidIds.size());
+                }
+                double uuidInvoices = insertInvoices(conn, "bench_uuid_invoices", "customer_id", picks,
+                        (ps, c) -> ps.setString(2, uuidIds.get(c)));
+                double keyedInvoices = insertInvoices(conn, "bench_keyed_invoices", "customer_key", picks,
+                        (ps, c) -> ps.setLong(2, keys.get(c)));
+                System.out.printf("%-28s %14.0f %14.0f%n", "invoice inserts/s", uuidInvoices, keyedInvoices);
+
+                // 3. Revenue per customer (join + group on the customer reference)
+                String uuidJoin = "SELECT c.name, COUNT(*), SUM(i.total_amount) AS revenue FROM bench_uuid_invoices i " +
+                                  "JOIN bench_uuid_customers c ON i.customer_id = c.customer_id " +
+                                  "GROUP BY c.customer_id, c.name ORDER BY revenue DESC LIMIT 10";
+                String keyedJoin = "SELECT c.name, COUNT(*), SUM(i.total_amount) AS revenue FROM bench_keyed_invoices i " +
+                                   "JOIN bench_keyed_customers c ON i.customer_key = c.customer_key " +
+                                   "GROUP BY c.customer_key, c.name ORDER BY revenue DESC LIMIT 10";
+                System.out.printf("%-28s %14.2f %14.2f%n", "revenue join ms (median)",
+                        timeQuery(st, uuidJoin, iterations), timeQuery(st, keyedJoin, iterations));
+
+                // 4. One customer's invoices by reference, 2000 lookups
+                double uuidLookups = timeLookups(conn, "SELECT COUNT(*) FROM bench_uuid_invoices WHERE customer_id = ?",
+                        2000, (ps, c) -> ps.setString(1, uuidIds.get(c)), uuidIds.size());
+                double keyedLookups = timeLookups(conn, "SELECT COUNT(*) FROM bench_keyed_invoices WHERE customer_key = ?",
+                        2000, (ps, c) -> ps.setLong(1, keys.get(c)), keys.size());
+                System.out.printf("%-28s %14.1f %14.1f%n", "2000 invoice lookups ms", uuidLookups, keyedLookups);
+            } finally {
+                drop(st);
+                st.executeUpdate("DELETE FROM key_sequences WHERE name = '" + SEQUENCE + "'");
+            }
+        } finally {
+            DBConnection.shutdown();
+        }
+    }
+
+    private interface Binder {
+        void bind(PreparedStatement ps, int customer) throws SQLException;
+    }
+
+    private static double insertInvoices(Connection conn, String table, String column, int[] picks, Binder binder) throws SQLException {
+        long start = System.nanoTime();
+        conn.setAutoCommit(false);
+        try (PreparedStatement ps = conn.prepareStatement(
+                "INSERT INTO " + table + " (invoice_id, " + column + ", total_amount) VALUES (?, ?, ?)")) {
+            for (int i = 0; i < picks.length; i++) {
+                ps.setLong(1, i + 1);
+                binder.bind(ps, picks[i]);
+                ps.setDouble(3, 100 + i % 900);
+                ps.addBatch();
+                if ((i + 1) % 1000 == 0) {
+                    ps.executeBatch();
+                    conn.commit();
+                }
+            }
+            ps.executeBatch();
+            conn.commit();
+        } finally {
+            conn.setAutoCommit(true);
+        }
+        return picks.length / ((System.nanoTime() - start) / 1e9);
+    }
+
+    private static double timeQuery(Statement st, String sql, int iterations) throws SQLException {
+        long[] times = new long[iterations];
+        for (int i = 0; i < iterations; i++) {
+            long start = System.nanoTime();
+            try (ResultSet rs = st.executeQuery(sql)) {
+                while (rs.next()) {
+                    rs.getDouble(3);
+                }
+            }
+            times[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(times);
+        return times[iterations / 2] / 1e6;
+    }
+
+    private static double timeLookups(Connection conn, String sql, int lookups, Binder binder, int customers) throws SQLException {
+        Random random = new Random(7);
+        long start = System.nanoTime();
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            for (int i = 0; i < lookups; i++) {
+                binder.bind(ps, random.nextInt(customers));
+                try (ResultSet rs = ps.executeQuery()) {
+                    rs.next();
+                }
+            }
+        }
+        return (System.nanoTime() - start) / 1e6;
+    }
+
+    private static void drop(Statement st) throws SQLException {
+        for (String table : new String[]{"bench_uuid_invoices", "bench_uuid_customers",
+                                         "bench_keyed_invoices", "bench_keyed_customers"}) {
+            st.execute("DROP TABLE IF EXISTS " + table);
+        }
+    }
+}
\ No newline at end of file
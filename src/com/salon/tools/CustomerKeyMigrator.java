@@ -0,0 +1,158 @@
+package com.salon.tools;
+
+import com.salon.dao.CustomerKeySchema;
+import com.salon.dao.KeySequence;
+import com.salon.util.DBConnection;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+
+// Gives existing customers and invoices their customer_key (see sql/012_customer_keys.sql).
+//
+//   java com.salon.tools.CustomerKeyMigrator [batchSize]
+//
+// Customers without a key get one in created_at order (oldest customer = smallest key), taken from
+// key_sequences a batch at a time (default 1000), so keys handed out by running terminals meanwhile
+// never clash. Then invoices copy their customer's key, walked by invoice_id range. Every batch
+// commits on its own, so the tool can be stopped and re-run safely. Apply
+// sql/013_customer_keys_required.sql once it reports nothing left.
+public class CustomerKeyMigrator {
+
+    public static void main(String[] args) throws Exception {
+        int batchSize = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+
+        try (Connection conn = DBConnection.getConnection()) {
+            if (CustomerKeySchema.isKeyed()) {
+                System.out.println("sql/013_customer_keys_required.sql is already applied, nothing to key.");
+                return;
+            }
+            long start = System.currentTimeMillis();
+            long customers = keyCustomers(conn, batchSize);
+            System.out.printf("Keyed %d customers in %d ms.%n", customers, System.currentTimeMillis() - start);
+
+            start = System.currentTimeMillis();
+            long invoices = keyInvoices(conn, batchSize * 10);
+            System.out.printf("Keyed %d invoices in %d ms.%n", invoices, System.currentTimeMillis() - start);
+
+            try (Statement st = conn.createStatement();
+                 ResultSet rs = st.executeQuery(
+                         "SELECT (SELECT COUNT(*) FROM customers WHERE customer_key IS NULL), " +
+                         "(SELECT COUNT(*) FROM invoices WHERE customer_key IS NULL AND customer_id IS NOT NULL)")) {
+                rs.next();
+                System.out.printf("Left without a key: %d customers, %d invoices.%n", rs.getLong(1), rs.getLong(2));
+                if (rs.getLong(1) == 0 && rs.getLong(2) == 0) {
+                    System.out.println("sql/013_customer_keys_required.sql can be applied.");
+                }
+            }
+        } finally {
+            DBConnection.shutdown();
+        }
+    }
+
+    // Keyset walk over (created_at, customer_id); rows without created_at are keyed last
+    private static long keyCustomers(Connection conn, int batchSize) throws Exception {
+        String walk = "SELECT customer_id, created_at FROM customers WHERE customer_key IS NULL " +
+                      "AND (created_at > ? OR (created_at = ? AND customer_id > ?)) " +
+                      "ORDER BY created_at, customer_id LIMIT ?";
+        String rest = "SELECT customer_id, created_at FROM customers WHERE customer_key IS NULL " +
+                      "ORDER BY customer_id LIMIT ?";
+        long keyed = 0;
+        Timestamp afterCreated = new Timestamp(0);
+        String afterId = "";
+        boolean walking = true;
+
+        conn.setAutoCommit(false);
+        try (PreparedStatement psWalk = conn.prepareStatement(walk);
+             PreparedStatement psRest = conn.prepareStatement(rest);
+             PreparedStatement psUpdate = conn.prepareStatement(
+                     "UPDATE customers SET customer_key = ? WHERE customer_id = ? AND customer_key IS NULL")) {
+            while (true) {
+                List<String> ids = new ArrayList<>();
+                PreparedStatement ps;
+                if (walking) {
+                    psWalk.setTimestamp(1, afterCreated);
+                    psWalk.setTimestamp(2, afterCreated);
+                    psWalk.setString(3, afterId);
+                    psWalk.setInt(4, batchSize);
+                    ps = psWalk;
+                } else {
+                    psRest.setInt(1, batchSize);
+                    ps = psRest;
+                }
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        ids.add(rs.getString("customer_id"));
+                        if (walking) {
+                            afterCreated = rs.getTimestamp("created_at");
+                        }
+                    }
+                }
+                if (ids.isEmpty()) {
+                    if (walking) {
+                        walking = false;
+                        continue;
+                    }
+                    break;
+                }
+                if (walking) {
+                    afterId = ids.get(ids.size() - 1);
+                }
+
+                long first = KeySequence.reserve(KeySequence.CUSTOMERS, ids.size());
+                for (int i = 0; i < ids.size(); i++) {
+                    psUpdate.setLong(1, first + i);
+                    psUpdate.setString(2, ids.get(i));
+                    psUpdate.addBatch();
+                }
+                psUpdate.executeBatch();
+                conn.commit();
+                keyed += ids.size();
+            }
+        } catch (Exception e) {
+            conn.rollback();
+            throw e;
+        } finally {
+            conn.setAutoCommit(true);
+        }
+        return keyed;
+    }
+
+    private static long keyInvoices(Connection conn, int rangeSize) throws Exception {
+        long minId;
+        long maxId;
+        try (Statement st = conn.createStatement();
+             ResultSet rs = st.executeQuery("SELECT MIN(invoice_id), MAX(invoice_id) FROM invoices " +
+                                            "WHERE customer_key IS NULL AND customer_id IS NOT NULL")) {
+            rs.next();
+            minId = rs.getLong(1);
+            maxId = rs.getLong(2);
+            if (rs.wasNull()) {
+                return 0;
+            }
+        }
+
+        long keyed = 0;
+        conn.setAutoCommit(false);
+        try (PreparedStatement ps = conn.prepareStatement(
+                "UPDATE invoices SET customer_key = (SELECT c.customer_key FROM customers c WHERE c.customer_id = invoices.customer_id) " +
+                "WHERE invoice_id BETWEEN ? AND ? AND customer_key IS NULL AND customer_id IS NOT NULL")) {
+            for (long from = minId; from <= maxId; from += rangeSize) {
+                ps.setLong(1, from);
+                ps.setLong(2, from + rangeSize - 1);
+                keyed += ps.executeUpdate();
+                conn.commit();
+            }
+        } catch (Exception e) {
+            conn.rollback();
+            throw e;
+        } finally {
+            conn.setAutoCommit(true);
+        }
+        return keyed;
+    }
+}
\ No newline at end of file
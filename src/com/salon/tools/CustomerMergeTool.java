@@ -0,0 +1,67 @@
+package com.salon.tools;
+
+import com.salon.dao.CustomerMergeDAO;
+import com.salon.util.DBConnection;
+import java.util.Map;
+
+// Command line cleanup of customers that were created once per visit (see sql/010_customer_phone_dedup.sql).
+//   status    - customers, rows without phone_normalized, duplicated numbers and the rows that would go
+//   normalize - fill phone_normalized for rows that have none
+//   merge     - normalize, then collapse every duplicated number into its oldest customer,
+//               moving the invoices (and their daily rollups) over
+// Once status shows no duplicates, apply sql/011_customers_phone_unique.sql.
+public class CustomerMergeTool {
+
+    public static void main(String[] args) {
+        String command = args.length > 0 ? args[0] : "status";
+        CustomerMergeDAO merger = new CustomerMergeDAO();
+        int exitCode = 0;
+
+        try {
+            switch (command) {
+                case "status":
+                    printStatus(merger.getStatus());
+                    break;
+                case "normalize":
+                case "merge":
+                    long start = System.currentTimeMillis();
+                    long normalized = merger.normalizePhones();
+                    if (normalized < 0) {
+                        System.err.println("Normalizing phone numbers failed; run it again.");
+                        exitCode = 2;
+                        break;
+                    }
+                    System.out.printf("Normalized %d phone numbers in %d ms.%n", normalized, System.currentTimeMillis() - start);
+                    if (command.equals("merge")) {
+                        start = System.currentTimeMillis();
+                        long[] merged = merger.mergeDuplicates();
+                        if (merged == null) {
+                            System.err.println("Merge failed; the numbers merged so far stay merged, run it again.");
+                            exitCode = 2;
+                            break;
+                        }
+                        System.out.printf("Merged %d numbers: %d duplicate customers removed, %d invoices moved, in %d ms.%n",
+                                merged[0], merged[1], merged[2], System.currentTimeMillis() - start);
+                    }
+                    printStatus(merger.getStatus());
+                    break;
+                default:
+                    System.err.println("Usage: CustomerMergeTool [status|normalize|merge]");
+                    exitCode = 2;
+            }
+        } finally {
+            DBConnection.shutdown();
+        }
+        System.exit(exitCode);
+    }
+
+    private static void printStatus(Map<String, Long> status) {
+        for (Map.Entry<String, Long> e : status.entrySet()) {
+            System.out.printf("  %-18s %d%n", e.getKey(), e.getValue());
+        }
+        Long duplicates = status.get("duplicate_rows");
+        if (duplicates != null && duplicates == 0) {
+            System.out.println("  No duplicates left: sql/011_customers_phone_unique.sql can be applied.");
+        }
+    }
+}
\ No newline at end of file
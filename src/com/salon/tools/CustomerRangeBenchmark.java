@@ -0,0 +1,174 @@
+package com.salon.tools;
+
+import com.salon.dao.CustomerDAO;
+import com.salon.dao.KeySequence;
+import com.salon.model.Customer;
+import com.salon.util.DBConnection;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+
+// Compares the old "load everything, filter in Java" customer listing with the
+// last_visit range query, for each CustomerPanel time filter.
+//
+//   java com.salon.tools.CustomerRangeBenchmark [customers] [iterations] [--cleanup]
+//
+// Seeds BENCH-xxxxxxx customers (created_at spread over the last two years, last visit somewhere
+// between then and now) until the
+// table holds the requested number of them (default 500000), then times both paths.
+// --cleanup deletes the seeded rows afterwards. Point it at a scratch database with -Dsalon.db.url.
+public class CustomerRangeBenchmark {
+
+    private static final String[] FILTERS = {"Today", "Past 7 Days", "Past 1 Month", "Past 3 Months", "All Time"};
+
+    public static void main(String[] args) throws Exception {
+        int customers = args.length > 0 ? Integer.parseInt(args[0]) : 500000;
+        int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        boolean cleanup = Arrays.asList(args).contains("--cleanup");
+
+        try {
+            seed(customers);
+            CustomerDAO dao = new CustomerDAO();
+
+            System.out.printf("%-15s %12s %14s %12s %14s%n",
+                    "filter", "rows", "java filter ms", "rows", "range query ms");
+            for (String filter : FILTERS) {
+                Date since = threshold(filter);
+
+                long[] oldTimes = new long[iterations];
+                long[] newTimes = new long[iterations];
+                int oldRows = 0;
+                int newRows = 0;
+                for (int i = 0; i < iterations; i++) {
+                    long start = System.nanoTime();
+                    oldRows = filterInJava(dao.getAllCustomers(), since).size();
+                    oldTimes[i] = System.nanoTime() - start;
+
+                    start = System.nanoTime();
+                    newRows = dao.getCustomersVisitedSince(since, 0, 0).size();
+                    newTimes[i] = System.nanoTime() - start;
+                }
+                System.out.printf("%-15s %12d %14.1f %12d %14.1f%n",
+                        filter, oldRows, median(oldTimes), newRows, median(newTimes));
+            }
+
+            // Keyset paging walks a filter page by page without OFFSET rescans
+            Date since = threshold("Past 3 Months");
+            long start = System.nanoTime();
+            int pages = 0;
+            int rows = 0;
+            List<Customer> page = dao.getCustomersVisitedSincePage(since, null, null, 500);
+            while (!page.isEmpty()) {
+                pages++;
+                rows += page.size();
+                Customer last = page.get(page.size() - 1);
+                page = dao.getCustomersVisitedSincePage(since, last.getLastVisit(), last.getCustomerId(), 500);
+            }
+            System.out.printf("keyset walk (Past 3 Months, 500/page): %d rows in %d pages, %.1f ms%n",
+                    rows, pages, (System.nanoTime() - start) / 1e6);
+
+            if (cleanup) {
+                try (Connection conn = DBConnection.getConnection();
+                     Statement st = conn.createStatement()) {
+                    int deleted = st.executeUpdate("DELETE FROM customers WHERE customer_id LIKE 'BENCH-%'");
+                    System.out.println("Removed " + deleted + " seeded customers.");
+                }
+            }
+        } finally {
+            DBConnection.shutdown();
+        }
+    }
+
+    // Same result as the range query, filtered after loading every customer
+    private static List<Customer> filterInJava(List<Customer> all, Date since) {
+        List<Customer> out = new ArrayList<>();
+        for (Customer c : all) {
+            if (since == null || (c.getLastVisit() != null && !c.getLastVisit().before(since))) {
+                out.add(c);
+            }
+        }
+        return out;
+    }
+
+    private static Date threshold(String filter) {
+        Calendar cal = Calendar.getInstance();
+        switch (filter) {
+            case "Today":
+                cal.set(Calendar.HOUR_OF_DAY, 0);
+                cal.set(Calendar.MINUTE, 0);
+                cal.set(Calendar.SECOND, 0);
+                return cal.getTime();
+            case "Past 7 Days":
+                cal.add(Calendar.DAY_OF_MONTH, -7);
+                return cal.getTime();
+            case "Past 1 Month":
+                cal.add(Calendar.MONTH, -1);
+                return cal.getTime();
+            case "Past 3 Months":
+                cal.add(Calendar.MONTH, -3);
+                return cal.getTime();
+            default:
+                return null;
+        }
+    }
+
+    private static void seed(int target) throws Exception {
+        try (Connection conn = DBConnection.getConnection()) {
+            int existing;
+            try (Statement st = conn.createStatement();
+                 ResultSet rs = st.executeQuery("SELECT COUNT(*) FROM customers WHERE customer_id LIKE 'BENCH-%'")) {
+                rs.next();
+                existing = rs.getInt(1);
+            }
+            if (existing >= target) {
+                System.out.println("Using " + existing + " existing seeded customers.");
+                return;
+            }
+
+            System.out.println("Seeding " + (target - existing) + " customers...");
+            long now = System.currentTimeMillis();
+            long twoYears = 730L * 24 * 60 * 60 * 1000;
+            Random random = new Random(42);
+
+            long firstKey = KeySequence.reserve(KeySequence.CUSTOMERS, target - existing);
+            conn.setAutoCommit(false);
+            try (PreparedStatement ps = conn.prepareStatement(
+                    "INSERT INTO customers (customer_id, customer_key, name, phone, address, created_at, last_visit) VALUES (?, ?, ?, ?, ?, ?, ?)")) {
+                for (int i = existing; i < target; i++) {
+                    ps.setString(1, String.format("BENCH-%07d", i));
+                    ps.setLong(2, firstKey + i - existing);
+                    ps.setString(3, "Bench Customer " + i);
+                    ps.setString(4, String.format("9%09d", i));
+                    ps.setString(5, "Bench Street " + (i % 500));
+                    long created = now - (long) (random.nextDouble() * twoYears);
+                    ps.setTimestamp(6, new Timestamp(created));
+                    ps.setTimestamp(7, new Timestamp(created + (long) (random.nextDouble() * (now - created))));
+                    ps.addBatch();
+                    if ((i + 1) % 5000 == 0) {
+                        ps.executeBatch();
+                        conn.commit();
+                    }
+                }
+                ps.executeBatch();
+                conn.commit();
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        }
+    }
+
+    private static double median(long[] nanos) {
+        long[] sorted = nanos.clone();
+        Arrays.sort(sorted);
+        return sorted[sorted.length / 2] / 1e6;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,233 @@
+package com.salon.tools;
+
+import com.salon.dao.FifoAllocationEngine;
+import com.salon.dao.LotConsumptionService;
+import com.salon.model.InvoiceItem;
+import com.salon.util.DBConnection;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+// Compares the old per-item, per-row FIFO depletion with FifoAllocationEngine.
+//
+//   java com.salon.tools.FifoDepletionBenchmark [products] [lotsPerProduct] [invoices] [linesPerInvoice] [--cleanup]
+//
+// Seeds "BENCH FIFO n" products (default 20) with lotsPerProduct RUNNING stock entries each
+// (default 500), then runs the same random multi-line invoices (default 200 invoices of 5 lines)
+// through both paths. Every invoice runs in its own transaction and is rolled back, so both paths
+// see identical lots. Only the depletion step is timed, and the statements sent to the server are
+// counted: on an in-process database the two paths cost about the same, the engine's gain is the
+// round trips it saves on a networked one. --cleanup deletes the seeded rows afterwards.
+// Point it at a scratch database with -Dsalon.db.url.
+public class FifoDepletionBenchmark {
+
+    private static long legacyStatements;
+
+    public static void main(String[] args) throws Exception {
+        List<String> params = new ArrayList<>();
+        for (String a : args) {
+            if (!a.startsWith("--")) params.add(a);
+        }
+        int products = params.size() > 0 ? Integer.parseInt(params.get(0)) : 20;
+        int lotsPerProduct = params.size() > 1 ? Integer.parseInt(params.get(1)) : 500;
+        int invoices = params.size() > 2 ? Integer.parseInt(params.get(2)) : 200;
+        int lines = params.size() > 3 ? Integer.parseInt(params.get(3)) : 5;
+        boolean cleanup = Arrays.asList(args).contains("--cleanup");
+
+        try (Connection conn = DBConnection.getConnection()) {
+            int[] productIds = seed(conn, products, lotsPerProduct);
+
+            Random random = new Random(7);
+            List<List<InvoiceItem>> workload = new ArrayList<>();
+            for (int i = 0; i < invoices; i++) {
+                List<InvoiceItem> items = new ArrayList<>();
+                for (int l = 0; l < lines; l++) {
+                    int productId = productIds[random.nextInt(productIds.length)];
+                    // lots hold 5 units, so a line spans one to four lots
+                    double qty = 1 + random.nextInt(20);
+                    items.add(new InvoiceItem(productId, "", "", qty, 10, 5));
+                }
+                workload.add(items);
+            }
+
+            conn.setAutoCommit(false);
+            try {
+                long legacyNanos = 0;
+                long engineNanos = 0;
+                long memoryNanos = 0;
+                long allocations = 0;
+                long engineStatements = 0;
+                for (List<InvoiceItem> items : workload) {
+                    List<Integer> itemIds = insertInvoice(conn, items);
+                    long start = System.nanoTime();
+                    for (InvoiceItem item : items) {
+                        legacyDeplete(conn, item.getProductId(), item.getQuantity());
+                    }
+                    legacyNanos += System.nanoTime() - start;
+                    conn.rollback();
+
+                    itemIds = insertInvoice(conn, items);
+                    start = System.nanoTime();
+                    FifoAllocationEngine.Plan plan = LotConsumptionService.consumeForSale(conn, itemIds.get(0), items,
+                            itemIds.subList(1, itemIds.size()));
+                    engineNanos += System.nanoTime() - start;
+                    allocations += plan.allocations.size();
+                    engineStatements += 1 + (plan.touchedLots.isEmpty() ? 0 : 1) + (plan.allocations.isEmpty() ? 0 : 1);
+
+                    List<Integer> distinct = new ArrayList<>();
+                    for (InvoiceItem item : items) {
+                        if (!distinct.contains(item.getProductId())) distinct.add(item.getProductId());
+                    }
+                    conn.rollback();
+
+                    // allocation alone, lots already in memory
+                    Map<Integer, List<FifoAllocationEngine.Lot>> lots =
+                            FifoAllocationEngine.loadRunningLots(conn, distinct, false);
+                    start = System.nanoTime();
+                    FifoAllocationEngine.allocate(lots, items);
+                    memoryNanos += System.nanoTime() - start;
+                    conn.rollback();
+                }
+
+                System.out.printf("%d invoices x %d lines, %d products x %d lots%n", invoices, lines, products, lotsPerProduct);
+                System.out.printf("per-row depletion : %10.1f ms total, %8.3f ms/invoice, %8d statements%n",
+                        legacyNanos / 1e6, legacyNanos / 1e6 / invoices, legacyStatements);
+                System.out.printf("allocation engine : %10.1f ms total, %8.3f ms/invoice, %8d statements (%d lot allocations)%n",
+                        engineNanos / 1e6, engineNanos / 1e6 / invoices, engineStatements, allocations);
+                System.out.printf("in-memory allocate: %10.1f ms total, %8.3f ms/invoice%n",
+                        memoryNanos / 1e6, memoryNanos / 1e6 / invoices);
+            } finally {
+                conn.rollback();
+                conn.setAutoCommit(true);
+            }
+
+            if (cleanup) {
+                try (Statement st = conn.createStatement()) {
+                    String bench = "SELECT product_id FROM products WHERE name LIKE 'BENCH FIFO %'";
+                    st.executeUpdate("DELETE FROM stock_entries WHERE product_id IN (" + bench + ")");
+                    int deleted = st.executeUpdate("DELETE FROM products WHERE name LIKE 'BENCH FIFO %'");
+                    System.out.println("Removed " + deleted + " seeded products and their stock entries.");
+                }
+            }
+        } finally {
+            DBConnection.shutdown();
+        }
+    }
+
+    // Invoice header plus one item row per line; returns [invoiceId, itemId...]
+    private static List<Integer> insertInvoice(Connection conn, List<InvoiceItem> items) throws Exception {
+        List<Integer> ids = new ArrayList<>();
+        try (PreparedStatement ps = conn.prepareStatement(
+                "INSERT INTO invoices (invoice_date, total_services, total_products, total_amount) " +
+                "VALUES (NOW(), 0, 0, 0)", Statement.RETURN_GENERATED_KEYS)) {
+            ps.executeUpdate();
+            ResultSet rs = ps.getGeneratedKeys();
+            rs.next();
+            ids.add(rs.getInt(1));
+        }
+        try (PreparedStatement ps = conn.prepareStatement(
+                "INSERT INTO invoice_items (invoice_id, product_id, quantity, selling_price_per_unit, " +
+                "actual_price_per_unit, subtotal) VALUES (?, ?, ?, 10, 5, 0)", Statement.RETURN_GENERATED_KEYS)) {
+            for (InvoiceItem item : items) {
+                ps.setInt(1, ids.get(0));
+                ps.setInt(2, item.getProductId());
+                ps.setDouble(3, item.getQuantity());
+                ps.addBatch();
+            }
+            ps.executeBatch();
+            ResultSet rs = ps.getGeneratedKeys();
+            while (rs.next()) ids.add(rs.getInt(1));
+        }
+        return ids;
+    }
+
+    // The depletion InvoiceDAO used before FifoAllocationEngine: one SELECT per item, one UPDATE per lot
+    private static void legacyDeplete(Connection conn, int productId, double quantitySold) throws Exception {
+        double remaining = quantitySold;
+        try (PreparedStatement psSelect = conn.prepareStatement(
+                "SELECT stock_id, quantity, COALESCE(quantity_consumed, 0) as consumed FROM stock_entries " +
+                "WHERE product_id = ? AND stock_status = 'RUNNING' ORDER BY add_date ASC, stock_id ASC");
+             PreparedStatement psUpdate = conn.prepareStatement(
+                "UPDATE stock_entries SET quantity_consumed = ?, stock_status = ? WHERE stock_id = ?")) {
+            psSelect.setInt(1, productId);
+            ResultSet rs = psSelect.executeQuery();
+            legacyStatements++;
+            while (rs.next() && remaining > 0) {
+                int stockId = rs.getInt("stock_id");
+                double stockQty = rs.getDouble("quantity");
+                double available = stockQty - rs.getDouble("consumed");
+                if (available <= 0.001) {
+                    psUpdate.setDouble(1, stockQty);
+                    psUpdate.setString(2, "COMPLETED");
+                    psUpdate.setInt(3, stockId);
+                    psUpdate.executeUpdate();
+                    legacyStatements++;
+                    continue;
+                }
+                if (remaining >= available) {
+                    psUpdate.setDouble(1, stockQty);
+                    psUpdate.setString(2, "COMPLETED");
+                    psUpdate.setInt(3, stockId);
+                    psUpdate.executeUpdate();
+                    legacyStatements++;
+                    remaining -= available;
+                } else {
+                    psUpdate.setDouble(1, rs.getDouble("consumed") + remaining);
+                    psUpdate.setString(2, "RUNNING");
+                    psUpdate.setInt(3, stockId);
+                    psUpdate.executeUpdate();
+                    legacyStatements++;
+                    remaining = 0;
+                }
+            }
+        }
+    }
+
+    private static int[] seed(Connection conn, int products, int lotsPerProduct) throws Exception {
+        int[] ids = new int[products];
+        for (int p = 0; p < products; p++) {
+            String name = "BENCH FIFO " + p;
+            try (PreparedStatement ps = conn.prepareStatement("SELECT product_id FROM products WHERE name = ?")) {
+                ps.setString(1, name);
+                ResultSet rs = ps.executeQuery();
+                if (rs.next()) {
+                    ids[p] = rs.getInt(1);
+                    continue;
+                }
+            }
+            try (PreparedStatement ps = conn.prepareStatement(
+                    "INSERT INTO products (name, brand, product_type) VALUES (?, 'Bench', 'SALE')",
+                    Statement.RETURN_GENERATED_KEYS)) {
+                ps.setString(1, name);
+                ps.executeUpdate();
+                ResultSet rs = ps.getGeneratedKeys();
+                rs.next();
+                ids[p] = rs.getInt(1);
+            }
+            try (PreparedStatement ps = conn.prepareStatement(
+                    "INSERT INTO stock_entries (product_id, add_date, quantity, actual_price_per_unit, " +
+                    "selling_price_per_unit, stock_status, quantity_consumed) " +
+                    "VALUES (?, ?, ?, ?, ?, 'RUNNING', 0)")) {
+                long today = System.currentTimeMillis();
+                for (int l = 0; l < lotsPerProduct; l++) {
+                    ps.setInt(1, ids[p]);
+                    ps.setDate(2, new java.sql.Date(today - (lotsPerProduct - l) * 86400000L)); // oldest first
+                    ps.setDouble(3, 5);
+                    ps.setDouble(4, 4 + (l % 7));
+                    ps.setDouble(5, 9 + (l % 7));
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+            }
+        }
+        System.out.println("Using " + products + " products with " + lotsPerProduct + " lots each.");
+        return ids;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,92 @@
+package com.salon.tools;
+
+import com.salon.storage.DocumentStore;
+import com.salon.storage.DocumentStores;
+import com.salon.util.DBConnection;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.Arrays;
+
+// Moves legacy invoice_pdf BLOBs out of the invoices table into the document store.
+//
+//   java com.salon.tools.InvoiceBlobMigrator [batchSize] [--keep-blobs]
+//
+// Walks invoices by invoice_id in batches (default 100). Each PDF is written to the store and
+// read back before the row gets its invoice_pdf_ref and the BLOB is cleared; every batch commits
+// on its own, so the tool can be stopped and re-run safely. --keep-blobs sets the reference but
+// leaves the BLOB in place (clear it with a later run once the store has been backed up).
+public class InvoiceBlobMigrator {
+
+    public static void main(String[] args) throws Exception {
+        int batchSize = args.length > 0 && !args[0].startsWith("--") ? Integer.parseInt(args[0]) : 100;
+        boolean keepBlobs = Arrays.asList(args).contains("--keep-blobs");
+
+        DocumentStore store = DocumentStores.get();
+        String select = "SELECT invoice_id, invoice_pdf, invoice_pdf_ref FROM invoices "
+                + "WHERE invoice_id > ? AND invoice_pdf IS NOT NULL "
+                + (keepBlobs ? "AND invoice_pdf_ref IS NULL " : "")
+                + "ORDER BY invoice_id LIMIT ?";
+        String update = keepBlobs
+                ? "UPDATE invoices SET invoice_pdf_ref = ? WHERE invoice_id = ?"
+                : "UPDATE invoices SET invoice_pdf_ref = ?, invoice_pdf = NULL WHERE invoice_id = ?";
+
+        int moved = 0;
+        int failed = 0;
+        long bytes = 0;
+        int lastId = 0;
+        try (Connection conn = DBConnection.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                while (true) {
+                    int seen = 0;
+                    try (PreparedStatement psSelect = conn.prepareStatement(select);
+                         PreparedStatement psUpdate = conn.prepareStatement(update)) {
+                        psSelect.setInt(1, lastId);
+                        psSelect.setInt(2, batchSize);
+                        try (ResultSet rs = psSelect.executeQuery()) {
+                            while (rs.next()) {
+                                seen++;
+                                int invoiceId = rs.getInt("invoice_id");
+                                lastId = invoiceId;
+                                byte[] pdf = rs.getBytes("invoice_pdf");
+                                try {
+                                    String ref = store.put(pdf);
+                                    if (!Arrays.equals(pdf, store.get(ref))) {
+                                        throw new IllegalStateException("Read-back mismatch for " + ref);
+                                    }
+                                    psUpdate.setString(1, ref);
+                                    psUpdate.setInt(2, invoiceId);
+                                    psUpdate.addBatch();
+                                    moved++;
+                                    bytes += pdf.length;
+                                } catch (Exception e) {
+                                    // leave this row on its BLOB; it is picked up again on the next run
+                                    System.err.println("Invoice " + invoiceId + " not migrated: " + e.getMessage());
+                                    failed++;
+                                }
+                            }
+                        }
+                        psUpdate.executeBatch();
+                    }
+                    conn.commit();
+                    if (seen < batchSize) {
+                        break;
+                    }
+                    System.out.println("... up to invoice " + lastId + ": " + moved + " moved");
+                }
+            } catch (Exception e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        } finally {
+            DBConnection.shutdown();
+        }
+
+        System.out.printf("Moved %d invoice PDFs (%.1f MB) to the document store, %d failed.%n",
+                moved, bytes / (1024.0 * 1024.0), failed);
+    }
+}
\ No newline at end of file
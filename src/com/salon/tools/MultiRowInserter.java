@@ -0,0 +1,104 @@
+package com.salon.tools;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+// Bulk loader for one table: rows are buffered in memory and written as multi-row
+// INSERT ... VALUES (...), (...), ... statements of rowsPerStatement rows each, so loading costs
+// one round trip per few hundred rows instead of one per row. Nothing is written before flush();
+// the caller owns the transaction and decides when to commit.
+public class MultiRowInserter implements AutoCloseable {
+
+    private final Connection conn;
+    private final String prefix;
+    private final String rowPlaceholders;
+    private final int columns;
+    private final int rowsPerStatement;
+    private final List<Object> buffer = new ArrayList<>();
+    private PreparedStatement fullStatement; // reused for every full chunk
+    private long written;
+
+    public MultiRowInserter(Connection conn, String table, int rowsPerStatement, String... columns) {
+        this.conn = conn;
+        this.columns = columns.length;
+        this.rowsPerStatement = rowsPerStatement;
+        this.prefix = "INSERT INTO " + table + " (" + String.join(", ", columns) + ") VALUES ";
+        this.rowPlaceholders = "(" + String.join(", ", Collections.nCopies(columns.length, "?")) + ")";
+    }
+
+    // One row, values in column order (null is fine)
+    public void add(Object... values) {
+        if (values.length != columns) {
+            throw new IllegalArgumentException("Expected " + columns + " values, got " + values.length);
+        }
+        Collections.addAll(buffer, values);
+    }
+
+    public int getPending() {
+        return buffer.size() / columns;
+    }
+
+    public long getWritten() {
+        return written;
+    }
+
+    // Write everything buffered so far
+    public void flush() throws SQLException {
+        int rows = getPending();
+        int row = 0;
+        while (rows - row >= rowsPerStatement) {
+            if (fullStatement == null) {
+                fullStatement = conn.prepareStatement(sql(rowsPerStatement));
+            }
+            bind(fullStatement, row, rowsPerStatement);
+            fullStatement.executeUpdate();
+            row += rowsPerStatement;
+        }
+        if (row < rows) {
+            try (PreparedStatement ps = conn.prepareStatement(sql(rows - row))) {
+                bind(ps, row, rows - row);
+                ps.executeUpdate();
+            }
+        }
+        written += rows;
+        buffer.clear();
+    }
+
+    @Override
+    public void close() throws SQLException {
+        if (fullStatement != null) {
+            fullStatement.close();
+            fullStatement = null;
+        }
+    }
+
+    private String sql(int rows) {
+        StringBuilder sb = new StringBuilder(prefix.length() + rows * (rowPlaceholders.length() + 2));
+        sb.append(prefix);
+        for (int i = 0; i < rows; i++) {
+            if (i > 0) {
+                sb.append(", ");
+            }
+            sb.append(rowPlaceholders);
+        }
+        return sb.toString();
+    }
+
+    private void bind(PreparedStatement ps, int firstRow, int rows) throws SQLException {
+        int from = firstRow * columns;
+        int count = rows * columns;
+        for (int i = 0; i < count; i++) {
+            Object value = buffer.get(from + i);
+            if (value == null) {
+                ps.setNull(i + 1, Types.NULL);
+            } else {
+                ps.setObject(i + 1, value);
+            }
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,82 @@
+package com.salon.tools;
+
+import com.salon.dao.LotConsumptionService;
+import com.salon.dao.StockLedgerDAO;
+import com.salon.util.DBConnection;
+import java.util.List;
+import java.util.Map;
+
+// Command line maintenance for the stock_balances table.
+//   verify  - recompute balances from stock_entries/stock_movements and print any drift (exit 1 if drifted)
+//   rebuild - replace stock_balances with the recomputed values
+//   repair-lots [--dry-run] - recompute quantity_consumed / stock_status of every stock entry
+//                             from the movements (see LotConsumptionService.repair)
+public class StockLedgerTool {
+
+    public static void main(String[] args) {
+        String command = args.length > 0 ? args[0] : "verify";
+        StockLedgerDAO ledger = new StockLedgerDAO();
+        int exitCode = 0;
+
+        try {
+            switch (command) {
+                case "verify":
+                    exitCode = printDrift(ledger.verify());
+                    break;
+                case "rebuild":
+                    if (!ledger.rebuild()) {
+                        System.err.println("Rebuild failed, stock_balances left unchanged.");
+                        exitCode = 2;
+                        break;
+                    }
+                    System.out.println("stock_balances rebuilt from the raw ledger.");
+                    exitCode = printDrift(ledger.verify());
+                    break;
+                case "repair-lots":
+                    boolean dryRun = args.length > 1 && "--dry-run".equals(args[1]);
+                    int[] result = new LotConsumptionService().repair(dryRun);
+                    if (result == null) {
+                        System.err.println("Lot repair failed.");
+                        exitCode = 2;
+                        break;
+                    }
+                    System.out.printf("%s %d products: %d lots %s, %d of them newly COMPLETED.%n",
+                            dryRun ? "Checked" : "Repaired", result[0], result[1],
+                            dryRun ? "would change" : "changed", result[2]);
+                    break;
+                default:
+                    System.err.println("Usage: StockLedgerTool [verify|rebuild|repair-lots [--dry-run]]");
+                    exitCode = 2;
+            }
+        } finally {
+            DBConnection.shutdown();
+        }
+        System.exit(exitCode);
+    }
+
+    private static int printDrift(List<Map<String, Object>> drift) {
+        if (drift.isEmpty()) {
+            System.out.println("No drift: stock_balances matches the raw ledger.");
+            return 0;
+        }
+        System.out.println(drift.size() + " product(s) drifted:");
+        for (Map<String, Object> row : drift) {
+            StringBuilder line = new StringBuilder();
+            line.append("  #").append(row.get("product_id")).append(' ').append(row.get("name"));
+            if ((Boolean) row.get("missing")) {
+                line.append(" [no balance row]");
+            }
+            for (String key : row.keySet()) {
+                if (!key.startsWith("expected_")) continue;
+                String column = key.substring("expected_".length());
+                double expected = (Double) row.get(key);
+                double stored = (Double) row.get("stored_" + column);
+                if (Math.abs(expected - stored) > 0.0001) {
+                    line.append(String.format(" %s: stored=%.4f expected=%.4f", column, stored, expected));
+                }
+            }
+            System.out.println(line);
+        }
+        return 1;
+    }
+}
\ No newline at end of file
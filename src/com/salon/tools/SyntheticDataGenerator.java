@@ -0,0 +1,615 @@
+package com.salon.tools;
+
+import com.salon.dao.CustomerKeySchema;
+import com.salon.dao.KeySequence;
+import com.salon.dao.StockLedgerDAO;
+import com.salon.model.Customer;
+import com.salon.model.InvoiceItem;
+import com.salon.model.InvoiceService;
+import com.salon.model.MembershipPlan;
+import com.salon.model.Product;
+import com.salon.model.StockEntry;
+import com.salon.model.StockMovement;
+import com.salon.util.DBConnection;
+import com.salon.util.PhoneNumbers;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.List;
+import java.util.Random;
+
+// Seeds a scratch database with a reproducible synthetic salon for scale testing.
+//
+//   java com.salon.tools.SyntheticDataGenerator [scale] [seed] [years]
+//
+// scale is 1k, 100k, 10M or a plain number (default 1k): the number of stock movements (product
+// usage + product sales) to produce, laid out day by day over the last 'years' years (default 2).
+// Everything else follows from it: scale/500 products (20..5000), scale/10 customers, about one
+// invoice per two movements, and as many stock lots as the consumption needs.
+//
+// The data is built from the model classes and is consistent by construction:
+//  - the day is simulated in order: every usage or sale takes its quantity from the product's oldest
+//    open lot, a new lot is bought in when the open ones cannot cover it, so quantity_consumed,
+//    stock_status and the invoice_item_lots rows agree with the movements (repair-lots finds nothing)
+//  - members (a third of the customers, on one of three SYN plans) get their plan's discount on services
+//  - the service mix and the volume follow the season: weddings in winter, spa and waxing in summer,
+//    busy festive months and weekends; prices drift up a few percent a year
+// Rows are bulk-loaded with multi-row INSERTs (MultiRowInserter) and committed every COMMIT_ROWS rows;
+// afterwards stock_balances is rebuilt. The same scale, seed and years always produce the same rows.
+// The schema (base tables plus sql/*.sql) must already exist. Generated rows are recognisable by
+// the SYN- customer ids, "SYN Product" names and SYN plans.
+public class SyntheticDataGenerator {
+
+    private static final int ROWS_PER_STATEMENT = 500;
+    private static final int COMMIT_ROWS = 50000;
+    private static final long HOUR_MS = 60L * 60 * 1000;
+    private static final long DAY_MS = 24 * HOUR_MS;
+    private static final long OPEN_MS = 10 * HOUR_MS;  // salon opens at 10:00
+    private static final long SPAN_MS = 11 * HOUR_MS;  // ... and closes at 21:00
+    private static final double EPSILON = 0.001;
+    private static final double MOVEMENTS_PER_INVOICE = 1.8; // rough, only used to space invoices over the day
+
+    private static final String[] SERVICES = {"Haircut", "Hair Color", "Facial", "Manicure", "Pedicure",
+            "Hair Spa", "Beard Trim", "Threading", "Waxing", "Bridal Makeup"};
+    private static final double[] SERVICE_PRICES = {300, 1500, 800, 400, 500, 1200, 150, 100, 600, 8000};
+    // Chance that a service uses up a product
+    private static final double[] SERVICE_USAGE = {0.3, 0.9, 0.8, 0.5, 0.5, 0.9, 0.1, 0.0, 0.7, 1.0};
+    // Relative demand per service, January..December
+    private static final double[][] SEASON = {
+            {10, 10, 10, 10, 10, 10, 10, 10, 10, 10, 10, 10},
+            {5, 4, 3, 4, 4, 3, 3, 3, 4, 6, 7, 7},
+            {5, 4, 4, 5, 6, 5, 4, 4, 4, 6, 7, 7},
+            {3, 3, 3, 3, 3, 3, 3, 3, 3, 4, 5, 5},
+            {2, 2, 3, 4, 5, 5, 4, 3, 3, 3, 3, 2},
+            {2, 2, 3, 4, 5, 5, 5, 4, 3, 2, 2, 2},
+            {3, 3, 3, 3, 3, 3, 3, 3, 3, 3, 3, 3},
+            {6, 6, 6, 6, 6, 6, 6, 6, 6, 6, 6, 6},
+            {2, 2, 3, 5, 6, 6, 4, 3, 3, 3, 2, 2},
+            {2.0, 1.5, 0.5, 1.0, 1.0, 0.3, 0.1, 0.1, 0.3, 0.8, 2.5, 2.5}};
+    // Relative footfall per month; weekends get WEEKEND_VOLUME on top
+    private static final double[] MONTH_VOLUME = {1.10, 1.00, 0.95, 1.00, 1.05, 0.90, 0.85, 0.90, 0.95, 1.15, 1.20, 1.25};
+    private static final double WEEKEND_VOLUME = 1.3;
+
+    private static final String[] PLAN_NAMES = {"SYN Silver", "SYN Gold", "SYN Platinum"};
+    private static final double[] PLAN_DISCOUNTS = {5, 10, 15};
+    private static final double MEMBER_SHARE = 0.33;
+
+    private static final String[] BRANDS = {"Loreal", "Matrix", "Schwarzkopf", "Wella", "Lakme", "Streax"};
+    private static final String[] TYPES = {"SALE", "USAGE", "BOTH"};
+
+    // An open stock lot; its row is written once it is used up (or at the end), together with the
+    // allocation rows of the invoice lines it supplied, so it goes in with its final consumption
+    private static class Lot {
+        final StockEntry entry;
+        double consumed;
+        List<Object[]> allocations = new ArrayList<>();
+
+        Lot(StockEntry entry) {
+            this.entry = entry;
+        }
+
+        double available() {
+            return entry.getQuantity() - consumed;
+        }
+    }
+
+    private final int scale;
+    private final int years;
+    private final Random random;
+    private final long anchor;
+    private final long start;
+    private final int days;
+
+    // Simulation state
+    private int firstProduct;
+    private double[] baseCost;
+    private int[] saleProducts;
+    private double[] saleWeights;
+    private int[] usageProducts;
+    private double[] usageWeights;
+    private List<ArrayDeque<Lot>> openLots;
+    private double[] onHand;
+    private List<MembershipPlan> plans;
+    private byte[] customerPlan;  // index into plans, -1 for non-members
+    private int[] customerVisits; // invoices per customer, written to visit_count at the end
+    private long[] customerLastVisit;
+    private int initialCustomers;
+    private long firstCustomerKey; // customer i has key firstCustomerKey + i
+    private boolean keyedInvoices; // invoices have no customer_id column (sql/013 applied)
+    private int nextStockId;
+    private int nextInvoiceId;
+    private int nextItemId;
+    private long sales;
+    private long usage;
+
+    private MultiRowInserter planRows;
+    private MultiRowInserter productRows;
+    private MultiRowInserter customerRows;
+    private MultiRowInserter lotRows;
+    private MultiRowInserter invoiceRows;
+    private MultiRowInserter serviceRows;
+    private MultiRowInserter itemRows;
+    private MultiRowInserter allocationRows;
+    private MultiRowInserter movementRows;
+    private List<MultiRowInserter> inserters;
+
+    public SyntheticDataGenerator(int scale, long seed) {
+        this(scale, seed, 2);
+    }
+
+    public SyntheticDataGenerator(int scale, long seed, int years) {
+        this.scale = scale;
+        this.years = years;
+        this.random = new Random(seed);
+        Calendar cal = Calendar.getInstance();
+        cal.set(Calendar.HOUR_OF_DAY, 0);
+        cal.set(Calendar.MINUTE, 0);
+        cal.set(Calendar.SECOND, 0);
+        cal.set(Calendar.MILLISECOND, 0);
+        this.anchor = cal.getTimeInMillis();
+        cal.add(Calendar.YEAR, -years);
+        this.start = cal.getTimeInMillis();
+        this.days = (int) Math.round((anchor - start) / (double) DAY_MS);
+    }
+
+    public static void main(String[] args) throws Exception {
+        int scale = args.length > 0 ? parseScale(args[0]) : 1000;
+        long seed = args.length > 1 ? Long.parseLong(args[1]) : 42L;
+        int years = args.length > 2 ? Integer.parseInt(args[2]) : 2;
+        try {
+            long begin = System.nanoTime();
+            new SyntheticDataGenerator(scale, seed, years).generate();
+            System.out.printf("Generated scale %d (seed %d, %d years) in %.1f s%n",
+                    scale, seed, years, (System.nanoTime() - begin) / 1e9);
+        } finally {
+            DBConnection.shutdown();
+        }
+    }
+
+    // "1k" / "100k" / "1M" / "2500"
+    public static int parseScale(String value) {
+        String v = value.trim().toLowerCase();
+        if (v.endsWith("k")) return Integer.parseInt(v.substring(0, v.length() - 1)) * 1000;
+        if (v.endsWith("m")) return Integer.parseInt(v.substring(0, v.length() - 1)) * 1000000;
+        return Integer.parseInt(v);
+    }
+
+    public int getProductCount() {
+        return Math.max(20, Math.min(5000, scale / 500));
+    }
+
+    public int getCustomerCount() {
+        return Math.max(50, scale / 10);
+    }
+
+    public void generate() throws Exception {
+        long begin = System.nanoTime();
+        try (Connection conn = DBConnection.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                openInserters(conn);
+                insertPlans(conn);
+                insertProducts(conn);
+                insertCustomers(conn);
+                nextStockId = nextId(conn, "stock_entries", "stock_id");
+                nextInvoiceId = nextId(conn, "invoices", "invoice_id");
+                nextItemId = nextId(conn, "invoice_items", "item_id");
+                simulate(conn);
+                flushAll(conn);
+                updateVisits(conn);
+            } catch (Exception e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                for (MultiRowInserter inserter : inserters) {
+                    inserter.close();
+                }
+                conn.setAutoCommit(true);
+            }
+        }
+
+        long rows = 0;
+        for (MultiRowInserter inserter : inserters) {
+            rows += inserter.getWritten();
+        }
+        double seconds = (System.nanoTime() - begin) / 1e9;
+        System.out.println("  plans:       " + planRows.getWritten());
+        System.out.println("  products:    " + productRows.getWritten());
+        System.out.println("  customers:   " + customerRows.getWritten());
+        System.out.println("  lots:        " + lotRows.getWritten());
+        System.out.println("  invoices:    " + invoiceRows.getWritten() + " (" + serviceRows.getWritten() + " services, "
+                + itemRows.getWritten() + " product lines, " + allocationRows.getWritten() + " lot allocations)");
+        System.out.println("  movements:   " + movementRows.getWritten() + " (" + sales + " sales, " + usage + " usage)");
+        System.out.printf("  loaded %d rows in %.1f s (%.0f rows/s)%n", rows, seconds, rows / Math.max(seconds, 0.001));
+
+        if (!new StockLedgerDAO().rebuild()) {
+            throw new IllegalStateException("stock_balances rebuild failed");
+        }
+    }
+
+    // Parents before children, so every flush satisfies the foreign keys
+    private void openInserters(Connection conn) {
+        planRows = new MultiRowInserter(conn, "membership_plans", ROWS_PER_STATEMENT,
+                "plan_id", "plan_name", "discount_percentage", "description", "is_active");
+        productRows = new MultiRowInserter(conn, "products", ROWS_PER_STATEMENT,
+                "product_id", "sku", "name", "brand", "product_type", "description", "is_discontinued");
+        customerRows = new MultiRowInserter(conn, "customers", ROWS_PER_STATEMENT,
+                "customer_id", "customer_key", "name", "phone", "phone_normalized", "address", "created_at", "membership_plan_id");
+        lotRows = new MultiRowInserter(conn, "stock_entries", ROWS_PER_STATEMENT,
+                "stock_id", "product_id", "add_date", "quantity", "actual_price_per_unit", "selling_price_per_unit",
+                "notes", "stock_status", "quantity_consumed");
+        keyedInvoices = CustomerKeySchema.isKeyed();
+        invoiceRows = keyedInvoices
+                ? new MultiRowInserter(conn, "invoices", ROWS_PER_STATEMENT,
+                        "invoice_id", "customer_key", "invoice_date", "total_services", "total_products", "total_amount",
+                        "invoice_filename")
+                : new MultiRowInserter(conn, "invoices", ROWS_PER_STATEMENT,
+                        "invoice_id", "customer_id", "customer_key", "invoice_date", "total_services", "total_products", "total_amount",
+                        "invoice_filename");
+        serviceRows = new MultiRowInserter(conn, "invoice_services", ROWS_PER_STATEMENT,
+                "invoice_id", "service_name", "price", "discount_amount", "final_price");
+        itemRows = new MultiRowInserter(conn, "invoice_items", ROWS_PER_STATEMENT,
+                "item_id", "invoice_id", "product_id", "quantity", "selling_price_per_unit", "actual_price_per_unit",
+                "subtotal");
+        allocationRows = new MultiRowInserter(conn, "invoice_item_lots", ROWS_PER_STATEMENT,
+                "invoice_id", "item_id", "product_id", "stock_id", "quantity", "unit_cost");
+        movementRows = new MultiRowInserter(conn, "stock_movements", ROWS_PER_STATEMENT,
+                "product_id", "movement_date", "quantity_changed", "movement_type", "reference_id", "remarks");
+        inserters = Arrays.asList(planRows, productRows, customerRows, lotRows, invoiceRows, serviceRows,
+                itemRows, allocationRows, movementRows);
+    }
+
+    private void insertPlans(Connection conn) throws SQLException {
+        int first = nextId(conn, "membership_plans", "plan_id");
+        plans = new ArrayList<>();
+        for (int i = 0; i < PLAN_NAMES.length; i++) {
+            MembershipPlan plan = new MembershipPlan(first + i, PLAN_NAMES[i], PLAN_DISCOUNTS[i]);
+            plan.setDescription("Synthetic plan, " + (int) PLAN_DISCOUNTS[i] + "% off services");
+            plan.setActive(true);
+            plans.add(plan);
+            planRows.add(plan.getPlanId(), plan.getPlanName(), plan.getDiscountPercentage(), plan.getDescription(),
+                    plan.isActive() ? 1 : 0);
+        }
+    }
+
+    private void insertProducts(Connection conn) throws SQLException {
+        int count = getProductCount();
+        firstProduct = nextId(conn, "products", "product_id");
+        baseCost = new double[count];
+        onHand = new double[count];
+        openLots = newLotQueues(count);
+
+        // Zipf-like popularity: a few best sellers, a long tail
+        List<Integer> sale = new ArrayList<>();
+        List<Integer> use = new ArrayList<>();
+        for (int p = 0; p < count; p++) {
+            Product product = new Product();
+            product.setProductId(firstProduct + p);
+            product.setSku(String.format("SYN-%05d", firstProduct + p));
+            product.setName("SYN Product " + (firstProduct + p));
+            product.setBrand(BRANDS[random.nextInt(BRANDS.length)]);
+            product.setProductType(p == 0 ? "BOTH" : TYPES[random.nextInt(TYPES.length)]);
+            product.setDescription("Synthetic product");
+            productRows.add(product.getProductId(), product.getSku(), product.getName(), product.getBrand(),
+                    product.getProductType(), product.getDescription(), product.isDiscontinued() ? 1 : 0);
+
+            baseCost[p] = 50 + random.nextInt(451);
+            if (!"USAGE".equals(product.getProductType())) {
+                sale.add(p);
+            }
+            if (!"SALE".equals(product.getProductType())) {
+                use.add(p);
+            }
+        }
+        saleProducts = sale.stream().mapToInt(Integer::intValue).toArray();
+        saleWeights = zipf(saleProducts.length);
+        usageProducts = use.stream().mapToInt(Integer::intValue).toArray();
+        usageWeights = zipf(usageProducts.length);
+    }
+
+    // A fifth of the customers exist before the simulated period, the rest sign up evenly during it
+    private void insertCustomers(Connection conn) throws SQLException {
+        int count = getCustomerCount();
+        customerPlan = new byte[count];
+        customerVisits = new int[count];
+        customerLastVisit = new long[count];
+        firstCustomerKey = KeySequence.reserve(KeySequence.CUSTOMERS, count);
+        initialCustomers = Math.max(1, count / 5);
+        for (int i = 0; i < count; i++) {
+            long created = i < initialCustomers
+                    ? start - 1 - (long) (random.nextDouble() * 365 * DAY_MS)
+                    : start + (long) ((i - initialCustomers) / (double) (count - initialCustomers) * (anchor - start));
+            customerPlan[i] = random.nextDouble() < MEMBER_SHARE ? (byte) random.nextInt(plans.size()) : -1;
+
+            Customer customer = new Customer();
+            customer.setCustomerId(customerId(i));
+            customer.setName("Synthetic Customer " + i);
+            customer.setPhone(String.format("8%09d", i));
+            customer.setAddress("Street " + (i % 997));
+            customer.setCreatedAt(new Timestamp(created));
+            customer.setMembershipPlanId(customerPlan[i] >= 0 ? plans.get(customerPlan[i]).getPlanId() : null);
+            customerRows.add(customer.getCustomerId(), firstCustomerKey + i, customer.getName(), customer.getPhone(),
+                    PhoneNumbers.normalize(customer.getPhone()), customer.getAddress(),
+                    customer.getCreatedAt(), customer.getMembershipPlanId());
+            flushIfFull(conn);
+        }
+    }
+
+    // Day by day, oldest first; each day's movement budget follows the season and the weekday
+    private void simulate(Connection conn) throws SQLException {
+        double meanVolume = Arrays.stream(MONTH_VOLUME).average().orElse(1) * (5 + 2 * WEEKEND_VOLUME) / 7;
+        double perDay = scale / (double) days;
+        double budget = 0;
+        Calendar cal = Calendar.getInstance();
+        int reportEvery = Math.max(1, days / 10);
+
+        for (int d = 0; d < days; d++) {
+            long dayStart = start + d * DAY_MS;
+            cal.setTimeInMillis(dayStart);
+            int month = cal.get(Calendar.MONTH);
+            int weekday = cal.get(Calendar.DAY_OF_WEEK);
+            double volume = MONTH_VOLUME[month]
+                    * (weekday == Calendar.SATURDAY || weekday == Calendar.SUNDAY ? WEEKEND_VOLUME : 1);
+            budget += perDay * volume / meanVolume;
+
+            // Customers who had signed up before this day
+            int customers = initialCustomers
+                    + (int) ((customerPlan.length - initialCustomers) * (long) d / days);
+            double gap = SPAN_MS / Math.max(1, budget / MOVEMENTS_PER_INVOICE);
+            long when = dayStart + OPEN_MS;
+            while (budget >= 1) {
+                when = Math.min(dayStart + OPEN_MS + SPAN_MS, when + (long) (random.nextDouble() * 2 * gap));
+                budget -= simulateInvoice(when, month, customers);
+                flushIfFull(conn);
+            }
+
+            if ((d + 1) % reportEvery == 0) {
+                System.out.printf("  day %d/%d: %d movements%n", d + 1, days, sales + usage);
+            }
+        }
+
+        // Lots still open at the end go in with what has been used of them so far
+        for (ArrayDeque<Lot> lots : openLots) {
+            for (Lot lot : lots) {
+                writeLot(lot);
+            }
+            lots.clear();
+        }
+    }
+
+    // One visit: services (with usage and the member discount) and product sales. Returns the movements it made.
+    private int simulateInvoice(long when, int month, int customers) {
+        int invoiceId = nextInvoiceId++;
+        int c = random.nextInt(customers);
+        customerVisits[c]++;
+        customerLastVisit[c] = when;
+        String customerId = customerId(c);
+        String customerName = "Synthetic Customer " + c;
+        double discountPercent = customerPlan[c] >= 0 ? plans.get(customerPlan[c]).getDiscountPercentage() : 0;
+        double drift = 1 + 0.06 * (when - start) / (365.0 * DAY_MS); // prices go up ~6% a year
+        Timestamp at = new Timestamp(when);
+        int movements = 0;
+
+        double serviceTotal = 0;
+        int serviceCount = 1 + (random.nextDouble() < 0.35 ? 1 : 0) + (random.nextDouble() < 0.10 ? 1 : 0);
+        for (int s = 0; s < serviceCount; s++) {
+            int k = pickService(month);
+            InvoiceService service = new InvoiceService(null, SERVICES[k], Math.round(SERVICE_PRICES[k] * drift / 10) * 10.0);
+            double discount = service.getPrice() * (discountPercent / 100.0);
+            serviceRows.add(invoiceId, service.getServiceName(), service.getPrice(), discount, service.getPrice() - discount);
+            serviceTotal += service.getPrice() - discount;
+
+            if (random.nextDouble() < SERVICE_USAGE[k]) {
+                int p = usageProducts[pick(usageWeights)];
+                StockMovement movement = new StockMovement();
+                movement.setProductId(firstProduct + p);
+                movement.setMovementDate(at);
+                movement.setQuantityChanged(-1);
+                movement.setMovementType("USAGE");
+                movement.setRemarks("Used for " + service.getServiceName());
+                consume(p, 1, when, 0, 0);
+                addMovement(movement);
+                usage++;
+                movements++;
+            }
+        }
+
+        double productTotal = 0;
+        double r = random.nextDouble();
+        int lineCount = r < 0.55 ? 0 : r < 0.85 ? 1 : 2;
+        int previous = -1;
+        for (int l = 0; l < lineCount; l++) {
+            int p = saleProducts[pick(saleWeights)];
+            if (p == previous) {
+                continue; // one line per product
+            }
+            previous = p;
+            InvoiceItem item = new InvoiceItem();
+            item.setItemId(nextItemId++);
+            item.setInvoiceId(invoiceId);
+            item.setProductId(firstProduct + p);
+            item.setQuantity(1 + (random.nextDouble() < 0.2 ? 1 : 0) + (random.nextDouble() < 0.05 ? 1 : 0));
+            // The line is priced from the lot it is sold from, like the sales panel does
+            StockEntry lot = consume(p, item.getQuantity(), when, invoiceId, item.getItemId());
+            item.setActualPricePerUnit(lot.getActualPricePerUnit());
+            item.setSellingPricePerUnit(lot.getSellingPricePerUnit());
+            itemRows.add(item.getItemId(), item.getInvoiceId(), item.getProductId(), item.getQuantity(),
+                    item.getSellingPricePerUnit(), item.getActualPricePerUnit(), item.getSubtotal());
+            productTotal += item.getSubtotal();
+
+            StockMovement movement = new StockMovement();
+            movement.setProductId(item.getProductId());
+            movement.setMovementDate(at);
+            movement.setQuantityChanged(-item.getQuantity());
+            movement.setMovementType("SALE");
+            movement.setReferenceId(invoiceId);
+            movement.setRemarks("Product sold to " + customerName);
+            addMovement(movement);
+            sales++;
+            movements++;
+        }
+
+        if (keyedInvoices) {
+            invoiceRows.add(invoiceId, firstCustomerKey + c, at, serviceTotal, productTotal, serviceTotal + productTotal,
+                    "invoice_" + customerId + ".pdf");
+        } else {
+            invoiceRows.add(invoiceId, customerId, firstCustomerKey + c, at, serviceTotal, productTotal, serviceTotal + productTotal,
+                    "invoice_" + customerId + ".pdf");
+        }
+        return movements;
+    }
+
+    // FIFO: take quantity from the product's oldest open lots, buying in a new lot first when they
+    // cannot cover it. Sales (invoiceId > 0) record which lot supplied the line. Returns the first lot used.
+    private StockEntry consume(int p, double quantity, long when, int invoiceId, int itemId) {
+        while (onHand[p] < quantity - EPSILON) {
+            restock(p, when);
+        }
+        ArrayDeque<Lot> lots = openLots.get(p);
+        StockEntry first = lots.peekFirst().entry;
+        double remaining = quantity;
+        while (remaining > EPSILON) {
+            Lot lot = lots.peekFirst();
+            double take = Math.min(remaining, lot.available());
+            lot.consumed += take;
+            onHand[p] -= take;
+            remaining -= take;
+            if (invoiceId > 0) {
+                lot.allocations.add(new Object[]{invoiceId, itemId, firstProduct + p, lot.entry.getStockId(),
+                        take, lot.entry.getActualPricePerUnit()});
+            }
+            if (lot.available() <= EPSILON) {
+                lots.pollFirst();
+                writeLot(lot);
+            }
+        }
+        return first;
+    }
+
+    // A delivery dated the day it was needed; cost follows the product's base cost, the yearly drift and a little noise
+    private void restock(int p, long when) {
+        double drift = 1 + 0.05 * (when - start) / (365.0 * DAY_MS);
+        double cost = Math.round(baseCost[p] * drift * (0.95 + random.nextDouble() * 0.1));
+        StockEntry entry = new StockEntry();
+        entry.setStockId(nextStockId++);
+        entry.setProductId(firstProduct + p);
+        entry.setAddDate(new java.sql.Date(when - (when - start) % DAY_MS));
+        entry.setQuantity(10 + random.nextInt(51));
+        entry.setActualPricePerUnit(cost);
+        entry.setSellingPricePerUnit(Math.round(cost * 1.4));
+        entry.setNotes("Synthetic lot");
+        openLots.get(p).addLast(new Lot(entry));
+        onHand[p] += entry.getQuantity();
+    }
+
+    private void writeLot(Lot lot) {
+        StockEntry e = lot.entry;
+        boolean completed = lot.available() <= EPSILON;
+        lotRows.add(e.getStockId(), e.getProductId(), e.getAddDate(), e.getQuantity(), e.getActualPricePerUnit(),
+                e.getSellingPricePerUnit(), e.getNotes(), completed ? "COMPLETED" : "RUNNING",
+                completed ? e.getQuantity() : lot.consumed);
+        for (Object[] allocation : lot.allocations) {
+            allocationRows.add(allocation);
+        }
+        lot.allocations = null;
+    }
+
+    private void addMovement(StockMovement m) {
+        movementRows.add(m.getProductId(), m.getMovementDate(), m.getQuantityChanged(), m.getMovementType(),
+                m.getReferenceId(), m.getRemarks());
+    }
+
+    private void flushIfFull(Connection conn) throws SQLException {
+        int pending = 0;
+        for (MultiRowInserter inserter : inserters) {
+            pending += inserter.getPending();
+        }
+        if (pending >= COMMIT_ROWS) {
+            flushAll(conn);
+        }
+    }
+
+    // Every invoice is a visit of an existing customer (one row per phone number, like the app)
+    private void updateVisits(Connection conn) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement(
+                "UPDATE customers SET visit_count = ?, last_visit = ? WHERE customer_id = ?")) {
+            for (int i = 0; i < customerVisits.length; i++) {
+                ps.setInt(1, customerVisits[i]);
+                ps.setTimestamp(2, customerVisits[i] > 0 ? new Timestamp(customerLastVisit[i]) : null);
+                ps.setString(3, customerId(i));
+                ps.addBatch();
+                if ((i + 1) % ROWS_PER_STATEMENT == 0) {
+                    ps.executeBatch();
+                }
+            }
+            ps.executeBatch();
+        }
+        conn.commit();
+    }
+
+    private void flushAll(Connection conn) throws SQLException {
+        for (MultiRowInserter inserter : inserters) {
+            inserter.flush();
+        }
+        conn.commit();
+    }
+
+    private int pickService(int month) {
+        double total = 0;
+        for (double[] season : SEASON) {
+            total += season[month];
+        }
+        double x = random.nextDouble() * total;
+        for (int k = 0; k < SEASON.length; k++) {
+            x -= SEASON[k][month];
+            if (x < 0) {
+                return k;
+            }
+        }
+        return 0;
+    }
+
+    // Index drawn from cumulative weights
+    private int pick(double[] cumulative) {
+        int i = Arrays.binarySearch(cumulative, random.nextDouble() * cumulative[cumulative.length - 1]);
+        return Math.min(cumulative.length - 1, i >= 0 ? i : -i - 1);
+    }
+
+    private double[] zipf(int n) {
+        double[] cumulative = new double[n];
+        double sum = 0;
+        for (int i = 0; i < n; i++) {
+            sum += 1 / Math.pow(i + 1, 0.8);
+            cumulative[i] = sum;
+        }
+        return cumulative;
+    }
+
+    private static List<ArrayDeque<Lot>> newLotQueues(int count) {
+        List<ArrayDeque<Lot>> queues = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            queues.add(new ArrayDeque<>());
+        }
+        return queues;
+    }
+
+    private static String customerId(int i) {
+        return String.format("SYN-%07d", i);
+    }
+
+    private static int nextId(Connection conn, String table, String column) throws SQLException {
+        try (Statement st = conn.createStatement();
+             ResultSet rs = st.executeQuery("SELECT COALESCE(MAX(" + column + "), 0) + 1 FROM " + table)) {
+            rs.next();
+            return rs.getInt(1);
+        }
+    }
+}
\ No newline at end of file
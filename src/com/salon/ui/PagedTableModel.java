@@ -0,0 +1,252 @@
+package com.salon.ui;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import javax.swing.JProgressBar;
+import javax.swing.SwingUtilities;
+import javax.swing.table.AbstractTableModel;
+
+// Lazy, read-only table model for large result sets.
+// Only the row count is known up front (from a COUNT query); rows are fetched a page at a time
+// on a background thread the first time the table asks for them, and at most maxCachedPages pages
+// are kept (LRU). Pages are fetched with keyset paging: the last item of the previous page is
+// handed to the source as the "after" key. When the previous page's key is not known (the user
+// dragged the scrollbar far ahead) the source falls back to an offset for that one page.
+public class PagedTableModel<T> extends AbstractTableModel {
+
+    private static final long serialVersionUID = 1L;
+
+    // Data access for one listing; both methods run off the EDT
+    public interface PageSource<T> {
+        int count() throws Exception;
+
+        // Rows after 'after' in the listing order, or (when after is null) starting at 'offset'
+        List<T> fetchPage(T after, int offset, int limit) throws Exception;
+    }
+
+    // Runs on the worker thread; turns one item into a table row
+    public interface RowMapper<T> {
+        Object[] toRow(T item);
+    }
+
+    private static final String LOADING = "Loading...";
+
+    private final String[] columns;
+    private final RowMapper<T> mapper;
+    private final int pageSize;
+    private final int maxCachedPages;
+    private final ExecutorService fetcher;
+
+    private PageSource<T> source;
+    private JProgressBar progressBar;
+    private Runnable onRefreshed;
+
+    // EDT-only state
+    private int rowCount;
+    private volatile int generation; // bumped on refresh; also read by the fetcher to skip stale work
+    private final Map<Integer, Page<T>> pages;
+    private final Map<Integer, T> pageLastKeys = new HashMap<>(); // one key per page seen, for keyset paging
+    private final Set<Integer> pending = new HashSet<>();
+
+    private static class Page<T> {
+        final List<T> items;
+        final Object[][] rows;
+
+        Page(List<T> items, Object[][] rows) {
+            this.items = items;
+            this.rows = rows;
+        }
+    }
+
+    public PagedTableModel(String[] columns, RowMapper<T> mapper, int pageSize, int maxCachedPages) {
+        this.columns = columns;
+        this.mapper = mapper;
+        this.pageSize = pageSize;
+        this.maxCachedPages = maxCachedPages;
+        this.pages = new LinkedHashMap<Integer, Page<T>>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, Page<T>> eldest) {
+                return size() > PagedTableModel.this.maxCachedPages;
+            }
+        };
+        this.fetcher = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "salon-table-pager");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    public PagedTableModel(String[] columns, RowMapper<T> mapper) {
+        this(columns, mapper, 200, 50);
+    }
+
+    public void setProgressBar(JProgressBar progressBar) {
+        this.progressBar = progressBar;
+        if (progressBar != null) {
+            progressBar.setStringPainted(true);
+            progressBar.setVisible(false);
+        }
+    }
+
+    // Called on the EDT once the new row count is known
+    public void setOnRefreshed(Runnable onRefreshed) {
+        this.onRefreshed = onRefreshed;
+    }
+
+    // Switch to a new listing (e.g. a filter change); cached pages of the old one are dropped. EDT only.
+    public void setSource(PageSource<T> source) {
+        this.source = source;
+        refresh();
+    }
+
+    // Re-count and drop cached pages; rows are fetched again as they are displayed. EDT only.
+    public void refresh() {
+        final int gen = ++generation;
+        pages.clear();
+        pageLastKeys.clear();
+        pending.clear();
+        rowCount = 0;
+        fireTableDataChanged();
+
+        final PageSource<T> src = source;
+        if (src == null) {
+            return;
+        }
+        if (progressBar != null) {
+            progressBar.setIndeterminate(true);
+            progressBar.setString("Loading...");
+            progressBar.setVisible(true);
+        }
+        fetcher.execute(() -> {
+            int count;
+            try {
+                count = src.count();
+            } catch (Exception e) {
+                e.printStackTrace();
+                count = 0;
+            }
+            final int total = count;
+            SwingUtilities.invokeLater(() -> {
+                if (gen != generation) {
+                    return;
+                }
+                rowCount = total;
+                if (progressBar != null) {
+                    progressBar.setVisible(false);
+                }
+                fireTableDataChanged();
+                if (onRefreshed != null) {
+                    onRefreshed.run();
+                }
+            });
+        });
+    }
+
+    // The item behind a row, or null if its page is not loaded right now. EDT only.
+    public T getItem(int row) {
+        Page<T> page = pages.get(row / pageSize);
+        int index = row % pageSize;
+        if (page == null || index >= page.items.size()) {
+            return null;
+        }
+        return page.items.get(index);
+    }
+
+    @Override
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    @Override
+    public int getColumnCount() {
+        return columns.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return columns[column];
+    }
+
+    @Override
+    public boolean isCellEditable(int row, int column) {
+        return false;
+    }
+
+    @Override
+    public Object getValueAt(int row, int column) {
+        int pageIndex = row / pageSize;
+        Page<T> page = pages.get(pageIndex);
+        if (page == null) {
+            requestPage(pageIndex);
+            return column == 0 ? LOADING : "";
+        }
+        int index = row % pageSize;
+        if (index >= page.rows.length) {
+            return ""; // listing shrank since it was counted
+        }
+        if (index > pageSize * 3 / 4) {
+            requestPage(pageIndex + 1); // prefetch so scrolling down does not stall
+        }
+        return page.rows[index][column];
+    }
+
+    // Stop the background fetcher (when the owning panel is discarded)
+    public void dispose() {
+        fetcher.shutdownNow();
+    }
+
+    private void requestPage(int pageIndex) {
+        if (source == null || pageIndex * pageSize >= rowCount
+                || pages.containsKey(pageIndex) || !pending.add(pageIndex)) {
+            return;
+        }
+        final int gen = generation;
+        final PageSource<T> src = source;
+        final T after = pageIndex > 0 ? pageLastKeys.get(pageIndex - 1) : null;
+        final int offset = pageIndex * pageSize;
+
+        fetcher.execute(() -> {
+            Page<T> page;
+            try {
+                if (gen != generation) {
+                    return; // superseded before it ran
+                }
+                List<T> items = src.fetchPage(after, after != null ? 0 : offset, pageSize);
+                Object[][] rows = new Object[items.size()][];
+                for (int i = 0; i < rows.length; i++) {
+                    rows[i] = mapper.toRow(items.get(i));
+                }
+                page = new Page<>(items, rows);
+            } catch (Exception e) {
+                e.printStackTrace();
+                page = null;
+            }
+            final Page<T> loaded = page;
+            SwingUtilities.invokeLater(() -> {
+                if (gen != generation) {
+                    return;
+                }
+                pending.remove(pageIndex);
+                if (loaded == null) {
+                    return;
+                }
+                pages.put(pageIndex, loaded);
+                if (!loaded.items.isEmpty()) {
+                    pageLastKeys.put(pageIndex, loaded.items.get(loaded.items.size() - 1));
+                }
+                int first = pageIndex * pageSize;
+                int last = Math.min(first + pageSize, rowCount) - 1;
+                if (last >= first) {
+                    fireTableRowsUpdated(first, last);
+                }
+            });
+        });
+    }
+}
\ No newline at end of file
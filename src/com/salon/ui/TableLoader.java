@@ -0,0 +1,198 @@
+package com.salon.ui;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.swing.JProgressBar;
+import javax.swing.SwingWorker;
+import javax.swing.table.DefaultTableModel;
+
+// Loads a table off the Event Dispatch Thread.
+// The query and the row mapping run on a SwingWorker thread; rows land in the model in chunks
+// (publish/process) so the table, progress bar and totals labels fill in while the load runs.
+// Starting a new load cancels the previous one and any of its chunks still queued are dropped.
+public class TableLoader<T> {
+
+    private static final int CHUNK_SIZE = 200;
+
+    // Runs on the worker thread (DAO calls go here)
+    public interface Query<T> {
+        List<T> fetch() throws Exception;
+    }
+
+    // Runs on the worker thread; turns one item into a table row
+    public interface RowMapper<T> {
+        Object[] toRow(T item);
+    }
+
+    // Runs on the EDT after each chunk is added; loaded = rows shown so far, total = rows expected
+    public interface ChunkListener<T> {
+        void onChunk(List<T> items, int loaded, int total);
+    }
+
+    private final DefaultTableModel model;
+    private final JProgressBar progressBar;
+    private Worker current;
+
+    public TableLoader(DefaultTableModel model, JProgressBar progressBar) {
+        this.model = model;
+        this.progressBar = progressBar;
+        if (progressBar != null) {
+            progressBar.setStringPainted(true);
+            progressBar.setVisible(false);
+        }
+    }
+
+    // Small progress bar for panels to drop next to their counters
+    public static JProgressBar createProgressBar() {
+        JProgressBar bar = new JProgressBar(0, 100);
+        bar.setPreferredSize(new java.awt.Dimension(160, 18));
+        return bar;
+    }
+
+    // Must be called on the EDT
+    public void load(Query<T> query, RowMapper<T> mapper, ChunkListener<T> listener, Runnable onDone) {
+        cancel();
+        model.setRowCount(0);
+        if (progressBar != null) {
+            progressBar.setIndeterminate(true);
+            progressBar.setString("Loading...");
+            progressBar.setVisible(true);
+        }
+        current = new Worker(query, mapper, listener, onDone);
+        current.execute();
+    }
+
+    public void load(Query<T> query, RowMapper<T> mapper) {
+        load(query, mapper, null, null);
+    }
+
+    public void cancel() {
+        if (current != null) {
+            current.cancel(true);
+            current = null;
+        }
+        if (progressBar != null) {
+            progressBar.setVisible(false);
+        }
+    }
+
+    public boolean isLoading() {
+        return current != null;
+    }
+
+    private static class Chunk<T> {
+        final List<T> items = new ArrayList<>(CHUNK_SIZE);
+        final List<Object[]> rows = new ArrayList<>(CHUNK_SIZE);
+    }
+
+    private class Worker extends SwingWorker<Void, Chunk<T>> {
+        private final Query<T> query;
+        private final RowMapper<T> mapper;
+        private final ChunkListener<T> listener;
+        private final Runnable onDone;
+        private volatile int total;
+        private int loaded;          // EDT only
+        private boolean fetched;     // EDT only: doInBackground finished
+        private boolean completed;   // EDT only
+
+        Worker(Query<T> query, RowMapper<T> mapper, ChunkListener<T> listener, Runnable onDone) {
+            this.query = query;
+            this.mapper = mapper;
+            this.listener = listener;
+            this.onDone = onDone;
+        }
+
+        @Override
+        protected Void doInBackground() throws Exception {
+            List<T> items = query.fetch();
+            total = items.size();
+
+            Chunk<T> chunk = new Chunk<>();
+            for (T item : items) {
+                if (isCancelled()) {
+                    return null;
+                }
+                chunk.items.add(item);
+                chunk.rows.add(mapper.toRow(item));
+                if (chunk.items.size() == CHUNK_SIZE) {
+                    publish(chunk);
+                    chunk = new Chunk<>();
+                }
+            }
+            if (!chunk.items.isEmpty()) {
+                publish(chunk);
+            }
+            return null;
+        }
+
+        @Override
+        protected void process(List<Chunk<T>> chunks) {
+            if (isCancelled()) {
+                return; // superseded by a newer load
+            }
+            for (Chunk<T> chunk : chunks) {
+                for (Object[] row : chunk.rows) {
+                    model.addRow(row);
+                }
+                loaded += chunk.items.size();
+                if (listener != null) {
+                    listener.onChunk(chunk.items, loaded, total);
+                }
+            }
+            if (progressBar != null && total > 0) {
+                progressBar.setIndeterminate(false);
+                progressBar.setValue(loaded * 100 / total);
+                progressBar.setString(loaded + " / " + total);
+            }
+            if (fetched && loaded >= total) {
+                complete();
+            }
+        }
+
+        @Override
+        protected void done() {
+            if (isCancelled()) {
+                return;
+            }
+            try {
+                get();
+            } catch (Exception e) {
+                e.printStackTrace();
+                if (current == this) {
+                    current = null;
+                }
+                if (progressBar != null) {
+                    progressBar.setIndeterminate(false);
+                    progressBar.setValue(0);
+                    progressBar.setString("Load failed");
+                }
+                return;
+            }
+            // process() can still have chunks queued at this point; the last one completes the load
+            fetched = true;
+            if (loaded >= total) {
+                complete();
+            }
+        }
+
+        private void complete() {
+            if (completed) {
+                return;
+            }
+            completed = true;
+            if (current == this) {
+                current = null;
+            }
+            if (progressBar != null) {
+                progressBar.setVisible(false);
+            }
+            if (listener != null && total == 0) {
+                listener.onChunk(new ArrayList<>(), 0, 0); // let empty loads reset their labels
+            }
+            if (onDone != null) {
+                onDone.run();
+            }
+        }
+    }
+}
\ No newline at end of file
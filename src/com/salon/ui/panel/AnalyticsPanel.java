@@ -7,12 +7,20 @@ import javax.swing.*;
 import javax.swing.table.DefaultTableModel;
 import java.awt.*;
 import java.awt.event.ActionEvent;
+import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.text.SimpleDateFormat;
 import java.util.Calendar;
 import java.util.Date;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 public class AnalyticsPanel extends JPanel {
     private JCheckBox chkCustomers, chkProductSales, chkProductUsage, chkStock;
@@ -281,11 +289,15 @@ public class AnalyticsPanel extends JPanel {
         progressDialog.setLocationRelativeTo(this);
 
         // Generate in background thread
+        Map<String, Long> timings = new LinkedHashMap<>();
         SwingWorker<byte[], Void> worker = new SwingWorker<byte[], Void>() {
             @Override
             protected byte[] doInBackground() throws Exception {
                 AnalyticsDAO dao = new AnalyticsDAO();
                 
+                // 🧹 Drop stored reports past the retention period
+                dao.pruneReports(AnalyticsDAO.getReportRetentionDays());
+                
                 // Calculate date range
                 Date[] dateRange = calculateDateRange((String) cmbDateRange.getSelectedItem());
                 
@@ -295,7 +307,8 @@ public class AnalyticsPanel extends JPanel {
                     chkProductUsage.isSelected(),
                     chkStock.isSelected(),
                     dateRange[0],
-                    dateRange[1]
+                    dateRange[1],
+                    timings
                 );
             }
 
@@ -307,6 +320,11 @@ public class AnalyticsPanel extends JPanel {
                     byte[] pdfData = get();
                     
                     if (pdfData != null && pdfData.length > 0) {
+                        // ⏱️ Where the time went (sections were fetched in parallel)
+                        String timing = formatTimings(timings);
+                        lblPreview.setText("⏱️ Last report: " + timing);
+                        lblPreview.setForeground(new Color(0, 100, 0));
+                        
                         // Save to database
                         AnalyticsReport report = new AnalyticsReport();
                         report.setReportType("BUSINESS_ANALYTICS");
@@ -337,6 +355,7 @@ public class AnalyticsPanel extends JPanel {
                             JOptionPane.showMessageDialog(AnalyticsPanel.this,
                                 "✅ Report generated successfully!\n\n" +
                                 "Size: " + String.format("%.2f KB", pdfData.length / 1024.0) + "\n" +
+                                "Time: " + timing + "\n" +
                                 "The report has been saved to history.",
                                 "Success",
                                 JOptionPane.INFORMATION_MESSAGE);
@@ -380,6 +399,24 @@ public class AnalyticsPanel extends JPanel {
         progressDialog.setVisible(true);
     }
 
+    // "1.2 s (summary 40 ms, customers 310 ms, ..., render 150 ms)"
+    private String formatTimings(Map<String, Long> timings) {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("%.1f s (", timings.getOrDefault("total", 0L) / 1000.0));
+        boolean first = true;
+        for (Map.Entry<String, Long> t : timings.entrySet()) {
+            if ("total".equals(t.getKey())) {
+                continue;
+            }
+            if (!first) {
+                sb.append(", ");
+            }
+            sb.append(t.getKey()).append(' ').append(t.getValue()).append(" ms");
+            first = false;
+        }
+        return sb.append(")").toString();
+    }
+
     private Date[] calculateDateRange(String rangeType) {
         Calendar cal = Calendar.getInstance();
         Date endDate = cal.getTime();
@@ -489,14 +526,18 @@ public class AnalyticsPanel extends JPanel {
 
         int reportId = (int) historyModel.getValueAt(row, 0);
         
-        // For now, show message that view functionality needs report PDF storage
-        // In production, you'd fetch the PDF from database
-        JOptionPane.showMessageDialog(this,
-            "View functionality requires storing PDF data in database.\n" +
-            "Report ID: " + reportId + "\n\n" +
-            "Please use Export to save and view the report.",
-            "View Report",
-            JOptionPane.INFORMATION_MESSAGE);
+        // Open the copy stored when the report was generated
+        byte[] pdfData = new AnalyticsDAO().getReportPdf(reportId);
+        if (pdfData == null) {
+            JOptionPane.showMessageDialog(this,
+                "No stored copy of report " + reportId + " is available\n" +
+                "(it was generated before reports were stored, or its file is missing).\n\n" +
+                "Please use Export to generate a fresh copy.",
+                "View Report",
+                JOptionPane.INFORMATION_MESSAGE);
+            return;
+        }
+        viewReportDirect(pdfData, "report_" + reportId + ".pdf");
     }
 
     private void viewReportDirect(byte[] pdfData, String filename) {
@@ -549,15 +590,18 @@ public class AnalyticsPanel extends JPanel {
 
         int reportId = (int) historyModel.getValueAt(row, 0);
         
-        // Show dialog to generate fresh report for export
-        int choice = JOptionPane.showConfirmDialog(this,
-            "Do you want to export this report?\n\n" +
-            "Note: A fresh copy will be generated with current data.",
-            "Export Report",
-            JOptionPane.YES_NO_OPTION);
-        
-        if (choice != JOptionPane.YES_OPTION) {
-            return;
+        // Export the stored copy as it was generated; only reports without one are regenerated
+        byte[] stored = new AnalyticsDAO().getReportPdf(reportId);
+        if (stored == null) {
+            int choice = JOptionPane.showConfirmDialog(this,
+                "No stored copy of this report is available.\n\n" +
+                "Note: A fresh copy will be generated with current data.",
+                "Export Report",
+                JOptionPane.YES_NO_OPTION);
+            
+            if (choice != JOptionPane.YES_OPTION) {
+                return;
+            }
         }
 
         // File chooser
@@ -582,7 +626,7 @@ public class AnalyticsPanel extends JPanel {
                 "Exporting Report", true);
             JProgressBar progressBar = new JProgressBar();
             progressBar.setIndeterminate(true);
-            progressBar.setString("Generating and exporting report...");
+            progressBar.setString(stored != null ? "Exporting report..." : "Generating and exporting report...");
             progressBar.setStringPainted(true);
             
             JPanel progressPanel = new JPanel(new BorderLayout(10, 10));
@@ -600,29 +644,41 @@ public class AnalyticsPanel extends JPanel {
             SwingWorker<Boolean, Void> worker = new SwingWorker<Boolean, Void>() {
                 @Override
                 protected Boolean doInBackground() throws Exception {
+                    // Write the PDF into a temp file next to the target, then move it into
+                    // place, so a failed export never leaves a half-written report behind
+                    Path target = finalFileToSave.toPath();
+                    Path temp = target.resolveSibling(target.getFileName() + ".part");
                     try {
-                        AnalyticsDAO dao = new AnalyticsDAO();
+                        if (stored != null) {
+                            Files.write(temp, stored);
+                            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+                            return true;
+                        }
                         
-                        // Generate fresh report with all sections
-                        byte[] pdfData = dao.generateBusinessAnalyticsPDF(
-                            true,  // customers
-                            true,  // product sales
-                            true,  // product usage
-                            true,  // stock
-                            null,  // all time
-                            null
-                        );
+                        AnalyticsDAO dao = new AnalyticsDAO();
                         
-                        if (pdfData != null && pdfData.length > 0) {
-                            try (FileOutputStream fos = new FileOutputStream(finalFileToSave)) {
-                                fos.write(pdfData);
-                            }
-                            return true;
+                        // Generate fresh report with all sections, streamed straight to the file
+                        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(temp.toFile()))) {
+                            dao.writeBusinessAnalyticsPDF(
+                                true,  // customers
+                                true,  // product sales
+                                true,  // product usage
+                                true,  // stock
+                                null,  // all time
+                                null,
+                                out,
+                                null
+                            );
                         }
-                        return false;
+                        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+                        return true;
                         
                     } catch (Exception ex) {
                         ex.printStackTrace();
+                        try {
+                            Files.deleteIfExists(temp);
+                        } catch (IOException ignored) {
+                        }
                         return false;
                     }
                 }
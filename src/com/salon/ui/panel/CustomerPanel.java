@@ -2,6 +2,7 @@ package com.salon.ui.panel;
 
 import java.awt.BorderLayout;
 import java.awt.Color;
+import java.awt.Cursor;
 import java.awt.Desktop;
 import java.awt.Dimension;
 import java.awt.FlowLayout;
@@ -16,6 +17,7 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Consumer;
 
 import javax.swing.BorderFactory;
 import javax.swing.Box;
@@ -26,31 +28,47 @@ import javax.swing.JComboBox;
 import javax.swing.JComponent;
 import javax.swing.JFileChooser;
 import javax.swing.JLabel;
+import javax.swing.JMenuItem;
 import javax.swing.JOptionPane;
 import javax.swing.JPanel;
+import javax.swing.JPopupMenu;
+import javax.swing.JProgressBar;
 import javax.swing.JScrollPane;
 import javax.swing.JTable;
 import javax.swing.JTextField;
 import javax.swing.SwingConstants;
+import javax.swing.SwingUtilities;
+import javax.swing.SwingWorker;
+import javax.swing.Timer;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
 import javax.swing.table.DefaultTableModel;
 
 import com.salon.dao.CustomerDAO;
 import com.salon.dao.InvoiceDAO;
+import com.salon.dao.LotConsumptionService;
 import com.salon.dao.MembershipDAO;
 import com.salon.dao.ProductDAO;
 import com.salon.dao.ServiceDAO;
-import com.salon.dao.StockDAO;
-import com.salon.dao.StockMovementDAO;
 import com.salon.model.Customer;
 import com.salon.model.InvoiceItem;
 import com.salon.model.InvoiceService;
+import com.salon.model.InvoiceSummary;
 import com.salon.model.MembershipPlan;
+import com.salon.model.SellableProduct;
 import com.salon.model.Service;
-import com.salon.model.StockEntry;
+import com.salon.service.CustomerLookup;
+import com.salon.ui.PagedTableModel;
+import com.salon.ui.TableLoader;
+import com.salon.util.PhoneNumbers;
 
 public class CustomerPanel extends JPanel {
+    private static final int PHONE_LOOKUP_DELAY_MS = 250;
+    private static final int PHONE_SUGGEST_MIN_DIGITS = 4;
+    private static final int PHONE_SUGGESTIONS = 8;
+
     private JTable table;
-    private DefaultTableModel model;
+    private PagedTableModel<Customer> model;
     private JComboBox<String> timeFilterCombo;
     private JLabel customerCountLabel;
 
@@ -63,7 +81,15 @@ public class CustomerPanel extends JPanel {
         title.setForeground(new Color(40, 60, 120));
         add(title, BorderLayout.NORTH);
 
-        model = new DefaultTableModel(new String[]{"ID", "Name", "Phone", "Address"}, 0);
+        // Lazy model: rows are fetched page by page as they scroll into view
+        model = new PagedTableModel<>(new String[]{"ID", "Name", "Phone", "Address", "Visits", "Last Visit"}, c -> new Object[]{
+            c.getCustomerId(), 
+            c.getName(), 
+            c.getPhone(), 
+            c.getAddress(),
+            c.getVisitCount(),
+            c.getLastVisit()
+        });
         table = new JTable(model);
         table.setRowHeight(25);
         
@@ -97,6 +123,11 @@ public class CustomerPanel extends JPanel {
         customerCountLabel.setForeground(new Color(0, 102, 204));
         filterPanel.add(customerCountLabel);
 
+        JProgressBar loadProgress = TableLoader.createProgressBar();
+        filterPanel.add(loadProgress);
+        model.setProgressBar(loadProgress);
+        model.setOnRefreshed(() -> customerCountLabel.setText("Total: " + model.getRowCount()));
+
         // Right side: Action buttons
         JPanel buttonPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT, 15, 5));
         JButton btnAdd = new JButton("➕ Add Customer & Generate Invoice");
@@ -117,14 +148,14 @@ public class CustomerPanel extends JPanel {
         
         // ✅ NOW SAFE: Load customers AFTER timeFilterCombo is initialized
         loadCustomers();
+
+        // Start loading the phone index now so it is ready by the first invoice
+        CustomerLookup.get();
     }
     
     private void loadCustomersByTimeFilter() {
         String selectedFilter = (String) timeFilterCombo.getSelectedItem();
         
-        CustomerDAO dao = new CustomerDAO();
-        List<Customer> allCustomers = dao.getAllCustomers();
-        
         // Calculate date threshold based on selection
         java.util.Calendar cal = java.util.Calendar.getInstance();
         java.util.Date thresholdDate = null;
@@ -162,35 +193,27 @@ public class CustomerPanel extends JPanel {
                 break;
         }
         
-        // Filter and display customers
-        model.setRowCount(0);
-        int count = 0;
+        // The range is on the last visit, so returning customers count as well as new ones. It is
+        // applied in SQL (indexed on last_visit); the table only fetches the pages it displays,
+        // using keyset paging on (last_visit, customer_id).
+        final java.util.Date threshold = thresholdDate;
+        customerCountLabel.setText("Total: 0");
         
-        for (Customer c : allCustomers) {
-            boolean includeCustomer = false;
-            
-            if (thresholdDate == null) {
-                includeCustomer = true; // All time
-            } else {
-                // Compare customer creation date with threshold
-                java.util.Date createdAt = c.getCreatedAt();
-                if (createdAt != null && createdAt.after(thresholdDate)) {
-                    includeCustomer = true;
-                }
+        model.setSource(new PagedTableModel.PageSource<Customer>() {
+            @Override
+            public int count() {
+                return new CustomerDAO().countCustomersVisitedSince(threshold);
             }
-            
-            if (includeCustomer) {
-                model.addRow(new Object[]{
-                    c.getCustomerId(), 
-                    c.getName(), 
-                    c.getPhone(), 
-                    c.getAddress()
-                });
-                count++;
+
+            @Override
+            public List<Customer> fetchPage(Customer after, int offset, int limit) {
+                CustomerDAO dao = new CustomerDAO();
+                if (after != null) {
+                    return dao.getCustomersVisitedSincePage(threshold, after.getLastVisit(), after.getCustomerId(), limit);
+                }
+                return dao.getCustomersVisitedSince(threshold, limit, offset);
             }
-        }
-        
-        customerCountLabel.setText("Total: " + count);
+        });
     }
 
     private void loadCustomers() {
@@ -217,43 +240,8 @@ public class CustomerPanel extends JPanel {
             membershipCombo.addItem(plan);
         }
         
-        // Auto-detection: Add phone field listener
-        phoneField.addKeyListener(new KeyAdapter() {
-            @Override
-            public void keyReleased(KeyEvent evt) {
-                String phone = phoneField.getText().trim();
-                
-                if (phone.length() >= 10) {
-                    CustomerDAO dao = new CustomerDAO();
-                    Customer existingCustomer = dao.getCustomerByPhone(phone);
-                    
-                    if (existingCustomer != null) {
-                        if (nameField.getText().trim().isEmpty()) {
-                            nameField.setText(existingCustomer.getName());
-                        }
-                        if (addressField.getText().trim().isEmpty()) {
-                            addressField.setText(existingCustomer.getAddress());
-                        }
-                        
-                        Integer planId = existingCustomer.getMembershipPlanId();
-                        if (planId != null && membershipCombo.getSelectedIndex() == 0) {
-                            for (int i = 0; i < membershipCombo.getItemCount(); i++) {
-                                MembershipPlan plan = membershipCombo.getItemAt(i);
-                                if (plan.getPlanId() == planId) {
-                                    membershipCombo.setSelectedIndex(i);
-                                    break;
-                                }
-                            }
-                        }
-                        phoneField.setBackground(new Color(230, 240, 255));
-                    } else {
-                        phoneField.setBackground(Color.WHITE);
-                    }
-                } else {
-                    phoneField.setBackground(Color.WHITE);
-                }
-            }
-        });
+        // Auto-detection: existing customers are found by phone as it is typed
+        Runnable stopPhoneLookup = installPhoneLookup(phoneField, nameField, addressField, membershipCombo);
         
         customerPanel.add(new JLabel("Name: *"));
         customerPanel.add(nameField);
@@ -329,10 +317,10 @@ public class CustomerPanel extends JPanel {
         JScrollPane productScroll = new JScrollPane(productSelectionPanel);
         productScroll.setPreferredSize(new Dimension(900, 200)); // Fixed height
         
+        // One grouped query: stock, type and running prices for every sellable product
         ProductDAO productDao = new ProductDAO();
-        StockMovementDAO movementDao = new StockMovementDAO();
-        List<String[]> availableProducts = productDao.getProductList();
-        
+        List<SellableProduct> availableProducts = productDao.getSellableProducts();
+
         // ✅ ProductInfo class to store all product data
         class ProductInfo {
             int productId;
@@ -395,25 +383,13 @@ public class CustomerPanel extends JPanel {
         // Store all products with their complete information
         List<ProductInfo> allProducts = new ArrayList<>();
         
-        // Load all products
-        for (String[] p : availableProducts) {
-            int productId = Integer.parseInt(p[0]);
-            String productName = p[1];
-            String brandName = p[2];
-            
-            double availableStock = movementDao.getAvailableStock(productId);
-            
-            if (availableStock > 0) {
-                double sellingPrice = getSellingPriceForProduct(productId);
-                double actualPrice = getActualPriceForProduct(productId);
-                String productType = getProductType(productId);
-                
-                ProductInfo info = new ProductInfo(productId, productName, brandName, 
-                    productType, availableStock, sellingPrice, actualPrice);
-                
-                allProducts.add(info);
-                info.addToPanel(productSelectionPanel); // Add initially
-            }
+        // Load all products (snapshot already excludes products with no stock)
+        for (SellableProduct p : availableProducts) {
+            ProductInfo info = new ProductInfo(p.getProductId(), p.getName(), p.getBrand(),
+                p.getProductType(), p.getAvailableStock(), p.getSellingPrice(), p.getActualPrice());
+
+            allProducts.add(info);
+            info.addToPanel(productSelectionPanel); // Add initially
         }
         
         productMainPanel.add(productScroll, BorderLayout.CENTER);
@@ -547,6 +523,7 @@ public class CustomerPanel extends JPanel {
 
         int result = JOptionPane.showConfirmDialog(this, mainPanel, "Add Customer & Generate Invoice",
                 JOptionPane.OK_CANCEL_OPTION, JOptionPane.PLAIN_MESSAGE);
+        stopPhoneLookup.run();
 
         if (result == JOptionPane.OK_OPTION) {
             String name = nameField.getText().trim();
@@ -645,158 +622,268 @@ public class CustomerPanel extends JPanel {
             c.setPhone(phone);
             c.setAddress(address);
 
-            CustomerDAO cdao = new CustomerDAO();
-            boolean customerAdded = cdao.addCustomer(c);
-            
-            if (customerAdded) {
-                MembershipPlan selectedPlan = (MembershipPlan) membershipCombo.getSelectedItem();
-                if (selectedPlan != null && selectedPlan.getPlanId() > 1) {
-                    cdao.updateCustomerMembership(c.getCustomerId(), selectedPlan.getPlanId());
-                }
-                
-                double discountPercent = selectedPlan != null ? selectedPlan.getDiscountPercentage() : 0.0;
-                
-                InvoiceDAO idao = new InvoiceDAO();
-                boolean invoiceCreated = idao.createInvoice(c.getCustomerId(), c, services, products, discountPercent);
-                
-                if (invoiceCreated) {
-                    String message = "✅ Customer added and invoice generated successfully!\n\n";
-                    if (!services.isEmpty()) {
-                        message += "Services: " + services.size() + "\n";
-                        if (discountPercent > 0) {
-                            message += "Membership discount applied: " + String.format("%.0f%%\n", discountPercent);
+            MembershipPlan selectedPlan = (MembershipPlan) membershipCombo.getSelectedItem();
+            double discountPercent = selectedPlan != null ? selectedPlan.getDiscountPercentage() : 0.0;
+
+            // Customer, visit and invoice are saved together: if the invoice fails nothing is recorded
+            InvoiceDAO idao = new InvoiceDAO();
+            boolean invoiceCreated;
+            try {
+                invoiceCreated = idao.createInvoiceForVisit(c, selectedPlan != null ? selectedPlan.getPlanId() : 0,
+                        services, products, discountPercent);
+            } catch (LotConsumptionService.InsufficientStockException shortStock) {
+                // Stock ran out between opening the dialog and saving (another terminal sold it)
+                StringBuilder shortMsg = new StringBuilder("Not enough stock, nothing was saved:\n\n");
+                for (Map.Entry<Integer, Double> missing : shortStock.getShortfall().entrySet()) {
+                    String productName = "Product #" + missing.getKey();
+                    double requested = 0;
+                    for (InvoiceItem item : products) {
+                        if (item.getProductId() == missing.getKey()) {
+                            productName = item.getProductName();
+                            requested += item.getQuantity();
                         }
                     }
-                    if (!products.isEmpty()) {
-                        message += "Products sold: " + products.size() + "\n";
-                        message += "Stock automatically updated!";
+                    shortMsg.append("- ").append(productName)
+                        .append(": requested ").append(String.format("%.2f", requested))
+                        .append(", ").append(String.format("%.2f", missing.getValue())).append(" short\n");
+                }
+                JOptionPane.showMessageDialog(this, shortMsg.toString(), "Insufficient Stock", JOptionPane.ERROR_MESSAGE);
+                return;
+            }
+            
+            if (invoiceCreated) {
+                String message = c.getVisitCount() > 1
+                        ? "✅ Welcome back! Visit #" + c.getVisitCount() + " recorded and invoice generated successfully!\n\n"
+                        : "✅ Customer added and invoice generated successfully!\n\n";
+                if (!services.isEmpty()) {
+                    message += "Services: " + services.size() + "\n";
+                    if (discountPercent > 0) {
+                        message += "Membership discount applied: " + String.format("%.0f%%\n", discountPercent);
                     }
-                    JOptionPane.showMessageDialog(this, message);
-                    loadCustomers();
-                } else {
-                    JOptionPane.showMessageDialog(this, "Customer added but invoice generation failed!");
                 }
+                if (!products.isEmpty()) {
+                    message += "Products sold: " + products.size() + "\n";
+                    message += "Stock automatically updated!";
+                }
+                JOptionPane.showMessageDialog(this, message);
+                loadCustomers();
             } else {
-                JOptionPane.showMessageDialog(this, "Failed to add customer!");
+                JOptionPane.showMessageDialog(this, "Failed to save the customer and invoice! Nothing was recorded.");
             }
         }
     }
     
- // ✅ NEW: Get product type for filtering
-    private String getProductType(int productId) {
-        ProductDAO productDao = new ProductDAO();
-        return productDao.getProductType(productId);
-    }
-   
-    // Helper methods - ADD THESE TO CustomerPanel class:
+    // Typing in the phone field restarts a short timer; when it fires, CustomerLookup matches the
+    // digits in memory on its own thread and only the answer to the newest text is applied on the EDT:
+    // a complete known number fills in the customer (like before), otherwise the numbers starting with
+    // the digits typed are offered in a popup. Returns what to run when the dialog closes.
+    private Runnable installPhoneLookup(JTextField phoneField, JTextField nameField, JTextField addressField,
+                                        JComboBox<MembershipPlan> membershipCombo) {
+        JPopupMenu suggestions = new JPopupMenu();
+        suggestions.setFocusable(false); // keep typing in the phone field
+        int[] lookupSeq = {0};
+
+        Timer lookupTimer = new Timer(PHONE_LOOKUP_DELAY_MS, null);
+        lookupTimer.setRepeats(false);
+        lookupTimer.addActionListener(ev -> {
+            String phone = phoneField.getText().trim();
+            String digits = PhoneNumbers.normalize(phone);
+            int seq = ++lookupSeq[0];
+            if (digits.length() < PHONE_SUGGEST_MIN_DIGITS) {
+                suggestions.setVisible(false);
+                phoneField.setBackground(Color.WHITE);
+                return;
+            }
+            CustomerLookup.get().lookup(phone, PHONE_SUGGESTIONS).thenAccept(found -> SwingUtilities.invokeLater(() -> {
+                if (seq != lookupSeq[0]) {
+                    return; // the text changed since; a newer lookup is on its way
+                }
+                suggestions.setVisible(false);
+                suggestions.removeAll();
+                if (!found.isEmpty() && PhoneNumbers.normalize(found.get(0).getPhone()).equals(digits)) {
+                    fillFromExistingCustomer(found.get(0), nameField, addressField, membershipCombo);
+                    phoneField.setBackground(new Color(230, 240, 255));
+                    return;
+                }
+                phoneField.setBackground(Color.WHITE);
+                if (found.isEmpty() || !phoneField.isShowing() || !phoneField.hasFocus()) {
+                    return;
+                }
+                for (Customer c : found) {
+                    JMenuItem item = new JMenuItem(PhoneNumbers.format(PhoneNumbers.normalize(c.getPhone()))
+                            + "  –  " + c.getName());
+                    item.addActionListener(pick -> {
+                        phoneField.setText(c.getPhone());
+                        fillFromExistingCustomer(c, nameField, addressField, membershipCombo);
+                    });
+                    suggestions.add(item);
+                }
+                suggestions.show(phoneField, 0, phoneField.getHeight());
+            }));
+        });
 
-    private double getSellingPriceForProduct(int productId) {
-        StockDAO stockDao = new StockDAO();
-        List<StockEntry> entries = stockDao.getAllStockEntries();
-        
-        double totalPrice = 0.0;
-        int count = 0;
-        
-        for (StockEntry entry : entries) {
-            if (entry.getProductId() == productId && "RUNNING".equals(entry.getStockStatus())) {
-                totalPrice += entry.getSellingPricePerUnit();
-                count++;
+        phoneField.getDocument().addDocumentListener(new DocumentListener() {
+            @Override
+            public void insertUpdate(DocumentEvent evt) {
+                lookupTimer.restart();
             }
-        }
-        
-        return count > 0 ? totalPrice / count : 0.0;
+
+            @Override
+            public void removeUpdate(DocumentEvent evt) {
+                lookupTimer.restart();
+            }
+
+            @Override
+            public void changedUpdate(DocumentEvent evt) {
+                lookupTimer.restart();
+            }
+        });
+
+        return () -> {
+            lookupTimer.stop();
+            lookupSeq[0]++;
+            suggestions.setVisible(false);
+        };
     }
 
-    private double getActualPriceForProduct(int productId) {
-        StockDAO stockDao = new StockDAO();
-        List<StockEntry> entries = stockDao.getAllStockEntries();
-        
-        double totalPrice = 0.0;
-        int count = 0;
+    // Only empty fields are filled, so nothing typed by hand is overwritten
+    private void fillFromExistingCustomer(Customer existingCustomer, JTextField nameField, JTextField addressField,
+                                          JComboBox<MembershipPlan> membershipCombo) {
+        if (nameField.getText().trim().isEmpty()) {
+            nameField.setText(existingCustomer.getName());
+        }
+        if (addressField.getText().trim().isEmpty()) {
+            addressField.setText(existingCustomer.getAddress());
+        }
         
-        for (StockEntry entry : entries) {
-            if (entry.getProductId() == productId && "RUNNING".equals(entry.getStockStatus())) {
-                totalPrice += entry.getActualPricePerUnit();
-                count++;
+        Integer planId = existingCustomer.getMembershipPlanId();
+        if (planId != null && membershipCombo.getSelectedIndex() == 0) {
+            for (int i = 0; i < membershipCombo.getItemCount(); i++) {
+                MembershipPlan plan = membershipCombo.getItemAt(i);
+                if (plan.getPlanId() == planId) {
+                    membershipCombo.setSelectedIndex(i);
+                    break;
+                }
             }
         }
-        
-        return count > 0 ? totalPrice / count : 0.0;
     }
-    // View invoice directly from database
-    private void viewInvoice(ActionEvent e) {
+
+    // The selected customer's invoice to view/export: the only one, or the one picked from their
+    // history (newest first). Null if nothing is selected, there are no invoices or the pick was cancelled.
+    private InvoiceSummary chooseInvoice(String action) {
         int row = table.getSelectedRow();
         if (row == -1) {
-            JOptionPane.showMessageDialog(this, "Please select a customer to view invoice.");
-            return;
+            JOptionPane.showMessageDialog(this, "Please select a customer to " + action + " invoice.");
+            return null;
         }
 
-        String customerId = (String) model.getValueAt(row, 0);
-        CustomerDAO dao = new CustomerDAO();
-        byte[] pdfData = dao.getInvoicePdfByCustomerId(customerId);
-
-        if (pdfData == null || pdfData.length == 0) {
+        Customer selected = model.getItem(row);
+        if (selected == null) {
+            JOptionPane.showMessageDialog(this, "Customer details are still loading, please try again.");
+            return null;
+        }
+        List<InvoiceSummary> invoices = new CustomerDAO().getInvoicesForCustomer(selected.getCustomerId());
+        if (invoices.isEmpty()) {
             JOptionPane.showMessageDialog(this, "No invoice found for this customer.");
-            return;
+            return null;
+        }
+        if (invoices.size() == 1) {
+            return invoices.get(0);
         }
+        InvoiceSummary[] options = invoices.toArray(new InvoiceSummary[0]);
+        return (InvoiceSummary) JOptionPane.showInputDialog(this,
+                selected.getName() + " has " + options.length + " invoices. Choose one to " + action + ":",
+                "Select Invoice", JOptionPane.PLAIN_MESSAGE, null, options, options[0]);
+    }
 
-        try {
-            // Create temporary file to view
-            File tempFile = File.createTempFile("invoice_view_", ".pdf");
-            tempFile.deleteOnExit();
-            
-            try (FileOutputStream fos = new FileOutputStream(tempFile)) {
-                fos.write(pdfData);
+    // Fetches the invoice's PDF on a worker thread (one not rendered yet is rendered on demand, which
+    // can take a few seconds) and hands it to whenLoaded back on the EDT
+    private void loadInvoicePdf(InvoiceSummary invoice, Consumer<byte[]> whenLoaded) {
+        setCursor(Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR));
+        new SwingWorker<byte[], Void>() {
+            @Override
+            protected byte[] doInBackground() {
+                return new CustomerDAO().getInvoicePdf(invoice.getInvoiceId());
             }
-            
-            Desktop.getDesktop().open(tempFile);
-        } catch (Exception ex) {
-            ex.printStackTrace();
-            JOptionPane.showMessageDialog(this, "Unable to open PDF: " + ex.getMessage());
-        }
+
+            @Override
+            protected void done() {
+                setCursor(Cursor.getDefaultCursor());
+                byte[] pdfData = null;
+                try {
+                    pdfData = get();
+                } catch (Exception ex) {
+                    ex.printStackTrace();
+                }
+                if (pdfData == null || pdfData.length == 0) {
+                    JOptionPane.showMessageDialog(CustomerPanel.this,
+                            "The PDF of invoice #" + invoice.getInvoiceId() + " is not available.");
+                    return;
+                }
+                whenLoaded.accept(pdfData);
+            }
+        }.execute();
     }
 
-    // Export invoice to selected location
-    private void exportInvoice(ActionEvent e) {
-        int row = table.getSelectedRow();
-        if (row == -1) {
-            JOptionPane.showMessageDialog(this, "Please select a customer to export invoice.");
+    // View invoice directly from database
+    private void viewInvoice(ActionEvent e) {
+        InvoiceSummary invoice = chooseInvoice("view");
+        if (invoice == null) {
             return;
         }
+        loadInvoicePdf(invoice, pdfData -> {
+            try {
+                // Create temporary file to view
+                File tempFile = File.createTempFile("invoice_view_", ".pdf");
+                tempFile.deleteOnExit();
+
+                try (FileOutputStream fos = new FileOutputStream(tempFile)) {
+                    fos.write(pdfData);
+                }
 
-        String customerId = (String) model.getValueAt(row, 0);
-        CustomerDAO dao = new CustomerDAO();
-        byte[] pdfData = dao.getInvoicePdfByCustomerId(customerId);
-        String filename = dao.getInvoiceFilenameByCustomerId(customerId);
+                Desktop.getDesktop().open(tempFile);
+            } catch (Exception ex) {
+                ex.printStackTrace();
+                JOptionPane.showMessageDialog(this, "Unable to open PDF: " + ex.getMessage());
+            }
+        });
+    }
 
-        if (pdfData == null || pdfData.length == 0) {
-            JOptionPane.showMessageDialog(this, "No invoice found for this customer.");
+    // Export invoice to selected location
+    private void exportInvoice(ActionEvent e) {
+        InvoiceSummary invoice = chooseInvoice("export");
+        if (invoice == null) {
             return;
         }
+        loadInvoicePdf(invoice, pdfData -> {
+            String filename = invoice.getInvoiceFilename();
 
-        // File chooser to select export location
-        JFileChooser fileChooser = new JFileChooser();
-        fileChooser.setDialogTitle("Export Invoice");
-        fileChooser.setSelectedFile(new File(filename != null ? filename : "invoice_" + customerId + ".pdf"));
-        fileChooser.setFileSelectionMode(JFileChooser.FILES_ONLY);
+            // File chooser to select export location
+            JFileChooser fileChooser = new JFileChooser();
+            fileChooser.setDialogTitle("Export Invoice");
+            // Every invoice of a customer is stored as invoice_<customer>.pdf; add the number so they don't overwrite each other
+            String base = filename != null ? filename.replaceFirst("(?i)\\.pdf$", "") : "invoice";
+            fileChooser.setSelectedFile(new File(base + "_" + invoice.getInvoiceId() + ".pdf"));
+            fileChooser.setFileSelectionMode(JFileChooser.FILES_ONLY);
 
-        int userSelection = fileChooser.showSaveDialog(this);
+            int userSelection = fileChooser.showSaveDialog(this);
 
-        if (userSelection == JFileChooser.APPROVE_OPTION) {
-            File fileToSave = fileChooser.getSelectedFile();
-            
-            // Ensure .pdf extension
-            if (!fileToSave.getName().toLowerCase().endsWith(".pdf")) {
-                fileToSave = new File(fileToSave.getAbsolutePath() + ".pdf");
-            }
+            if (userSelection == JFileChooser.APPROVE_OPTION) {
+                File fileToSave = fileChooser.getSelectedFile();
 
-            try (FileOutputStream fos = new FileOutputStream(fileToSave)) {
-                fos.write(pdfData);
-                JOptionPane.showMessageDialog(this, "✅ Invoice exported successfully to:\n" + fileToSave.getAbsolutePath());
-            } catch (Exception ex) {
-                ex.printStackTrace();
-                JOptionPane.showMessageDialog(this, "Failed to export PDF: " + ex.getMessage());
+                // Ensure .pdf extension
+                if (!fileToSave.getName().toLowerCase().endsWith(".pdf")) {
+                    fileToSave = new File(fileToSave.getAbsolutePath() + ".pdf");
+                }
+
+                try (FileOutputStream fos = new FileOutputStream(fileToSave)) {
+                    fos.write(pdfData);
+                    JOptionPane.showMessageDialog(this, "✅ Invoice exported successfully to:\n" + fileToSave.getAbsolutePath());
+                } catch (Exception ex) {
+                    ex.printStackTrace();
+                    JOptionPane.showMessageDialog(this, "Failed to export PDF: " + ex.getMessage());
+                }
             }
-        }
+        });
     }
 }
\ No newline at end of file
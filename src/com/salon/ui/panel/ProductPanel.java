@@ -2,6 +2,8 @@ package com.salon.ui.panel;
 
 import com.salon.dao.ProductDAO;
 import com.salon.model.Product;
+import com.salon.ui.TableLoader;
+import java.util.ArrayList;
 import javax.swing.*;
 import javax.swing.table.DefaultTableModel;
 import java.awt.*;
@@ -12,6 +14,7 @@ public class ProductPanel extends JPanel {
     private JTable table;
     private DefaultTableModel model;
     private JCheckBox chkShowDiscontinued;
+    private TableLoader<Product> productLoader;
     
     public ProductPanel() {
         setLayout(new BorderLayout());
@@ -42,6 +45,10 @@ public class ProductPanel extends JPanel {
         chkShowDiscontinued.addActionListener(e -> loadProducts());
         topPanel.add(chkShowDiscontinued);
         
+        JProgressBar loadProgress = TableLoader.createProgressBar();
+        topPanel.add(loadProgress);
+        productLoader = new TableLoader<>(model, loadProgress);
+        
         // NOW load products after checkbox is initialized
         loadProducts();
         
@@ -68,28 +75,26 @@ public class ProductPanel extends JPanel {
     }
     
     private void loadProducts() {
-        ProductDAO dao = new ProductDAO();
-        List<Product> list = dao.getAllProducts();
-        model.setRowCount(0);
-        
         boolean showDiscontinued = chkShowDiscontinued.isSelected();
         
-        for (Product p : list) {
-            // Filter based on checkbox
-            if (!showDiscontinued && p.isDiscontinued()) {
-                continue;
+        productLoader.load(() -> {
+            List<Product> list = new ProductDAO().getAllProducts();
+            List<Product> visible = new ArrayList<>(list.size());
+            for (Product p : list) {
+                // Filter based on checkbox
+                if (showDiscontinued || !p.isDiscontinued()) {
+                    visible.add(p);
+                }
             }
-            
-            String status = p.isDiscontinued() ? "DISCONTINUED" : "CONTINUED";
-            model.addRow(new Object[]{
-                p.getProductId(), 
-                p.getSku(), 
-                p.getName(), 
-                p.getBrand(), 
-                p.getProductType(),
-                status
-            });
-        }
+            return visible;
+        }, p -> new Object[]{
+            p.getProductId(), 
+            p.getSku(), 
+            p.getName(), 
+            p.getBrand(), 
+            p.getProductType(),
+            p.isDiscontinued() ? "DISCONTINUED" : "CONTINUED"
+        });
     }
     
     private void markProductStatus(boolean discontinued) {
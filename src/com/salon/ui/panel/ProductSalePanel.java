@@ -2,18 +2,36 @@ package com.salon.ui.panel;
 
 import com.salon.dao.StockMovementDAO;
 import com.salon.dao.StockDAO;
+import com.salon.model.ProductPriceIndex;
 import com.salon.model.StockMovement;
-import com.salon.model.StockEntry;
+import com.salon.ui.PagedTableModel;
+import com.salon.ui.TableLoader;
 import javax.swing.*;
-import javax.swing.table.DefaultTableModel;
 import java.awt.*;
+import java.util.ArrayList;
 import java.util.List;
 
 public class ProductSalePanel extends JPanel {
     private JTable table;
-    private DefaultTableModel model;
+    private PagedTableModel<SaleRow> model;
     private JButton btnRefresh;
     private JLabel lblTotalQtySold, lblTotalRevenue, lblTotalProfit;
+    
+    // Totals come from an aggregate query run alongside the row count
+    private volatile double totalQty, totalRevenue, totalProfit;
+    
+    // One sale movement with its prices resolved on the paging thread
+    private static class SaleRow {
+        final StockMovement sale;
+        final double qtySold, sellingPrice, actualCost;
+        
+        SaleRow(StockMovement sale, double qtySold, double sellingPrice, double actualCost) {
+            this.sale = sale;
+            this.qtySold = qtySold;
+            this.sellingPrice = sellingPrice;
+            this.actualCost = actualCost;
+        }
+    }
 
     public ProductSalePanel() {
         setLayout(new BorderLayout());
@@ -24,18 +42,31 @@ public class ProductSalePanel extends JPanel {
         
         btnRefresh = new JButton("🔄 Refresh");
         topPanel.add(btnRefresh);
+        
+        JProgressBar loadProgress = TableLoader.createProgressBar();
+        topPanel.add(loadProgress);
 
-        // Table
-        model = new DefaultTableModel(
+        // Table (lazy model: sales are fetched page by page as they scroll into view)
+        model = new PagedTableModel<>(
             new String[]{"Date", "Customer", "Product", "Brand", "Qty Sold", 
                         "Selling Price", "Total Amount", "Actual Cost", "Profit"}, 
-            0
-        ) {
-            @Override
-            public boolean isCellEditable(int row, int column) {
-                return false;
-            }
-        };
+            r -> {
+                double totalAmount = r.qtySold * r.sellingPrice;
+                double totalCost = r.qtySold * r.actualCost;
+                return new Object[]{
+                    r.sale.getMovementDateFormatted(),
+                    r.sale.getCustomerName() != null ? r.sale.getCustomerName() : "Walk-in",
+                    r.sale.getProductName(),
+                    r.sale.getProductBrand() != null ? r.sale.getProductBrand() : "N/A",
+                    String.format("%.2f", r.qtySold),
+                    String.format("₹%.2f", r.sellingPrice),
+                    String.format("₹%.2f", totalAmount),
+                    String.format("₹%.2f", totalCost),
+                    String.format("₹%.2f", totalAmount - totalCost)
+                };
+            });
+        model.setProgressBar(loadProgress);
+        model.setOnRefreshed(this::updateTotalsLabels);
         
         table = new JTable(model);
         table.setRowHeight(25);
@@ -86,74 +117,54 @@ public class ProductSalePanel extends JPanel {
     }
 
     private void loadSalesData() {
-        model.setRowCount(0);
-        StockMovementDAO movementDao = new StockMovementDAO();
-        StockDAO stockDao = new StockDAO();
-        
-        // Get only SALE type movements
-        List<StockMovement> sales = movementDao.getSaleMovements();
+        totalQty = 0.0;
+        totalRevenue = 0.0;
+        totalProfit = 0.0;
+        updateTotalsLabels();
         
-        double totalQty = 0.0;
-        double totalRevenue = 0.0;
-        double totalProfit = 0.0;
-        
-        for (StockMovement sale : sales) {
-            double qtySold = Math.abs(sale.getQuantityChanged());
-            
-            // Get prices from invoice_items (already fetched in getSaleMovements)
-            double sellingPrice = sale.getSellingPricePerUnit();
-            double actualCost = sale.getActualPricePerUnit();
-            
-            // If prices are 0, try to get average from stock entries as fallback
-            if (sellingPrice == 0.0 || actualCost == 0.0) {
-                sellingPrice = getAveragePriceForProduct(sale.getProductId(), stockDao, false);
-                actualCost = getAveragePriceForProduct(sale.getProductId(), stockDao, true);
+        model.setSource(new PagedTableModel.PageSource<SaleRow>() {
+            private ProductPriceIndex prices; // loaded once, only if some sale needs the fallback
+
+            @Override
+            public int count() {
+                StockMovementDAO dao = new StockMovementDAO();
+                double[] totals = dao.getSaleTotals(); // qty, revenue, cost
+                totalQty = totals[0];
+                totalRevenue = totals[1];
+                totalProfit = totals[1] - totals[2];
+                return dao.countSaleMovements();
             }
-            
-            double totalAmount = qtySold * sellingPrice;
-            double totalCost = qtySold * actualCost;
-            double profit = totalAmount - totalCost;
-            
-            totalQty += qtySold;
-            totalRevenue += totalAmount;
-            totalProfit += profit;
-            
-            model.addRow(new Object[]{
-                sale.getMovementDateFormatted(),
-                sale.getCustomerName() != null ? sale.getCustomerName() : "Walk-in",
-                sale.getProductName(),
-                sale.getProductBrand() != null ? sale.getProductBrand() : "N/A",
-                String.format("%.2f", qtySold),
-                String.format("₹%.2f", sellingPrice),
-                String.format("₹%.2f", totalAmount),
-                String.format("₹%.2f", totalCost),
-                String.format("₹%.2f", profit)
-            });
-        }
-        
-        // Update totals
+
+            @Override
+            public List<SaleRow> fetchPage(SaleRow after, int offset, int limit) {
+                // Get only SALE type movements
+                List<StockMovement> sales = new StockMovementDAO()
+                        .getSaleMovementsPage(after != null ? after.sale : null, offset, limit);
+                
+                List<SaleRow> rows = new ArrayList<>(sales.size());
+                for (StockMovement sale : sales) {
+                    // Get prices from invoice_items (already fetched with the page)
+                    double sellingPrice = sale.getSellingPricePerUnit();
+                    double actualCost = sale.getActualPricePerUnit();
+                    
+                    // If prices are 0, try to get average from stock entries as fallback
+                    if (sellingPrice == 0.0 || actualCost == 0.0) {
+                        if (prices == null) {
+                            prices = new StockDAO().getProductPriceIndex();
+                        }
+                        sellingPrice = prices.getSellingPrice(sale.getProductId());
+                        actualCost = prices.getActualPrice(sale.getProductId());
+                    }
+                    rows.add(new SaleRow(sale, Math.abs(sale.getQuantityChanged()), sellingPrice, actualCost));
+                }
+                return rows;
+            }
+        });
+    }
+    
+    private void updateTotalsLabels() {
         lblTotalQtySold.setText(String.format("Total Qty Sold: %.2f", totalQty));
         lblTotalRevenue.setText(String.format("Total Revenue: ₹%.2f", totalRevenue));
         lblTotalProfit.setText(String.format("Total Profit: ₹%.2f", totalProfit));
     }
-    
-    // Helper method to get average price for a product (fallback)
-    private double getAveragePriceForProduct(int productId, StockDAO stockDao, boolean isActual) {
-        List<StockEntry> allEntries = stockDao.getAllStockEntries();
-        double totalPrice = 0.0;
-        int count = 0;
-        
-        for (StockEntry entry : allEntries) {
-            if (entry.getProductId() == productId) {
-                if (isActual) {
-                    totalPrice += entry.getActualPricePerUnit();
-                } else {
-                    totalPrice += entry.getSellingPricePerUnit();
-                }
-                count++;
-            }
-        }
-        
-        return count > 0 ? totalPrice / count : 0.0;
-    }
 }
\ No newline at end of file
@@ -3,11 +3,15 @@ package com.salon.ui.panel;
 import com.salon.dao.ProductDAO;
 import com.salon.dao.StockMovementDAO;
 import com.salon.dao.StockDAO;
+import com.salon.dao.StockLedgerDAO;
+import com.salon.model.ProductPriceIndex;
+import com.salon.model.ProductPriceStats;
 import com.salon.model.StockMovement;
-import com.salon.model.StockEntry;
+import com.salon.ui.TableLoader;
 import javax.swing.*;
 import javax.swing.table.DefaultTableModel;
 import java.awt.*;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 
@@ -18,6 +22,23 @@ public class ProductUsagePanel extends JPanel {
     
     // Labels for totals
     private JLabel lblTotalQtyUsed, lblTotalActualCost, lblTotalSellingValue;
+    
+    // Background loading; running totals grow as chunks land
+    private TableLoader<UsageRow> usageLoader;
+    private double totalQtyUsed, totalActualCost, totalSellingValue;
+    
+    // One usage movement with its prices resolved on the loader thread
+    private static class UsageRow {
+        final StockMovement movement;
+        final double qtyUsed, actualPrice, sellingPrice;
+        
+        UsageRow(StockMovement movement, double qtyUsed, double actualPrice, double sellingPrice) {
+            this.movement = movement;
+            this.qtyUsed = qtyUsed;
+            this.actualPrice = actualPrice;
+            this.sellingPrice = sellingPrice;
+        }
+    }
 
     public ProductUsagePanel(Integer userId) {
         this.currentUserId = userId;
@@ -28,8 +49,11 @@ public class ProductUsagePanel extends JPanel {
         JButton btnRecordUsage = new JButton("Record Product Usage");
         JButton btnRefresh = new JButton("Refresh");
         
+        JProgressBar loadProgress = TableLoader.createProgressBar();
+        
         topPanel.add(btnRecordUsage);
         topPanel.add(btnRefresh);
+        topPanel.add(loadProgress);
 
         // Table with additional columns
         model = new DefaultTableModel(
@@ -43,6 +67,7 @@ public class ProductUsagePanel extends JPanel {
             }
         };
         table = new JTable(model);
+        usageLoader = new TableLoader<>(model, loadProgress);
 
         // Set column widths
         table.getColumnModel().getColumn(0).setPreferredWidth(100);  // Date
@@ -168,66 +193,49 @@ public class ProductUsagePanel extends JPanel {
     }
         
     private void loadUsageHistory() {
-        model.setRowCount(0);
-        StockMovementDAO movementDao = new StockMovementDAO();
-        StockDAO stockDao = new StockDAO();
-        List<StockMovement> movements = movementDao.getUsageMovements();
-        
-        double totalQtyUsed = 0.0;
-        double totalActualCost = 0.0;
-        double totalSellingValue = 0.0;
+        totalQtyUsed = 0.0;
+        totalActualCost = 0.0;
+        totalSellingValue = 0.0;
+        updateTotalsLabels();
         
-        for (StockMovement m : movements) {
-            double qtyUsed = Math.abs(m.getQuantityChanged());
+        usageLoader.load(() -> {
+            List<StockMovement> movements = new StockMovementDAO().getUsageMovements();
+            ProductPriceIndex prices = new StockDAO().getProductPriceIndex(); // one aggregate query for all rows
             
-            double actualPrice = getAveragePriceForProduct(m.getProductId(), stockDao, true);
-            double sellingPrice = getAveragePriceForProduct(m.getProductId(), stockDao, false);
-            
-            double totalActual = qtyUsed * actualPrice;
-            double totalSelling = qtyUsed * sellingPrice;
-            
-            totalQtyUsed += qtyUsed;
-            totalActualCost += totalActual;
-            totalSellingValue += totalSelling;
-            
-            model.addRow(new Object[]{
-                m.getMovementDateFormatted(),
-                m.getProductName(),
-                m.getProductBrand(),
-                String.format("%.2f", qtyUsed),
-                String.format("₹%.2f", actualPrice),
-                String.format("₹%.2f", sellingPrice),
-                String.format("₹%.2f", totalActual),
-                String.format("₹%.2f", totalSelling),
-                m.getUserName() != null ? m.getUserName() : "System",
-                m.getRemarks()
-            });
-        }
-        
+            List<UsageRow> rows = new ArrayList<>(movements.size());
+            for (StockMovement m : movements) {
+                rows.add(new UsageRow(m, Math.abs(m.getQuantityChanged()),
+                        prices.getActualPrice(m.getProductId()),
+                        prices.getSellingPrice(m.getProductId())));
+            }
+            return rows;
+        }, r -> new Object[]{
+            r.movement.getMovementDateFormatted(),
+            r.movement.getProductName(),
+            r.movement.getProductBrand(),
+            String.format("%.2f", r.qtyUsed),
+            String.format("₹%.2f", r.actualPrice),
+            String.format("₹%.2f", r.sellingPrice),
+            String.format("₹%.2f", r.qtyUsed * r.actualPrice),
+            String.format("₹%.2f", r.qtyUsed * r.sellingPrice),
+            r.movement.getUserName() != null ? r.movement.getUserName() : "System",
+            r.movement.getRemarks()
+        }, (chunk, loaded, total) -> {
+            for (UsageRow r : chunk) {
+                totalQtyUsed += r.qtyUsed;
+                totalActualCost += r.qtyUsed * r.actualPrice;
+                totalSellingValue += r.qtyUsed * r.sellingPrice;
+            }
+            updateTotalsLabels();
+        }, null);
+    }
+    
+    private void updateTotalsLabels() {
         lblTotalQtyUsed.setText(String.format("Total Qty Used: %.2f", totalQtyUsed));
         lblTotalActualCost.setText(String.format("Total Actual Cost: ₹%.2f", totalActualCost));
         lblTotalSellingValue.setText(String.format("Total Selling Value: ₹%.2f", totalSellingValue));
     }
     
-    private double getAveragePriceForProduct(int productId, StockDAO stockDao, boolean isActual) {
-        List<StockEntry> allEntries = stockDao.getAllStockEntries();
-        double totalPrice = 0.0;
-        int count = 0;
-        
-        for (StockEntry entry : allEntries) {
-            if (entry.getProductId() == productId) {
-                if (isActual) {
-                    totalPrice += entry.getActualPricePerUnit();
-                } else {
-                    totalPrice += entry.getSellingPricePerUnit();
-                }
-                count++;
-            }
-        }
-        
-        return count > 0 ? totalPrice / count : 0.0;
-    }
-
     private boolean recordUsage(JComboBox<String> cmbProducts, JTextField txtQuantity, 
                                 JTextArea txtRemarks, JDialog dialog) {
         try {
@@ -283,29 +291,20 @@ public class ProductUsagePanel extends JPanel {
                 }
             }
 
-            StockDAO stockDao = new StockDAO();
-            double actualPrice = getAveragePriceForProduct(productId, stockDao, true);
-            double sellingPrice = getAveragePriceForProduct(productId, stockDao, false);
+            // Weighted by entry quantity, the same prices the usage history shows
+            ProductPriceStats prices = new StockLedgerDAO().getPriceStats(productId);
+            double actualPrice = prices != null ? prices.getWeightedAverageCost() : 0.0;
+            double sellingPrice = prices != null ? prices.getWeightedAverageSellingPrice() : 0.0;
             
-            StockMovement movement = new StockMovement();
-            movement.setProductId(productId);
-            movement.setMovementDate(new Date());
-            movement.setQuantityChanged(-quantity);
-            movement.setMovementType("USAGE");
-            movement.setUserId(currentUserId);
-            movement.setRemarks(txtRemarks.getText().trim());
-
-            boolean success = dao.addStockMovement(movement);
+            // Movement, lot consumption and stock balance in one transaction
+            boolean success = dao.recordUsageWithStockDepletion(productId, quantity,
+                    currentUserId, txtRemarks.getText().trim());
             
             if (success) {
                 double totalActual = quantity * actualPrice;
                 double totalSelling = quantity * sellingPrice;
                 double remainingStock = availableStock - quantity;
                 
-                if (remainingStock == 0) {
-                    stockDao.updateStockStatus(productId, "COMPLETED");
-                }
-                
                 JOptionPane.showMessageDialog(dialog, 
                     String.format("✓ Usage recorded successfully!\n\n" +
                                 "Quantity Used: %.2f\n" +
@@ -2,6 +2,7 @@ package com.salon.ui.panel;
 
 import com.salon.dao.ServiceDAO;
 import com.salon.model.Service;
+import com.salon.ui.TableLoader;
 
 import javax.swing.*;
 import javax.swing.table.DefaultTableModel;
@@ -13,6 +14,8 @@ public class ServicesPanel extends JPanel {
     private JTable table;
     private DefaultTableModel model;
     private ServiceDAO serviceDAO;
+    private TableLoader<Service> serviceLoader;
+    private JProgressBar loadProgress;
 
     public ServicesPanel() {
         this.serviceDAO = new ServiceDAO();
@@ -48,6 +51,8 @@ public class ServicesPanel extends JPanel {
         table.getColumnModel().getColumn(4).setPreferredWidth(100);
         table.getColumnModel().getColumn(5).setPreferredWidth(100);
 
+        loadProgress = TableLoader.createProgressBar();
+        serviceLoader = new TableLoader<>(model, loadProgress);
         loadServices();
 
         JScrollPane scroll = new JScrollPane(table);
@@ -82,6 +87,7 @@ public class ServicesPanel extends JPanel {
         buttonPanel.add(btnDiscontinue);
         buttonPanel.add(btnReactivate);
         buttonPanel.add(btnRefresh);
+        buttonPanel.add(loadProgress);
         
         add(buttonPanel, BorderLayout.SOUTH);
 
@@ -94,19 +100,14 @@ public class ServicesPanel extends JPanel {
     }
 
     private void loadServices() {
-        model.setRowCount(0);
-        List<Service> services = serviceDAO.getAllServices();
-        
-        for (Service service : services) {
-            model.addRow(new Object[]{
-                service.getServiceId(),
-                service.getServiceName(),
-                service.getServiceCategory(),
-                String.format("₹%.2f", service.getBasePrice()),
-                service.getDurationMinutes() != null ? service.getDurationMinutes() : "-",
-                service.isActive() ? "Active" : "Discontinued"
-            });
-        }
+        serviceLoader.load(() -> serviceDAO.getAllServices(), service -> new Object[]{
+            service.getServiceId(),
+            service.getServiceName(),
+            service.getServiceCategory(),
+            String.format("₹%.2f", service.getBasePrice()),
+            service.getDurationMinutes() != null ? service.getDurationMinutes() : "-",
+            service.isActive() ? "Active" : "Discontinued"
+        });
     }
 
     private void addService(ActionEvent e) {
@@ -1,19 +1,21 @@
 package com.salon.ui.panel;
 
+import com.salon.dao.CatalogCache;
 import com.salon.dao.StockDAO;
 import com.salon.dao.ProductDAO;
 import com.salon.model.StockEntry;
+import com.salon.ui.PagedTableModel;
+import com.salon.service.ChangeFeed;
+import com.salon.ui.TableLoader;
 
 import javax.swing.*;
-import javax.swing.Timer;
-import javax.swing.table.DefaultTableModel;
 import java.awt.*;
 import java.util.*;
 import java.text.SimpleDateFormat;
 
 public class StockPanel extends JPanel {
     private JTable table;
-    private DefaultTableModel model;
+    private PagedTableModel<StockEntry> model;
     private JComboBox<String> cmbProducts;
     private JTextField txtQty, txtActualPrice, txtSellingPrice, txtNotes;
     private JButton btnAddStock, btnRefresh, btnLoadView, btnRefreshProducts;
@@ -22,8 +24,15 @@ public class StockPanel extends JPanel {
     // Labels for totals
     private JLabel lblGrandTotalActual, lblGrandTotalSelling, lblRecordCount;
     
-    // Timer for auto-refresh checking
-    private Timer refreshTimer;
+    // Grand totals come from an aggregate query run alongside the row count
+    private volatile double grandTotalActual, grandTotalSelling;
+    
+    // Product list changes (from this terminal or another) arrive through the change feed;
+    // the cached list is reloaded on the feed's thread so the EDT only fills the combo box
+    private final ChangeFeed.Listener productsListener = catalog -> {
+        new ProductDAO().getProductList();
+        SwingUtilities.invokeLater(this::loadProducts);
+    };
 
     public StockPanel() {
         setLayout(new BorderLayout());
@@ -77,19 +86,34 @@ public class StockPanel extends JPanel {
         filterPanel.add(btnRefreshProducts);
         filterPanel.add(Box.createHorizontalStrut(10));
         filterPanel.add(lblRecordCount);
+        
+        JProgressBar loadProgress = TableLoader.createProgressBar();
+        filterPanel.add(loadProgress);
 
         // Table
-     // In StockPanel constructor - MODIFY table model:
-        model = new DefaultTableModel(
+     // Lazy model: stock entries are fetched page by page as they scroll into view
+        SimpleDateFormat df = new SimpleDateFormat("yyyy-MM-dd");
+        model = new PagedTableModel<>(
             new String[]{"ID", "Product", "Brand", "Date", "Qty", "Actual/Unit", "Selling/Unit", 
                          "Total Actual", "Total Selling", "Status", "Notes"}, // ADDED Brand column
-            0
-        ) {
-            @Override
-            public boolean isCellEditable(int row, int column) {
-                return false;
-            }
-        };
+            s -> new Object[]{
+                s.getStockId(),
+                s.getProductName(),
+                s.getProductBrand(), // ADDED: Brand column
+                df.format(s.getAddDate()),
+                s.getQuantity(),
+                String.format("₹%.2f", s.getActualPricePerUnit()),
+                String.format("₹%.2f", s.getSellingPricePerUnit()),
+                String.format("₹%.2f", s.getQuantity() * s.getActualPricePerUnit()),
+                String.format("₹%.2f", s.getQuantity() * s.getSellingPricePerUnit()),
+                s.getStockStatus() != null ? s.getStockStatus() : "RUNNING",
+                s.getNotes()
+            });
+        model.setProgressBar(loadProgress);
+        model.setOnRefreshed(() -> {
+            lblRecordCount.setText(String.format("Showing: %d records", model.getRowCount()));
+            updateTotalsLabels();
+        });
         table = new JTable(model);
 
         // MODIFIED: Set column widths (added Brand column)
@@ -135,10 +159,6 @@ public class StockPanel extends JPanel {
         loadProducts();
         loadStockEntries();
 
-        // Auto-refresh timer - checks every 2 seconds when panel is visible
-        refreshTimer = new Timer(2000, e -> checkAndRefreshProducts());
-        refreshTimer.start();
-
         btnAddStock.addActionListener(e -> addStock());
         btnRefresh.addActionListener(e -> loadStockEntries());
         btnLoadView.addActionListener(e -> loadStockEntries());
@@ -151,25 +171,16 @@ public class StockPanel extends JPanel {
         });
     }
 
-    // Store last known product count
-    private int lastProductCount = 0;
-    
-    private void checkAndRefreshProducts() {
-        // Only check if panel is visible
-        if (!isVisible()) {
-            return;
-        }
-        
-        SwingUtilities.invokeLater(() -> {
-            ProductDAO dao = new ProductDAO();
-            int currentCount = dao.getProductList().size();
-            
-            // Refresh only if count changed
-            if (lastProductCount != 0 && currentCount != lastProductCount) {
-                loadProducts();
-            }
-            lastProductCount = currentCount;
-        });
+    @Override
+    public void addNotify() {
+        super.addNotify();
+        ChangeFeed.subscribe(CatalogCache.PRODUCTS, productsListener);
+    }
+
+    @Override
+    public void removeNotify() {
+        ChangeFeed.unsubscribe(CatalogCache.PRODUCTS, productsListener);
+        super.removeNotify();
     }
 
     private void loadProducts() {
@@ -179,8 +190,6 @@ public class StockPanel extends JPanel {
         ProductDAO dao = new ProductDAO();
         java.util.List<String[]> products = dao.getProductList();
         
-        lastProductCount = products.size(); // Update count
-        
         if (products.isEmpty()) {
             cmbProducts.addItem("No products available");
             btnAddStock.setEnabled(false);
@@ -203,52 +212,44 @@ public class StockPanel extends JPanel {
 
         
     private void loadStockEntries() {
-        model.setRowCount(0);
-        StockDAO dao = new StockDAO();
-        SimpleDateFormat df = new SimpleDateFormat("yyyy-MM-dd");
-        
-        double grandTotalActual = 0.0;
-        double grandTotalSelling = 0.0;
+        grandTotalActual = 0.0;
+        grandTotalSelling = 0.0;
+        lblRecordCount.setText("Showing: 0 records");
+        updateTotalsLabels();
         
         // Determine limit from selected filter
         String selected = (String) cmbViewFilter.getSelectedItem();
-        java.util.List<StockEntry> entries;
-        
+        final int limit;
         if (selected != null && selected.contains("5")) {
-            entries = dao.getRecentStockEntries(5);
+            limit = 5;
         } else if (selected != null && selected.contains("10")) {
-            entries = dao.getRecentStockEntries(10);
+            limit = 10;
         } else if (selected != null && selected.contains("15")) {
-            entries = dao.getRecentStockEntries(15);
+            limit = 15;
         } else {
-            entries = dao.getAllStockEntries();
-        }
-        
-        // Populate table - MODIFIED to include Brand
-        for (StockEntry s : entries) {
-            double totalActual = s.getQuantity() * s.getActualPricePerUnit();
-            double totalSelling = s.getQuantity() * s.getSellingPricePerUnit();
-            
-            grandTotalActual += totalActual;
-            grandTotalSelling += totalSelling;
-            
-            model.addRow(new Object[]{
-                    s.getStockId(),
-                    s.getProductName(),
-                    s.getProductBrand(), // ADDED: Brand column
-                    df.format(s.getAddDate()),
-                    s.getQuantity(),
-                    String.format("₹%.2f", s.getActualPricePerUnit()),
-                    String.format("₹%.2f", s.getSellingPricePerUnit()),
-                    String.format("₹%.2f", totalActual),
-                    String.format("₹%.2f", totalSelling),
-                    s.getStockStatus() != null ? s.getStockStatus() : "RUNNING",
-                    s.getNotes()
-            });
+            limit = 0; // All entries
         }
         
-        // Update labels
-        lblRecordCount.setText(String.format("Showing: %d records", entries.size()));
+        model.setSource(new PagedTableModel.PageSource<StockEntry>() {
+            @Override
+            public int count() {
+                StockDAO dao = new StockDAO();
+                double[] totals = dao.getStockEntryTotals(limit);
+                grandTotalActual = totals[0];
+                grandTotalSelling = totals[1];
+                int count = dao.countStockEntries();
+                return limit > 0 ? Math.min(limit, count) : count;
+            }
+
+            @Override
+            public java.util.List<StockEntry> fetchPage(StockEntry after, int offset, int pageLimit) {
+                return new StockDAO().getStockEntriesPage(after, offset,
+                        limit > 0 ? Math.min(pageLimit, limit) : pageLimit);
+            }
+        });
+    }
+    
+    private void updateTotalsLabels() {
         lblGrandTotalActual.setText(String.format("Total Actual Cost: ₹%.2f", grandTotalActual));
         lblGrandTotalSelling.setText(String.format("Total Selling Value: ₹%.2f", grandTotalSelling));
     }
@@ -1,6 +1,7 @@
 package com.salon.ui.panel;
 
 import com.salon.dao.StockMovementDAO;
+import com.salon.ui.TableLoader;
 import javax.swing.*;
 import javax.swing.table.DefaultTableModel;
 import javax.swing.table.DefaultTableCellRenderer;
@@ -13,6 +14,10 @@ public class StockSummaryPanel extends JPanel {
     private DefaultTableModel model;
     private JButton btnRefresh;
     private JLabel lblLowStock;
+    
+    // Background loading; warning counters grow as chunks land
+    private TableLoader<Map<String, Object>> summaryLoader;
+    private int lowStockCount, outOfStockCount;
 
     public StockSummaryPanel() {
         setLayout(new BorderLayout());
@@ -25,7 +30,10 @@ public class StockSummaryPanel extends JPanel {
         lblLowStock = new JLabel();
         lblLowStock.setForeground(Color.RED);
         
+        JProgressBar loadProgress = TableLoader.createProgressBar();
+        
         topPanel.add(btnRefresh);
+        topPanel.add(loadProgress);
         topPanel.add(Box.createHorizontalStrut(20));
         topPanel.add(lblLowStock);
 
@@ -42,6 +50,7 @@ public class StockSummaryPanel extends JPanel {
         
         table = new JTable(model);
         table.setRowHeight(25);
+        summaryLoader = new TableLoader<>(model, loadProgress);
         
         // Set column widths
         table.getColumnModel().getColumn(0).setPreferredWidth(200);
@@ -99,50 +108,50 @@ public class StockSummaryPanel extends JPanel {
     }
 
     private void loadStockSummary() {
-        model.setRowCount(0);
-        StockMovementDAO dao = new StockMovementDAO();
-        List<Map<String, Object>> summary = dao.getStockSummary();
-        
-        int lowStockCount = 0;
-        int outOfStockCount = 0;
+        lowStockCount = 0;
+        outOfStockCount = 0;
+        lblLowStock.setText("");
         
-        for (Map<String, Object> row : summary) {
-            String name = (String) row.get("name");
-            String brand = (String) row.get("brand");
-            double totalAdded = (Double) row.get("total_added");
-            double totalUsed = (Double) row.get("total_used");
-            double availableStock = (Double) row.get("available_stock");
-            
-            // Determine status
-            String status;
-            if (availableStock <= 0) {
-                status = "OUT OF STOCK";
-                outOfStockCount++;
-            } else if (availableStock <= 5) {
-                status = "LOW STOCK";
-                lowStockCount++;
-            } else if (availableStock <= 10) {
-                status = "MODERATE";
-            } else {
-                status = "ADEQUATE";
+        summaryLoader.load(() -> new StockMovementDAO().getStockSummary(), row -> new Object[]{
+            row.get("name"),
+            row.get("brand"),
+            String.format("%.2f", (Double) row.get("total_added")),
+            String.format("%.2f", (Double) row.get("total_used")),
+            String.format("%.2f", (Double) row.get("available_stock")),
+            getStatus((Double) row.get("available_stock"))
+        }, (chunk, loaded, total) -> {
+            for (Map<String, Object> row : chunk) {
+                String status = getStatus((Double) row.get("available_stock"));
+                if ("OUT OF STOCK".equals(status)) {
+                    outOfStockCount++;
+                } else if ("LOW STOCK".equals(status)) {
+                    lowStockCount++;
+                }
             }
-            
-            model.addRow(new Object[]{
-                name,
-                brand,
-                String.format("%.2f", totalAdded),
-                String.format("%.2f", totalUsed),
-                String.format("%.2f", availableStock),
-                status
-            });
+            updateWarningLabel();
+        }, null);
+    }
+    
+    // Determine status
+    private static String getStatus(double availableStock) {
+        if (availableStock <= 0) {
+            return "OUT OF STOCK";
+        } else if (availableStock <= 5) {
+            return "LOW STOCK";
+        } else if (availableStock <= 10) {
+            return "MODERATE";
         }
-        
-        // Update low stock warning label
+        return "ADEQUATE";
+    }
+    
+    // Update low stock warning label
+    private void updateWarningLabel() {
         if (outOfStockCount > 0 || lowStockCount > 0) {
             lblLowStock.setText(String.format(
                 "⚠ Warning: %d product(s) out of stock, %d low stock", 
                 outOfStockCount, lowStockCount
             ));
+            lblLowStock.setForeground(Color.RED);
         } else {
             lblLowStock.setText("✓ All products adequately stocked");
             lblLowStock.setForeground(new Color(0, 128, 0));
@@ -0,0 +1,486 @@
+package com.salon.util;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Bounded JDBC connection pool used by DBConnection.
+ *
+ * Callers get a proxy Connection; close() hands the physical connection back
+ * to the pool instead of closing the socket. Works with any JDBC URL, so the
+ * same pool can be pointed at an embedded database for local testing.
+ */
+public class ConnectionPool {
+
+    // Idle connections younger than this are handed out without a ping
+    private static final long VALIDATION_BYPASS_MS = 1000;
+    private static final int VALIDATION_TIMEOUT_SECONDS = 2;
+    private static final long HOUSEKEEPING_INTERVAL_MS = 5000;
+
+    private final String url;
+    private final String user;
+    private final String password;
+    private final int minIdle;
+    private final int maxSize;
+    private final long maxWaitMs;
+    private final long idleTimeoutMs;
+    private final long leakThresholdMs;
+    private final boolean leakTrace;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition available = lock.newCondition();
+    private final Deque<PooledConnection> idle = new ArrayDeque<>();   // head = most recently used
+    private final Set<PooledConnection> borrowed = ConcurrentHashMap.newKeySet();
+    private int totalCount;   // idle + borrowed + being created (guarded by lock)
+    private int waiterCount;  // guarded by lock
+    private boolean shutdown; // guarded by lock
+
+    private final AtomicLong borrowCount = new AtomicLong();
+    private final AtomicLong totalBorrowNanos = new AtomicLong();
+    private final AtomicLong maxBorrowNanos = new AtomicLong();
+    private final AtomicLong waitTimeouts = new AtomicLong();
+    private final AtomicLong leaksDetected = new AtomicLong();
+    private final AtomicLong created = new AtomicLong();
+    private final AtomicLong destroyed = new AtomicLong();
+
+    private final ScheduledExecutorService housekeeper;
+
+    public ConnectionPool(String url, String user, String password,
+                          int minIdle, int maxSize, long maxWaitMs,
+                          long idleTimeoutMs, long leakThresholdMs) {
+        this(url, user, password, minIdle, maxSize, maxWaitMs, idleTimeoutMs, leakThresholdMs, false);
+    }
+
+    // leakTrace captures a stack trace on every borrow so a leak report can say where the
+    // connection was taken; it costs a stack walk per borrow, so it is meant for debugging only
+    public ConnectionPool(String url, String user, String password,
+                          int minIdle, int maxSize, long maxWaitMs,
+                          long idleTimeoutMs, long leakThresholdMs, boolean leakTrace) {
+        if (maxSize <= 0 || minIdle < 0 || minIdle > maxSize) {
+            throw new IllegalArgumentException("Invalid pool size: minIdle=" + minIdle + ", maxSize=" + maxSize);
+        }
+        this.url = url;
+        this.user = user;
+        this.password = password;
+        this.minIdle = minIdle;
+        this.maxSize = maxSize;
+        this.maxWaitMs = maxWaitMs;
+        this.idleTimeoutMs = idleTimeoutMs;
+        this.leakThresholdMs = leakThresholdMs;
+        this.leakTrace = leakThresholdMs > 0 && leakTrace;
+
+        this.housekeeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "salon-db-pool-housekeeper");
+            t.setDaemon(true);
+            return t;
+        });
+        housekeeper.scheduleWithFixedDelay(this::housekeep,
+                HOUSEKEEPING_INTERVAL_MS, HOUSEKEEPING_INTERVAL_MS, TimeUnit.MILLISECONDS);
+    }
+
+    // Borrow a connection, waiting up to maxWaitMs when the pool is exhausted
+    public Connection getConnection() throws SQLException {
+        long start = System.nanoTime();
+        long deadline = start + TimeUnit.MILLISECONDS.toNanos(maxWaitMs);
+
+        while (true) {
+            PooledConnection candidate = null;
+            boolean mayCreate = false;
+
+            lock.lock();
+            try {
+                while (true) {
+                    if (shutdown) {
+                        throw new SQLException("Connection pool is shut down");
+                    }
+                    candidate = idle.pollFirst();
+                    if (candidate != null) {
+                        break;
+                    }
+                    if (totalCount < maxSize) {
+                        totalCount++;
+                        mayCreate = true;
+                        break;
+                    }
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        waitTimeouts.incrementAndGet();
+                        throw new SQLException("Timed out after " + maxWaitMs + " ms waiting for a database connection ("
+                                + borrowed.size() + " in use, max " + maxSize + ")");
+                    }
+                    waiterCount++;
+                    try {
+                        available.awaitNanos(remaining);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new SQLException("Interrupted while waiting for a database connection", e);
+                    } finally {
+                        waiterCount--;
+                    }
+                }
+            } finally {
+                lock.unlock();
+            }
+
+            if (mayCreate) {
+                try {
+                    candidate = new PooledConnection(DriverManager.getConnection(url, user, password));
+                    created.incrementAndGet();
+                } catch (SQLException e) {
+                    releaseSlot();
+                    throw e;
+                }
+            } else if (!isUsable(candidate)) {
+                destroy(candidate);
+                continue;
+            }
+
+            candidate.markBorrowed(leakTrace ? new Throwable("Connection borrowed here") : null);
+            borrowed.add(candidate);
+            recordBorrowLatency(System.nanoTime() - start);
+            return candidate.newHandle();
+        }
+    }
+
+    public PoolStats getStats() {
+        int idleNow;
+        int waitersNow;
+        lock.lock();
+        try {
+            idleNow = idle.size();
+            waitersNow = waiterCount;
+        } finally {
+            lock.unlock();
+        }
+        long borrows = borrowCount.get();
+        double avgMs = borrows == 0 ? 0.0 : totalBorrowNanos.get() / (double) borrows / 1_000_000.0;
+        double maxMs = maxBorrowNanos.get() / 1_000_000.0;
+        return new PoolStats(borrowed.size(), idleNow, waitersNow, maxSize, borrows, avgMs, maxMs,
+                waitTimeouts.get(), leaksDetected.get(), created.get(), destroyed.get());
+    }
+
+    // Close idle connections and refuse new borrows; borrowed connections are closed when returned
+    public void shutdown() {
+        List<PooledConnection> toClose;
+        lock.lock();
+        try {
+            shutdown = true;
+            toClose = new ArrayList<>(idle);
+            idle.clear();
+            available.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        housekeeper.shutdownNow();
+        for (PooledConnection pc : toClose) {
+            destroy(pc);
+        }
+    }
+
+    // Warm the pool up to minIdle so the first screens don't pay the handshake
+    public void prefill() {
+        fillToMinIdle();
+    }
+
+    // ---------------------------------------------------------------------
+
+    private boolean isUsable(PooledConnection pc) {
+        try {
+            if (pc.physical.isClosed()) {
+                return false;
+            }
+            if (System.currentTimeMillis() - pc.lastReturnedAt < VALIDATION_BYPASS_MS) {
+                return true;
+            }
+            return pc.physical.isValid(VALIDATION_TIMEOUT_SECONDS);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private void recordBorrowLatency(long nanos) {
+        borrowCount.incrementAndGet();
+        totalBorrowNanos.addAndGet(nanos);
+        maxBorrowNanos.accumulateAndGet(nanos, Math::max);
+    }
+
+    private void release(PooledConnection pc) {
+        borrowed.remove(pc);
+        if (!pc.resetForReuse()) {
+            destroy(pc);
+            return;
+        }
+        lock.lock();
+        try {
+            if (shutdown) {
+                totalCount--;
+            } else {
+                idle.addFirst(pc);
+                available.signal();
+                return;
+            }
+        } finally {
+            lock.unlock();
+        }
+        closeQuietly(pc);
+    }
+
+    private void destroy(PooledConnection pc) {
+        closeQuietly(pc);
+        releaseSlot();
+    }
+
+    private void closeQuietly(PooledConnection pc) {
+        try {
+            pc.physical.close();
+        } catch (SQLException ignored) {
+        }
+        destroyed.incrementAndGet();
+    }
+
+    private void releaseSlot() {
+        lock.lock();
+        try {
+            totalCount--;
+            available.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void housekeep() {
+        try {
+            evictIdle();
+            detectLeaks();
+            fillToMinIdle();
+        } catch (Throwable t) {
+            t.printStackTrace();
+        }
+    }
+
+    private void evictIdle() {
+        if (idleTimeoutMs <= 0) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        List<PooledConnection> evicted = new ArrayList<>();
+        lock.lock();
+        try {
+            // Oldest idle connections sit at the tail
+            Iterator<PooledConnection> it = idle.descendingIterator();
+            while (it.hasNext() && totalCount - evicted.size() > minIdle) {
+                PooledConnection pc = it.next();
+                if (now - pc.lastReturnedAt >= idleTimeoutMs) {
+                    it.remove();
+                    evicted.add(pc);
+                }
+            }
+            totalCount -= evicted.size();
+        } finally {
+            lock.unlock();
+        }
+        for (PooledConnection pc : evicted) {
+            closeQuietly(pc);
+        }
+    }
+
+    private void detectLeaks() {
+        if (leakThresholdMs <= 0) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        for (PooledConnection pc : borrowed) {
+            if (!pc.leakReported && now - pc.borrowedAt > leakThresholdMs) {
+                pc.leakReported = true;
+                leaksDetected.incrementAndGet();
+                System.err.println("⚠ Possible connection leak: connection held for "
+                        + (now - pc.borrowedAt) + " ms without being closed");
+                if (pc.borrowSite != null) {
+                    pc.borrowSite.printStackTrace();
+                } else {
+                    System.err.println("  (run with -Dsalon.pool.leakTrace=true to see where it was borrowed)");
+                }
+            }
+        }
+    }
+
+    private void fillToMinIdle() {
+        while (true) {
+            lock.lock();
+            try {
+                if (shutdown || totalCount >= minIdle || totalCount >= maxSize) {
+                    return;
+                }
+                totalCount++;
+            } finally {
+                lock.unlock();
+            }
+            try {
+                PooledConnection pc = new PooledConnection(DriverManager.getConnection(url, user, password));
+                created.incrementAndGet();
+                lock.lock();
+                try {
+                    idle.addLast(pc);
+                    available.signal();
+                } finally {
+                    lock.unlock();
+                }
+            } catch (SQLException e) {
+                releaseSlot();
+                e.printStackTrace();
+                return;
+            }
+        }
+    }
+
+    // One physical connection plus its bookkeeping
+    private final class PooledConnection {
+        final Connection physical;
+        final List<Statement> openStatements = new ArrayList<>();
+        volatile long borrowedAt;
+        volatile long lastReturnedAt = System.currentTimeMillis();
+        volatile Throwable borrowSite;
+        volatile boolean leakReported;
+        Handle currentHandle;
+        // Driver defaults as opened; a borrower's changes are undone on return
+        final int defaultIsolation;
+        final boolean defaultReadOnly;
+
+        PooledConnection(Connection physical) throws SQLException {
+            this.physical = physical;
+            try {
+                defaultIsolation = physical.getTransactionIsolation();
+                defaultReadOnly = physical.isReadOnly();
+            } catch (SQLException e) {
+                try {
+                    physical.close();
+                } catch (SQLException ignored) {
+                }
+                throw e;
+            }
+        }
+
+        void markBorrowed(Throwable site) {
+            borrowedAt = System.currentTimeMillis();
+            borrowSite = site;
+            leakReported = false;
+        }
+
+        Connection newHandle() {
+            currentHandle = new Handle(this);
+            return (Connection) Proxy.newProxyInstance(
+                    ConnectionPool.class.getClassLoader(),
+                    new Class<?>[]{Connection.class},
+                    currentHandle);
+        }
+
+        // Undo whatever the borrower left behind; false means the connection should be discarded
+        boolean resetForReuse() {
+            try {
+                synchronized (openStatements) {
+                    for (Statement st : openStatements) {
+                        try {
+                            st.close();
+                        } catch (SQLException ignored) {
+                        }
+                    }
+                    openStatements.clear();
+                }
+                if (physical.isClosed()) {
+                    return false;
+                }
+                if (!physical.getAutoCommit()) {
+                    physical.rollback();
+                    physical.setAutoCommit(true);
+                }
+                if (physical.isReadOnly() != defaultReadOnly) {
+                    physical.setReadOnly(defaultReadOnly);
+                }
+                if (physical.getTransactionIsolation() != defaultIsolation) {
+                    physical.setTransactionIsolation(defaultIsolation);
+                }
+                physical.clearWarnings();
+                lastReturnedAt = System.currentTimeMillis();
+                borrowSite = null;
+                return true;
+            } catch (SQLException e) {
+                return false;
+            }
+        }
+    }
+
+    // Logical connection handed to callers; becomes unusable after close()
+    private final class Handle implements InvocationHandler {
+        private final PooledConnection owner;
+        private boolean closed;
+
+        Handle(PooledConnection owner) {
+            this.owner = owner;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            switch (name) {
+                case "close":
+                    synchronized (this) {
+                        if (closed) {
+                            return null;
+                        }
+                        closed = true;
+                    }
+                    release(owner);
+                    return null;
+                case "isClosed":
+                    synchronized (this) {
+                        return closed || owner.physical.isClosed();
+                    }
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "PooledConnection@" + Integer.toHexString(System.identityHashCode(proxy));
+                default:
+                    break;
+            }
+
+            synchronized (this) {
+                if (closed) {
+                    throw new SQLException("Connection is closed");
+                }
+            }
+
+            try {
+                Object result = method.invoke(owner.physical, args);
+                if (result instanceof Statement) {
+                    synchronized (owner.openStatements) {
+                        owner.openStatements.add((Statement) result);
+                    }
+                }
+                return result;
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+}
\ No newline at end of file
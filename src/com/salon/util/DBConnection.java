@@ -1,21 +1,83 @@
 package com.salon.util;
 
 import java.sql.Connection;
-import java.sql.DriverManager;
 
 public class DBConnection {
-    private static final String URL = "jdbc:mysql://localhost:3306/salon_db_2";
+    // useCursorFetch: statements that set a fetch size (the customer scans) read through a server-side
+    // cursor in batches instead of buffering the whole result; others are unaffected. Keep it when
+    // overriding with -Dsalon.db.url
+    private static final String URL = "jdbc:mysql://localhost:3306/salon_db_2?useCursorFetch=true";
     private static final String USER = "root";
     private static final String PASSWORD = "sachin"; // change if you have password
+    private static final String DRIVER = "com.mysql.cj.jdbc.Driver";
+
+    // Every setting can be overridden with -Dsalon.db.* / -Dsalon.pool.* (e.g. to run against an embedded DB)
+    private static volatile ConnectionPool pool;
 
     public static Connection getConnection() {
         Connection conn = null;
         try {
-            Class.forName("com.mysql.cj.jdbc.Driver");
-            conn = DriverManager.getConnection(URL, USER, PASSWORD);
+            conn = getPool().getConnection();
         } catch (Exception e) {
             e.printStackTrace();
         }
         return conn;
     }
+
+    public static PoolStats getPoolStats() {
+        return getPool().getStats();
+    }
+
+    // Swap in a different pool (tools and load tests); the previous pool is shut down
+    public static synchronized void setPool(ConnectionPool newPool) {
+        ConnectionPool old = pool;
+        pool = newPool;
+        if (old != null && old != newPool) {
+            old.shutdown();
+        }
+    }
+
+    public static synchronized void shutdown() {
+        if (pool != null) {
+            pool.shutdown();
+            pool = null;
+        }
+    }
+
+    private static ConnectionPool getPool() {
+        ConnectionPool p = pool;
+        if (p == null) {
+            synchronized (DBConnection.class) {
+                p = pool;
+                if (p == null) {
+                    p = createDefaultPool();
+                    pool = p;
+                }
+            }
+        }
+        return p;
+    }
+
+    private static ConnectionPool createDefaultPool() {
+        String driver = System.getProperty("salon.db.driver", DRIVER);
+        try {
+            Class.forName(driver);
+        } catch (ClassNotFoundException e) {
+            // JDBC 4 drivers on the classpath still register themselves
+            System.err.println("JDBC driver class not found: " + driver);
+        }
+
+        ConnectionPool p = new ConnectionPool(
+                System.getProperty("salon.db.url", URL),
+                System.getProperty("salon.db.user", USER),
+                System.getProperty("salon.db.password", PASSWORD),
+                Integer.getInteger("salon.pool.minIdle", 2),
+                Integer.getInteger("salon.pool.maxSize", 10),
+                Long.getLong("salon.pool.maxWaitMs", 5000L),
+                Long.getLong("salon.pool.idleTimeoutMs", 300000L),
+                Long.getLong("salon.pool.leakThresholdMs", 60000L),
+                Boolean.getBoolean("salon.pool.leakTrace"));
+        Runtime.getRuntime().addShutdownHook(new Thread(p::shutdown, "salon-db-pool-shutdown"));
+        return p;
+    }
 }
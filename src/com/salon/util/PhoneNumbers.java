@@ -0,0 +1,48 @@
+package com.salon.util;
+
+// ☎️ Phone numbers as the salon types them ("+91 98765-43210", "098765 43210", "9876543210")
+// reduced to one comparable form: digits only, without the Indian country code or trunk 0.
+public final class PhoneNumbers {
+
+    // Longest number the lookup index can hold (E.164 allows 15 digits)
+    public static final int MAX_DIGITS = 15;
+
+    // Digits of a complete local mobile number
+    public static final int LOCAL_DIGITS = 10;
+
+    private PhoneNumbers() {
+    }
+
+    // "" for null/blank or input without digits
+    public static String normalize(String raw) {
+        if (raw == null) {
+            return "";
+        }
+        StringBuilder sb = new StringBuilder(raw.length());
+        for (int i = 0; i < raw.length(); i++) {
+            char ch = raw.charAt(i);
+            if (ch >= '0' && ch <= '9') {
+                sb.append(ch);
+            }
+        }
+        String digits = sb.toString();
+        if (digits.startsWith("00")) {
+            digits = digits.substring(2); // international prefix: 0091...
+        }
+        if (digits.length() == LOCAL_DIGITS + 2 && digits.startsWith("91")) {
+            return digits.substring(2);
+        }
+        if (digits.length() == LOCAL_DIGITS + 1 && digits.startsWith("0")) {
+            return digits.substring(1);
+        }
+        return digits;
+    }
+
+    // Grouped for display: 98765 43210 (anything that is not 10 digits is returned as is)
+    public static String format(String normalized) {
+        if (normalized == null || normalized.length() != LOCAL_DIGITS) {
+            return normalized;
+        }
+        return normalized.substring(0, 5) + " " + normalized.substring(5);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,62 @@
+package com.salon.util;
+
+// Point-in-time snapshot of ConnectionPool counters (safe to read from any thread)
+public class PoolStats {
+    private final int active;
+    private final int idle;
+    private final int waiters;
+    private final int maxSize;
+    private final long borrowCount;
+    private final double avgBorrowMillis;
+    private final double maxBorrowMillis;
+    private final long waitTimeouts;
+    private final long leaksDetected;
+    private final long connectionsCreated;
+    private final long connectionsDestroyed;
+
+    public PoolStats(int active, int idle, int waiters, int maxSize, long borrowCount,
+                     double avgBorrowMillis, double maxBorrowMillis, long waitTimeouts,
+                     long leaksDetected, long connectionsCreated, long connectionsDestroyed) {
+        this.active = active;
+        this.idle = idle;
+        this.waiters = waiters;
+        this.maxSize = maxSize;
+        this.borrowCount = borrowCount;
+        this.avgBorrowMillis = avgBorrowMillis;
+        this.maxBorrowMillis = maxBorrowMillis;
+        this.waitTimeouts = waitTimeouts;
+        this.leaksDetected = leaksDetected;
+        this.connectionsCreated = connectionsCreated;
+        this.connectionsDestroyed = connectionsDestroyed;
+    }
+
+    public int getActive() { return active; }
+    public int getIdle() { return idle; }
+    public int getTotal() { return active + idle; }
+    public int getWaiters() { return waiters; }
+    public int getMaxSize() { return maxSize; }
+    public long getBorrowCount() { return borrowCount; }
+    public double getAvgBorrowMillis() { return avgBorrowMillis; }
+    public double getMaxBorrowMillis() { return maxBorrowMillis; }
+    public long getWaitTimeouts() { return waitTimeouts; }
+    public long getLeaksDetected() { return leaksDetected; }
+    public long getConnectionsCreated() { return connectionsCreated; }
+    public long getConnectionsDestroyed() { return connectionsDestroyed; }
+
+    @Override
+    public String toString() {
+        return "PoolStats{" +
+                "active=" + active +
+                ", idle=" + idle +
+                ", waiters=" + waiters +
+                ", maxSize=" + maxSize +
+                ", borrows=" + borrowCount +
+                ", avgBorrowMs=" + String.format("%.3f", avgBorrowMillis) +
+                ", maxBorrowMs=" + String.format("%.3f", maxBorrowMillis) +
+                ", timeouts=" + waitTimeouts +
+                ", leaks=" + leaksDetected +
+                ", created=" + connectionsCreated +
+                ", destroyed=" + connectionsDestroyed +
+                '}';
+    }
+}
\ No newline at end of file